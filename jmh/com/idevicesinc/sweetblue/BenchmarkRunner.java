@@ -0,0 +1,75 @@
+package com.idevicesinc.sweetblue;
+
+import android.app.Activity;
+
+import com.idevicesinc.sweetblue.backend.Backend_Modules;
+import com.idevicesinc.sweetblue.backend.stack.Backend_BleStack_Simulated;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+
+/**
+ * Entry point for the JMH benchmarks in this source set, run through the <code>jmh</code> task in scripts/build.gradle.
+ * Most of SweetBlue needs real framework classes (handlers, loopers, logging), so this runs as a Robolectric test and
+ * benchmarks execute in-process with zero forks, meaning they share this sandbox and its {@link BleManager} singleton.
+ * That singleton runs on {@link Backend_BleStack_Simulated}, so nothing here depends on Robolectric's Bluetooth shadows.
+ * <br><br>
+ * Results are written as JSON to the file given by the <code>sweetblue.jmh.result</code> system property so they can be diffed
+ * between releases. <code>sweetblue.jmh.include</code> is an optional regex narrowing down which benchmarks run.
+ */
+@Config(manifest = Config.NONE)
+@RunWith(RobolectricTestRunner.class)
+public class BenchmarkRunner
+{
+	static final String PROPERTY_RESULT = "sweetblue.jmh.result";
+	static final String PROPERTY_INCLUDE = "sweetblue.jmh.include";
+
+	private static final String DEFAULT_RESULT = "build/reports/jmh/results.json";
+	private static final String DEFAULT_INCLUDE = "com\\.idevicesinc\\.sweetblue\\.Benchmark_.*";
+
+	private static Activity s_activity;
+
+	static BleManager getManager()
+	{
+		return BleManager.get(s_activity);
+	}
+
+	@Before
+	public void setup()
+	{
+		Backend_Modules.BLE_STACK = Backend_BleStack_Simulated.class;
+
+		s_activity = Robolectric.buildActivity(Activity.class).create().get();
+	}
+
+	@Test
+	public void runBenchmarks() throws RunnerException
+	{
+		final File result = new File(System.getProperty(PROPERTY_RESULT, DEFAULT_RESULT));
+
+		if( result.getParentFile() != null )
+		{
+			result.getParentFile().mkdirs();
+		}
+
+		final Options options = new OptionsBuilder()
+			.include(System.getProperty(PROPERTY_INCLUDE, DEFAULT_INCLUDE))
+			.forks(0)
+			.resultFormat(ResultFormatType.JSON)
+			.result(result.getAbsolutePath())
+			.build();
+
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,103 @@
+package com.idevicesinc.sweetblue;
+
+import com.idevicesinc.sweetblue.backend.Backend_Modules;
+import com.idevicesinc.sweetblue.backend.historical.Backend_HistoricalDataList;
+import com.idevicesinc.sweetblue.backend.historical.Backend_HistoricalDatabase_Default;
+import com.idevicesinc.sweetblue.utils.EpochTime;
+import com.idevicesinc.sweetblue.utils.EpochTimeRange;
+import com.idevicesinc.sweetblue.utils.HistoricalData;
+import com.idevicesinc.sweetblue.utils.HistoricalDataCursor;
+import com.idevicesinc.sweetblue.utils.Uuids;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures adding to, iterating over, and walking a cursor over whatever {@link Backend_HistoricalDataList} is currently
+ * installed through {@link Backend_Modules#HISTORICAL_DATA_LIST}, so results track the backend actually shipped.
+ * Adds are capped at {@link #count} so the list stays the same size for the whole run.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class Benchmark_HistoricalDataList
+{
+	private static final String MAC_ADDRESS = "BE:5C:00:00:00:01";
+	private static final UUID CHAR_UUID = Uuids.BATTERY_LEVEL;
+
+	@Param({"1000", "100000"})
+	public int count;
+
+	private Backend_HistoricalDataList m_list;
+	private long m_time;
+
+	@Setup
+	public void setup() throws Exception
+	{
+		m_list = Backend_Modules.HISTORICAL_DATA_LIST.newInstance();
+		m_list.init(new Backend_HistoricalDatabase_Default(), null, MAC_ADDRESS, CHAR_UUID, "battery", /*hasExistingTable=*/false);
+
+		m_time = 0;
+
+		for( int i = 0; i < count; i++ )
+		{
+			add();
+		}
+	}
+
+	@Benchmark
+	public void add()
+	{
+		m_list.add_single(new HistoricalData(new byte[]{(byte) m_time}, new EpochTime(++m_time)), BleDeviceConfig.HistoricalDataLogFilter.PersistenceLevel.MEMORY, count);
+	}
+
+	@Benchmark
+	public int iterate()
+	{
+		final Iterator<HistoricalData> iterator = m_list.getIterator(EpochTimeRange.FROM_MIN_TO_MAX);
+		int sum = 0;
+
+		while( iterator.hasNext() )
+		{
+			sum += iterator.next().getBlob().length;
+		}
+
+		return sum;
+	}
+
+	@Benchmark
+	public long cursor()
+	{
+		final HistoricalDataCursor cursor = m_list.getCursor(EpochTimeRange.FROM_MIN_TO_MAX);
+		long sum = 0;
+
+		while( cursor.moveToNext() )
+		{
+			sum += cursor.getEpochTime();
+		}
+
+		cursor.close();
+
+		return sum;
+	}
+
+	@Benchmark
+	public HistoricalData get_middle()
+	{
+		return m_list.get(EpochTimeRange.FROM_MIN_TO_MAX, count/2);
+	}
+}
@@ -0,0 +1,75 @@
+package com.idevicesinc.sweetblue;
+
+import android.bluetooth.BluetoothGatt;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link P_Logger} call sites as they appear throughout the library, both with logging enabled
+ * and with it disabled, where ideally they'd cost next to nothing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class Benchmark_Logger
+{
+	@Param({"false", "true"})
+	public boolean loggingEnabled;
+
+	@Param({"false", "true"})
+	public boolean loggingCallerInfo;
+
+	private P_Logger m_logger;
+	private int m_counter = 0;
+
+	@Setup
+	public void setup()
+	{
+		final BleManagerConfig config = new BleManagerConfig(loggingEnabled);
+
+		m_logger = new P_Logger(config.debugThreadNames, config.uuidNameMaps, config.loggingEnabled, config.loggingLevel, loggingCallerInfo);
+	}
+
+	@Benchmark
+	public void i_constant()
+	{
+		m_logger.i("Discovered device.");
+	}
+
+	@Benchmark
+	public void i_concatenated()
+	{
+		m_logger.i("Discovered device " + "bench_" + m_counter + " with rssi " + (-(m_counter++ & 0x3F)) + ".");
+	}
+
+	@Benchmark
+	public void i_format()
+	{
+		m_logger.i_format("Discovered device bench_{} with rssi {}.", m_counter, -(m_counter++ & 0x3F));
+	}
+
+	@Benchmark
+	public void w_gattStatus()
+	{
+		m_logger.w(m_logger.gattStatus(BluetoothGatt.GATT_FAILURE));
+	}
+
+	@Benchmark
+	public void i_gattConn()
+	{
+		m_logger.i(m_logger.gattConn(BluetoothGatt.STATE_CONNECTED));
+	}
+}
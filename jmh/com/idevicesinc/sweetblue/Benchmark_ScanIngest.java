@@ -0,0 +1,196 @@
+package com.idevicesinc.sweetblue;
+
+import android.bluetooth.BluetoothDevice;
+
+import com.idevicesinc.sweetblue.utils.ScanRecordView;
+import com.idevicesinc.sweetblue.utils.Utils_ScanRecord;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the scan ingestion path, i.e. {@link BleManager#onDiscovered(BluetoothDevice, int, byte[])} for both never-before-seen
+ * and already-known advertisers, and {@link Utils_ScanRecord#parseServiceUuids(byte[])} and {@link ScanRecordView} by themselves.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class Benchmark_ScanIngest
+{
+	private static final int NEW_ADVERTISER_COUNT = 1000;
+
+	private static final UUID SERVICE_UUID = UUID.fromString("0000180d-0000-1000-8000-00805f9b34fb");
+
+	/**
+	 * A batch of advertisers with fresh addresses so that every call goes down the new-device path.
+	 */
+	@State(Scope.Thread)
+	public static class NewAdvertisers
+	{
+		private final ArrayList<String> m_addresses = new ArrayList<String>();
+		private BluetoothDevice[] m_devices;
+		private int m_batch = 0;
+
+		@Setup(Level.Invocation)
+		public void setup()
+		{
+			final BleManager mngr = BenchmarkRunner.getManager();
+
+			m_batch++;
+			m_devices = new BluetoothDevice[NEW_ADVERTISER_COUNT];
+
+			for( int i = 0; i < m_devices.length; i++ )
+			{
+				final String macAddress = macAddress(0xB0, (m_batch << 16) | i);
+
+				m_devices[i] = mngr.newNativeDevice(macAddress);
+				m_addresses.add(macAddress);
+			}
+		}
+
+		@TearDown(Level.Iteration)
+		public void tearDown()
+		{
+			final BleManager mngr = BenchmarkRunner.getManager();
+
+			for( int i = 0; i < m_addresses.size(); i++ )
+			{
+				final BleDevice device = mngr.m_deviceMngr.get(m_addresses.get(i));
+
+				if( device != null )
+				{
+					mngr.m_deviceMngr.remove(device, null);
+				}
+			}
+
+			m_addresses.clear();
+		}
+	}
+
+	@Param({"1000", "5000"})
+	public int advertiserCount;
+
+	private BleManager m_mngr;
+	private BluetoothDevice[] m_known;
+	private byte[][] m_scanRecords;
+	private int m_index = 0;
+	private final ScanRecordView m_view = new ScanRecordView();
+
+	static String macAddress(final int prefix, final int index)
+	{
+		return String.format("%02X:%02X:%02X:%02X:%02X:%02X", prefix, 0x5B, (index >> 24) & 0xFF, (index >> 16) & 0xFF, (index >> 8) & 0xFF, index & 0xFF);
+	}
+
+	static byte[] newScanRecord(final int index)
+	{
+		final byte[] name = ("adv_" + index).getBytes();
+		final byte[] scanRecord = new byte[3 + 6 + 18 + 2 + name.length];
+		int i = 0;
+
+		//--- DRK > Flags.
+		scanRecord[i++] = 2;
+		scanRecord[i++] = 0x01;
+		scanRecord[i++] = 0x06;
+
+		//--- DRK > Two 16-bit service uuids.
+		scanRecord[i++] = 5;
+		scanRecord[i++] = 0x03;
+		scanRecord[i++] = 0x0D;
+		scanRecord[i++] = 0x18;
+		scanRecord[i++] = (byte) index;
+		scanRecord[i++] = (byte) 0xFE;
+
+		//--- DRK > One 128-bit service uuid.
+		final UUID uuid = new UUID(0x0000FFF000001000L, 0x800000805F9B34FBL + index);
+		scanRecord[i++] = 17;
+		scanRecord[i++] = 0x07;
+		for( int j = 0; j < 8; j++ )  scanRecord[i++] = (byte) (uuid.getLeastSignificantBits() >>> (j*8));
+		for( int j = 0; j < 8; j++ )  scanRecord[i++] = (byte) (uuid.getMostSignificantBits() >>> (j*8));
+
+		//--- DRK > Complete local name.
+		scanRecord[i++] = (byte) (name.length + 1);
+		scanRecord[i++] = 0x09;
+		System.arraycopy(name, 0, scanRecord, i, name.length);
+
+		return scanRecord;
+	}
+
+	@Setup(Level.Trial)
+	public void setupTrial()
+	{
+		m_mngr = BenchmarkRunner.getManager();
+		m_mngr.getStateTracker().append(BleManagerState.SCANNING, PA_StateTracker.E_Intent.INTENTIONAL, BleStatuses.GATT_STATUS_NOT_APPLICABLE);
+
+		m_scanRecords = new byte[advertiserCount][];
+		m_known = new BluetoothDevice[advertiserCount];
+
+		for( int i = 0; i < advertiserCount; i++ )
+		{
+			m_scanRecords[i] = newScanRecord(i);
+			m_known[i] = m_mngr.newNativeDevice(macAddress(0xA0, i));
+			m_mngr.onDiscovered(m_known[i], -60, m_scanRecords[i]);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDownTrial()
+	{
+		m_mngr.getStateTracker().remove(BleManagerState.SCANNING, PA_StateTracker.E_Intent.INTENTIONAL, BleStatuses.GATT_STATUS_NOT_APPLICABLE);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OperationsPerInvocation(NEW_ADVERTISER_COUNT)
+	@Measurement(iterations = 20, batchSize = 1)
+	public void onDiscovered_newAdvertisers(final NewAdvertisers advertisers)
+	{
+		for( int i = 0; i < advertisers.m_devices.length; i++ )
+		{
+			m_mngr.onDiscovered(advertisers.m_devices[i], -60, m_scanRecords[i % m_scanRecords.length]);
+		}
+	}
+
+	@Benchmark
+	public void onDiscovered_knownAdvertisers()
+	{
+		final int i = m_index++ % advertiserCount;
+
+		m_mngr.onDiscovered(m_known[i], -60, m_scanRecords[i]);
+	}
+
+	@Benchmark
+	public List<UUID> parseServiceUuids()
+	{
+		return Utils_ScanRecord.parseServiceUuids(m_scanRecords[m_index++ % advertiserCount]);
+	}
+
+	@Benchmark
+	public int scanRecordView_count()
+	{
+		return m_view.wrap(m_scanRecords[m_index++ % advertiserCount]).getServiceUuidCount();
+	}
+
+	@Benchmark
+	public boolean scanRecordView_hasServiceUuid()
+	{
+		return m_view.wrap(m_scanRecords[m_index++ % advertiserCount]).hasServiceUuid(SERVICE_UUID);
+	}
+}
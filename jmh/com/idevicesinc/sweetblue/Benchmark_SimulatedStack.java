@@ -0,0 +1,201 @@
+package com.idevicesinc.sweetblue;
+
+import com.idevicesinc.sweetblue.backend.stack.Backend_BleStack_Simulated;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.robolectric.Robolectric;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives {@link BleManager} end to end through {@link Backend_BleStack_Simulated}, i.e. a scan that finds every simulated peripheral,
+ * and a connect, read, write, and disconnect of one of them, all going through the real task queue. Times are mostly the simulated
+ * latency, so this is more about catching a broken path or a big jump in overhead than about the numbers themselves.
+ * <br><br>
+ * The manager's update loop is on Robolectric's main thread, whose clock only moves when told to, so waiting on anything here
+ * means advancing that clock while the simulated stack delivers its callbacks in real time.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, batchSize = 1)
+@Measurement(iterations = 10, batchSize = 1)
+public class Benchmark_SimulatedStack
+{
+	private static final long TIME_STEP_MILLIS = 5;
+	private static final long TIMEOUT_MILLIS = 10000;
+
+	private final BleDevice.ReadWriteListener m_readWriteListener = new BleDevice.ReadWriteListener()
+	{
+		@Override public void onEvent(final ReadWriteEvent e)
+		{
+			m_readWriteEvent = e;
+		}
+	};
+
+	private BleManager m_mngr;
+	private String[] m_macAddresses;
+	private volatile BleDevice.ReadWriteListener.ReadWriteEvent m_readWriteEvent = null;
+	private int m_writeCount = 0;
+
+	@Setup(Level.Trial)
+	public void setupTrial()
+	{
+		m_mngr = BenchmarkRunner.getManager();
+
+		if( !(m_mngr.getStack() instanceof Backend_BleStack_Simulated) )
+		{
+			throw new IllegalStateException("BleManager was created before Backend_Modules.BLE_STACK was set to " + Backend_BleStack_Simulated.class.getSimpleName() + ".");
+		}
+
+		m_macAddresses = new String[Backend_BleStack_Simulated.CONFIG.deviceCount];
+
+		for( int i = 0; i < m_macAddresses.length; i++ )
+		{
+			m_macAddresses[i] = Backend_BleStack_Simulated.getMacAddress(i);
+		}
+	}
+
+	@Setup(Level.Invocation)
+	public void setupInvocation()
+	{
+		for( int i = 0; i < m_macAddresses.length; i++ )
+		{
+			final BleDevice device = m_mngr.getDevice(m_macAddresses[i]);
+
+			if( !device.isNull() )
+			{
+				m_mngr.undiscover(device);
+			}
+		}
+
+		pump();
+	}
+
+	@TearDown(Level.Invocation)
+	public void tearDownInvocation()
+	{
+		m_mngr.stopScan();
+		m_mngr.disconnectAll();
+
+		pump();
+	}
+
+	@Benchmark
+	public void scan()
+	{
+		m_mngr.startScan();
+
+		waitForDiscovery();
+	}
+
+	@Benchmark
+	public void connectReadWriteDisconnect()
+	{
+		m_mngr.startScan();
+
+		final BleDevice device = waitForDiscovery();
+
+		m_mngr.stopScan();
+
+		final long startTime = System.currentTimeMillis();
+
+		device.connect();
+
+		while( !device.is(BleDeviceState.INITIALIZED) )
+		{
+			pump(startTime, "connect");
+		}
+
+		readWrite(device, true);
+		readWrite(device, false);
+
+		device.disconnect();
+
+		while( !device.is(BleDeviceState.DISCONNECTED) )
+		{
+			pump(startTime, "disconnect");
+		}
+	}
+
+	/**
+	 * Returns the first simulated peripheral once all of them are {@link BleDeviceState#DISCOVERED}.
+	 */
+	private BleDevice waitForDiscovery()
+	{
+		final long startTime = System.currentTimeMillis();
+
+		for( int i = 0; i < m_macAddresses.length; i++ )
+		{
+			while( !m_mngr.getDevice(m_macAddresses[i]).is(BleDeviceState.DISCOVERED) )
+			{
+				pump(startTime, "scan");
+			}
+		}
+
+		return m_mngr.getDevice(m_macAddresses[0]);
+	}
+
+	private void readWrite(final BleDevice device, final boolean read)
+	{
+		final long startTime = System.currentTimeMillis();
+
+		m_readWriteEvent = null;
+
+		if( read )
+		{
+			device.read(Backend_BleStack_Simulated.CONFIG.charUuid, m_readWriteListener);
+		}
+		else
+		{
+			device.write(Backend_BleStack_Simulated.CONFIG.charUuid, new byte[]{(byte) m_writeCount++}, m_readWriteListener);
+		}
+
+		while( m_readWriteEvent == null )
+		{
+			pump(startTime, read ? "read" : "write");
+		}
+
+		if( !m_readWriteEvent.wasSuccess() )
+		{
+			throw new IllegalStateException("Simulated " + (read ? "read" : "write") + " failed: " + m_readWriteEvent);
+		}
+	}
+
+	private void pump(final long startTime, final String waitingFor)
+	{
+		if( System.currentTimeMillis() - startTime > TIMEOUT_MILLIS )
+		{
+			throw new IllegalStateException("Timed out waiting for simulated " + waitingFor + ".");
+		}
+
+		pump();
+	}
+
+	/**
+	 * Lets the manager's update loop run one step and gives the simulated stack's thread a moment to deliver callbacks.
+	 */
+	private static void pump()
+	{
+		Robolectric.getUiThreadScheduler().advanceBy(TIME_STEP_MILLIS);
+
+		try
+		{
+			Thread.sleep(1);
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package com.idevicesinc.sweetblue;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link PA_StateTracker#update(PA_StateTracker.E_Intent, int, Object...)} and friends with the kind of multi-state
+ * transitions {@link BleDevice} goes through while connecting and disconnecting.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class Benchmark_StateTracker
+{
+	static class P_StateTracker_Benchmark extends PA_StateTracker
+	{
+		int m_changeCount = 0;
+
+		P_StateTracker_Benchmark()
+		{
+			super(BleDeviceState.VALUES());
+		}
+
+		@Override protected void onStateChange(int oldStateBits, int newStateBits, int intentMask, int status)
+		{
+			m_changeCount++;
+		}
+	}
+
+	private static final int STATUS = BleStatuses.GATT_STATUS_NOT_APPLICABLE;
+
+	private P_StateTracker_Benchmark m_tracker;
+	private boolean m_connected = false;
+
+	@Setup
+	public void setup()
+	{
+		m_tracker = new P_StateTracker_Benchmark();
+		m_tracker.set(PA_StateTracker.E_Intent.UNINTENTIONAL, STATUS, BleDeviceState.DISCOVERED, true, BleDeviceState.ADVERTISING, true, BleDeviceState.DISCONNECTED, true);
+	}
+
+	@Benchmark
+	public int update_connectDisconnect()
+	{
+		m_connected = !m_connected;
+
+		if( m_connected )
+		{
+			m_tracker.update(PA_StateTracker.E_Intent.INTENTIONAL, STATUS, BleDeviceState.CONNECTING_OVERALL, false, BleDeviceState.CONNECTED, true, BleDeviceState.DISCONNECTED, false, BleDeviceState.ADVERTISING, false);
+		}
+		else
+		{
+			m_tracker.update(PA_StateTracker.E_Intent.UNINTENTIONAL, STATUS, BleDeviceState.CONNECTED, false, BleDeviceState.DISCONNECTED, true, BleDeviceState.ADVERTISING, true);
+		}
+
+		return m_tracker.m_changeCount;
+	}
+
+	@Benchmark
+	public int update_noChange()
+	{
+		m_tracker.update(PA_StateTracker.E_Intent.UNINTENTIONAL, STATUS, BleDeviceState.DISCOVERED, true);
+
+		return m_tracker.m_changeCount;
+	}
+
+	@Benchmark
+	public int appendRemove()
+	{
+		m_tracker.append(BleDeviceState.RECONNECTING_SHORT_TERM, PA_StateTracker.E_Intent.UNINTENTIONAL, STATUS);
+		m_tracker.remove(BleDeviceState.RECONNECTING_SHORT_TERM, PA_StateTracker.E_Intent.UNINTENTIONAL, STATUS);
+
+		return m_tracker.m_changeCount;
+	}
+
+	@Benchmark
+	public boolean is()
+	{
+		return m_tracker.is(BleDeviceState.CONNECTED);
+	}
+}
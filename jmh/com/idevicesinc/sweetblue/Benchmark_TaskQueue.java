@@ -0,0 +1,135 @@
+package com.idevicesinc.sweetblue;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link P_TaskQueue#add(PA_Task)} and draining the queue through {@link P_TaskQueue#update(double)} with a backlog
+ * of mixed-priority tasks spread over many devices. Costs are reported per task.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class Benchmark_TaskQueue
+{
+	private static final int TASK_COUNT = 1000;
+	private static final double TIME_STEP = 0.01;
+	private static final PE_TaskPriority[] PRIORITIES = {PE_TaskPriority.LOW, PE_TaskPriority.MEDIUM, PE_TaskPriority.HIGH};
+
+	/**
+	 * A task that succeeds as soon as it executes, so only queue overhead gets measured.
+	 */
+	static class P_Task_Benchmark extends PA_Task
+	{
+		private final PE_TaskPriority m_priority;
+
+		P_Task_Benchmark(final BleDevice device, final PE_TaskPriority priority)
+		{
+			super(device, null);
+
+			m_priority = priority;
+		}
+
+		@Override void execute()
+		{
+			succeed();
+		}
+
+		@Override public PE_TaskPriority getPriority()
+		{
+			return m_priority;
+		}
+
+		@Override protected BleTask getTaskType()
+		{
+			return BleTask.READ;
+		}
+	}
+
+	@Param({"1", "16", "256"})
+	public int deviceCount;
+
+	private P_TaskQueue m_queue;
+	private BleDevice[] m_devices;
+	private P_Task_Benchmark[] m_tasks;
+
+	@Setup(Level.Trial)
+	public void setupTrial()
+	{
+		final BleManager mngr = BenchmarkRunner.getManager();
+
+		m_queue = new P_TaskQueue(mngr);
+		m_devices = new BleDevice[deviceCount];
+
+		for( int i = 0; i < deviceCount; i++ )
+		{
+			m_devices[i] = mngr.newDevice(Benchmark_ScanIngest.macAddress(0xBE, i), "bench_" + i);
+		}
+
+		//--- DRK > Let the queue's execute thread spin up before measuring.
+		newTasks();
+		add();
+		drain();
+	}
+
+	@Setup(Level.Invocation)
+	public void newTasks()
+	{
+		m_tasks = new P_Task_Benchmark[TASK_COUNT];
+
+		for( int i = 0; i < TASK_COUNT; i++ )
+		{
+			m_tasks[i] = new P_Task_Benchmark(m_devices[i % m_devices.length], PRIORITIES[i % PRIORITIES.length]);
+		}
+
+		drain();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(TASK_COUNT)
+	public int add()
+	{
+		for( int i = 0; i < m_tasks.length; i++ )
+		{
+			m_queue.add(m_tasks[i]);
+		}
+
+		return m_queue.getSize();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(TASK_COUNT)
+	public long addThenDequeue()
+	{
+		add();
+
+		return drain();
+	}
+
+	private long drain()
+	{
+		final long start = m_queue.getUpdateCount();
+
+		//--- DRK > Tasks need a couple updates between being armed and executing, so cap generously.
+		for( int i = 0; i < TASK_COUNT * 10 && (m_queue.getSize() > 0 || m_queue.getCurrent() != null); i++ )
+		{
+			m_queue.update(TIME_STEP);
+		}
+
+		return m_queue.getUpdateCount() - start;
+	}
+}
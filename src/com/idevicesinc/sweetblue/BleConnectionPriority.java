@@ -0,0 +1,41 @@
+package com.idevicesinc.sweetblue;
+
+import android.bluetooth.BluetoothGatt;
+
+/**
+ * Wraps the <code>CONNECTION_PRIORITY_*</code> values of {@link BluetoothGatt} for use with {@link BleDevice#setConnectionPriority(BleConnectionPriority, BleDevice.ReadWriteListener)}
+ * and {@link BleDeviceConfig#autoConnectionPriorityTaskThreshold}. These mainly decide the connection interval, which is usually the biggest
+ * factor in how long each read and write takes.
+ */
+public enum BleConnectionPriority
+{
+	/**
+	 * Longer connection interval to save power, at the cost of slower reads and writes.
+	 */
+	LOW_POWER(BluetoothGatt.CONNECTION_PRIORITY_LOW_POWER),
+
+	/**
+	 * What every connection starts out with.
+	 */
+	BALANCED(BluetoothGatt.CONNECTION_PRIORITY_BALANCED),
+
+	/**
+	 * Shortest connection interval, for the lowest latency and highest throughput but also the highest power usage on both ends.
+	 */
+	HIGH(BluetoothGatt.CONNECTION_PRIORITY_HIGH);
+
+	private final int m_nativeValue;
+
+	private BleConnectionPriority(final int nativeValue)
+	{
+		m_nativeValue = nativeValue;
+	}
+
+	/**
+	 * Returns the value passed to {@link BluetoothGatt#requestConnectionPriority(int)}.
+	 */
+	public int getNativeValue()
+	{
+		return m_nativeValue;
+	}
+}
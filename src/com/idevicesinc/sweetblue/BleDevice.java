@@ -2,6 +2,9 @@ package com.idevicesinc.sweetblue;
 
 import static com.idevicesinc.sweetblue.BleDeviceState.*;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
@@ -17,6 +20,7 @@ import android.bluetooth.BluetoothGattService;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.database.Cursor;
+import android.util.Log;
 
 import com.idevicesinc.sweetblue.BleDevice.BondListener.BondEvent;
 import com.idevicesinc.sweetblue.BleDevice.ConnectionFailListener.AutoConnectUsage;
@@ -153,7 +157,8 @@ public class BleDevice implements UsesCustomNull
 			/**
 			 * Used either when {@link ReadWriteEvent#type()} {@link Type#isRead()} and the stack returned a <code>null</code>
 			 * value for {@link BluetoothGattCharacteristic#getValue()} despite the operation being otherwise "successful", <i>or</i>
-			 * {@link BleDevice#write(UUID, byte[])} (or overload(s) ) were called with a null data parameter. For the read case, the library
+			 * {@link BleDevice#write(UUID, byte[])} (or overload(s) ) were called with a null data parameter, or the source given to
+			 * {@link BleDevice#writeStream(UUID, java.io.InputStream, ReadWriteListener)} (or overload(s) ) was null or couldn't be read. For the read case, the library
 			 * will throw an {@link BleManager.UhOhListener.UhOh#READ_RETURNED_NULL}, but hopefully it was just a temporary glitch. If the problem persists try {@link BleManager#reset()}.
 			 */
 			NULL_DATA,
@@ -351,7 +356,19 @@ public class BleDevice implements UsesCustomNull
 			 * The {@link ReadWriteEvent} is coming in from using {@link BleDevice#readRssi(ReadWriteListener)} or
 			 * {@link BleDevice#startRssiPoll(Interval, ReadWriteListener)}.
 			 */
-			RSSI;
+			RSSI,
+
+			/**
+			 * The {@link ReadWriteEvent} is coming in from using {@link BleDevice#negotiateMtu(int, ReadWriteListener)} or
+			 * from {@link BleDeviceConfig#mtuOnConnect}.
+			 */
+			MTU,
+
+			/**
+			 * The {@link ReadWriteEvent} is coming in from using {@link BleDevice#setConnectionPriority(BleConnectionPriority, ReadWriteListener)} or
+			 * from {@link BleDeviceConfig#autoConnectionPriorityTaskThreshold}.
+			 */
+			CONNECTION_PRIORITY;
 
 			@Override public boolean isNull()
 			{
@@ -433,6 +450,24 @@ public class BleDevice implements UsesCustomNull
 			public int rssi() {  return m_rssi;  }
 			private final int m_rssi;
 
+			/**
+			 * This value gets updated as a result of a {@link BleDevice#negotiateMtu(int, ReadWriteListener)} call. It will
+			 * always be equivalent to {@link BleDevice#getEffectiveMtu()} but is included here for convenience.
+			 *
+			 * @see BleDevice#getEffectiveMtu()
+			 */
+			public int mtu() {  return m_mtu;  }
+			private final int m_mtu;
+
+			/**
+			 * This value gets updated as a result of a {@link BleDevice#setConnectionPriority(BleConnectionPriority, ReadWriteListener)} call. It will
+			 * always be equivalent to {@link BleDevice#getConnectionPriority()} but is included here for convenience.
+			 *
+			 * @see BleDevice#getConnectionPriority()
+			 */
+			public BleConnectionPriority connectionPriority() {  return m_connectionPriority;  }
+			private final BleConnectionPriority m_connectionPriority;
+
 			/**
 			 * Indicates either success or the type of failure. Some values of {@link Status} are not used for certain values of {@link Type}.
 			 * For example a {@link Type#NOTIFICATION} cannot fail with {@link BleDevice.ReadWriteListener.Status#TIMED_OUT}.
@@ -495,6 +530,8 @@ public class BleDevice implements UsesCustomNull
 				this.m_transitTime = Interval.secs(transitTime);
 				this.m_data = data != null ? data : EMPTY_BYTE_ARRAY;
 				this.m_rssi = device.getRssi();
+				this.m_mtu = device.getEffectiveMtu();
+				this.m_connectionPriority = device.getConnectionPriority();
 			}
 
 			ReadWriteEvent(BleDevice device, Type type, int rssi, Status status, int gattStatus, double totalTime, double transitTime)
@@ -511,6 +548,44 @@ public class BleDevice implements UsesCustomNull
 				this.m_transitTime = Interval.secs(transitTime);
 				this.m_data = EMPTY_BYTE_ARRAY;
 				this.m_rssi = status == Status.SUCCESS ? rssi : device.getRssi();
+				this.m_mtu = device.getEffectiveMtu();
+				this.m_connectionPriority = device.getConnectionPriority();
+			}
+
+			ReadWriteEvent(BleDevice device, int mtu, Status status, int gattStatus, double totalTime, double transitTime)
+			{
+				this.m_device = device;
+				this.m_charUuid = NON_APPLICABLE_UUID;
+				this.m_descUuid = NON_APPLICABLE_UUID;
+				this.m_serviceUuid = NON_APPLICABLE_UUID;
+				this.m_type = Type.WRITE;
+				this.m_target = Target.MTU;
+				this.m_status = status;
+				this.m_gattStatus = gattStatus;
+				this.m_totalTime = Interval.secs(totalTime);
+				this.m_transitTime = Interval.secs(transitTime);
+				this.m_data = EMPTY_BYTE_ARRAY;
+				this.m_rssi = device.getRssi();
+				this.m_mtu = status == Status.SUCCESS ? mtu : device.getEffectiveMtu();
+				this.m_connectionPriority = device.getConnectionPriority();
+			}
+
+			ReadWriteEvent(BleDevice device, BleConnectionPriority connectionPriority, Status status, int gattStatus, double totalTime, double transitTime)
+			{
+				this.m_device = device;
+				this.m_charUuid = NON_APPLICABLE_UUID;
+				this.m_descUuid = NON_APPLICABLE_UUID;
+				this.m_serviceUuid = NON_APPLICABLE_UUID;
+				this.m_type = Type.WRITE;
+				this.m_target = Target.CONNECTION_PRIORITY;
+				this.m_status = status;
+				this.m_gattStatus = gattStatus;
+				this.m_totalTime = Interval.secs(totalTime);
+				this.m_transitTime = Interval.secs(transitTime);
+				this.m_data = EMPTY_BYTE_ARRAY;
+				this.m_rssi = device.getRssi();
+				this.m_mtu = device.getEffectiveMtu();
+				this.m_connectionPriority = status == Status.SUCCESS ? connectionPriority : device.getConnectionPriority();
 			}
 
 			static ReadWriteEvent NULL(BleDevice device)
@@ -637,6 +712,30 @@ public class BleDevice implements UsesCustomNull
 							"gattStatus",		device().getManager().getLogger().gattStatus(gattStatus())
 						);
 					}
+					else if (target() == Target.MTU)
+					{
+						return Utils.toString
+						(
+							this.getClass(),
+							"status",			status(),
+							"type",				type(),
+							"target",			target(),
+							"mtu",				mtu(),
+							"gattStatus",		device().getManager().getLogger().gattStatus(gattStatus())
+						);
+					}
+					else if (target() == Target.CONNECTION_PRIORITY)
+					{
+						return Utils.toString
+						(
+							this.getClass(),
+							"status",				status(),
+							"type",					type(),
+							"target",				target(),
+							"connectionPriority",	connectionPriority(),
+							"gattStatus",			device().getManager().getLogger().gattStatus(gattStatus())
+						);
+					}
 					else
 					{
 						return Utils.toString
@@ -1834,6 +1933,7 @@ public class BleDevice implements UsesCustomNull
 	private final P_ReconnectManager m_reconnectMngr_shortTerm;
 	private final P_ConnectionFailManager m_connectionFailMngr;
 	private final P_RssiPollManager m_rssiPollMngr;
+	private final P_ConnectionPriorityManager m_connectionPriorityMngr;
 	private final P_RssiPollManager m_rssiPollMngr_auto;
 	private final P_Task_Disconnect m_dummyDisconnectTask;
 	private final P_HistoricalDataManager m_historicalDataMngr;
@@ -1850,6 +1950,8 @@ public class BleDevice implements UsesCustomNull
 	private BleDeviceOrigin m_origin_latest;
 
 	private int m_rssi = 0;
+	private int m_mtu = BleDeviceConfig.DEFAULT_MTU_SIZE;
+	private BleConnectionPriority m_connectionPriority = BleConnectionPriority.BALANCED;
 	private Integer m_knownTxPower = null;
 	private List<UUID> m_advertisedServices = EMPTY_LIST;
 	private byte[] m_scanRecord = EMPTY_BYTE_ARRAY;
@@ -1889,6 +1991,7 @@ public class BleDevice implements UsesCustomNull
 		{
 			m_rssiPollMngr = null;
 			m_rssiPollMngr_auto = null;
+			m_connectionPriorityMngr = null;
 			// setConfig(config_nullable);
 			m_nativeWrapper = new P_NativeDeviceWrapper(this, device_native, name_normalized, name_native);
 			m_queue = null;
@@ -1912,6 +2015,7 @@ public class BleDevice implements UsesCustomNull
 		{
 			m_rssiPollMngr = new P_RssiPollManager(this);
 			m_rssiPollMngr_auto = new P_RssiPollManager(this);
+			m_connectionPriorityMngr = new P_ConnectionPriorityManager(this);
 			setConfig(config_nullable);
 			m_nativeWrapper = new P_NativeDeviceWrapper(this, device_native, name_normalized, name_native);
 			m_queue = m_mngr != null ? getManager().getTaskQueue() : null;
@@ -2761,7 +2865,7 @@ public class BleDevice implements UsesCustomNull
 	@com.idevicesinc.sweetblue.annotations.Advanced
 	public @Nullable(Prevalence.NORMAL) BluetoothGatt getNativeGatt()
 	{
-		return m_nativeWrapper.getGatt();
+		return m_nativeWrapper.getNativeGatt();
 	}
 
 	/**
@@ -3438,6 +3542,95 @@ public class BleDevice implements UsesCustomNull
 		return write_internal(serviceUuid, characteristicUuid, futureData, new P_WrappingReadWriteListener(listener, getManager().m_mainThreadHandler, getManager().m_config.postCallbacksToMainThread));
 	}
 
+	/**
+	 * Streams everything left in the given {@link InputStream} to a characteristic as back-to-back {@link BluetoothGattCharacteristic#WRITE_TYPE_NO_RESPONSE}
+	 * packets of {@link #getEffectiveMtu()} minus 3 bytes. Meant for bulk transfers like firmware updates and log uploads, where queuing a
+	 * separate {@link #write(UUID, byte[], ReadWriteListener)} for each packet would spend most of the time waiting on round trips.
+	 * <br><br>
+	 * The whole transfer is one task, so nothing else gets through the queue for this device until it's done. Packets are paced by the stack
+	 * through {@link BluetoothGattCallback#onCharacteristicWrite(BluetoothGatt, BluetoothGattCharacteristic, int)}, with up to
+	 * {@link BleDeviceConfig#writeStreamWindow} outstanding at once, and {@link BleDeviceConfig#timeoutRequestFilter} is applied to each
+	 * packet rather than to the whole transfer. Use {@link #getWriteStreamEstimator()} to track progress while it's going.
+	 * <br><br>
+	 * The listener is called once when the transfer ends, with {@link ReadWriteListener.Type#WRITE_NO_RESPONSE}. The stream is read on the
+	 * update thread and isn't closed afterwards. If reading it throws then the transfer fails with {@link ReadWriteListener.Status#NULL_DATA}.
+	 *
+	 * @return (see similar comment for return value of {@link #connect(BleTransaction.Auth, BleTransaction.Init, StateListener, ConnectionFailListener)}).
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	public ReadWriteListener.ReadWriteEvent writeStream(final UUID characteristicUuid, final InputStream stream, final ReadWriteListener listener)
+	{
+		return writeStream(null, characteristicUuid, stream, listener);
+	}
+
+	/**
+	 * Overload of {@link #writeStream(UUID, InputStream, ReadWriteListener)} for when you have characteristics with identical uuids under different services.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	public ReadWriteListener.ReadWriteEvent writeStream(final UUID serviceUuid, final UUID characteristicUuid, final InputStream stream, final ReadWriteListener listener)
+	{
+		return writeStream_private(serviceUuid, characteristicUuid, stream != null ? new P_Task_WriteStream.InputStreamSource(stream) : null, listener);
+	}
+
+	/**
+	 * Same as {@link #writeStream(UUID, InputStream, ReadWriteListener)} but the data comes from a sequence of {@link FutureData}, each pulled
+	 * only once the previous one has been sent. Each one is split into packets on its own, so a packet never holds the end of one and the start of the next,
+	 * which keeps things like firmware pages aligned to packet boundaries.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	public ReadWriteListener.ReadWriteEvent writeStream(final UUID characteristicUuid, final Iterator<? extends FutureData> sequence, final ReadWriteListener listener)
+	{
+		return writeStream(null, characteristicUuid, sequence, listener);
+	}
+
+	/**
+	 * Overload of {@link #writeStream(UUID, Iterator, ReadWriteListener)} for when you have characteristics with identical uuids under different services.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	public ReadWriteListener.ReadWriteEvent writeStream(final UUID serviceUuid, final UUID characteristicUuid, final Iterator<? extends FutureData> sequence, final ReadWriteListener listener)
+	{
+		return writeStream_private(serviceUuid, characteristicUuid, sequence != null ? new P_Task_WriteStream.FutureDataSource(sequence) : null, listener);
+	}
+
+	private ReadWriteListener.ReadWriteEvent writeStream_private(final UUID serviceUuid, final UUID characteristicUuid, final P_Task_WriteStream.I_Source source_nullable, final ReadWriteListener listener)
+	{
+		final ReadWriteEvent earlyOutResult = m_serviceMngr.getEarlyOutEvent(serviceUuid, characteristicUuid, source_nullable != null ? EMPTY_FUTURE_DATA : null, Type.WRITE_NO_RESPONSE, ReadWriteListener.Target.CHARACTERISTIC);
+
+		if (earlyOutResult != null)
+		{
+			invokeReadWriteCallback(listener, earlyOutResult);
+
+			return earlyOutResult;
+		}
+
+		final P_Characteristic characteristic = m_serviceMngr.getCharacteristic(serviceUuid, characteristicUuid);
+
+		final boolean requiresBonding = m_bondMngr.bondIfNeeded(characteristic, BondFilter.CharacteristicEventType.WRITE);
+
+		final int window = BleDeviceConfig.integer(conf_device().writeStreamWindow, conf_mngr().writeStreamWindow, BleDeviceConfig.DEFAULT_WRITE_STREAM_WINDOW);
+		final int runningAverageN = BleDeviceConfig.integer(conf_device().nForAverageRunningWriteTime, conf_mngr().nForAverageRunningWriteTime, BleDeviceConfig.DEFAULT_RUNNING_AVERAGE_N);
+
+		final P_WrappingReadWriteListener wrappingListener = new P_WrappingReadWriteListener(listener, getManager().m_mainThreadHandler, getManager().m_config.postCallbacksToMainThread);
+
+		m_queue.add(new P_Task_WriteStream(this, characteristic, source_nullable, window, new TimeEstimator(runningAverageN), requiresBonding, wrappingListener, m_txnMngr.getCurrent(), getOverrideReadWritePriority()));
+
+		return NULL_READWRITE_EVENT();
+	}
+
+	/**
+	 * Returns progress for the {@link #writeStream(UUID, InputStream, ReadWriteListener)} currently running, or <code>null</code> if there isn't one.
+	 * Each step is one packet, so {@link TimeEstimator#getStepsCompleted()} is the number of packets acknowledged so far and
+	 * {@link TimeEstimator#getRunningAverage()} is the recent number of seconds per packet. Throughput in bytes per second is roughly
+	 * {@link #getEffectiveMtu()} minus 3 divided by that.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	public @Nullable(Prevalence.NORMAL) TimeEstimator getWriteStreamEstimator()
+	{
+		final P_Task_WriteStream task = m_queue.getCurrent(P_Task_WriteStream.class, this);
+
+		return task != null ? task.getEstimator() : null;
+	}
+
 	/**
 	 * Same as {@link #readRssi(ReadWriteListener)} but use this method when you don't much care when/if the RSSI is actually updated.
 	 *
@@ -3521,6 +3714,123 @@ public class BleDevice implements UsesCustomNull
 		m_queue.add(new P_Task_ReadRssi(this, listener, m_txnMngr.getCurrent(), getOverrideReadWritePriority(), type));
 	}
 
+	/**
+	 * Same as {@link #negotiateMtu(int, ReadWriteListener)} but use this method when you don't much care when/if the MTU is actually updated.
+	 *
+	 * @return (same as {@link #negotiateMtu(int, ReadWriteListener)}).
+	 */
+	public ReadWriteListener.ReadWriteEvent negotiateMtu(final int mtu)
+	{
+		return negotiateMtu(mtu, null);
+	}
+
+	/**
+	 * Wrapper for {@link BluetoothGatt#requestMtu(int)}, which asks the remote device to raise the ATT MTU of the current connection. If it
+	 * agrees then {@link #getEffectiveMtu()} is updated, and writes through {@link #write(UUID, byte[], ReadWriteListener)} and overloads
+	 * of up to {@link #getEffectiveMtu()} minus 3 bytes go out in a single packet instead of only up to 20. Anything longer is sent as a reliable
+	 * write in chunks of {@link #getEffectiveMtu()} minus 5 bytes, because each Prepare Write Request also carries a 2-byte value offset. The device must be {@link BleDeviceState#CONNECTED} for
+	 * this call to succeed, and the result only lasts until it disconnects. On Android versions before Lollipop this always fails with
+	 * {@link ReadWriteListener.Status#FAILED_TO_SEND_OUT}.
+	 *
+	 * @see BleDeviceConfig#mtuOnConnect
+	 *
+	 * @return (see similar comment for return value of {@link #connect(BleTransaction.Auth, BleTransaction.Init, StateListener, ConnectionFailListener)}).
+	 */
+	public ReadWriteListener.ReadWriteEvent negotiateMtu(final int mtu, final ReadWriteListener listener)
+	{
+		final ReadWriteEvent earlyOutResult = m_serviceMngr.getEarlyOutEvent(Uuids.INVALID, Uuids.INVALID, EMPTY_FUTURE_DATA, Type.WRITE, ReadWriteListener.Target.MTU);
+
+		if (earlyOutResult != null)
+		{
+			invokeReadWriteCallback(listener, earlyOutResult);
+
+			return earlyOutResult;
+		}
+
+		P_WrappingReadWriteListener wrappingListener = listener != null ? new P_WrappingReadWriteListener(listener, getManager().m_mainThreadHandler, getManager().m_config.postCallbacksToMainThread) : null;
+		negotiateMtu_internal(mtu, wrappingListener);
+
+		return NULL_READWRITE_EVENT();
+	}
+
+	private void negotiateMtu_internal(final int mtu, final P_WrappingReadWriteListener listener)
+	{
+		m_queue.add(new P_Task_NegotiateMtu(this, mtu, listener, m_txnMngr.getCurrent(), getOverrideReadWritePriority()));
+	}
+
+	/**
+	 * Returns the ATT MTU of the current connection, which is {@link BleDeviceConfig#DEFAULT_MTU_SIZE} unless it was raised by
+	 * {@link #negotiateMtu(int, ReadWriteListener)} or {@link BleDeviceConfig#mtuOnConnect}. Writes of up to this minus 3 bytes are sent in a single
+	 * packet, and longer ones as a reliable write in chunks of this minus 5 bytes.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	public int getEffectiveMtu()
+	{
+		return m_mtu;
+	}
+
+	void updateMtu(final int mtu)
+	{
+		m_mtu = mtu;
+	}
+
+	/**
+	 * Same as {@link #setConnectionPriority(BleConnectionPriority, ReadWriteListener)} but use this method when you don't much care when/if it goes through.
+	 *
+	 * @return (same as {@link #setConnectionPriority(BleConnectionPriority, ReadWriteListener)}).
+	 */
+	public ReadWriteListener.ReadWriteEvent setConnectionPriority(final BleConnectionPriority connectionPriority)
+	{
+		return setConnectionPriority(connectionPriority, null);
+	}
+
+	/**
+	 * Wrapper for {@link BluetoothGatt#requestConnectionPriority(int)}, which mainly trades power usage for a shorter connection interval and so
+	 * faster reads and writes. The device must be {@link BleDeviceState#CONNECTED} for this call to succeed, and the result only lasts until it
+	 * disconnects. The native stack gives no feedback on whether the remote device went along with it, so the listener is called with
+	 * {@link ReadWriteListener.Status#SUCCESS} as soon as the request is sent. On Android versions before Lollipop this always fails
+	 * with {@link ReadWriteListener.Status#FAILED_TO_SEND_OUT}.
+	 * <br><br>
+	 * If {@link BleDeviceConfig#autoConnectionPriorityTaskThreshold} is set then the library will also change this on its own as the device gets busy and idle.
+	 *
+	 * @return (see similar comment for return value of {@link #connect(BleTransaction.Auth, BleTransaction.Init, StateListener, ConnectionFailListener)}).
+	 */
+	public ReadWriteListener.ReadWriteEvent setConnectionPriority(final BleConnectionPriority connectionPriority, final ReadWriteListener listener)
+	{
+		final ReadWriteEvent earlyOutResult = m_serviceMngr.getEarlyOutEvent(Uuids.INVALID, Uuids.INVALID, EMPTY_FUTURE_DATA, Type.WRITE, ReadWriteListener.Target.CONNECTION_PRIORITY);
+
+		if (earlyOutResult != null)
+		{
+			invokeReadWriteCallback(listener, earlyOutResult);
+
+			return earlyOutResult;
+		}
+
+		P_WrappingReadWriteListener wrappingListener = listener != null ? new P_WrappingReadWriteListener(listener, getManager().m_mainThreadHandler, getManager().m_config.postCallbacksToMainThread) : null;
+		setConnectionPriority_internal(connectionPriority, wrappingListener, getOverrideReadWritePriority());
+
+		return NULL_READWRITE_EVENT();
+	}
+
+	void setConnectionPriority_internal(final BleConnectionPriority connectionPriority, final P_WrappingReadWriteListener listener, final PE_TaskPriority taskPriority)
+	{
+		m_queue.add(new P_Task_SetConnectionPriority(this, connectionPriority, listener, m_txnMngr.getCurrent(), taskPriority));
+	}
+
+	/**
+	 * Returns the {@link BleConnectionPriority} last requested for the current connection, which is {@link BleConnectionPriority#BALANCED}
+	 * unless changed by {@link #setConnectionPriority(BleConnectionPriority, ReadWriteListener)} or {@link BleDeviceConfig#autoConnectionPriorityTaskThreshold}.
+	 */
+	public BleConnectionPriority getConnectionPriority()
+	{
+		return m_connectionPriority;
+	}
+
+	void updateConnectionPriority(final BleConnectionPriority connectionPriority)
+	{
+		m_connectionPriority = connectionPriority;
+	}
+
 	/**
 	 * Returns a new {@link com.idevicesinc.sweetblue.utils.HistoricalData} instance using
 	 * {@link com.idevicesinc.sweetblue.BleDeviceConfig#historicalDataFactory} if available.
@@ -3625,6 +3935,68 @@ public class BleDevice implements UsesCustomNull
 		return m_historicalDataMngr.getCursor(uuid, range);
 	}
 
+	/**
+	 * Summarizes the historical data for the given {@link UUID} into fixed-width time buckets, reading each blob as a number
+	 * of the given type starting at its first byte. For example a week of 20 Hz data can be charted as one-minute buckets with
+	 * <code>getHistoricalData_buckets(uuid, range, Interval.mins(1), HistoricalDataValueType.INT16_LE)</code>, which returns about
+	 * ten thousand buckets rather than twelve million samples. Samples whose blob is too short for the type are skipped.
+	 * <br><br>
+	 * Aggregation is done by the backend, so for data on disk this is a single query rather than a load into memory, but it
+	 * still does I/O and shouldn't be called on the main thread for large ranges.
+	 *
+	 * @see #getHistoricalData_buckets(UUID, EpochTimeRange, Interval, HistoricalDataValueType, int)
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	public @Nullable(Prevalence.NEVER) HistoricalDataBuckets getHistoricalData_buckets(final UUID uuid, final EpochTimeRange range, final Interval bucketWidth, final HistoricalDataValueType valueType)
+	{
+		return getHistoricalData_buckets(uuid, range, bucketWidth, valueType, 0);
+	}
+
+	/**
+	 * Same as {@link #getHistoricalData_buckets(UUID, EpochTimeRange, Interval, HistoricalDataValueType)} but reads each value
+	 * starting at the given byte offset into the blob, for when a characteristic packs several fields together.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	public @Nullable(Prevalence.NEVER) HistoricalDataBuckets getHistoricalData_buckets(final UUID uuid, final EpochTimeRange range, final Interval bucketWidth, final HistoricalDataValueType valueType, final int byteOffset)
+	{
+		if( isNull() || valueType == null || byteOffset < 0 || !Interval.isEnabled(bucketWidth) || bucketWidth.millis() <= 0 )  return HistoricalDataBuckets.NULL;
+
+		return m_historicalDataMngr.getBuckets(uuid, EpochTimeRange.denull(range), bucketWidth.millis(), valueType, byteOffset);
+	}
+
+	/**
+	 * Writes the historical data for the given {@link UUID} within the given range to a stream in the compact binary format described at
+	 * {@link HistoricalDataOutputStream}, returning the number of samples written. Data is paged through without being loaded into memory
+	 * all at once, and the stream is flushed but not closed. This blocks on I/O so don't call it on the main thread.
+	 *
+	 * @see #importHistoricalData(UUID, InputStream)
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	public int exportHistoricalData(final UUID uuid, final EpochTimeRange range, final OutputStream out) throws IOException
+	{
+		final HistoricalDataOutputStream historicalOut = new HistoricalDataOutputStream(out);
+
+		final int count = isNull() ? 0 : m_historicalDataMngr.exportTo(uuid, EpochTimeRange.denull(range), historicalOut);
+
+		historicalOut.flush();
+
+		return count;
+	}
+
+	/**
+	 * Reads historical data written by {@link #exportHistoricalData(UUID, EpochTimeRange, OutputStream)}, possibly from a different device,
+	 * and adds it for the given {@link UUID} as if through {@link #addHistoricalData(UUID, Iterator)}, returning the number of samples read.
+	 * Samples are added in chunks as they're read, so memory use doesn't depend on the length of the stream. The stream is not closed.
+	 * This blocks on I/O so don't call it on the main thread.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	public int importHistoricalData(final UUID uuid, final InputStream in) throws IOException
+	{
+		if( isNull() )  return 0;
+
+		return m_historicalDataMngr.importFrom(uuid, new HistoricalDataInputStream(in));
+	}
+
 	/**
 	 * Loads all historical data to memory for this device.
 	 */
@@ -3722,7 +4094,9 @@ public class BleDevice implements UsesCustomNull
 	@com.idevicesinc.sweetblue.annotations.Advanced
 	public @Nullable(Prevalence.NEVER) HistoricalData getHistoricalData_latest(final UUID uuid)
 	{
-		return getHistoricalData_atOffset(uuid, getHistoricalDataCount(uuid) - 1);
+		if( isNull() )  return HistoricalData.NULL;
+
+		return m_historicalDataMngr.getLatest(uuid);
 	}
 
 	/**
@@ -3866,6 +4240,51 @@ public class BleDevice implements UsesCustomNull
 		return m_historicalDataMngr.getCount(uuid, EpochTimeRange.denull(range));
 	}
 
+	/**
+	 * Returns the number of historical data entries waiting to be written to disk for this device.
+	 * If this keeps growing toward {@link BleDeviceConfig#historicalDataWriteQueueCapacity}, disk writes aren't keeping up.
+	 *
+	 * @see #getHistoricalDataDropCount()
+	 * @see #getAverageHistoricalDataWriteTime()
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	public int getHistoricalDataWriteQueueDepth()
+	{
+		if( isNull() ) return 0;
+
+		return m_historicalDataMngr.getWriteQueueDepth();
+	}
+
+	/**
+	 * Returns the number of historical data entries that were never written to disk because the queue described at
+	 * {@link BleDeviceConfig#historicalDataWriteQueueCapacity} was full.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	public long getHistoricalDataDropCount()
+	{
+		if( isNull() ) return 0;
+
+		return m_historicalDataMngr.getWriteQueueDropCount();
+	}
+
+	/**
+	 * Returns the running average of how long it takes to write one batch of queued historical data to disk.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	public Interval getAverageHistoricalDataWriteTime()
+	{
+		if( isNull() ) return Interval.ZERO;
+
+		return m_historicalDataMngr.getAverageWriteQueueFlushTime();
+	}
+
+	void flushHistoricalData()
+	{
+		if( isNull() ) return;
+
+		m_historicalDataMngr.flushSoon();
+	}
+
 	/**
 	 * Returns <code>true</code> if there is any historical data at all for this device.
 	 *
@@ -4775,6 +5194,11 @@ public class BleDevice implements UsesCustomNull
 		return m_pollMngr;
 	}
 
+	P_HistoricalDataManager getHistoricalDataManager()
+	{
+		return m_historicalDataMngr;
+	}
+
 	P_ServiceManager getServiceManager()
 	{
 		return m_serviceMngr;
@@ -4804,6 +5228,17 @@ public class BleDevice implements UsesCustomNull
 		stateTracker_main().update(PA_StateTracker.E_Intent.UNINTENTIONAL, BleStatuses.GATT_STATUS_NOT_APPLICABLE, m_bondMngr.getNativeBondingStateOverrides(), ADVERTISING, true);
 	}
 
+	/**
+	 * Lighter-weight version of {@link #onRediscovered(BluetoothDevice, List, int, byte[], BleDeviceOrigin)} for duplicate advertisements
+	 * that {@link BleManagerConfig#scanDeduplicationWindow} is swallowing. Just keeps the device alive and its RSSI up to date.
+	 */
+	void onRediscovered_coalesced(final int rssi)
+	{
+		m_lastDiscoveryTime = EpochTime.now();
+		m_timeSinceLastDiscovery = 0.0;
+		updateRssi(rssi);
+	}
+
 	void onUndiscovered(E_Intent intent)
 	{
 		clear_undiscovery();
@@ -4844,6 +5279,7 @@ public class BleDevice implements UsesCustomNull
 		m_reconnectMngr_longTerm.update(timeStep);
 		m_reconnectMngr_shortTerm.update(timeStep);
 		m_rssiPollMngr.update(timeStep);
+		m_connectionPriorityMngr.update(timeStep);
 	}
 
 	void bond_justAddTheTask(E_TransactionLockBehavior lockBehavior)
@@ -5039,7 +5475,7 @@ public class BleDevice implements UsesCustomNull
 			//--- This is not about finding a logic error in my code.
 			getManager().ASSERT(getManager().getNative().getAdapter().getBondedDevices().contains(m_nativeWrapper.getDevice()));
 		}
-		m_logger.d(m_logger.gattBondState(m_nativeWrapper.getNativeBondState()));
+		if( m_logger.isEnabled(Log.DEBUG) )  m_logger.d(m_logger.gattBondState(m_nativeWrapper.getNativeBondState()));
 
 		boolean autoGetServices = BleDeviceConfig.bool(conf_device().autoGetServices, conf_mngr().autoGetServices);
 		if (autoGetServices)
@@ -5131,6 +5567,14 @@ public class BleDevice implements UsesCustomNull
 		m_serviceMngr.clear();
 		m_serviceMngr.loadDiscoveredServices();
 
+		final Integer mtuOnConnect = BleDeviceConfig.integer(conf_device().mtuOnConnect, conf_mngr().mtuOnConnect);
+
+		//--- DRK > Queued ahead of the auth/init transactions so that their writes already get the bigger packets.
+		if( mtuOnConnect != null && mtuOnConnect > BleDeviceConfig.DEFAULT_MTU_SIZE )
+		{
+			negotiateMtu_internal(mtuOnConnect, null);
+		}
+
 		m_txnMngr.runAuthOrInitTxnIfNeeded(BluetoothGatt.GATT_SUCCESS, DISCOVERING_SERVICES, false, SERVICES_DISCOVERED, true);
 	}
 
@@ -5156,6 +5600,9 @@ public class BleDevice implements UsesCustomNull
 		//--- it from being immediately undiscovered after disconnection.
 		m_timeSinceLastDiscovery = 0.0;
 
+		m_mtu = BleDeviceConfig.DEFAULT_MTU_SIZE;
+		m_connectionPriority = BleConnectionPriority.BALANCED;
+
 		m_serviceMngr.clear();
 		m_txnMngr.clearQueueLock();
 
@@ -5303,7 +5750,7 @@ public class BleDevice implements UsesCustomNull
 		if (!wasExplicit && !attemptShortTermReconnect)
 		{
 			//--- DRK > Just here so it's easy to filter out in logs.
-			m_logger.w("Disconnected Implicitly and attemptShortTermReconnect="+attemptShortTermReconnect);
+			m_logger.w_format("Disconnected Implicitly and attemptShortTermReconnect={}", attemptShortTermReconnect);
 		}
 
 		m_lastDisconnectWasBecauseOfBleTurnOff = getManager().isAny(BleManagerState.TURNING_OFF, BleManagerState.OFF);
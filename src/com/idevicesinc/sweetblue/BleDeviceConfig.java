@@ -58,6 +58,36 @@ public class BleDeviceConfig extends BleServerConfig implements Cloneable
 	 * Default value for {@link #defaultTxPower}.
 	 */
 	public static final int DEFAULT_TX_POWER							= -50;
+
+	/**
+	 * Default value for {@link #writeStreamWindow}.
+	 */
+	public static final int DEFAULT_WRITE_STREAM_WINDOW					= 1;
+
+	/**
+	 * Default value for {@link #autoConnectionPriorityIdleTime}.
+	 */
+	public static final double DEFAULT_AUTO_CONNECTION_PRIORITY_IDLE_TIME	= 5.0;
+
+	/**
+	 * The ATT MTU every connection starts out with, as returned by {@link BleDevice#getEffectiveMtu()} until a bigger one is negotiated.
+	 */
+	public static final int DEFAULT_MTU_SIZE							= 23;
+
+	/**
+	 * Default value for {@link #historicalDataWriteQueueCapacity}.
+	 */
+	public static final int DEFAULT_HISTORICAL_DATA_WRITE_QUEUE_CAPACITY	= 4096;
+
+	/**
+	 * Default value for {@link #historicalDataWriteDelay}.
+	 */
+	public static final double DEFAULT_HISTORICAL_DATA_WRITE_DELAY		= 1.0;
+
+	/**
+	 * Default value for {@link #historicalDataRetentionInterval}.
+	 */
+	public static final double DEFAULT_HISTORICAL_DATA_RETENTION_INTERVAL	= 60.0;
 	
 	/**
 	 * @deprecated Use {@link BleStatuses#BOND_FAIL_REASON_NOT_APPLICABLE}.
@@ -284,6 +314,54 @@ public class BleDeviceConfig extends BleServerConfig implements Cloneable
 	 */
 	@Nullable(Prevalence.NORMAL)
 	public Integer		rssi_max								= DEFAULT_RSSI_MAX;
+
+	/**
+	 * Default is <code>null</code> - if set to something bigger than {@link #DEFAULT_MTU_SIZE}, this ATT MTU is requested through
+	 * {@link BleDevice#negotiateMtu(int, BleDevice.ReadWriteListener)} right after services are discovered, ahead of any
+	 * {@link BleTransaction.Auth} or {@link BleTransaction.Init}. The remote device may agree to less, so check {@link BleDevice#getEffectiveMtu()}
+	 * for what was actually negotiated. 247 is a common choice, since it lets a full MTU fit into one link-layer packet on
+	 * devices that support data length extension.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	@Nullable(Prevalence.NORMAL)
+	public Integer		mtuOnConnect							= null;
+
+	/**
+	 * Default is {@link #DEFAULT_WRITE_STREAM_WINDOW} - the most packets {@link BleDevice#writeStream(UUID, java.io.InputStream, BleDevice.ReadWriteListener)}
+	 * hands to the stack before waiting for {@link android.bluetooth.BluetoothGattCallback#onCharacteristicWrite(android.bluetooth.BluetoothGatt, android.bluetooth.BluetoothGattCharacteristic, int)}
+	 * to come back for earlier ones. Most Android versions only accept one outstanding write per connection and will
+	 * refuse the rest until it completes, which is handled by waiting, so raising this only helps on stacks that queue internally.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	@Nullable(Prevalence.NORMAL)
+	public Integer		writeStreamWindow						= DEFAULT_WRITE_STREAM_WINDOW;
+
+	/**
+	 * Default is <code>null</code> - if set, the library switches a device to {@link BleConnectionPriority#HIGH} through
+	 * {@link BleDevice#setConnectionPriority(BleConnectionPriority, BleDevice.ReadWriteListener)} whenever at least this many tasks are
+	 * waiting for it, or whenever it's {@link BleDeviceState#PERFORMING_OTA}, then switches it to {@link #autoConnectionPriorityWhenIdle}
+	 * once neither has been true for {@link #autoConnectionPriorityIdleTime}. Explicit calls to
+	 * {@link BleDevice#setConnectionPriority(BleConnectionPriority, BleDevice.ReadWriteListener)} still work but will be overridden the next time
+	 * the device gets busy or idle.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	@Nullable(Prevalence.NORMAL)
+	public Integer		autoConnectionPriorityTaskThreshold		= null;
+
+	/**
+	 * Default is {@link #DEFAULT_AUTO_CONNECTION_PRIORITY_IDLE_TIME} - how long a device has to stay below {@link #autoConnectionPriorityTaskThreshold}
+	 * before it's switched to {@link #autoConnectionPriorityWhenIdle}. Use {@link Interval#DISABLED} to leave it at {@link BleConnectionPriority#HIGH}.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	@Nullable(Prevalence.NORMAL)
+	public Interval		autoConnectionPriorityIdleTime			= Interval.secs(DEFAULT_AUTO_CONNECTION_PRIORITY_IDLE_TIME);
+
+	/**
+	 * Default is {@link BleConnectionPriority#BALANCED} - what {@link #autoConnectionPriorityTaskThreshold} switches a device to once it's idle.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	@Nullable(Prevalence.NORMAL)
+	public BleConnectionPriority autoConnectionPriorityWhenIdle	= BleConnectionPriority.BALANCED;
 	
 	/**
 	 * Default is instance of {@link DefaultBondFilter}.
@@ -351,6 +429,78 @@ public class BleDeviceConfig extends BleServerConfig implements Cloneable
 		}
 	};
 
+	/**
+	 * Default is {@link #DEFAULT_HISTORICAL_DATA_WRITE_QUEUE_CAPACITY} - historical data headed for disk is queued per device and written
+	 * in batches off the thread that produced it. If the database can't keep up and the queue fills, new data is dropped rather than
+	 * blocking, and counted in {@link BleDevice#getHistoricalDataDropCount()}.
+	 *
+	 * @see BleDevice#getHistoricalDataWriteQueueDepth()
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	@Nullable(Prevalence.NORMAL)
+	public Integer historicalDataWriteQueueCapacity						= DEFAULT_HISTORICAL_DATA_WRITE_QUEUE_CAPACITY;
+
+	/**
+	 * Default is {@link #DEFAULT_HISTORICAL_DATA_WRITE_DELAY} seconds - how long historical data headed for disk may wait in the queue
+	 * described at {@link #historicalDataWriteQueueCapacity} so that it can be written together with whatever comes after it.
+	 * The queue is also written out right away in {@link BleManager#onPause()}.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	@Nullable(Prevalence.NORMAL)
+	public Interval historicalDataWriteDelay							= Interval.secs(DEFAULT_HISTORICAL_DATA_WRITE_DELAY);
+
+	/**
+	 * Default is <code>null</code> - set this to delete historical data once it's older than the given {@link Interval}.
+	 * Like the other retention options below it is enforced by a background job every {@link #historicalDataRetentionInterval},
+	 * in memory and on disk, and setting it on {@link BleManagerConfig} applies it to every device.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	@Nullable(Prevalence.NORMAL)
+	public Interval historicalDataMaxAge								= null;
+
+	/**
+	 * Default is <code>null</code> - set this to keep at most the given number of the newest historical data entries for each
+	 * characteristic of a device. Unlike {@link HistoricalDataLogFilter.Please#andLimitLogTo(long)} nothing is deleted
+	 * while data is being added, only later by the job described at {@link #historicalDataMaxAge}.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	@Nullable(Prevalence.NORMAL)
+	public Integer historicalDataMaxCount								= null;
+
+	/**
+	 * Default is <code>null</code> - set this to cap the estimated disk space used by the historical data of one device.
+	 * When over, the oldest data of each characteristic is deleted in proportion to how much space that characteristic takes up.
+	 *
+	 * @see #historicalDataMaxAge
+	 * @see #historicalDataMaxBytesPerUuid
+	 * @see BleManagerConfig#historicalDataMaxBytesTotal
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	@Nullable(Prevalence.NORMAL)
+	public Integer historicalDataMaxBytes								= null;
+
+	/**
+	 * Default is <code>null</code> - set this to cap the estimated disk space used by the historical data of each characteristic of a device.
+	 * When over, the oldest data of that characteristic is deleted.
+	 *
+	 * @see #historicalDataMaxAge
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	@Nullable(Prevalence.NORMAL)
+	public Integer historicalDataMaxBytesPerUuid						= null;
+
+	/**
+	 * Default is {@link #DEFAULT_HISTORICAL_DATA_RETENTION_INTERVAL} seconds - how often {@link #historicalDataMaxAge},
+	 * {@link #historicalDataMaxCount}, {@link #historicalDataMaxBytesPerUuid}, and {@link #historicalDataMaxBytes} are checked for a device
+	 * that's logging historical data. Setting this on {@link BleManagerConfig} also controls a pass over every device with historical data on disk,
+	 * including devices that haven't been discovered since the app started, which first runs shortly after {@link BleManager} is created.
+	 * Deletes happen in batches on the historical data thread with short breaks in between, so that a large backlog doesn't hold up
+	 * anything else, and storage is compacted afterwards once enough has been deleted.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	@Nullable(Prevalence.NORMAL)
+	public Interval historicalDataRetentionInterval						= Interval.secs(DEFAULT_HISTORICAL_DATA_RETENTION_INTERVAL);
+
 	/**
 	 * As of now there are two main default uses for this class...
 	 * <br><br>
@@ -2,8 +2,13 @@ package com.idevicesinc.sweetblue;
 
 import static com.idevicesinc.sweetblue.BleManagerState.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import android.annotation.TargetApi;
@@ -13,6 +18,8 @@ import android.bluetooth.BluetoothAdapter;
 import android.bluetooth.BluetoothDevice;
 import android.bluetooth.BluetoothManager;
 import android.bluetooth.le.ScanCallback;
+import android.bluetooth.le.ScanRecord;
+import android.bluetooth.le.ScanResult;
 import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
@@ -40,16 +47,19 @@ import com.idevicesinc.sweetblue.annotations.Nullable;
 import com.idevicesinc.sweetblue.annotations.Immutable;
 import com.idevicesinc.sweetblue.annotations.Nullable.Prevalence;
 import com.idevicesinc.sweetblue.backend.historical.Backend_HistoricalDatabase;
+import com.idevicesinc.sweetblue.backend.stack.Backend_BleStack;
 import com.idevicesinc.sweetblue.utils.EpochTime;
+import com.idevicesinc.sweetblue.utils.EpochTimeRange;
 import com.idevicesinc.sweetblue.utils.ForEach_Breakable;
 import com.idevicesinc.sweetblue.utils.ForEach_Void;
 import com.idevicesinc.sweetblue.utils.HistoricalData;
+import com.idevicesinc.sweetblue.utils.HistoricalDataCursor;
 import com.idevicesinc.sweetblue.utils.Interval;
 import com.idevicesinc.sweetblue.utils.Percent;
+import com.idevicesinc.sweetblue.utils.ScanRecordView;
 import com.idevicesinc.sweetblue.utils.State;
 import com.idevicesinc.sweetblue.utils.UpdateLoop;
 import com.idevicesinc.sweetblue.utils.Utils;
-import com.idevicesinc.sweetblue.utils.Utils_ScanRecord;
 
 /**
  * The entry point to the library. Get a singleton instance using {@link #get(android.content.Context, BleManagerConfig)} or its overloads. Make sure
@@ -410,6 +420,13 @@ public class BleManager
 			 */
 			RANDOM_EXCEPTION,
 			
+			/**
+			 * Notifications came in faster than they could be passed along to your listeners and some were dropped, because
+			 * {@link BleManagerConfig#notificationOverflowPolicy} is set to something other than {@link BleManagerConfig.NotificationOverflowPolicy#GROW}.
+			 * See {@link BleManager#getNotificationOverrunCount()} for how many.
+			 */
+			NOTIFICATIONS_DROPPED,
+			
 			/**
 			 * {@link android.bluetooth.BluetoothAdapter#startLeScan(BluetoothAdapter.LeScanCallback)} failed and {@link BleManagerConfig#revertToClassicDiscoveryIfNeeded} is <code>false</code>.
 			 * 
@@ -719,7 +736,10 @@ public class BleManager
 	private final Context m_context;
 	final Handler m_mainThreadHandler;
 	private final BluetoothManager m_btMngr;
+	private final Backend_BleStack m_stack;
 	private final P_ScanFilterManager m_filterMngr;
+	private final ScanRecordView m_scanRecordView = new ScanRecordView();
+	private final P_ScanDeduplicator m_scanDeduplicator = new P_ScanDeduplicator();
 	private final P_BluetoothCrashResolver m_crashResolver;
 	private			P_Logger m_logger;
 			  BleManagerConfig m_config;
@@ -761,6 +781,15 @@ public class BleManager
 
 	final Backend_HistoricalDatabase m_historicalDatabase;
 
+	//--- DRK > One thread for the historical data of every device, rather than one idle thread per device ever discovered.
+	private final UpdateLoop m_historicalUpdateLoop;
+
+	final P_HistoricalDataUuidIndex m_historicalUuidIndex;
+
+	private final P_HistoricalDataGlobalRetention m_historicalRetention;
+
+	final P_NotificationBuffer m_notificationBuffer;
+
 	BleServer m_server = null;
 	
 	static BleManager s_instance = null;
@@ -780,21 +809,18 @@ public class BleManager
 		m_context = context.getApplicationContext();
 		m_config = config.clone();
 		initLogger();
-		m_historicalDatabase = PU_HistoricalData.newDatabase(context, this);
+		m_historicalUpdateLoop = UpdateLoop.newAnonThreadLoop();
+		m_historicalDatabase = PU_HistoricalData.newDatabase(context, this, m_historicalUpdateLoop);
 		m_diskOptionsMngr = new P_DiskOptionsManager(m_context);
+		m_diskOptionsMngr.preload();
+		m_historicalUuidIndex = new P_HistoricalDataUuidIndex(m_context);
+		m_historicalUuidIndex.preload();
+		m_historicalRetention = new P_HistoricalDataGlobalRetention(this, m_historicalUpdateLoop);
+		m_notificationBuffer = new P_NotificationBuffer(this);
 		m_filterMngr = new P_ScanFilterManager(this, m_config.defaultScanFilter);
 		m_btMngr = (BluetoothManager) m_context.getApplicationContext().getSystemService(Context.BLUETOOTH_SERVICE);
-        // Account for unit testing. When using robolectric, the bluetooth manager comes back null. However, it includes
-        // shadow classes to simulate Bluetooth devices, so we shouldn't need the manager to run tests.
-        BleManagerState nativeState;
-		if( m_btMngr == null )
-		{
-			nativeState = BleManagerState.get(BluetoothAdapter.STATE_ON);
-		}
-		else
-		{
-			nativeState = BleManagerState.get(m_btMngr.getAdapter().getState());
-		}
+		m_stack = PU_BleStack.newStack(m_context, this);
+		final BleManagerState nativeState = BleManagerState.get(m_stack.getState());
 		m_stateTracker = new P_BleStateTracker(this);
 		m_stateTracker.append(nativeState, E_Intent.UNINTENTIONAL, BleStatuses.GATT_STATUS_NOT_APPLICABLE);
 		m_nativeStateTracker = new P_NativeBleStateTracker(this);
@@ -808,6 +834,9 @@ public class BleManager
 		m_listeners = new P_BleManager_Listeners(this);
 
 		initConfigDependentMembers();
+
+		//--- DRK > Started last since passes look devices up, even though the first one doesn't run until a little later.
+		m_historicalRetention.start();
 		
 		m_logger.printBuildInfo();
 	}
@@ -825,7 +854,7 @@ public class BleManager
 
 	private void initLogger()
 	{
-		m_logger = new P_Logger(m_config.debugThreadNames, m_config.uuidNameMaps, m_config.loggingEnabled);
+		m_logger = new P_Logger(m_config.debugThreadNames, m_config.uuidNameMaps, m_config.loggingEnabled, m_config.loggingLevel, m_config.loggingCallerInfo);
 	}
 
 	private void initConfigDependentMembers()
@@ -992,6 +1021,16 @@ public class BleManager
 		return getNative().getAdapter();
 	}
 
+	/**
+	 * Returns the backend that all native adapter and gatt calls are routed through.
+	 *
+	 * @see com.idevicesinc.sweetblue.backend.Backend_Modules#BLE_STACK
+	 */
+	Backend_BleStack getStack()
+	{
+		return m_stack;
+	}
+
 	/**
 	 * Sets a default backup {@link com.idevicesinc.sweetblue.BleDevice.HistoricalDataLoadListener} that will be invoked
 	 * for all historical data loads to memory for all uuids for all devices.
@@ -1592,7 +1631,7 @@ public class BleManager
 	/**
 	 * It's generally recommended to call this in your override of {@link android.app.Activity#onPause()} for each {@link android.app.Activity}
 	 * in your application. This doesn't do much for now, just a little bookkeeping and stops scan automatically if
-	 * {@link BleManagerConfig#stopScanOnPause} is <code>true</code>. Strictly speaking you don't *have* to call this method,
+	 * {@link BleManagerConfig#stopScanOnPause} is <code>true</code>, and flushes any options waiting to be saved to disk. Strictly speaking you don't *have* to call this method,
 	 * but another good reason is for future-proofing. Later releases of this library may do other more important things
 	 * in this method so it's good to have it being called just in case.
 	 */
@@ -1606,6 +1645,19 @@ public class BleManager
 		{
 			stopScan_private(E_Intent.UNINTENTIONAL);
 		}
+
+		//--- DRK > App could be killed any time after this, so don't wait for the next batch.
+		m_diskOptionsMngr.flush();
+		m_historicalUuidIndex.flush();
+		flushHistoricalData();
+	}
+
+	private void flushHistoricalData()
+	{
+		for( int i = 0; i < m_deviceMngr.getCount(); i++ )
+		{
+			m_deviceMngr.get(i).flushHistoricalData();
+		}
 	}
 
 	/**
@@ -1617,6 +1669,9 @@ public class BleManager
 	{
 		m_wakeLockMngr.clear();
 		m_listeners.onDestroy();
+		m_diskOptionsMngr.flush();
+		m_historicalUuidIndex.flush();
+		flushHistoricalData();
 	}
 
 	/**
@@ -2041,6 +2096,115 @@ public class BleManager
 		}
 	}
 
+	UpdateLoop getHistoricalUpdateLoop()
+	{
+		return m_historicalUpdateLoop;
+	}
+
+	/**
+	 * Returns the MAC addresses of all devices that have historical data on disk for the given {@link UUID},
+	 * including devices that haven't been discovered since the app started.
+	 */
+	@Advanced
+	public @Nullable(Prevalence.NEVER) String[] getHistoricalData_macAddresses(final UUID uuid)
+	{
+		return m_historicalDatabase.getMacAddresses(uuid);
+	}
+
+	/**
+	 * Returns the most recent historical data for the given {@link UUID} of every device that has any, keyed by MAC address.
+	 * This covers devices with data on disk from {@link #getHistoricalData_macAddresses(UUID)} as well as discovered devices.
+	 */
+	@Advanced
+	public @Nullable(Prevalence.NEVER) Map<String, HistoricalData> getHistoricalData_latest(final UUID uuid)
+	{
+		final HashSet<String> macAddresses = new HashSet<String>(Arrays.asList(getHistoricalData_macAddresses(uuid)));
+
+		for( int i = 0; i < m_deviceMngr.getCount(); i++ )
+		{
+			macAddresses.add(m_deviceMngr.get(i).getMacAddress());
+		}
+
+		return getHistoricalData_latest(uuid, macAddresses.toArray(new String[macAddresses.size()]));
+	}
+
+	/**
+	 * Returns the most recent historical data for the given {@link UUID} of each of the given devices, keyed by MAC address.
+	 * Devices without any data are left out. Devices that haven't been discovered are looked up on disk directly,
+	 * all together, without creating a {@link BleDevice} for each.
+	 */
+	@Advanced
+	public @Nullable(Prevalence.NEVER) Map<String, HistoricalData> getHistoricalData_latest(final UUID uuid, final String ... macAddresses)
+	{
+		final HashMap<String, HistoricalData> latest = new HashMap<String, HistoricalData>();
+		final ArrayList<String> undiscovered = new ArrayList<String>();
+
+		for( int i = 0; i < macAddresses.length; i++ )
+		{
+			final BleDevice device = m_deviceMngr.get(macAddresses[i]);
+
+			if( device != null && !device.isNull() )
+			{
+				putIfNotNull(latest, macAddresses[i], device.getHistoricalData_latest(uuid));
+			}
+			else
+			{
+				undiscovered.add(macAddresses[i]);
+			}
+		}
+
+		if( !undiscovered.isEmpty() )
+		{
+			final String[] undiscovered_array = undiscovered.toArray(new String[undiscovered.size()]);
+			final HistoricalData[] latest_undiscovered = m_historicalDatabase.getLatest(undiscovered_array, uuid);
+
+			for( int i = 0; i < undiscovered_array.length; i++ )
+			{
+				putIfNotNull(latest, undiscovered_array[i], latest_undiscovered[i]);
+			}
+		}
+
+		return latest;
+	}
+
+	private static void putIfNotNull(final HashMap<String, HistoricalData> map, final String macAddress, final HistoricalData historicalData)
+	{
+		if( historicalData != null && !historicalData.isNull() )
+		{
+			map.put(macAddress, historicalData);
+		}
+	}
+
+	/**
+	 * Returns a cursor over the historical data for the given {@link UUID} and range of each of the given devices, keyed by MAC address.
+	 * Devices that haven't been discovered are read straight from disk without creating a {@link BleDevice} for each.
+	 * Cursors only page in data as it's accessed, so asking for many devices at once is cheap until you actually read from them.
+	 * <br><br>
+	 * NOTE: You must call {@link HistoricalDataCursor#close()} on each cursor when you are done with the data.
+	 */
+	@Advanced
+	public @Nullable(Prevalence.NEVER) Map<String, HistoricalDataCursor> getHistoricalData_cursors(final UUID uuid, final EpochTimeRange range, final String ... macAddresses)
+	{
+		final HashMap<String, HistoricalDataCursor> cursors = new HashMap<String, HistoricalDataCursor>();
+		final EpochTimeRange range_denulled = EpochTimeRange.denull(range);
+
+		for( int i = 0; i < macAddresses.length; i++ )
+		{
+			final BleDevice device = m_deviceMngr.get(macAddresses[i]);
+
+			if( device != null && !device.isNull() )
+			{
+				cursors.put(macAddresses[i], device.getHistoricalData_cursor(uuid, range_denulled));
+			}
+			else
+			{
+				cursors.put(macAddresses[i], m_historicalDatabase.getCursor(macAddresses[i], uuid, range_denulled));
+			}
+		}
+
+		return cursors;
+	}
+
 	/**
 	 * Overload of {@link #getServer(BleServer.IncomingListener)} without any initial set-up parameters.
 	 */
@@ -2127,6 +2291,8 @@ public class BleManager
 
 		final BleDevice newDevice = newDevice_private(device_native, name_normalized, name != null ? name : "", BleDeviceOrigin.EXPLICIT, config);
 
+		m_filterMngr.onKnownDeviceAdded();
+
 		if( name != null )
 		{
 			newDevice.setName(name);
@@ -2139,7 +2305,7 @@ public class BleManager
 	
 	BluetoothDevice newNativeDevice(final String macAddress)
 	{
-		return getNative().getAdapter().getRemoteDevice(macAddress);
+		return m_stack.getRemoteDevice(macAddress);
 	}
 
 	/**
@@ -2203,6 +2369,28 @@ public class BleManager
 		m_diskOptionsMngr.clear();
 	}
 
+	/**
+	 * Returns how many notifications have been dropped so far because {@link BleManagerConfig#notificationBufferSize} notifications
+	 * were already waiting to be passed along to your listeners. Always zero with {@link BleManagerConfig.NotificationOverflowPolicy#GROW}.
+	 *
+	 * @see BleManagerConfig#notificationOverflowPolicy
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	public long getNotificationOverrunCount()
+	{
+		return m_notificationBuffer.getOverrunCount();
+	}
+
+	/**
+	 * Returns how many notifications have been replaced by a newer one from the same characteristic before being passed along to your
+	 * listeners, which only happens with {@link BleManagerConfig.NotificationOverflowPolicy#KEEP_LATEST}.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	public long getNotificationCoalescedCount()
+	{
+		return m_notificationBuffer.getCoalescedCount();
+	}
+
 	//--- DRK > Smooshing together a bunch of package-private accessors here.
 	P_BleStateTracker			getStateTracker(){				return m_stateTracker;				}
 	P_NativeBleStateTracker		getNativeStateTracker(){		return m_nativeStateTracker;		}
@@ -2210,6 +2398,7 @@ public class BleManager
 	P_BluetoothCrashResolver	getCrashResolver(){				return m_crashResolver;				}
 	P_TaskQueue					getTaskQueue(){					return m_taskQueue;					}
 	P_Logger					getLogger(){					return m_logger;					}
+	P_ScanFilterManager			getFilterManager(){				return m_filterMngr;				}
 
 
 	private void turnOff(final boolean removeAllBonds)
@@ -2340,6 +2529,53 @@ public class BleManager
 		//---		after user called stopScan(), so just a check to prevent unexpected callbacks to the user.
 		if( !is(SCANNING) )  return;
 
+		onDiscovered_checked(device_native, rssi, scanRecord_nullable);
+	}
+
+	@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+	void onDiscovered_batch(final List<ScanResult> results)
+	{
+		//--- DRK > Same checks as onDiscovered_synchronized(), just done once for the whole batch.
+		if( !is(ON) )  return;
+
+		for( int i = 0; i < results.size(); i++ )
+		{
+			//--- DRK > A scan filter can stop the scan partway through the batch.
+			if( !is(SCANNING) )  return;
+
+			final ScanResult result = results.get(i);
+			final ScanRecord scanRecord = result.getScanRecord();
+
+			onDiscovered_checked(result.getDevice(), result.getRssi(), scanRecord != null ? scanRecord.getBytes() : null);
+		}
+	}
+
+	private void onDiscovered_checked(final BluetoothDevice device_native, final int rssi_native, final byte[] scanRecord_nullable)
+	{
+		final String macAddress = device_native.getAddress();
+
+		m_scanDeduplicator.onScan(m_config, macAddress, rssi_native, scanRecord_nullable);
+
+		final int rssi = m_scanDeduplicator.getRssi();
+
+		if( !m_scanDeduplicator.letThrough() )
+		{
+			final BleDevice device = m_deviceMngr.get(macAddress);
+
+			if( device != null )
+			{
+				device.onRediscovered_coalesced(rssi);
+
+				return;
+			}
+			else if( m_scanDeduplicator.wasIgnored() )
+			{
+				return;
+			}
+
+			//--- DRK > Otherwise the device was let through before but has since been undiscovered, so treat it as new.
+		}
+
 		String rawDeviceName = "";
 
 		try
@@ -2368,7 +2604,6 @@ public class BleManager
 		String loggedDeviceName = rawDeviceName;
 		loggedDeviceName = loggedDeviceName != null ? loggedDeviceName : "<NO_NAME>";
 
-		String macAddress = device_native.getAddress();
 		BleDevice device = m_deviceMngr.get(macAddress);
 
 		if ( device == null )
@@ -2383,7 +2618,7 @@ public class BleManager
     		}
     		else
     		{
-    			m_logger.e("Discovered device " + loggedDeviceName + " " + macAddress + " already in list but with new native device instance.");
+    			m_logger.e_format("Discovered device {} {} already in list but with new native device instance.", loggedDeviceName, macAddress);
     			ASSERT(false);
     		}
     	}
@@ -2396,15 +2631,22 @@ public class BleManager
 
 		if( device == null )
 		{
-	    	services_nullable = Utils_ScanRecord.parseServiceUuids(scanRecord_nullable);
 	    	byte[] scanRecord = scanRecord_nullable != null ? scanRecord_nullable : BleDevice.EMPTY_BYTE_ARRAY;
 	    	String deviceName = rawDeviceName;
 	    	deviceName = deviceName != null ? deviceName : "";
 	    	boolean hitDisk = BleDeviceConfig.boolOrDefault(m_config.manageLastDisconnectOnDisk);
 	    	State.ChangeIntent lastDisconnectIntent = m_diskOptionsMngr.loadLastDisconnect(macAddress, hitDisk);
-	    	please = m_filterMngr.allow(m_logger, device_native, services_nullable, deviceName, normalizedDeviceName, scanRecord, rssi, lastDisconnectIntent);
+	    	please = m_filterMngr.allow(m_logger, device_native, deviceName, normalizedDeviceName, scanRecord, rssi, lastDisconnectIntent);
+
+	    	if( please != null && !please.ack() )
+	    	{
+	    		m_scanDeduplicator.onIgnored();
+
+	    		return;
+	    	}
 
-	    	if( please != null && !please.ack() )  return;
+	    	//--- DRK > Only pay for the service list once we know we're keeping the device.
+	    	services_nullable = m_scanRecordView.wrap(scanRecord).getServiceUuids();
 		}
 		else
 		{
@@ -2491,7 +2733,7 @@ public class BleManager
 	@TargetApi(Build.VERSION_CODES.LOLLIPOP)
 	private void stopNativeScan_nested_postLollipop(ScanCallback scanCallback_postLollipop)
 	{
-		getNativeAdapter().getBluetoothLeScanner().stopScan(scanCallback_postLollipop);
+		m_stack.stopScan(scanCallback_postLollipop);
 	}
 
 	void stopNativeScan(final P_Task_Scan scanTask)
@@ -2506,7 +2748,7 @@ public class BleManager
 				}
 				else
 				{
-					getNativeAdapter().stopLeScan(m_listeners.m_scanCallback_preLollipop);
+					m_stack.stopLeScan(m_listeners.m_scanCallback_preLollipop);
 				}
 			}
 			catch(NullPointerException e)
@@ -2526,9 +2768,9 @@ public class BleManager
 			//---		by another app or something, so its usefulness as a logic checker is debatable.
 //			ASSERT(m_btMngr.getAdapter().isDiscovering(), "Trying to cancel discovery when not natively running.");
 
-			if( m_btMngr.getAdapter().isDiscovering() )
+			if( m_stack.isDiscovering() )
 			{
-				m_btMngr.getAdapter().cancelDiscovery();
+				m_stack.cancelDiscovery();
 			}
 		}
 
@@ -2569,6 +2811,9 @@ public class BleManager
 	{
 		m_uhOhThrottler.update(timeStep);
 		m_taskQueue.update(timeStep);
+		m_scanDeduplicator.update(timeStep, m_config);
+		m_diskOptionsMngr.update(timeStep);
+		m_historicalUuidIndex.update(timeStep);
 
 		if( m_isForegrounded )
 		{
@@ -3,12 +3,17 @@ package com.idevicesinc.sweetblue;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
 import java.util.UUID;
 
 import android.Manifest;
+import android.annotation.TargetApi;
 import android.bluetooth.BluetoothAdapter;
 import android.bluetooth.BluetoothDevice;
 import android.content.Context;
+import android.os.Build;
+import android.os.ParcelUuid;
+import android.util.Log;
 
 import com.idevicesinc.sweetblue.BleManager.DiscoveryListener;
 import com.idevicesinc.sweetblue.BleManager.UhOhListener;
@@ -19,6 +24,7 @@ import com.idevicesinc.sweetblue.annotations.Nullable;
 import com.idevicesinc.sweetblue.annotations.Nullable.Prevalence;
 import com.idevicesinc.sweetblue.utils.Interval;
 import com.idevicesinc.sweetblue.utils.ReflectionUuidNameMap;
+import com.idevicesinc.sweetblue.utils.ScanRecordView;
 import com.idevicesinc.sweetblue.utils.State;
 import com.idevicesinc.sweetblue.utils.Utils;
 import com.idevicesinc.sweetblue.utils.UuidNameMap;
@@ -35,9 +41,18 @@ public class BleManagerConfig extends BleDeviceConfig
 	public static final double DEFAULT_AUTO_SCAN_DELAY_AFTER_RESUME 	= 0.5;
 	public static final double DEFAULT_AUTO_UPDATE_RATE					= 1.01/30.0;
 	public static final double DEFAULT_UH_OH_CALLBACK_THROTTLE			= 30.0;
+	public static final int DEFAULT_MAX_SCAN_BATCH_SIZE					= 64;
+	public static final double DEFAULT_SCAN_RSSI_SMOOTHING_FACTOR		= 1.0;
+	public static final int DEFAULT_NOTIFICATION_BUFFER_SIZE			= 1024;
+	public static final int DEFAULT_MAX_NOTIFICATION_BATCH_SIZE			= 64;
 	
 	static final BleManagerConfig NULL = new BleManagerConfig();
 	
+	/**
+	 * The most devices already known to the {@link BleManager} that can be added to the native filters when {@link #offloadScanFilters} is enabled.
+	 */
+	public static final int MAX_OFFLOADED_KNOWN_DEVICES					= 32;
+	
 	/**
 	 * Maximum amount of time for a classic scan to run. This was determined based on experimentation.
 	 * Documentation says that classic scan goes on for about 12 seconds. I forget what the reasoning
@@ -68,10 +83,34 @@ public class BleManagerConfig extends BleDeviceConfig
 			
 			/**
 			 * A list of {@link UUID}s parsed from {@link #scanRecord()} as a convenience. May be empty, notably
-			 * if {@link BleManagerConfig#revertToClassicDiscoveryIfNeeded} is invoked.
+			 * if {@link BleManagerConfig#revertToClassicDiscoveryIfNeeded} is invoked. Parsed on first call, so
+			 * prefer {@link #advertisement()} and {@link ScanRecordView#hasServiceUuid(UUID)} if you're just checking for a match.
+			 */
+			public List<UUID> advertisedServices()
+			{
+				if( m_advertisedServices == null )
+				{
+					m_advertisedServices = advertisement().getServiceUuids();
+				}
+
+				return m_advertisedServices;
+			}
+			private List<UUID> m_advertisedServices = null;
+
+			/**
+			 * A view over {@link #scanRecord()} that gives access to flags, names, manufacturer data, etc. without copying
+			 * the scan record. Created on first call.
 			 */
-			public List<UUID> advertisedServices(){  return m_advertisedServices;  }
-			private final List<UUID> m_advertisedServices;
+			public ScanRecordView advertisement()
+			{
+				if( m_advertisement == null )
+				{
+					m_advertisement = new ScanRecordView().wrap(m_scanRecord);
+				}
+
+				return m_advertisement;
+			}
+			private ScanRecordView m_advertisement = null;
 			
 			/**
 			 * The unaltered device name retrieved from the native bluetooth stack.
@@ -115,12 +154,11 @@ public class BleManagerConfig extends BleDeviceConfig
 			
 			ScanEvent
 			(
-				BluetoothDevice nativeInstance, List<UUID> advertisedServices, String rawDeviceName,
+				BluetoothDevice nativeInstance, String rawDeviceName,
 				String normalizedDeviceName, byte[] scanRecord, int rssi, State.ChangeIntent lastDisconnectIntent
 			)
 			{
 				this.m_nativeInstance = nativeInstance;
-				this.m_advertisedServices = advertisedServices;
 				this.m_rawDeviceName = rawDeviceName;
 				this.m_normalizedDeviceName = normalizedDeviceName;
 				this.m_scanRecord = scanRecord;
@@ -286,16 +324,283 @@ public class BleManagerConfig extends BleDeviceConfig
 		 */
 		@Override public Please onEvent(ScanEvent e)
 		{
-			return Please.acknowledgeIf( Utils.haveMatchingIds(e.advertisedServices(), m_whitelist) );
+			if( m_whitelist.isEmpty() )  return Please.acknowledge();
+
+			final ScanRecordView advertisement = e.advertisement();
+
+			for( int i = 0; i < m_whitelist.size(); i++ )
+			{
+				if( advertisement.hasServiceUuid(m_whitelist.get(i)) )  return Please.acknowledge();
+			}
+
+			return Please.ignore();
+		}
+
+		@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+		boolean compile(final List<android.bluetooth.le.ScanFilter> filters)
+		{
+			if( m_whitelist.isEmpty() )  return false;
+
+			for( int i = 0; i < m_whitelist.size(); i++ )
+			{
+				filters.add(new android.bluetooth.le.ScanFilter.Builder().setServiceUuid(new ParcelUuid(m_whitelist.get(i))).build());
+			}
+
+			return true;
+		}
+	}
+
+	/**
+	 * Implementation of {@link ScanFilter} built up from simple criteria instead of code, so that on Android 5.0 and up
+	 * SweetBlue can hand as much of it as possible down to the bluetooth controller as {@link android.bluetooth.le.ScanFilter}s.
+	 * Advertisements that can't match are then dropped before they ever reach the app, which saves a lot of CPU and battery
+	 * in crowded environments. The same criteria are always also checked in Java by {@link #onEvent(ScanEvent)}, which is all that
+	 * happens on older versions of Android or for criteria the controller doesn't support (mac address and name prefixes).
+	 * <br><br>
+	 * Criteria are combined with a logical AND, except multiple service uuids, any one of which is enough.
+	 * A filter with no criteria acknowledges everything.
+	 * <br><br>
+	 * NOTE: Offloading only happens when {@link BleManagerConfig#offloadScanFilters} is enabled and every active {@link ScanFilter} is a
+	 * {@link DeclarativeScanFilter} or {@link DefaultScanFilter} (not subclasses), because any other filter could acknowledge devices the controller would have dropped.
+	 */
+	public static class DeclarativeScanFilter implements ScanFilter
+	{
+		private final ArrayList<UUID> m_serviceUuids = new ArrayList<UUID>();
+		private String m_macAddressPrefix = null;
+		private String m_namePrefix = null;
+		private int m_manufacturerId = ScanRecordView.NOT_PRESENT;
+		private byte[] m_manufacturerData = null;
+		private byte[] m_manufacturerDataMask = null;
+
+		public DeclarativeScanFilter()
+		{
+		}
+
+		/**
+		 * Only acknowledge devices advertising the given service uuid. Can be called multiple times, in which case any of them is a match.
+		 */
+		public DeclarativeScanFilter withServiceUuid(final UUID uuid)
+		{
+			m_serviceUuids.add(uuid);
+
+			return this;
+		}
+
+		/**
+		 * Only acknowledge devices whose mac address starts with the given prefix, for example "C4:BE:84", case-insensitive.
+		 * A full mac address can be offloaded to the controller, a partial one can't.
+		 */
+		public DeclarativeScanFilter withMacAddressPrefix(final String prefix)
+		{
+			m_macAddressPrefix = prefix != null ? prefix.toUpperCase(Locale.US) : null;
+
+			return this;
+		}
+
+		/**
+		 * Only acknowledge devices whose advertised name starts with the given prefix. Matching is case-sensitive and
+		 * done against the native name, not {@link BleDevice#getName_normalized()}. Never offloaded to the controller.
+		 */
+		public DeclarativeScanFilter withNamePrefix(final String prefix)
+		{
+			m_namePrefix = prefix;
+
+			return this;
+		}
+
+		/**
+		 * Only acknowledge devices advertising manufacturer specific data with the given company identifier.
+		 */
+		public DeclarativeScanFilter withManufacturerId(final int manufacturerId)
+		{
+			return withManufacturerData(manufacturerId, null, null);
+		}
+
+		/**
+		 * Only acknowledge devices advertising manufacturer specific data with the given company identifier, whose data (not counting the identifier)
+		 * starts with <code>data</code> for every bit set in <code>mask_nullable</code>. A <code>null</code> mask means all bits must match.
+		 */
+		public DeclarativeScanFilter withManufacturerData(final int manufacturerId, final byte[] data_nullable, final byte[] mask_nullable)
+		{
+			if( data_nullable != null && mask_nullable != null && mask_nullable.length != data_nullable.length )
+			{
+				throw new IllegalArgumentException("Manufacturer data and mask must be the same length.");
+			}
+
+			m_manufacturerId = manufacturerId;
+			m_manufacturerData = data_nullable != null ? data_nullable.clone() : null;
+			m_manufacturerDataMask = mask_nullable != null ? mask_nullable.clone() : null;
+
+			return this;
+		}
+
+		@Override public Please onEvent(ScanEvent e)
+		{
+			return Please.acknowledgeIf(matches(e));
+		}
+
+		private boolean matches(final ScanEvent e)
+		{
+			if( m_macAddressPrefix != null && !e.macAddress().toUpperCase(Locale.US).startsWith(m_macAddressPrefix) )  return false;
+
+			if( m_namePrefix != null && (e.name_native() == null || !e.name_native().startsWith(m_namePrefix)) )  return false;
+
+			if( !m_serviceUuids.isEmpty() )
+			{
+				boolean found = false;
+
+				for( int i = 0; i < m_serviceUuids.size() && !found; i++ )
+				{
+					found = e.advertisement().hasServiceUuid(m_serviceUuids.get(i));
+				}
+
+				if( !found )  return false;
+			}
+
+			if( m_manufacturerId != ScanRecordView.NOT_PRESENT && !matchesManufacturerData(e.advertisement()) )  return false;
+
+			return true;
+		}
+
+		private boolean matchesManufacturerData(final ScanRecordView advertisement)
+		{
+			final byte[] raw = advertisement.getRaw();
+
+			for( int i = 0; i < advertisement.getStructureCount(); i++ )
+			{
+				if( advertisement.getStructureType(i) != ScanRecordView.TYPE_MANUFACTURER_DATA )  continue;
+
+				final int offset = advertisement.getStructureOffset(i);
+				final int length = advertisement.getStructureLength(i);
+
+				if( length < 2 || ((raw[offset] & 0xFF) | ((raw[offset + 1] & 0xFF) << 8)) != m_manufacturerId )  continue;
+
+				if( m_manufacturerData == null )  return true;
+
+				if( length - 2 < m_manufacturerData.length )  continue;
+
+				boolean match = true;
+
+				for( int j = 0; j < m_manufacturerData.length && match; j++ )
+				{
+					final int mask = m_manufacturerDataMask != null ? m_manufacturerDataMask[j] & 0xFF : 0xFF;
+
+					match = (raw[offset + 2 + j] & mask) == (m_manufacturerData[j] & mask);
+				}
+
+				if( match )  return true;
+			}
+
+			return false;
+		}
+
+		@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+		boolean compile(final List<android.bluetooth.le.ScanFilter> filters)
+		{
+			//--- DRK > Only a full mac address can be offloaded, prefixes are left to the Java side.
+			final String macAddress = m_macAddressPrefix != null && BluetoothAdapter.checkBluetoothAddress(m_macAddressPrefix) ? m_macAddressPrefix : null;
+
+			if( macAddress == null && m_serviceUuids.isEmpty() && m_manufacturerId == ScanRecordView.NOT_PRESENT )  return false;
+
+			final int count = Math.max(1, m_serviceUuids.size());
+
+			for( int i = 0; i < count; i++ )
+			{
+				final android.bluetooth.le.ScanFilter.Builder builder = new android.bluetooth.le.ScanFilter.Builder();
+
+				if( macAddress != null )
+				{
+					builder.setDeviceAddress(macAddress);
+				}
+
+				if( !m_serviceUuids.isEmpty() )
+				{
+					builder.setServiceUuid(new ParcelUuid(m_serviceUuids.get(i)));
+				}
+
+				if( m_manufacturerId != ScanRecordView.NOT_PRESENT )
+				{
+					final byte[] data = m_manufacturerData != null ? m_manufacturerData : new byte[0];
+
+					if( m_manufacturerDataMask != null )
+					{
+						builder.setManufacturerData(m_manufacturerId, data, m_manufacturerDataMask);
+					}
+					else
+					{
+						builder.setManufacturerData(m_manufacturerId, data);
+					}
+				}
+
+				filters.add(builder.build());
+			}
+
+			return true;
+		}
+
+		@Override public String toString()
+		{
+			return Utils.toString
+			(
+				this.getClass(),
+				"serviceUuids",		m_serviceUuids,
+				"macAddressPrefix",	m_macAddressPrefix,
+				"namePrefix",		m_namePrefix,
+				"manufacturerId",	m_manufacturerId
+			);
 		}
 	}
 	
+	/**
+	 * What to do with notifications that arrive faster than they can be passed along to your listeners.
+	 * See {@link BleManagerConfig#notificationOverflowPolicy}.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	public static enum NotificationOverflowPolicy
+	{
+		/**
+		 * Every notification is delivered in the order it arrived, and none are ever dropped. If {@link BleManagerConfig#notificationBufferSize}
+		 * notifications are already waiting then the buffer grows to make room, and shrinks back once it's been drained.
+		 */
+		GROW,
+
+		/**
+		 * Every notification is delivered in the order it arrived. If {@link BleManagerConfig#notificationBufferSize} notifications
+		 * are already waiting then new ones are dropped until there's room again. Each drop is counted by {@link BleManager#getNotificationOverrunCount()}
+		 * and reported through {@link com.idevicesinc.sweetblue.BleManager.UhOhListener.UhOh#NOTIFICATIONS_DROPPED}.
+		 */
+		DROP_NEWEST,
+
+		/**
+		 * A notification that arrives while an older one from the same characteristic on the same device is still waiting replaces it,
+		 * so only the latest value is delivered. If the buffer is still full then the oldest waiting notification is dropped to make room,
+		 * which is reported the same way as for {@link #DROP_NEWEST}. Good for characteristics that report a current reading, where stale values aren't worth delivering.
+		 */
+		KEEP_LATEST;
+	}
+
 	/**
 	 * Default is <code>false</code> - basically only useful for developers working on the library itself.
 	 * May also be useful for providing context when reporting bugs.
 	 */
 	@com.idevicesinc.sweetblue.annotations.Advanced
 	public boolean loggingEnabled						= false;
+
+	/**
+	 * Default is {@link android.util.Log#VERBOSE} - if {@link #loggingEnabled} is <code>true</code>, messages below this {@link android.util.Log}
+	 * level are skipped before they're even built, so for example {@link android.util.Log#WARN} keeps logging on for support purposes
+	 * without paying for all the chatty informational messages.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	public int loggingLevel								= Log.VERBOSE;
+
+	/**
+	 * Default is <code>false</code> - if {@link #loggingEnabled} is <code>true</code>, setting this to <code>true</code> as well
+	 * tags each message with the class and method that logged it. This requires capturing a stack trace for every message,
+	 * which is expensive, so it's best left off unless you're debugging the library itself.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	public boolean loggingCallerInfo					= false;
 	
 	/**
 	 * Default is <code>false</code> - this option may help mitigate crashes with "Unfortunately,
@@ -382,6 +687,20 @@ public class BleManagerConfig extends BleDeviceConfig
 	@com.idevicesinc.sweetblue.annotations.Advanced
 	public boolean manageCpuWakeLock					= true;
 	
+	/**
+	 * Default is <code>false</code> - by default SweetBlue runs one operation at a time across the whole {@link BleManager}, so a slow
+	 * read on one device holds up writes to every other device. Set this to <code>true</code> to give each {@link BleDevice} its own
+	 * lane in the task queue, so that one operation per device can be in flight at the same time. Manager-level operations like
+	 * scanning, turning BLE on/off, and crash resolution (as well as all {@link BleServer} operations) still share a single global lane,
+	 * and device lanes wait while a critical operation like turning BLE on or off is running. Priorities, interruptions, and cancellations
+	 * work the same as before, just within each lane.
+	 * <br><br>
+	 * Older Android BLE stacks don't handle concurrent GATT operations on separate connections well, so only enable this if you're targeting
+	 * devices known to support it.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	public boolean parallelDeviceTasks					= false;
+	
 	/**
 	 * Default is {@value #DEFAULT_UH_OH_CALLBACK_THROTTLE} seconds - {@link BleManager.UhOhListener.UhOh} callbacks from {@link BleManager.UhOhListener}
 	 * can be a little spammy at times so this is an option to throttle them back on a per-{@link BleManager.UhOhListener.UhOh} basis.
@@ -449,6 +768,95 @@ public class BleManagerConfig extends BleDeviceConfig
 	@Nullable(Prevalence.RARE)
 	public Interval autoUpdateRate						= Interval.secs(DEFAULT_AUTO_UPDATE_RATE);
 
+	/**
+	 * Default is <code>null</code> - set this to cap the estimated disk space used by the historical data of all devices combined. When over,
+	 * the oldest data of each device and characteristic is deleted in proportion to how much space it takes up. Checked every
+	 * {@link #historicalDataRetentionInterval}, same as the per-device limits like {@link #historicalDataMaxBytes}.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	@Nullable(Prevalence.NORMAL)
+	public Long historicalDataMaxBytesTotal							= null;
+
+	/**
+	 * Default is <code>false</code> - on Android 5.0 and up, set this to <code>true</code> to have the Bluetooth controller drop advertisements
+	 * that can't possibly pass your {@link ScanFilter}s before they ever reach the app, which saves power and CPU when scanning in busy places.
+	 * Only {@link DefaultScanFilter} and {@link DeclarativeScanFilter} can be offloaded - if any other kind of {@link ScanFilter} is active
+	 * then nothing is offloaded. Devices already known to the {@link BleManager} are added to the native filters by address so they keep
+	 * getting rediscovered with fresh RSSI and scan records, but if there are more than {@link #MAX_OFFLOADED_KNOWN_DEVICES} of them
+	 * nothing is offloaded either, since controllers only have room for so many filters.
+	 * <br><br>
+	 * Some phones are known to have buggy hardware filtering, so test on the phones you care about before enabling this.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	public boolean offloadScanFilters					= false;
+
+	/**
+	 * Default is {@link Interval#DISABLED} - on Android 5.0 and up, set this to a positive value to have the native stack hold on to
+	 * scan results for up to this long and deliver them all at once through {@link android.bluetooth.le.ScanCallback#onBatchScanResults(List)}.
+	 * Each batch is handed to the library's update thread in one go instead of one post per advertisement, which cuts down on
+	 * overhead and wakeups when scanning for a lot of devices, especially in the background. The tradeoff is that
+	 * {@link BleManager.DiscoveryListener} callbacks can come this much later than they otherwise would.
+	 * Ignored if the phone doesn't support offloaded scan batching.
+	 *
+	 * @see #maxScanBatchSize
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	@Nullable(Prevalence.NORMAL)
+	public Interval scanReportDelay						= Interval.DISABLED;
+
+	/**
+	 * Default is {@value #DEFAULT_MAX_SCAN_BATCH_SIZE} - the most scan results processed in a single update thread post when
+	 * {@link #scanReportDelay} is enabled. Larger batches are split up over multiple posts so other work on the update thread isn't held up.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	public int maxScanBatchSize							= DEFAULT_MAX_SCAN_BATCH_SIZE;
+
+	/**
+	 * Default is {@value #DEFAULT_NOTIFICATION_BUFFER_SIZE} - how many notifications (from all devices combined) can be waiting
+	 * to be passed along to your listeners before {@link #notificationOverflowPolicy} kicks in. Notifications come in on a random thread and are held
+	 * until the update thread gets to them, so a burst of notifications can't flood the update thread with posts.
+	 *
+	 * @see #notificationOverflowPolicy
+	 * @see BleManager#getNotificationOverrunCount()
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	public int notificationBufferSize					= DEFAULT_NOTIFICATION_BUFFER_SIZE;
+
+	/**
+	 * Default is {@link NotificationOverflowPolicy#GROW} - see {@link NotificationOverflowPolicy}. <code>null</code> means the default.
+	 * Notifications are only ever dropped if you choose one of the other policies.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	@Nullable(Prevalence.NORMAL)
+	public NotificationOverflowPolicy notificationOverflowPolicy	= NotificationOverflowPolicy.GROW;
+
+	/**
+	 * Default is {@value #DEFAULT_MAX_NOTIFICATION_BATCH_SIZE} - the most notifications passed along to your listeners in a single
+	 * update thread post. Anything left over waits for the next post so other work on the update thread isn't held up.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	public int maxNotificationBatchSize					= DEFAULT_MAX_NOTIFICATION_BATCH_SIZE;
+
+	/**
+	 * Default is {@link Interval#DISABLED} - if set, an advertisement whose scan record is byte-for-byte the same as the last one
+	 * from the same device is swallowed instead of going through {@link ScanFilter}s and coming out as a
+	 * {@link BleManager.DiscoveryListener.LifeCycle#REDISCOVERED} event, until this much time has passed. The device is still kept
+	 * alive and its RSSI updated. Devices that advertise many times a second can otherwise flood your listener.
+	 *
+	 * @see #scanRssiSmoothingFactor
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	@Nullable(Prevalence.NORMAL)
+	public Interval scanDeduplicationWindow				= Interval.DISABLED;
+
+	/**
+	 * Default is {@value #DEFAULT_SCAN_RSSI_SMOOTHING_FACTOR} - when {@link #scanDeduplicationWindow} is enabled, RSSI values from every
+	 * advertisement are folded into a running average for each device, with each new value weighted by this factor from 0.0 to 1.0.
+	 * 1.0 means {@link BleDevice#getRssi()} is always the latest raw value, lower values smooth out noise at the cost of lag.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	public double scanRssiSmoothingFactor				= DEFAULT_SCAN_RSSI_SMOOTHING_FACTOR;
+
 	/**
 	 * Default is <code>null</code>, meaning no filtering - all discovered devices will
 	 * be piped through your {@link BleManager.DiscoveryListener} instance
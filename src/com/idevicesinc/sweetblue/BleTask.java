@@ -59,6 +59,12 @@ public enum BleTask
 	 * Associated with {@link BleDevice#write(java.util.UUID, byte[], com.idevicesinc.sweetblue.BleDevice.ReadWriteListener)}.
 	 */
 	WRITE,
+
+	/**
+	 * Associated with {@link BleDevice#writeStream(java.util.UUID, java.io.InputStream, com.idevicesinc.sweetblue.BleDevice.ReadWriteListener)} and overloads.
+	 * One of these covers a whole stream, and its timeout applies to each packet rather than the whole transfer.
+	 */
+	WRITE_STREAM,
 	
 	/**
 	 * Associated with {@link BleDevice#enableNotify(java.util.UUID, com.idevicesinc.sweetblue.BleDevice.ReadWriteListener)} and
@@ -70,6 +76,17 @@ public enum BleTask
 	 * Associated with {@link BleDevice#readRssi()} and {@link BleDevice#startRssiPoll(com.idevicesinc.sweetblue.utils.Interval)} (and overloads thereof).
 	 */
 	READ_RSSI,
+
+	/**
+	 * Associated with {@link BleDevice#negotiateMtu(int, BleDevice.ReadWriteListener)} and with {@link BleDeviceConfig#mtuOnConnect}.
+	 */
+	NEGOTIATE_MTU,
+
+	/**
+	 * Associated with {@link BleDevice#setConnectionPriority(BleConnectionPriority, BleDevice.ReadWriteListener)} and with
+	 * {@link BleDeviceConfig#autoConnectionPriorityTaskThreshold}.
+	 */
+	SET_CONNECTION_PRIORITY,
 	
 	/**
 	 * Associated with discovering services after a {@link BleDevice} becomes {@link BleDeviceState#CONNECTED}.
@@ -149,10 +166,10 @@ public enum BleTask
 	}
 	
 	/**
-	 * Returns <code>true</code> if the task can have a characteristic UUID associated with it - for now {@link #READ}, {@link #WRITE} and {@link #TOGGLE_NOTIFY}.
+	 * Returns <code>true</code> if the task can have a characteristic UUID associated with it - for now {@link #READ}, {@link #WRITE}, {@link #WRITE_STREAM} and {@link #TOGGLE_NOTIFY}.
 	 */
 	public boolean usesCharUuid()
 	{
-		return this == READ || this == WRITE || this == TOGGLE_NOTIFY;
+		return this == READ || this == WRITE || this == WRITE_STREAM || this == TOGGLE_NOTIFY;
 	}
 }
@@ -150,7 +150,7 @@ public abstract class BleTransaction
 				return false;
 			}
 		
-			m_device.getManager().getLogger().i("transaction " + reason.name());
+			m_device.getManager().getLogger().i_format("transaction {}", reason);
 			
 			m_isRunning = false;
 			
@@ -113,7 +113,12 @@ abstract class PA_Task_ReadOrWrite extends PA_Task_Transactionable implements PA
 	{
 		final BluetoothGatt gatt = getDevice().getNativeGatt();
 		
-		if( gatt != null )
+		//--- DRK > Non-native backend stacks have no auth retry to snoop on.
+		if( gatt == null && getDevice().m_nativeWrapper.getGatt() != null )
+		{
+			return null;
+		}
+		else if( gatt != null )
 		{
 			try
 			{
@@ -171,7 +176,7 @@ abstract class PA_Task_ReadOrWrite extends PA_Task_Transactionable implements PA
 				getDevice().notifyOfPossibleImplicitBondingAttempt();
 				getDevice().m_bondMngr.saveNeedsBondingIfDesired();
 				
-				getManager().getLogger().i("Kicked off bond and " + PE_TaskState.TIMED_OUT.name());
+				getManager().getLogger().i_format("Kicked off bond and {}", PE_TaskState.TIMED_OUT);
 			}
 		}
 	}
@@ -0,0 +1,37 @@
+package com.idevicesinc.sweetblue;
+
+import android.content.Context;
+
+import com.idevicesinc.sweetblue.backend.Backend_Modules;
+import com.idevicesinc.sweetblue.backend.stack.Backend_BleStack;
+import com.idevicesinc.sweetblue.backend.stack.Backend_BleStack_Default;
+
+class PU_BleStack
+{
+	static Backend_BleStack newStack(final Context context, final BleManager manager)
+	{
+		final Class<? extends Backend_BleStack> stackClass = Backend_Modules.BLE_STACK;
+
+		Backend_BleStack newStack = null;
+
+		if( stackClass != null )
+		{
+			try
+			{
+				newStack = stackClass.newInstance();
+			}
+			catch(InstantiationException e)
+			{
+			}
+			catch(IllegalAccessException e)
+			{
+			}
+		}
+
+		newStack = newStack != null ? newStack : new Backend_BleStack_Default();
+
+		newStack.init(context, manager);
+
+		return newStack;
+	}
+}
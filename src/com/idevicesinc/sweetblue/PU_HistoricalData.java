@@ -9,6 +9,9 @@ import com.idevicesinc.sweetblue.backend.historical.Backend_HistoricalDatabase;
 import com.idevicesinc.sweetblue.backend.historical.Backend_HistoricalDatabase_Default;
 import com.idevicesinc.sweetblue.utils.EpochTime;
 import com.idevicesinc.sweetblue.utils.EpochTimeRange;
+import com.idevicesinc.sweetblue.utils.HistoricalDataBuckets;
+import com.idevicesinc.sweetblue.utils.HistoricalDataCursor;
+import com.idevicesinc.sweetblue.utils.HistoricalDataValueType;
 import com.idevicesinc.sweetblue.utils.UpdateLoop;
 
 import java.lang.reflect.InvocationTargetException;
@@ -45,7 +48,7 @@ class PU_HistoricalData
 		return newList;
 	}
 
-	static Backend_HistoricalDatabase newDatabase(final Context context, final BleManager manager)
+	static Backend_HistoricalDatabase newDatabase(final Context context, final BleManager manager, final UpdateLoop updateLoop)
 	{
 		final Class<? extends Backend_HistoricalDatabase> databaseClass = Backend_Modules.HISTORICAL_DATABASE;
 
@@ -73,11 +76,47 @@ class PU_HistoricalData
 
 		newDatabase = newDatabase != null ? newDatabase : new Backend_HistoricalDatabase_Default(context);
 
-		newDatabase.init(manager);
+		newDatabase.init(manager, updateLoop);
 
 		return newDatabase;
 	}
 
+	/**
+	 * Returns whether the in-memory list has at least as much of the range as the database does, so that the range can be read from memory.
+	 * The list can be missing older data that's only on disk, for example if it was never loaded or is capped by {@link BleDeviceConfig#historicalDataMaxCount}.
+	 * Anything waiting in {@link P_HistoricalDataWriteQueue} should be flushed first.
+	 */
+	static boolean isListComplete(final Backend_HistoricalDataList list_nullable, final Backend_HistoricalDatabase database, final String macAddress, final UUID uuid, final EpochTimeRange range)
+	{
+		final int listCount = list_nullable != null ? list_nullable.getCount(range) : 0;
+
+		return listCount > 0 && listCount >= database.getCount(macAddress, uuid, range);
+	}
+
+	static HistoricalDataCursor getCursor(final Backend_HistoricalDataList list_nullable, final Backend_HistoricalDatabase database, final String macAddress, final UUID uuid, final EpochTimeRange range)
+	{
+		if( isListComplete(list_nullable, database, macAddress, uuid, range) )
+		{
+			return list_nullable.getCursor(range);
+		}
+		else
+		{
+			return database.getCursor(macAddress, uuid, range);
+		}
+	}
+
+	static HistoricalDataBuckets getBuckets(final Backend_HistoricalDataList list_nullable, final Backend_HistoricalDatabase database, final String macAddress, final UUID uuid, final EpochTimeRange range, final long bucketWidth_millis, final HistoricalDataValueType valueType, final int byteOffset)
+	{
+		if( isListComplete(list_nullable, database, macAddress, uuid, range) )
+		{
+			return list_nullable.getBuckets(range, bucketWidth_millis, valueType, byteOffset);
+		}
+		else
+		{
+			return database.getBuckets(macAddress, uuid, range, bucketWidth_millis, valueType, byteOffset);
+		}
+	}
+
 	static BleDeviceConfig.HistoricalDataLogFilter getFilter(final BleDevice device)
 	{
 		final BleDeviceConfig.HistoricalDataLogFilter filter_config_device = device.conf_device().historicalDataLogFilter;
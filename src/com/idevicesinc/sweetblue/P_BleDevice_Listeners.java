@@ -8,6 +8,7 @@ import android.bluetooth.BluetoothGattCallback;
 import android.bluetooth.BluetoothGattCharacteristic;
 import android.bluetooth.BluetoothGattDescriptor;
 import android.bluetooth.BluetoothProfile;
+import android.util.Log;
 
 import com.idevicesinc.sweetblue.BleDevice.BondListener.Status;
 import com.idevicesinc.sweetblue.BleDevice.ConnectionFailListener.AutoConnectUsage;
@@ -137,7 +138,7 @@ class P_BleDevice_Listeners extends BluetoothGattCallback
 		//--- DRK > NOTE: For some devices disconnecting by turning off the peripheral comes back with a status of 8, which is BluetoothGatt.GATT_SERVER.
 		//---				For that same device disconnecting from the app the status is 0. Just an FYI to future developers in case they want to distinguish
 		//---				between the two as far as user intent or something.
-		m_logger.log_status(gattStatus, m_logger.gattConn(newState));
+		if( m_logger.isEnabled() )  m_logger.log_status(gattStatus, m_logger.gattConn(newState));
 		
 		UpdateLoop updater = m_device.getManager().getUpdateLoop();
 		
@@ -351,7 +352,7 @@ class P_BleDevice_Listeners extends BluetoothGattCallback
 	{
 		final UUID uuid = characteristic.getUuid();
 		final byte[] value = characteristic.getValue() == null ? null : characteristic.getValue().clone();
-		m_logger.i(m_logger.charName(uuid));
+		if( m_logger.isEnabled(Log.INFO) )  m_logger.i(m_logger.charName(uuid));
 		m_logger.log_status(status);
 		
 		UpdateLoop updater = m_device.getManager().getUpdateLoop();
@@ -372,7 +373,7 @@ class P_BleDevice_Listeners extends BluetoothGattCallback
 	@Override public void onCharacteristicWrite(final BluetoothGatt gatt, final BluetoothGattCharacteristic characteristic, final int status)
 	{
 		final UUID uuid = characteristic.getUuid();
-		m_logger.i(m_logger.charName(uuid));
+		if( m_logger.isEnabled(Log.INFO) )  m_logger.i(m_logger.charName(uuid));
 		m_logger.log_status(status);
 		
 		UpdateLoop updater = m_device.getManager().getUpdateLoop();
@@ -383,9 +384,18 @@ class P_BleDevice_Listeners extends BluetoothGattCallback
 			{
 				P_Task_Write task = m_queue.getCurrent(P_Task_Write.class, m_device);
 		
-				if (task == null)  return;
-		
-				task.onCharacteristicWrite(gatt, uuid, status);
+				if (task != null)
+				{
+					task.onCharacteristicWrite(gatt, uuid, status);
+
+					return;
+				}
+
+				P_Task_WriteStream streamTask = m_queue.getCurrent(P_Task_WriteStream.class, m_device);
+
+				if (streamTask == null)  return;
+
+				streamTask.onCharacteristicWrite(gatt, uuid, status);
 			}
 		});
 	}
@@ -431,10 +441,34 @@ class P_BleDevice_Listeners extends BluetoothGattCallback
 		});
 	}
 	
+	@Override public void onMtuChanged(final BluetoothGatt gatt, final int mtu, final int gattStatus)
+	{
+		m_logger.log_status(gattStatus);
+
+		UpdateLoop updater = m_device.getManager().getUpdateLoop();
+
+		updater.postIfNeeded(new SynchronizedRunnable()
+		{
+			@Override public void run_nested()
+			{
+				if( Utils.isSuccess(gattStatus) )
+				{
+					m_device.updateMtu(mtu);
+				}
+
+				P_Task_NegotiateMtu task = m_queue.getCurrent(P_Task_NegotiateMtu.class, m_device);
+
+				if (task == null)  return;
+
+				task.onMtuChanged(gatt, mtu, gattStatus);
+			}
+		});
+	}
+
 	@Override public void onDescriptorWrite(final BluetoothGatt gatt, BluetoothGattDescriptor descriptor, final int status)
 	{
 		final UUID uuid = descriptor.getUuid();
-		m_logger.i(m_logger.descriptorName(uuid));
+		if( m_logger.isEnabled(Log.INFO) )  m_logger.i(m_logger.descriptorName(uuid));
 		m_logger.log_status(status);
 		
 		UpdateLoop updater = m_device.getManager().getUpdateLoop();
@@ -458,13 +492,8 @@ class P_BleDevice_Listeners extends BluetoothGattCallback
 		final UUID serviceUuid = characteristic.getService().getUuid();
 		final byte[] value = characteristic.getValue() == null ? null : characteristic.getValue().clone();
 		
-		m_device.getManager().getUpdateLoop().postIfNeeded(new SynchronizedRunnable()
-		{
-			@Override public void run_nested()
-			{
-				m_device.getPollManager().onCharacteristicChangedFromNativeNotify(serviceUuid, characteristicUuid, value);
-			}
-		});
+		//--- DRK > Goes through the manager's buffer instead of a post per notification so bursts get delivered in batches.
+		m_device.getManager().m_notificationBuffer.add(m_device, serviceUuid, characteristicUuid, value);
 	}
 
 	void onNativeBondStateChanged(int previousState, int newState, int failReason)
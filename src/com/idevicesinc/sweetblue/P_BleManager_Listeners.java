@@ -195,7 +195,7 @@ class P_BleManager_Listeners
 		final int newNativeState = intent.getIntExtra(BluetoothAdapter.EXTRA_STATE, BluetoothAdapter.ERROR);
 		
 		int logLevel = newNativeState == BluetoothAdapter.ERROR || previousNativeState == BluetoothAdapter.ERROR ? Log.WARN : Log.INFO;
-		m_logger.log(logLevel, "previous=" + m_logger.gattBleState(previousNativeState) + " new=" + m_logger.gattBleState(newNativeState));
+		if( m_logger.isEnabled(logLevel) )  m_logger.log(logLevel, "previous=" + m_logger.gattBleState(previousNativeState) + " new=" + m_logger.gattBleState(newNativeState));
 		
 		m_mngr.getUpdateLoop().postIfNeeded(new Runnable()
 		{
@@ -213,8 +213,7 @@ class P_BleManager_Listeners
 		//---		may not work because maybe this bug relied on a race condition.
 		//---		UPDATE: Not checking for inconsistent state anymore cause it can be legitimate due to native 
 		//---		state changing while call to this method is sitting on the main thread queue.
-		BluetoothAdapter bluetoothAdapter = m_mngr.getNative().getAdapter();
-		final int adapterState = bluetoothAdapter.getState();
+		final int adapterState = m_mngr.getStack().getState();
 //		boolean inconsistentState = adapterState != newNativeState;
 		PA_StateTracker.E_Intent intent = E_Intent.INTENTIONAL;
 		final boolean hitErrorState = newNativeState == BluetoothAdapter.ERROR;
@@ -321,7 +320,7 @@ class P_BleManager_Listeners
 		final int previousState = intent.getIntExtra(BluetoothDevice.EXTRA_PREVIOUS_BOND_STATE, BluetoothDevice.ERROR);
 		final int newState = intent.getIntExtra(BluetoothDevice.EXTRA_BOND_STATE, BluetoothDevice.ERROR);
 		int logLevel = newState == BluetoothDevice.ERROR || previousState == BluetoothDevice.ERROR ? Log.WARN : Log.INFO;
-		m_logger.log(logLevel, "previous=" + m_logger.gattBondState(previousState) + " new=" + m_logger.gattBondState(newState));
+		if( m_logger.isEnabled(logLevel) )  m_logger.log(logLevel, "previous=" + m_logger.gattBondState(previousState) + " new=" + m_logger.gattBondState(newState));
 		
 		final int failReason;
 		
@@ -331,7 +330,7 @@ class P_BleManager_Listeners
 			failReason = intent.getIntExtra(BluetoothDevice_EXTRA_REASON, BluetoothDevice.ERROR);
 			if( failReason != BleStatuses.BOND_SUCCESS )
 			{
-				m_logger.w(m_logger.gattUnbondReason(failReason));
+				if( m_logger.isEnabled(Log.WARN) )  m_logger.w(m_logger.gattUnbondReason(failReason));
 			}
 		}
 		else
@@ -163,7 +163,7 @@ class P_BleServer_Listeners extends BluetoothGattServerCallback
 		{
 			@Override public void run()
 			{
-				m_logger.log_status(gattStatus, m_logger.gattConn(newState));
+				if( m_logger.isEnabled() )  m_logger.log_status(gattStatus, m_logger.gattConn(newState));
 
 				if( newState == BluetoothProfile.STATE_DISCONNECTED )
 				{
@@ -2,10 +2,11 @@ package com.idevicesinc.sweetblue;
 
 import java.util.UUID;
 
-import android.bluetooth.BluetoothGatt;
 import android.bluetooth.BluetoothGattCharacteristic;
 import android.bluetooth.BluetoothGattService;
 
+import com.idevicesinc.sweetblue.backend.stack.Backend_BleGatt;
+
 class P_Characteristic
 {
 	private final BluetoothGattCharacteristic m_native;
@@ -64,7 +65,7 @@ class P_Characteristic
 	{
 		if( m_service == null )  return m_native;
 		
-		BluetoothGatt gatt = m_service.getDevice().getNativeGatt();
+		Backend_BleGatt gatt = m_service.getDevice().m_nativeWrapper.getGatt();
 		
 		if( gatt == null )  return m_native;
 		
@@ -6,6 +6,7 @@ import java.util.List;
 import java.util.UUID;
 
 import android.bluetooth.BluetoothGattCharacteristic;
+import android.util.Log;
 
 class P_CharacteristicManager
 {
@@ -92,7 +93,7 @@ class P_CharacteristicManager
 			}
 			else
 			{
-				m_logger.w("Already have " + m_logger.charName(characteristic.getUuid()));
+				if( m_logger.isEnabled(Log.WARN) )  m_logger.w("Already have " + m_logger.charName(characteristic.getUuid()));
 			}
 		}
 	}
@@ -78,7 +78,7 @@ class P_ConnectionFailManager
 		final Interval attemptTime_latest = Interval.delta(timeOfLastConnectFail, currentTime);
 		final Interval attemptTime_total = Interval.delta(m_timeOfFirstConnect, currentTime);
 		
-		m_device.getManager().getLogger().w(reason_nullable+", timing="+timing);
+		m_device.getManager().getLogger().w_format("{}, timing={}", reason_nullable, timing);
 		
 		if( isAttemptingReconnect_longTerm )
 		{
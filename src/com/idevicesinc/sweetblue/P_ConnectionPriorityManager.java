@@ -0,0 +1,117 @@
+package com.idevicesinc.sweetblue;
+
+import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener.ReadWriteEvent;
+import com.idevicesinc.sweetblue.utils.Interval;
+
+/**
+ * Drives {@link BleDeviceConfig#autoConnectionPriorityTaskThreshold}. The link is bumped to {@link BleConnectionPriority#HIGH} as soon as
+ * the device gets busy, and only dropped back once it has stayed idle for {@link BleDeviceConfig#autoConnectionPriorityIdleTime}, so
+ * short gaps between bursts of reads and writes don't cause a renegotiation each time.
+ */
+class P_ConnectionPriorityManager
+{
+	//--- DRK > How long to wait after a request fails before trying again, doubled with each failure in a row up to the max.
+	private static final double MIN_RETRY_DELAY = 1.0;
+	private static final double MAX_RETRY_DELAY = 60.0;
+
+	private final BleDevice m_device;
+
+	private double m_timeIdle = 0.0;
+
+	//--- DRK > Set when the stack refuses a request (e.g. before Lollipop), so we don't keep hammering it for the rest of the connection.
+	private boolean m_unsupported = false;
+
+	//--- DRK > For any other failure, like a timeout or the device dropping the request, we hold off for a while instead of resending every tick.
+	private double m_retryDelay = 0.0;
+	private double m_timeUntilRetry = 0.0;
+
+	private final P_WrappingReadWriteListener m_listener;
+
+	P_ConnectionPriorityManager(final BleDevice device)
+	{
+		m_device = device;
+
+		m_listener = new P_WrappingReadWriteListener(null, null, false)
+		{
+			@Override public void onEvent(final ReadWriteEvent event)
+			{
+				if( event.status() == BleDevice.ReadWriteListener.Status.SUCCESS )
+				{
+					m_retryDelay = 0.0;
+					m_timeUntilRetry = 0.0;
+				}
+				else if( event.status() == BleDevice.ReadWriteListener.Status.FAILED_TO_SEND_OUT )
+				{
+					m_unsupported = true;
+				}
+				else
+				{
+					m_retryDelay = m_retryDelay == 0.0 ? MIN_RETRY_DELAY : Math.min(m_retryDelay * 2.0, MAX_RETRY_DELAY);
+					m_timeUntilRetry = m_retryDelay;
+				}
+			}
+		};
+	}
+
+	void update(final double timeStep)
+	{
+		if( !m_device.is(BleDeviceState.INITIALIZED) )
+		{
+			m_timeIdle = 0.0;
+			m_unsupported = false;
+			m_retryDelay = 0.0;
+			m_timeUntilRetry = 0.0;
+
+			return;
+		}
+
+		if( m_unsupported )  return;
+
+		if( m_timeUntilRetry > 0.0 )
+		{
+			m_timeUntilRetry -= timeStep;
+
+			return;
+		}
+
+		final Integer threshold = BleDeviceConfig.integer(m_device.conf_device().autoConnectionPriorityTaskThreshold, m_device.conf_mngr().autoConnectionPriorityTaskThreshold);
+
+		if( threshold == null )  return;
+
+		final P_TaskQueue queue = m_device.getManager().getTaskQueue();
+
+		//--- DRK > Only one of these at a time, and whatever's queued will be current soon enough anyway.
+		if( queue.isInQueue(P_Task_SetConnectionPriority.class, m_device) || queue.isCurrent(P_Task_SetConnectionPriority.class, m_device) )  return;
+
+		final boolean busy = m_device.is(BleDeviceState.PERFORMING_OTA) || queue.getSize(m_device) >= threshold;
+
+		if( busy )
+		{
+			m_timeIdle = 0.0;
+
+			request(BleConnectionPriority.HIGH);
+		}
+		else
+		{
+			m_timeIdle += timeStep;
+
+			final Interval idleTime = BleDeviceConfig.interval(m_device.conf_device().autoConnectionPriorityIdleTime, m_device.conf_mngr().autoConnectionPriorityIdleTime);
+
+			if( Interval.isDisabled(idleTime) || m_timeIdle < idleTime.secs() )  return;
+
+			final BleConnectionPriority whenIdle = m_device.conf_device().autoConnectionPriorityWhenIdle != null ? m_device.conf_device().autoConnectionPriorityWhenIdle : m_device.conf_mngr().autoConnectionPriorityWhenIdle;
+
+			if( whenIdle == null )  return;
+
+			request(whenIdle);
+		}
+	}
+
+	private void request(final BleConnectionPriority priority)
+	{
+		if( m_device.getConnectionPriority() == priority )  return;
+
+		//--- DRK > Queued ahead of normal reads and writes, otherwise a switch to HIGH would only happen once the backlog that asked for it was already done.
+		m_device.setConnectionPriority_internal(priority, m_listener, PE_TaskPriority.FOR_PRIORITY_READS_WRITES);
+	}
+}
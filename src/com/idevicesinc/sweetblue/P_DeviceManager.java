@@ -309,7 +309,7 @@ class P_DeviceManager
 		{
 			if( m_map.containsKey(device.getMacAddress()) )
 			{
-				m_logger.e("Already registered device " + device.getMacAddress());
+				m_logger.e_format("Already registered device {}", device.getMacAddress());
 				
 				return;
 			}
@@ -1,7 +1,10 @@
 package com.idevicesinc.sweetblue;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 import android.content.Context;
@@ -35,34 +38,165 @@ class P_DiskOptionsManager
 		}
 	}
 	
+	//--- DRK > Stands in for a removed key in the pending write maps.
+	private static final Object REMOVED = new Object();
+
+	/**
+	 * Everything kept for one {@link E_Namespace}, typed by the kind of value stored in it.
+	 */
+	private static class NamespaceData<T>
+	{
+		private final Class<T> m_type;
+
+		final HashMap<String, T> m_inMemoryDb = new HashMap<String, T>();
+
+		//--- DRK > Writes waiting for the next flush(), with REMOVED for removals.
+		final HashMap<String, Object> m_pendingWrites = new HashMap<String, Object>();
+		boolean m_pendingClear = false;
+
+		//--- DRK > Removals and clears that happen while preloading, so the preload doesn't bring them back.
+		final HashSet<String> m_removedWhilePreloading = new HashSet<String>();
+		boolean m_clearedWhilePreloading = false;
+
+		NamespaceData(final Class<T> type)
+		{
+			m_type = type;
+		}
+
+		/**
+		 * Skips values of the wrong type, which could only come from someone else writing to our namespace.
+		 */
+		void putFromDisk(final String key, final Object value)
+		{
+			if( !m_type.isInstance(value) )  return;
+
+			m_inMemoryDb.put(key, m_type.cast(value));
+		}
+	}
+
+	//--- DRK > How often pending writes are batched up and handed to SharedPreferences.apply().
+	private static final double FLUSH_RATE = 1.0;
+
 	private final Context m_context;
 	
-	private final HashMap<String, Integer> m_inMemoryDb_lastDisconnect = new HashMap<String, Integer>();
-	private final HashMap<String, Boolean> m_inMemoryDb_needsBonding = new HashMap<String, Boolean>();
-	private final HashMap<String, String> m_inMemoryDb_name = new HashMap<String, String>();
+	private final NamespaceData<Integer> m_lastDisconnect = new NamespaceData<Integer>(Integer.class);
+	private final NamespaceData<Boolean> m_needsBonding = new NamespaceData<Boolean>(Boolean.class);
+	private final NamespaceData<String> m_name = new NamespaceData<String>(String.class);
 
-	private final HashMap[] m_inMemoryDbs = new HashMap[E_Namespace.values().length];
+	//--- DRK > Indexed by E_Namespace ordinal.
+	private final List<NamespaceData<?>> m_namespaces = new ArrayList<NamespaceData<?>>();
+
+	private boolean m_preloaded = false;
+	private double m_timeSinceFlush = 0.0;
 	
 	public P_DiskOptionsManager(Context context)
 	{
 		m_context = context;
 
-		m_inMemoryDbs[E_Namespace.LAST_DISCONNECT.ordinal()] = m_inMemoryDb_lastDisconnect;
-		m_inMemoryDbs[E_Namespace.NEEDS_BONDING.ordinal()] = m_inMemoryDb_needsBonding;
-		m_inMemoryDbs[E_Namespace.DEVICE_NAME.ordinal()] = m_inMemoryDb_name;
-
 		final E_Namespace[] values = E_Namespace.values();
 
 		for( int i = 0; i < values.length; i++ )
 		{
-			Object ith = m_inMemoryDbs[i];
+			m_namespaces.add(null);
+		}
+
+		m_namespaces.set(E_Namespace.LAST_DISCONNECT.ordinal(), m_lastDisconnect);
+		m_namespaces.set(E_Namespace.NEEDS_BONDING.ordinal(), m_needsBonding);
+		m_namespaces.set(E_Namespace.DEVICE_NAME.ordinal(), m_name);
 
-			if( ith == null )
+		for( int i = 0; i < values.length; i++ )
+		{
+			if( m_namespaces.get(i) == null )
 			{
 				throw new Error("Expected in-memory DB to be not null");
 			}
 		}
 	}
+
+	private NamespaceData<?> data(final E_Namespace namespace)
+	{
+		return m_namespaces.get(namespace.ordinal());
+	}
+
+	/**
+	 * Reads every namespace into the in-memory DBs on a background thread so that later loads never have to touch the disk.
+	 * Loads that need something from disk before this is done wait for it instead of reading the disk themselves.
+	 */
+	void preload()
+	{
+		final Thread thread = new Thread()
+		{
+			@Override public void run()
+			{
+				preload_private();
+			}
+		};
+
+		thread.start();
+	}
+
+	private void preload_private()
+	{
+		final E_Namespace[] values = E_Namespace.values();
+		final List<Map<String, ?>> fromDisk = new ArrayList<Map<String, ?>>();
+
+		//--- DRK > Actual I/O happens in here, outside the lock.
+		for( int i = 0; i < values.length; i++ )
+		{
+			fromDisk.add(prefs(values[i]).getAll());
+		}
+
+		synchronized (this)
+		{
+			for( int i = 0; i < values.length; i++ )
+			{
+				final NamespaceData<?> data = m_namespaces.get(i);
+				final Map<String, ?> ithFromDisk = fromDisk.get(i);
+
+				if( ithFromDisk == null || data.m_clearedWhilePreloading )  continue;
+
+				final Iterator<? extends Map.Entry<String, ?>> iterator = ithFromDisk.entrySet().iterator();
+
+				while( iterator.hasNext() )
+				{
+					final Map.Entry<String, ?> entry = iterator.next();
+
+					//--- DRK > Anything saved or removed since startup is newer than what's on disk.
+					if( data.m_inMemoryDb.containsKey(entry.getKey()) || data.m_removedWhilePreloading.contains(entry.getKey()) )  continue;
+
+					data.putFromDisk(entry.getKey(), entry.getValue());
+				}
+
+				data.m_removedWhilePreloading.clear();
+			}
+
+			m_preloaded = true;
+
+			notifyAll();
+		}
+	}
+
+	private void waitForPreload()
+	{
+		boolean interrupted = false;
+
+		while( !m_preloaded )
+		{
+			try
+			{
+				wait();
+			}
+			catch(InterruptedException e)
+			{
+				interrupted = true;
+			}
+		}
+
+		if( interrupted )
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
 	
 	private SharedPreferences prefs(E_Namespace namespace)
 	{
@@ -70,20 +204,38 @@ class P_DiskOptionsManager
 		
 		return prefs;
 	}
+
+	private void write(final E_Namespace namespace, final String mac, final Object value)
+	{
+		data(namespace).m_pendingWrites.put(mac, value);
+	}
+
+	/**
+	 * For a load that missed the in-memory DB. If it's allowed to go to disk, waits until the preload has merged everything from disk
+	 * into the in-memory DB and looks there again, so the disk is only ever read by the preload thread.
+	 */
+	private <T> T loadFromPreload(final NamespaceData<T> data, final String mac, final boolean hitDisk)
+	{
+		if( !hitDisk )  return null;
+
+		waitForPreload();
+
+		return data.m_inMemoryDb.get(mac);
+	}
 	
-	public void saveLastDisconnect(final String mac, final State.ChangeIntent changeIntent, final boolean hitDisk)
+	public synchronized void saveLastDisconnect(final String mac, final State.ChangeIntent changeIntent, final boolean hitDisk)
 	{
 		final int diskValue = State.ChangeIntent.toDiskValue(changeIntent);
-		m_inMemoryDb_lastDisconnect.put(mac, diskValue);
+		m_lastDisconnect.m_inMemoryDb.put(mac, diskValue);
 		
 		if( !hitDisk )  return;
 
-		prefs(E_Namespace.LAST_DISCONNECT).edit().putInt(mac, diskValue).commit();
+		write(E_Namespace.LAST_DISCONNECT, mac, diskValue);
 	}
 	
-	public State.ChangeIntent loadLastDisconnect(final String mac, final boolean hitDisk)
+	public synchronized State.ChangeIntent loadLastDisconnect(final String mac, final boolean hitDisk)
 	{
-		final Integer value_memory = m_inMemoryDb_lastDisconnect.get(mac);
+		final Integer value_memory = m_lastDisconnect.m_inMemoryDb.get(mac);
 		
 		if( value_memory != null )
 		{
@@ -92,88 +244,80 @@ class P_DiskOptionsManager
 			return lastDisconnect_memory;
 		}
 		
-		if( !hitDisk )  return State.ChangeIntent.NULL;
+		final Integer value_disk = loadFromPreload(m_lastDisconnect, mac, hitDisk);
 		
-		final SharedPreferences prefs = prefs(E_Namespace.LAST_DISCONNECT);
-		
-		final int value_disk = prefs.getInt(mac, State.ChangeIntent.NULL.toDiskValue());
+		if( value_disk == null )  return State.ChangeIntent.NULL;
 		
 		final State.ChangeIntent lastDisconnect = State.ChangeIntent.fromDiskValue(value_disk);
 		
 		return lastDisconnect;
 	}
 	
-	public void saveNeedsBonding(final String mac, final boolean hitDisk)
+	public synchronized void saveNeedsBonding(final String mac, final boolean hitDisk)
 	{
-		m_inMemoryDb_needsBonding.put(mac, true);
+		m_needsBonding.m_inMemoryDb.put(mac, true);
 		
 		if( !hitDisk )  return;
 		
-		prefs(E_Namespace.NEEDS_BONDING).edit().putBoolean(mac, true).commit();
+		write(E_Namespace.NEEDS_BONDING, mac, true);
 	}
 	
-	public boolean loadNeedsBonding(final String mac, final boolean hitDisk)
+	public synchronized boolean loadNeedsBonding(final String mac, final boolean hitDisk)
 	{
-		final Boolean value_memory = m_inMemoryDb_needsBonding.get(mac);
+		final Boolean value_memory = m_needsBonding.m_inMemoryDb.get(mac);
 		
 		if( value_memory != null )
 		{
 			return value_memory;
 		}
 		
-		if( !hitDisk )  return false;
-		
-		final SharedPreferences prefs = prefs(E_Namespace.NEEDS_BONDING);
-		
-		final boolean value_disk = prefs.getBoolean(mac, false);
+		final Boolean value_disk = loadFromPreload(m_needsBonding, mac, hitDisk);
 		
-		return value_disk;
+		return value_disk != null && value_disk;
 	}
 
-	public void saveName(final String mac, final String name, final boolean hitDisk)
+	public synchronized void saveName(final String mac, final String name, final boolean hitDisk)
 	{
 		final String name_override = name != null ? name : "";
 
-		m_inMemoryDb_name.put(mac, name_override);
+		m_name.m_inMemoryDb.put(mac, name_override);
 
 		if( !hitDisk )  return;
 
-		prefs(E_Namespace.DEVICE_NAME).edit().putString(mac, name_override).commit();
+		write(E_Namespace.DEVICE_NAME, mac, name_override);
 	}
 
-	public String loadName(final String mac, final boolean hitDisk)
+	public synchronized String loadName(final String mac, final boolean hitDisk)
 	{
-		final String value_memory = m_inMemoryDb_name.get(mac);
+		final String value_memory = m_name.m_inMemoryDb.get(mac);
 
 		if( value_memory != null )
 		{
 			return value_memory;
 		}
 
-		if( !hitDisk )  return null;
-
-		final SharedPreferences prefs = prefs(E_Namespace.DEVICE_NAME);
-
-		final String value_disk = prefs.getString(mac, null);
+		final String value_disk = loadFromPreload(m_name, mac, hitDisk);
 
 		return value_disk;
 	}
 
-	void clear()
+	synchronized void clear()
 	{
 		final E_Namespace[] values = E_Namespace.values();
 
 		for( int i = 0; i < values.length; i++ )
 		{
-			final SharedPreferences prefs = prefs(values[i]);
-			prefs.edit().clear().commit();
+			final NamespaceData<?> data = m_namespaces.get(i);
 
-			final HashMap ith = m_inMemoryDbs[i];
+			data.m_pendingWrites.clear();
+			data.m_pendingClear = true;
 
-			if( ith != null )
+			if( !m_preloaded )
 			{
-				ith.clear();
+				data.m_clearedWhilePreloading = true;
 			}
+
+			data.m_inMemoryDb.clear();
 		}
 	}
 
@@ -184,18 +328,18 @@ class P_DiskOptionsManager
 		clearNamespace(macAddress, namespace);
 	}
 
-	private void clearNamespace(final String macAddress, final E_Namespace namespace)
+	private synchronized void clearNamespace(final String macAddress, final E_Namespace namespace)
 	{
-		final int ordinal = namespace.ordinal();
-		final SharedPreferences prefs = prefs(namespace);
-		prefs.edit().remove(macAddress).commit();
+		final NamespaceData<?> data = data(namespace);
 
-		final HashMap ith = m_inMemoryDbs[ordinal];
+		write(namespace, macAddress, REMOVED);
 
-		if( ith != null )
+		if( !m_preloaded )
 		{
-			ith.remove(macAddress);
+			data.m_removedWhilePreloading.add(macAddress);
 		}
+
+		data.m_inMemoryDb.remove(macAddress);
 	}
 
 	void clear(final String macAddress)
@@ -210,6 +354,15 @@ class P_DiskOptionsManager
 
 	Iterator<String> getPreviouslyConnectedDevices()
 	{
+		//--- DRK > apply() updates SharedPreferences' own in-memory state right away, so flushing first is enough for getAll() to see everything.
+		//---		Waiting for the preload first means SharedPreferences has already read the file, so getAll() doesn't on this thread.
+		synchronized (this)
+		{
+			waitForPreload();
+
+			flush();
+		}
+
 		final SharedPreferences prefs = prefs(E_Namespace.LAST_DISCONNECT);
 
 		Map<String, ?> map = prefs.getAll();
@@ -223,4 +376,68 @@ class P_DiskOptionsManager
 			return new EmptyIterator<String>();
 		}
 	}
+
+	void update(final double timeStep)
+	{
+		m_timeSinceFlush += timeStep;
+
+		if( m_timeSinceFlush < FLUSH_RATE )  return;
+
+		m_timeSinceFlush = 0.0;
+
+		flush();
+	}
+
+	/**
+	 * Hands all pending writes to {@link SharedPreferences.Editor#apply()}, one editor per namespace that has any. Never blocks on I/O.
+	 */
+	synchronized void flush()
+	{
+		final E_Namespace[] values = E_Namespace.values();
+
+		for( int i = 0; i < values.length; i++ )
+		{
+			final NamespaceData<?> data = m_namespaces.get(i);
+			final HashMap<String, Object> pending = data.m_pendingWrites;
+
+			if( pending.isEmpty() && !data.m_pendingClear )  continue;
+
+			final SharedPreferences.Editor editor = prefs(values[i]).edit();
+
+			if( data.m_pendingClear )
+			{
+				editor.clear();
+				data.m_pendingClear = false;
+			}
+
+			final Iterator<Map.Entry<String, Object>> iterator = pending.entrySet().iterator();
+
+			while( iterator.hasNext() )
+			{
+				final Map.Entry<String, Object> entry = iterator.next();
+				final Object value = entry.getValue();
+
+				if( value == REMOVED )
+				{
+					editor.remove(entry.getKey());
+				}
+				else if( value instanceof Integer )
+				{
+					editor.putInt(entry.getKey(), (Integer) value);
+				}
+				else if( value instanceof Boolean )
+				{
+					editor.putBoolean(entry.getKey(), (Boolean) value);
+				}
+				else if( value instanceof String )
+				{
+					editor.putString(entry.getKey(), (String) value);
+				}
+			}
+
+			pending.clear();
+
+			editor.apply();
+		}
+	}
 }
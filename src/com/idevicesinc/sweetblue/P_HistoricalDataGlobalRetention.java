@@ -0,0 +1,156 @@
+package com.idevicesinc.sweetblue;
+
+import com.idevicesinc.sweetblue.backend.historical.Backend_HistoricalDatabase;
+import com.idevicesinc.sweetblue.utils.Interval;
+import com.idevicesinc.sweetblue.utils.UpdateLoop;
+
+import java.util.ArrayList;
+import java.util.UUID;
+
+/**
+ * Manager-level counterpart to {@link P_HistoricalDataRetention}. It first runs shortly after startup and then every
+ * {@link BleManagerConfig#historicalDataRetentionInterval}, on the same historical data {@link UpdateLoop}. Each pass goes over every device in
+ * {@link P_HistoricalDataUuidIndex}. Known devices just get their own retention started, since they may not have logged anything this session.
+ * Devices that haven't been discovered yet are held to the limits in {@link BleManagerConfig}, on disk only. Finally
+ * {@link BleManagerConfig#historicalDataMaxBytesTotal} is enforced across everything.
+ */
+class P_HistoricalDataGlobalRetention
+{
+	//--- DRK > Leave the disk alone while the app is starting up.
+	static final long STARTUP_DELAY_MILLIS = 5000;
+
+	static final long BATCH_DELAY_MILLIS = 100;
+
+	private final BleManager m_mngr;
+	private final UpdateLoop m_updateLoop;
+	private final Backend_HistoricalDatabase m_database;
+
+	//--- DRK > Only touched on the historical thread.
+	private final P_HistoricalDataPruner m_pruner;
+
+	private final Runnable m_pass = new Runnable()
+	{
+		@Override public void run()
+		{
+			pass();
+		}
+	};
+
+	P_HistoricalDataGlobalRetention(final BleManager mngr, final UpdateLoop updateLoop)
+	{
+		this(mngr, updateLoop, mngr.m_historicalDatabase);
+	}
+
+	P_HistoricalDataGlobalRetention(final BleManager mngr, final UpdateLoop updateLoop, final Backend_HistoricalDatabase database)
+	{
+		m_mngr = mngr;
+		m_updateLoop = updateLoop;
+		m_database = database;
+		m_pruner = new P_HistoricalDataPruner(database);
+	}
+
+	void start()
+	{
+		if( getInterval() == null )  return;
+
+		post(m_pass, STARTUP_DELAY_MILLIS);
+	}
+
+	void post(final Runnable pass, final long delay_millis)
+	{
+		m_updateLoop.forcePost(pass, delay_millis);
+	}
+
+	String[] getMacAddresses()
+	{
+		return m_mngr.m_historicalUuidIndex.getMacAddresses();
+	}
+
+	UUID[] getUuids(final String macAddress)
+	{
+		return m_mngr.m_historicalUuidIndex.getUuids(macAddress);
+	}
+
+	/**
+	 * Hands the device its own retention if it's known to the manager, returning <code>false</code> if it isn't.
+	 */
+	boolean scheduleRetention(final String macAddress)
+	{
+		final BleDevice device = m_mngr.getDevice(macAddress);
+
+		if( device.isNull() )  return false;
+
+		device.getHistoricalDataManager().scheduleRetention();
+
+		return true;
+	}
+
+	private Interval getInterval()
+	{
+		final Interval interval = m_mngr.m_config.historicalDataRetentionInterval;
+
+		return Interval.isDisabled(interval) || Double.isInfinite(interval.secs()) ? null : interval;
+	}
+
+	private void pass()
+	{
+		m_pruner.startPass();
+
+		enforce();
+
+		if( m_pruner.isOutOfBudget() )
+		{
+			post(m_pass, BATCH_DELAY_MILLIS);
+
+			return;
+		}
+
+		if( m_pruner.shouldCompact() )
+		{
+			m_pruner.onCompacted();
+
+			m_database.compact();
+		}
+
+		final Interval interval = getInterval();
+
+		if( interval != null )
+		{
+			post(m_pass, interval.millis());
+		}
+	}
+
+	private void enforce()
+	{
+		final BleManagerConfig config = m_mngr.m_config;
+		final String[] macAddresses = getMacAddresses();
+
+		final ArrayList<String> tableMacAddresses = new ArrayList<String>();
+		final ArrayList<UUID> tableUuids = new ArrayList<UUID>();
+
+		for( int i = 0; i < macAddresses.length; i++ )
+		{
+			final String macAddress = macAddresses[i];
+			final UUID[] uuids = getUuids(macAddress);
+
+			if( !scheduleRetention(macAddress) )
+			{
+				m_pruner.enforce(macAddress, uuids, null, config.historicalDataMaxAge, config.historicalDataMaxCount, config.historicalDataMaxBytesPerUuid, config.historicalDataMaxBytes);
+			}
+
+			for( int j = 0; j < uuids.length; j++ )
+			{
+				tableMacAddresses.add(macAddress);
+				tableUuids.add(uuids[j]);
+			}
+		}
+
+		if( config.historicalDataMaxBytesTotal != null )
+		{
+			final String[] macAddresses_all = tableMacAddresses.toArray(new String[tableMacAddresses.size()]);
+			final UUID[] uuids_all = tableUuids.toArray(new UUID[tableUuids.size()]);
+
+			m_pruner.enforceMaxBytes(macAddresses_all, uuids_all, Math.max(0, config.historicalDataMaxBytesTotal));
+		}
+	}
+}
@@ -12,9 +12,16 @@ import com.idevicesinc.sweetblue.utils.EpochTime;
 import com.idevicesinc.sweetblue.utils.EpochTimeRange;
 import com.idevicesinc.sweetblue.utils.ForEach_Returning;
 import com.idevicesinc.sweetblue.utils.HistoricalData;
+import com.idevicesinc.sweetblue.utils.HistoricalDataBuckets;
 import com.idevicesinc.sweetblue.utils.HistoricalDataCursor;
+import com.idevicesinc.sweetblue.utils.HistoricalDataInputStream;
+import com.idevicesinc.sweetblue.utils.HistoricalDataOutputStream;
+import com.idevicesinc.sweetblue.utils.HistoricalDataValueType;
+import com.idevicesinc.sweetblue.utils.Interval;
 import com.idevicesinc.sweetblue.utils.UpdateLoop;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.UUID;
@@ -22,23 +29,29 @@ import java.util.UUID;
 class P_HistoricalDataManager
 {
 	private static final byte[] EMPTY_BYTE_ARRAY = new byte[0];
+	private static final int IMPORT_CHUNK_SIZE = 512;
 	private static final EmptyIterator<HistoricalData> EMPTY_ITERATOR = new EmptyIterator<HistoricalData>();
 
 	private final Object LIST_CREATE_MUTEX = new Object();
 
 	private final HashMap<UUID, Backend_HistoricalDataList> m_lists = new HashMap<UUID, Backend_HistoricalDataList>();
 	private final BleDevice m_device;
-	private final UpdateLoop m_updateLoop = UpdateLoop.newAnonThreadLoop();
+	private final UpdateLoop m_updateLoop;
+	private final P_HistoricalDataWriteQueue m_writeQueue;
+	private final P_HistoricalDataRetention m_retention;
 
 	private BleDevice.HistoricalDataLoadListener m_defaultListener = null;
 
-	private final P_HistoricalDataManager_PreviousUuids m_previousUuidsWithDataAdded;
+	private final P_HistoricalDataUuidIndex m_uuidIndex;
 
 	P_HistoricalDataManager(final BleDevice device)
 	{
 		m_device = device;
+		m_updateLoop = device.getManager().getHistoricalUpdateLoop();
+		m_writeQueue = new P_HistoricalDataWriteQueue(device, m_updateLoop);
+		m_retention = new P_HistoricalDataRetention(device, this, m_writeQueue, m_updateLoop);
 
-		m_previousUuidsWithDataAdded = new P_HistoricalDataManager_PreviousUuids(m_device.getManager().getApplicationContext(), m_device.getMacAddress());
+		m_uuidIndex = device.getManager().m_historicalUuidIndex;
 	}
 
 	void setListener(final BleDevice.HistoricalDataLoadListener listener)
@@ -52,7 +65,7 @@ class P_HistoricalDataManager
 	}
 
 	//GOOD
-	private Backend_HistoricalDataList getList_doNotCreate(final UUID uuid)
+	Backend_HistoricalDataList getList_doNotCreate(final UUID uuid)
 	{
 		synchronized(LIST_CREATE_MUTEX)
 		{
@@ -111,6 +124,23 @@ class P_HistoricalDataManager
 		}
 	}
 
+	UUID[] getUuidsWithData()
+	{
+		return m_uuidIndex.getUuids(m_device.getMacAddress());
+	}
+
+	void scheduleRetention()
+	{
+		m_retention.scheduleIfNeeded();
+	}
+
+	private void onDataAdded(final UUID uuid)
+	{
+		m_uuidIndex.add(m_device.getMacAddress(), uuid);
+
+		m_retention.scheduleIfNeeded();
+	}
+
 	//GOOD
 	public void add_single(final UUID uuid, final byte[] data, final EpochTime epochTime, final Source source)
 	{
@@ -122,9 +152,14 @@ class P_HistoricalDataManager
 
 		final HistoricalData historicalData = m_device.newHistoricalData(PU_HistoricalData.getAmendedData(data, please), PU_HistoricalData.getAmendedTimestamp(epochTime, please));
 
-		m_previousUuidsWithDataAdded.addUuid(uuid);
+		onDataAdded(uuid);
 
 		list.add_single(historicalData, please.m_logChoice, please.getLimit());
+
+		if( please.m_logChoice.includesDisk() )
+		{
+			m_writeQueue.add(uuid, historicalData, please.getLimit());
+		}
 	}
 
 	//GOOD
@@ -147,9 +182,14 @@ class P_HistoricalDataManager
 
 		if( PU_HistoricalData.add_earlyOut(list, please) )  return;
 
-		m_previousUuidsWithDataAdded.addUuid(uuid);
+		onDataAdded(uuid);
 
 		list.add_single(historicalData_override, please.m_logChoice, please.getLimit());
+
+		if( please.m_logChoice.includesDisk() )
+		{
+			m_writeQueue.add(uuid, historicalData_override, please.getLimit());
+		}
 	}
 
 	//GOOD
@@ -161,9 +201,25 @@ class P_HistoricalDataManager
 
 		if( PU_HistoricalData.add_earlyOut(list, please) )  return;
 
-		m_previousUuidsWithDataAdded.addUuid(uuid);
+		onDataAdded(uuid);
+
+		if( please.m_logChoice.includesDisk() )
+		{
+			final ArrayList<HistoricalData> data = new ArrayList<HistoricalData>();
+
+			while( historicalData.hasNext() )
+			{
+				data.add(historicalData.next());
+			}
+
+			list.add_multiple(data.iterator(), please.m_logChoice, please.getLimit());
 
-		list.add_multiple(historicalData, please.m_logChoice, please.getLimit());
+			m_writeQueue.addAll(uuid, data, please.getLimit());
+		}
+		else
+		{
+			list.add_multiple(historicalData, please.m_logChoice, please.getLimit());
+		}
 	}
 
 	//GOOD
@@ -175,9 +231,115 @@ class P_HistoricalDataManager
 
 		if( PU_HistoricalData.add_earlyOut(list, please) )  return;
 
-		m_previousUuidsWithDataAdded.addUuid(uuid);
+		onDataAdded(uuid);
+
+		if( please.m_logChoice.includesDisk() )
+		{
+			final ArrayList<HistoricalData> data = new ArrayList<HistoricalData>();
+
+			for( int i = 0; ; i++ )
+			{
+				final HistoricalData next = historicalData.next(i);
+
+				if( next == null )  break;
+
+				data.add(next);
+			}
+
+			list.add_multiple(data.iterator(), please.m_logChoice, please.getLimit());
+
+			m_writeQueue.addAll(uuid, data, please.getLimit());
+		}
+		else
+		{
+			list.add_multiple(historicalData, please.m_logChoice, please.getLimit());
+		}
+	}
+
+	/**
+	 * Reads samples off the stream in chunks, so memory use stays flat no matter how long the stream is (unless the data is kept in memory).
+	 */
+	public int importFrom(final UUID uuid, final HistoricalDataInputStream in) throws IOException
+	{
+		final Backend_HistoricalDataList list = getList_createIfNotExists(uuid);
+
+		final Please please = PU_HistoricalData.getPlease(m_device, uuid, EMPTY_BYTE_ARRAY, EpochTime.NULL, Source.MULTIPLE_MANUAL_ADDITIONS);
+
+		if( PU_HistoricalData.add_earlyOut(list, please) )  return 0;
+
+		onDataAdded(uuid);
+
+		//--- DRK > Nothing is kept in memory, so samples can go from the stream right into the database's batched insert.
+		if( !please.m_logChoice.includesMemory() )
+		{
+			return m_writeQueue.addAll_now(uuid, in, IMPORT_CHUNK_SIZE, please.getLimit());
+		}
+
+		final ArrayList<HistoricalData> chunk = new ArrayList<HistoricalData>(IMPORT_CHUNK_SIZE);
+		int count = 0;
+
+		while( in.next() )
+		{
+			chunk.add(m_device.newHistoricalData(in.getBlob(), new EpochTime(in.getEpochTime())));
+			count++;
+
+			if( chunk.size() == IMPORT_CHUNK_SIZE )
+			{
+				importChunk(uuid, list, chunk, please);
+			}
+		}
+
+		importChunk(uuid, list, chunk, please);
+
+		return count;
+	}
+
+	private void importChunk(final UUID uuid, final Backend_HistoricalDataList list, final ArrayList<HistoricalData> chunk, final Please please)
+	{
+		if( chunk.isEmpty() )  return;
+
+		list.add_multiple(chunk.iterator(), please.m_logChoice, please.getLimit());
+
+		if( please.m_logChoice.includesDisk() )
+		{
+			m_writeQueue.addAll_now(uuid, chunk, please.getLimit());
+		}
+
+		chunk.clear();
+	}
+
+	/**
+	 * Copies blobs through one reused buffer, so the only allocations are whatever the backend's cursor needs to page data in.
+	 */
+	public int exportTo(final UUID uuid, final EpochTimeRange range, final HistoricalDataOutputStream out) throws IOException
+	{
+		final HistoricalDataCursor cursor = getCursor(uuid, range);
+
+		byte[] buffer = new byte[64];
+		int count = 0;
+
+		try
+		{
+			while( cursor.moveToNext() )
+			{
+				int length = cursor.copyBlobInto(buffer);
+
+				if( length > buffer.length )
+				{
+					buffer = new byte[Math.max(length, buffer.length * 2)];
+					length = cursor.copyBlobInto(buffer);
+				}
 
-		list.add_multiple(historicalData, please.m_logChoice, please.getLimit());
+				out.write(cursor.getEpochTime(), buffer, 0, length);
+				count++;
+			}
+		}
+		finally
+		{
+			cursor.close();
+		}
+
+		return count;
 	}
 
 	//GOOD
@@ -209,6 +371,9 @@ class P_HistoricalDataManager
 		}
 		else
 		{
+			//--- DRK > Anything still queued for disk has to land first or it would show up again after the delete.
+			m_writeQueue.flush();
+
 			if( list != null )
 			{
 				list.delete_fromMemoryAndDatabase(range, limit);
@@ -225,31 +390,26 @@ class P_HistoricalDataManager
 	{
 		delete_all(EpochTimeRange.FROM_MIN_TO_MAX, Long.MAX_VALUE, false);
 
-		m_previousUuidsWithDataAdded.clearAll();
+		m_uuidIndex.clear(m_device.getMacAddress());
 	}
 
 	//GOOD
 	public void delete_all(final EpochTimeRange range, final long limit, final boolean memoryOnly)
 	{
-		final Iterator<UUID> knownUuids = m_previousUuidsWithDataAdded.getUuids();
+		final UUID[] knownUuids = getUuidsWithData();
 
-		final UUID[] uuids = !memoryOnly ? new UUID[m_previousUuidsWithDataAdded.getCount()] : null;
+		final UUID[] uuids = !memoryOnly ? knownUuids : null;
 		final String[] macs = uuids != null ? new String[uuids.length] : null;
 
-		int i = 0;
-
-		while( knownUuids.hasNext() )
+		for( int i = 0; i < knownUuids.length; i++ )
 		{
-			final UUID ith = knownUuids.next();
+			final UUID ith = knownUuids[i];
 
-			if( uuids != null )
+			if( macs != null )
 			{
-				uuids[i] = ith;
 				macs[i] = m_device.getMacAddress();
 			}
 
-			i++;
-
 			Backend_HistoricalDataList list = getList_doNotCreate(ith);
 
 			if( list == null )  continue;
@@ -266,6 +426,8 @@ class P_HistoricalDataManager
 
 		if( !memoryOnly )
 		{
+			m_writeQueue.flush();
+
 			getDatabase().delete_multipleUuids(macs, uuids, range, Long.MAX_VALUE);
 		}
 	}
@@ -310,16 +472,33 @@ class P_HistoricalDataManager
 
 	//GOOD
 	public HistoricalDataCursor getCursor(final UUID uuid, final EpochTimeRange range)
+	{
+		m_writeQueue.flush();
+
+		return PU_HistoricalData.getCursor(getList_doNotCreate(uuid), getDatabase(), m_device.getMacAddress(), uuid, range);
+	}
+
+	public HistoricalDataBuckets getBuckets(final UUID uuid, final EpochTimeRange range, final long bucketWidth_millis, final HistoricalDataValueType valueType, final int byteOffset)
+	{
+		m_writeQueue.flush();
+
+		return PU_HistoricalData.getBuckets(getList_doNotCreate(uuid), getDatabase(), m_device.getMacAddress(), uuid, range, bucketWidth_millis, valueType, byteOffset);
+	}
+
+	public HistoricalData getLatest(final UUID uuid)
 	{
 		final Backend_HistoricalDataList list = getList_doNotCreate(uuid);
+		final int count = list != null ? list.getCount(EpochTimeRange.FROM_MIN_TO_MAX) : 0;
 
-		if( list != null )
+		if( count > 0 )
 		{
-			return list.getCursor(range);
+			return list.get(EpochTimeRange.FROM_MIN_TO_MAX, count - 1);
 		}
 		else
 		{
-			return getDatabase().getCursor(m_device.getMacAddress(), uuid, range);
+			m_writeQueue.flush();
+
+			return getDatabase().getLatest(new String[]{m_device.getMacAddress()}, uuid)[0];
 		}
 	}
 
@@ -333,11 +512,11 @@ class P_HistoricalDataManager
 	public boolean hasHistoricalData(final EpochTimeRange range)
 	{
 		final boolean memoryOnly = false;
-		final Iterator<UUID> previousUuids = m_previousUuidsWithDataAdded.getUuids();
+		final UUID[] previousUuids = getUuidsWithData();
 
-		while( previousUuids.hasNext() )
+		for( int i = 0; i < previousUuids.length; i++ )
 		{
-			final UUID ithUuid = previousUuids.next();
+			final UUID ithUuid = previousUuids[i];
 
 			final Backend_HistoricalDataList ithList = getList_doNotCreate(ithUuid);
 
@@ -407,7 +586,12 @@ class P_HistoricalDataManager
 						invokeListeners(uuid_nullable, EpochTimeRange.NULL, BleDevice.HistoricalDataLoadListener.Status.STARTED_LOADING, listener_nullable);
 					}
 
-					list.load(new Backend_HistoricalDataList.AsyncLoadCallback()
+					//--- DRK > Gets queued data to disk ahead of the load, which runs on the same thread.
+					m_writeQueue.flushSoon();
+
+					final Integer maxCount = BleDeviceConfig.integer(m_device.conf_device().historicalDataMaxCount, m_device.conf_mngr().historicalDataMaxCount);
+
+					list.load(maxCount != null ? Math.max(0, maxCount) : Long.MAX_VALUE, new Backend_HistoricalDataList.AsyncLoadCallback()
 					{
 						@Override public void onDone()
 						{
@@ -464,11 +648,11 @@ class P_HistoricalDataManager
 		}
 		else
 		{
-			final Iterator<UUID> previousUuids = m_previousUuidsWithDataAdded.getUuids();
+			final UUID[] previousUuids = getUuidsWithData();
 
-			while( previousUuids.hasNext() )
+			for( int i = 0; i < previousUuids.length; i++ )
 			{
-				final UUID ithUuid = previousUuids.next();
+				final UUID ithUuid = previousUuids[i];
 
 				final Backend_HistoricalDataList ithList = getList_doNotCreate(ithUuid);
 
@@ -500,11 +684,11 @@ class P_HistoricalDataManager
 		}
 		else
 		{
-			final Iterator<UUID> previousUuids = m_previousUuidsWithDataAdded.getUuids();
+			final UUID[] previousUuids = getUuidsWithData();
 
-			while( previousUuids.hasNext() )
+			for( int i = 0; i < previousUuids.length; i++ )
 			{
-				final UUID ithUuid = previousUuids.next();
+				final UUID ithUuid = previousUuids[i];
 
 				final Backend_HistoricalDataList ithList = getList_doNotCreate(ithUuid);
 
@@ -553,4 +737,24 @@ class P_HistoricalDataManager
 	{
 		m_updateLoop.forcePost(runnable);
 	}
+
+	void flushSoon()
+	{
+		m_writeQueue.flushSoon();
+	}
+
+	int getWriteQueueDepth()
+	{
+		return m_writeQueue.getDepth();
+	}
+
+	long getWriteQueueDropCount()
+	{
+		return m_writeQueue.getDropCount();
+	}
+
+	Interval getAverageWriteQueueFlushTime()
+	{
+		return m_writeQueue.getAverageFlushTime();
+	}
 }
@@ -0,0 +1,163 @@
+package com.idevicesinc.sweetblue;
+
+import com.idevicesinc.sweetblue.backend.historical.Backend_HistoricalDataList;
+import com.idevicesinc.sweetblue.backend.historical.Backend_HistoricalDatabase;
+import com.idevicesinc.sweetblue.utils.EpochTime;
+import com.idevicesinc.sweetblue.utils.EpochTimeRange;
+import com.idevicesinc.sweetblue.utils.Interval;
+
+import java.util.UUID;
+
+/**
+ * Does the actual deleting for {@link P_HistoricalDataRetention} and {@link P_HistoricalDataGlobalRetention}. Each pass started with
+ * {@link #startPass()} deletes at most {@link #BATCH_SIZE} entries, after which every method here does nothing until the next pass.
+ * Only used on the historical data thread.
+ */
+class P_HistoricalDataPruner
+{
+	static final int BATCH_SIZE = 1000;
+
+	//--- DRK > Compacting rewrites pages on disk and arrays in memory, so only bother once a decent amount has been deleted.
+	private static final int COMPACT_THRESHOLD = 10 * BATCH_SIZE;
+
+	private final Backend_HistoricalDatabase m_database;
+
+	private int m_deletedSinceCompaction = 0;
+	private int m_budget = 0;
+
+	P_HistoricalDataPruner(final Backend_HistoricalDatabase database)
+	{
+		m_database = database;
+	}
+
+	void startPass()
+	{
+		m_budget = BATCH_SIZE;
+	}
+
+	/**
+	 * Returns <code>true</code> if the current pass stopped early, meaning there may be more to delete right away.
+	 */
+	boolean isOutOfBudget()
+	{
+		return m_budget == 0;
+	}
+
+	boolean shouldCompact()
+	{
+		return m_deletedSinceCompaction >= COMPACT_THRESHOLD;
+	}
+
+	void onCompacted()
+	{
+		m_deletedSinceCompaction = 0;
+	}
+
+	/**
+	 * Enforces all the limits of one device that aren't <code>null</code>. In-memory lists are trimmed too if a manager is given.
+	 */
+	void enforce(final String macAddress, final UUID[] uuids, final P_HistoricalDataManager manager_nullable, final Interval maxAge, final Integer maxCount, final Integer maxBytesPerUuid, final Integer maxBytes)
+	{
+		final boolean hasMaxAge = Interval.isEnabled(maxAge) && !Double.isInfinite(maxAge.secs());
+
+		if( !hasMaxAge && maxCount == null && maxBytesPerUuid == null && maxBytes == null )  return;
+
+		final EpochTimeRange expired = hasMaxAge ? EpochTimeRange.fromMin_toGiven(new EpochTime(System.currentTimeMillis() - maxAge.millis())) : null;
+
+		for( int i = 0; i < uuids.length && m_budget > 0; i++ )
+		{
+			final UUID uuid = uuids[i];
+			final Backend_HistoricalDataList list = manager_nullable != null ? manager_nullable.getList_doNotCreate(uuid) : null;
+
+			if( expired != null )
+			{
+				deleteFromMemory(list, expired, list != null ? list.getCount(expired) : 0);
+				deleteFromDisk(macAddress, uuid, expired, m_database.getCount(macAddress, uuid, expired));
+			}
+
+			if( maxCount != null )
+			{
+				final long max = Math.max(0, maxCount);
+
+				deleteFromMemory(list, EpochTimeRange.FROM_MIN_TO_MAX, list != null ? list.getCount(EpochTimeRange.FROM_MIN_TO_MAX) - max : 0);
+				deleteFromDisk(macAddress, uuid, EpochTimeRange.FROM_MIN_TO_MAX, m_database.getCount(macAddress, uuid, EpochTimeRange.FROM_MIN_TO_MAX) - max);
+			}
+
+			if( maxBytesPerUuid != null )
+			{
+				enforceMaxBytes(new String[]{macAddress}, new UUID[]{uuid}, Math.max(0, maxBytesPerUuid));
+			}
+		}
+
+		if( maxBytes != null && m_budget > 0 )
+		{
+			final String[] macAddresses = new String[uuids.length];
+
+			for( int i = 0; i < macAddresses.length; i++ )
+			{
+				macAddresses[i] = macAddress;
+			}
+
+			enforceMaxBytes(macAddresses, uuids, Math.max(0, maxBytes));
+		}
+	}
+
+	/**
+	 * Treats the tables given by each matching pair of MAC address and {@link UUID} as one budget. When over, the oldest data of each table is
+	 * deleted in proportion to how much space that table takes up.
+	 */
+	void enforceMaxBytes(final String[] macAddresses, final UUID[] uuids, final long maxBytes)
+	{
+		if( m_budget == 0 )  return;
+
+		final long[] byteCounts = new long[uuids.length];
+		long total = 0;
+
+		for( int i = 0; i < uuids.length; i++ )
+		{
+			byteCounts[i] = m_database.getByteCount(macAddresses[i], uuids[i]);
+			total += byteCounts[i];
+		}
+
+		if( total <= maxBytes )  return;
+
+		final double fractionOver = (double) (total - maxBytes) / total;
+
+		for( int i = 0; i < uuids.length && m_budget > 0; i++ )
+		{
+			if( byteCounts[i] == 0 )  continue;
+
+			final int count = m_database.getCount(macAddresses[i], uuids[i], EpochTimeRange.FROM_MIN_TO_MAX);
+
+			deleteFromDisk(macAddresses[i], uuids[i], EpochTimeRange.FROM_MIN_TO_MAX, (long) Math.ceil(count * fractionOver));
+		}
+	}
+
+	private void deleteFromMemory(final Backend_HistoricalDataList list, final EpochTimeRange range, final long count)
+	{
+		final int toDelete = spend(count);
+
+		if( toDelete == 0 || list == null )  return;
+
+		list.delete_fromMemoryOnly(range, toDelete);
+	}
+
+	private void deleteFromDisk(final String macAddress, final UUID uuid, final EpochTimeRange range, final long count)
+	{
+		final int toDelete = spend(count);
+
+		if( toDelete == 0 )  return;
+
+		m_database.delete_singleUuid_inRange(macAddress, uuid, range, toDelete);
+	}
+
+	private int spend(final long count)
+	{
+		final int spent = (int) Math.max(0, Math.min(count, m_budget));
+
+		m_budget -= spent;
+		m_deletedSinceCompaction += spent;
+
+		return spent;
+	}
+}
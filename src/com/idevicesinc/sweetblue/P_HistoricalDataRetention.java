@@ -0,0 +1,137 @@
+package com.idevicesinc.sweetblue;
+
+import com.idevicesinc.sweetblue.backend.historical.Backend_HistoricalDataList;
+import com.idevicesinc.sweetblue.utils.Interval;
+import com.idevicesinc.sweetblue.utils.UpdateLoop;
+
+import java.util.UUID;
+
+/**
+ * Enforces {@link BleDeviceConfig#historicalDataMaxAge}, {@link BleDeviceConfig#historicalDataMaxCount}, {@link BleDeviceConfig#historicalDataMaxBytesPerUuid},
+ * and {@link BleDeviceConfig#historicalDataMaxBytes} for one device on the historical data {@link UpdateLoop} shared by all devices. Each pass deletes at most
+ * {@link P_HistoricalDataPruner#BATCH_SIZE} entries and comes back shortly after if there's more to do, so flushes of the write queue and loads get a turn in between.
+ */
+class P_HistoricalDataRetention
+{
+	private static final long BATCH_DELAY_MILLIS = 100;
+
+	private final BleDevice m_device;
+	private final P_HistoricalDataManager m_manager;
+	private final P_HistoricalDataWriteQueue m_writeQueue;
+	private final UpdateLoop m_updateLoop;
+
+	private boolean m_isScheduled = false;
+
+	//--- DRK > Only touched on the historical thread.
+	private final P_HistoricalDataPruner m_pruner;
+
+	private final Runnable m_pass = new Runnable()
+	{
+		@Override public void run()
+		{
+			pass();
+		}
+	};
+
+	P_HistoricalDataRetention(final BleDevice device, final P_HistoricalDataManager manager, final P_HistoricalDataWriteQueue writeQueue, final UpdateLoop updateLoop)
+	{
+		m_device = device;
+		m_manager = manager;
+		m_writeQueue = writeQueue;
+		m_updateLoop = updateLoop;
+		m_pruner = new P_HistoricalDataPruner(manager.getDatabase());
+	}
+
+	/**
+	 * Starts periodic passes if they aren't running already. Cheap enough to call every time data is added.
+	 */
+	void scheduleIfNeeded()
+	{
+		synchronized(this)
+		{
+			if( m_isScheduled )  return;
+
+			m_isScheduled = true;
+		}
+
+		if( !postNextPass() )
+		{
+			synchronized(this)
+			{
+				m_isScheduled = false;
+			}
+		}
+	}
+
+	private boolean postNextPass()
+	{
+		final Interval interval = BleDeviceConfig.interval(m_device.conf_device().historicalDataRetentionInterval, m_device.conf_mngr().historicalDataRetentionInterval);
+
+		if( Interval.isDisabled(interval) || Double.isInfinite(interval.secs()) )  return false;
+
+		m_updateLoop.forcePost(m_pass, interval.millis());
+
+		return true;
+	}
+
+	private void pass()
+	{
+		m_pruner.startPass();
+
+		enforce();
+
+		if( m_pruner.isOutOfBudget() )
+		{
+			m_updateLoop.forcePost(m_pass, BATCH_DELAY_MILLIS);
+
+			return;
+		}
+
+		if( m_pruner.shouldCompact() )
+		{
+			compact();
+		}
+
+		if( !postNextPass() )
+		{
+			synchronized(this)
+			{
+				m_isScheduled = false;
+			}
+		}
+	}
+
+	private void enforce()
+	{
+		final Interval maxAge = BleDeviceConfig.interval(m_device.conf_device().historicalDataMaxAge, m_device.conf_mngr().historicalDataMaxAge);
+		final Integer maxCount = BleDeviceConfig.integer(m_device.conf_device().historicalDataMaxCount, m_device.conf_mngr().historicalDataMaxCount);
+		final Integer maxBytesPerUuid = BleDeviceConfig.integer(m_device.conf_device().historicalDataMaxBytesPerUuid, m_device.conf_mngr().historicalDataMaxBytesPerUuid);
+		final Integer maxBytes = BleDeviceConfig.integer(m_device.conf_device().historicalDataMaxBytes, m_device.conf_mngr().historicalDataMaxBytes);
+
+		if( Interval.isDisabled(maxAge) && maxCount == null && maxBytesPerUuid == null && maxBytes == null )  return;
+
+		//--- DRK > Counts below are only accurate once everything queued has made it to disk.
+		m_writeQueue.flush();
+
+		m_pruner.enforce(m_device.getMacAddress(), m_manager.getUuidsWithData(), m_manager, maxAge, maxCount, maxBytesPerUuid, maxBytes);
+	}
+
+	private void compact()
+	{
+		m_pruner.onCompacted();
+
+		m_manager.getDatabase().compact();
+
+		final UUID[] uuids = m_manager.getUuidsWithData();
+
+		for( int i = 0; i < uuids.length; i++ )
+		{
+			final Backend_HistoricalDataList list = m_manager.getList_doNotCreate(uuids[i]);
+
+			if( list != null )
+			{
+				list.compact();
+			}
+		}
+	}
+}
@@ -0,0 +1,345 @@
+package com.idevicesinc.sweetblue;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Base64;
+
+import com.idevicesinc.sweetblue.utils.Uuids;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Remembers which characteristic {@link UUID}s each device has ever had historical data added for, so that data can be found again
+ * after a restart. One instance is shared by all devices. Everything is read from disk once on a background thread by {@link #preload()},
+ * and changes are batched up and handed to {@link SharedPreferences.Editor#apply()} by {@link #flush()}, same as {@link P_DiskOptionsManager}.
+ * <br><br>
+ * On disk each device gets one string holding its {@link UUID}s packed back to back as 16 big-endian bytes apiece, Base64-encoded.
+ */
+class P_HistoricalDataUuidIndex
+{
+	private static final int ACCESS_MODE = Context.MODE_PRIVATE;
+	private static final String NAMESPACE = "sweetblue__historical_data_uuid_index";
+
+	//--- DRK > Where older versions kept one string set per device. Migrated over during the preload and then cleared.
+	private static final String LEGACY_NAMESPACE = "sweetblue__previous_historical_data_uuids";
+
+	private static final int BYTES_PER_UUID = 16;
+
+	//--- DRK > How often pending writes are batched up and handed to SharedPreferences.apply().
+	private static final double FLUSH_RATE = 1.0;
+
+	private static final UUID[] EMPTY = new UUID[0];
+
+	private final Context m_context;
+
+	private final HashMap<String, HashSet<UUID>> m_index = new HashMap<String, HashSet<UUID>>();
+
+	//--- DRK > Devices whose entry changed since the last flush().
+	private final HashSet<String> m_pendingWrites = new HashSet<String>();
+	private boolean m_pendingLegacyClear = false;
+
+	//--- DRK > Clears that happen while preloading, so the preload doesn't bring them back.
+	private final HashSet<String> m_clearedWhilePreloading = new HashSet<String>();
+
+	private boolean m_preloaded = false;
+	private double m_timeSinceFlush = 0.0;
+
+	P_HistoricalDataUuidIndex(final Context context)
+	{
+		m_context = context;
+	}
+
+	/**
+	 * Reads the whole index into memory on a background thread. Adds can happen in the meantime, but reads wait for this to finish.
+	 */
+	void preload()
+	{
+		final Thread thread = new Thread()
+		{
+			@Override public void run()
+			{
+				preload_private();
+			}
+		};
+
+		thread.start();
+	}
+
+	private void preload_private()
+	{
+		//--- DRK > Actual I/O happens in here, outside the lock.
+		final Map<String, ?> fromDisk = prefs(NAMESPACE).getAll();
+		final Map<String, ?> fromLegacy = prefs(LEGACY_NAMESPACE).getAll();
+
+		synchronized (this)
+		{
+			if( fromDisk != null )
+			{
+				final Iterator<? extends Map.Entry<String, ?>> iterator = fromDisk.entrySet().iterator();
+
+				while( iterator.hasNext() )
+				{
+					final Map.Entry<String, ?> entry = iterator.next();
+
+					if( !(entry.getValue() instanceof String) || m_clearedWhilePreloading.contains(entry.getKey()) )  continue;
+
+					unpack((String) entry.getValue(), getOrCreate(entry.getKey()));
+				}
+			}
+
+			if( fromLegacy != null && !fromLegacy.isEmpty() )
+			{
+				migrate(fromLegacy);
+			}
+
+			m_clearedWhilePreloading.clear();
+			m_preloaded = true;
+
+			notifyAll();
+		}
+	}
+
+	private void migrate(final Map<String, ?> fromLegacy)
+	{
+		final Iterator<? extends Map.Entry<String, ?>> iterator = fromLegacy.entrySet().iterator();
+
+		while( iterator.hasNext() )
+		{
+			final Map.Entry<String, ?> entry = iterator.next();
+
+			if( !(entry.getValue() instanceof Set) || m_clearedWhilePreloading.contains(entry.getKey()) )  continue;
+
+			final HashSet<UUID> uuids = getOrCreate(entry.getKey());
+			final Iterator<?> strings = ((Set<?>) entry.getValue()).iterator();
+
+			while( strings.hasNext() )
+			{
+				final Object ith = strings.next();
+
+				if( !(ith instanceof String) || ((String) ith).isEmpty() )  continue;
+
+				uuids.add(Uuids.fromString((String) ith));
+			}
+
+			m_pendingWrites.add(entry.getKey());
+		}
+
+		m_pendingLegacyClear = true;
+	}
+
+	private void waitForPreload()
+	{
+		boolean interrupted = false;
+
+		while( !m_preloaded )
+		{
+			try
+			{
+				wait();
+			}
+			catch(InterruptedException e)
+			{
+				interrupted = true;
+			}
+		}
+
+		if( interrupted )
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private HashSet<UUID> getOrCreate(final String macAddress)
+	{
+		HashSet<UUID> uuids = m_index.get(macAddress);
+
+		if( uuids == null )
+		{
+			uuids = new HashSet<UUID>();
+			m_index.put(macAddress, uuids);
+		}
+
+		return uuids;
+	}
+
+	private SharedPreferences prefs(final String namespace)
+	{
+		final SharedPreferences prefs = m_context.getSharedPreferences(namespace, ACCESS_MODE);
+
+		return prefs;
+	}
+
+	/**
+	 * Only marks the device for the next {@link #flush()} if the {@link UUID} is new, so calling this for every piece of data added is cheap.
+	 */
+	synchronized void add(final String macAddress, final UUID uuid)
+	{
+		if( getOrCreate(macAddress).add(uuid) )
+		{
+			m_pendingWrites.add(macAddress);
+		}
+	}
+
+	synchronized void clear(final String macAddress)
+	{
+		m_index.remove(macAddress);
+		m_pendingWrites.add(macAddress);
+
+		if( !m_preloaded )
+		{
+			m_clearedWhilePreloading.add(macAddress);
+		}
+	}
+
+	synchronized UUID[] getUuids(final String macAddress)
+	{
+		waitForPreload();
+
+		final HashSet<UUID> uuids = m_index.get(macAddress);
+
+		return uuids != null && !uuids.isEmpty() ? uuids.toArray(new UUID[uuids.size()]) : EMPTY;
+	}
+
+	/**
+	 * Returns every device that has any {@link UUID}s in the index.
+	 */
+	synchronized String[] getMacAddresses()
+	{
+		waitForPreload();
+
+		final String[] macAddresses = new String[m_index.size()];
+		final Iterator<Map.Entry<String, HashSet<UUID>>> iterator = m_index.entrySet().iterator();
+		int count = 0;
+
+		while( iterator.hasNext() )
+		{
+			final Map.Entry<String, HashSet<UUID>> entry = iterator.next();
+
+			if( !entry.getValue().isEmpty() )
+			{
+				macAddresses[count++] = entry.getKey();
+			}
+		}
+
+		if( count == macAddresses.length )  return macAddresses;
+
+		final String[] nonEmpty = new String[count];
+
+		System.arraycopy(macAddresses, 0, nonEmpty, 0, count);
+
+		return nonEmpty;
+	}
+
+	void update(final double timeStep)
+	{
+		m_timeSinceFlush += timeStep;
+
+		if( m_timeSinceFlush < FLUSH_RATE )  return;
+
+		m_timeSinceFlush = 0.0;
+
+		flush();
+	}
+
+	/**
+	 * Hands all pending writes to {@link SharedPreferences.Editor#apply()} in one go. Never blocks on I/O.
+	 */
+	synchronized void flush()
+	{
+		//--- DRK > Writing before the preload is merged in would overwrite what's on disk with only what's been added since startup.
+		if( !m_preloaded )  return;
+
+		if( m_pendingLegacyClear )
+		{
+			prefs(LEGACY_NAMESPACE).edit().clear().apply();
+			m_pendingLegacyClear = false;
+		}
+
+		if( m_pendingWrites.isEmpty() )  return;
+
+		final SharedPreferences.Editor editor = prefs(NAMESPACE).edit();
+		final Iterator<String> iterator = m_pendingWrites.iterator();
+
+		while( iterator.hasNext() )
+		{
+			final String macAddress = iterator.next();
+			final HashSet<UUID> uuids = m_index.get(macAddress);
+
+			if( uuids == null || uuids.isEmpty() )
+			{
+				editor.remove(macAddress);
+			}
+			else
+			{
+				editor.putString(macAddress, pack(uuids));
+			}
+		}
+
+		m_pendingWrites.clear();
+
+		editor.apply();
+	}
+
+	private static String pack(final Set<UUID> uuids)
+	{
+		final byte[] packed = new byte[uuids.size() * BYTES_PER_UUID];
+		final Iterator<UUID> iterator = uuids.iterator();
+		int offset = 0;
+
+		while( iterator.hasNext() )
+		{
+			final UUID uuid = iterator.next();
+
+			writeLong(uuid.getMostSignificantBits(), packed, offset);
+			writeLong(uuid.getLeastSignificantBits(), packed, offset + 8);
+
+			offset += BYTES_PER_UUID;
+		}
+
+		return Base64.encodeToString(packed, Base64.NO_WRAP);
+	}
+
+	private static void unpack(final String encoded, final Set<UUID> uuids_out)
+	{
+		final byte[] packed;
+
+		try
+		{
+			packed = Base64.decode(encoded, Base64.NO_WRAP);
+		}
+		catch(IllegalArgumentException e)
+		{
+			return;
+		}
+
+		for( int offset = 0; offset + BYTES_PER_UUID <= packed.length; offset += BYTES_PER_UUID )
+		{
+			uuids_out.add(new UUID(readLong(packed, offset), readLong(packed, offset + 8)));
+		}
+	}
+
+	private static void writeLong(final long value, final byte[] destination, final int offset)
+	{
+		for( int i = 0; i < 8; i++ )
+		{
+			destination[offset + i] = (byte) (value >>> (56 - i * 8));
+		}
+	}
+
+	private static long readLong(final byte[] source, final int offset)
+	{
+		long value = 0;
+
+		for( int i = 0; i < 8; i++ )
+		{
+			value = (value << 8) | (source[offset + i] & 0xFF);
+		}
+
+		return value;
+	}
+}
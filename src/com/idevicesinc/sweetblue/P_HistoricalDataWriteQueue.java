@@ -0,0 +1,362 @@
+package com.idevicesinc.sweetblue;
+
+import com.idevicesinc.sweetblue.backend.historical.Backend_HistoricalDatabase;
+import com.idevicesinc.sweetblue.utils.EpochTimeRange;
+import com.idevicesinc.sweetblue.utils.HistoricalData;
+import com.idevicesinc.sweetblue.utils.HistoricalDataInputStream;
+import com.idevicesinc.sweetblue.utils.Interval;
+import com.idevicesinc.sweetblue.utils.TimeEstimator;
+import com.idevicesinc.sweetblue.utils.UpdateLoop;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Bounded per-device queue of historical data headed for {@link Backend_HistoricalDatabase}. Adding never touches the database;
+ * queued data is written in one batch on the historical data {@link UpdateLoop} after {@link BleDeviceConfig#historicalDataWriteDelay},
+ * or sooner once the queue is half full.
+ */
+class P_HistoricalDataWriteQueue
+{
+	private final BleDevice m_device;
+	private final UpdateLoop m_updateLoop;
+
+	private UUID[] m_uuids = new UUID[0];
+	private HistoricalData[] m_data = new HistoricalData[0];
+	private long[] m_limits = new long[0];
+	private int m_head = 0;
+	private int m_size = 0;
+
+	private long m_dropCount = 0;
+	private boolean m_flushPosted = false;
+	private boolean m_urgentFlushPosted = false;
+
+	//--- DRK > Only touched while holding m_flushLock.
+	private final Object m_flushLock = new Object();
+	private UUID[] m_flushUuids = new UUID[0];
+	private HistoricalData[] m_flushData = new HistoricalData[0];
+	private long[] m_flushLimits = new long[0];
+	private final HashMap<UUID, Long> m_flushLimitsByUuid = new HashMap<UUID, Long>();
+	private final TimeEstimator m_flushTimeEstimator = new TimeEstimator(BleDeviceConfig.DEFAULT_RUNNING_AVERAGE_N);
+
+	private final Runnable m_flushRunnable = new Runnable()
+	{
+		@Override public void run()
+		{
+			flush();
+		}
+	};
+
+	P_HistoricalDataWriteQueue(final BleDevice device, final UpdateLoop updateLoop)
+	{
+		m_device = device;
+		m_updateLoop = updateLoop;
+	}
+
+	private Backend_HistoricalDatabase getDatabase()
+	{
+		return m_device.getManager().m_historicalDatabase;
+	}
+
+	void add(final UUID uuid, final HistoricalData data, final long limit)
+	{
+		final int capacity = Math.max(1, BleDeviceConfig.integer(m_device.conf_device().historicalDataWriteQueueCapacity, m_device.conf_mngr().historicalDataWriteQueueCapacity, BleDeviceConfig.DEFAULT_HISTORICAL_DATA_WRITE_QUEUE_CAPACITY));
+
+		synchronized(this)
+		{
+			if( capacity != m_uuids.length )
+			{
+				resize(capacity);
+			}
+
+			if( m_size == m_uuids.length )
+			{
+				m_dropCount++;
+
+				return;
+			}
+
+			final int index = (m_head + m_size) % m_uuids.length;
+
+			m_uuids[index] = uuid;
+			m_data[index] = data;
+			m_limits[index] = limit;
+			m_size++;
+
+			if( !m_urgentFlushPosted && m_size >= m_uuids.length / 2 )
+			{
+				m_urgentFlushPosted = true;
+
+				m_updateLoop.forcePost(m_flushRunnable);
+			}
+
+			if( m_flushPosted )  return;
+
+			m_flushPosted = true;
+		}
+
+		final Interval delay = BleDeviceConfig.interval(m_device.conf_device().historicalDataWriteDelay, m_device.conf_mngr().historicalDataWriteDelay);
+
+		m_updateLoop.forcePost(m_flushRunnable, Interval.isEnabled(delay) ? (long) (delay.secs() * 1000) : 0);
+	}
+
+	private void resize(final int capacity)
+	{
+		final int keepCount = Math.min(m_size, capacity);
+
+		final UUID[] uuids = new UUID[capacity];
+		final HistoricalData[] data = new HistoricalData[capacity];
+		final long[] limits = new long[capacity];
+
+		for( int i = 0; i < keepCount; i++ )
+		{
+			final int index = (m_head + i) % m_uuids.length;
+
+			uuids[i] = m_uuids[index];
+			data[i] = m_data[index];
+			limits[i] = m_limits[index];
+		}
+
+		m_dropCount += m_size - keepCount;
+
+		m_uuids = uuids;
+		m_data = data;
+		m_limits = limits;
+		m_head = 0;
+		m_size = keepCount;
+	}
+
+	synchronized int getDepth()
+	{
+		return m_size;
+	}
+
+	synchronized long getDropCount()
+	{
+		return m_dropCount;
+	}
+
+	Interval getAverageFlushTime()
+	{
+		synchronized(m_flushTimeEstimator)
+		{
+			return Interval.secs(m_flushTimeEstimator.getRunningAverage());
+		}
+	}
+
+	/**
+	 * Gets a flush going on the historical data thread right away, for example because the app is going to the background.
+	 */
+	void flushSoon()
+	{
+		synchronized(this)
+		{
+			if( m_size == 0 )  return;
+		}
+
+		m_updateLoop.forcePost(m_flushRunnable);
+	}
+
+	/**
+	 * Writes everything queued so far to the database before returning. Mostly meant to keep ordering sane ahead of a delete.
+	 */
+	void flush()
+	{
+		synchronized(m_flushLock)
+		{
+			flush_locked();
+		}
+	}
+
+	/**
+	 * Writes a bulk addition to the database on the historical data thread, after whatever was already queued. Bulk additions
+	 * aren't subject to {@link BleDeviceConfig#historicalDataWriteQueueCapacity}.
+	 */
+	void addAll(final UUID uuid, final List<HistoricalData> data, final long limit)
+	{
+		m_updateLoop.forcePost(new Runnable()
+		{
+			@Override public void run()
+			{
+				addAll_now(uuid, data, limit);
+			}
+		});
+	}
+
+	/**
+	 * Same as {@link #addAll(UUID, List, long)} but writes on the calling thread before returning, so that something like an import
+	 * can reuse the list and is slowed down to the speed of the disk rather than piling up work on the historical thread.
+	 */
+	void addAll_now(final UUID uuid, final List<HistoricalData> data, final long limit)
+	{
+		synchronized(m_flushLock)
+		{
+			flush_locked();
+
+			final Backend_HistoricalDatabase database = getDatabase();
+			final String macAddress = m_device.getMacAddress();
+
+			database.add_multiple_start();
+
+			try
+			{
+				for( int i = 0; i < data.size(); i++ )
+				{
+					database.add_multiple_next(macAddress, uuid, data.get(i));
+				}
+			}
+			finally
+			{
+				database.add_multiple_end();
+			}
+
+			trimToLimit(database, macAddress, uuid, limit);
+		}
+	}
+
+	/**
+	 * Same as {@link #addAll_now(UUID, List, long)} but reads samples straight off the stream into the database's batched insert,
+	 * committing every <code>chunkSize</code> rows, so no {@link HistoricalData} is created along the way. Returns the number of samples read.
+	 */
+	int addAll_now(final UUID uuid, final HistoricalDataInputStream in, final int chunkSize, final long limit) throws IOException
+	{
+		final Backend_HistoricalDatabase database = getDatabase();
+		final String macAddress = m_device.getMacAddress();
+
+		int count = 0;
+		boolean more = true;
+
+		while( more )
+		{
+			synchronized(m_flushLock)
+			{
+				flush_locked();
+
+				database.add_multiple_start();
+
+				try
+				{
+					for( int i = 0; i < chunkSize; i++ )
+					{
+						more = in.next();
+
+						if( !more )  break;
+
+						database.add_multiple_next(macAddress, uuid, in.getEpochTime(), in.getBlob());
+						count++;
+					}
+				}
+				finally
+				{
+					database.add_multiple_end();
+				}
+			}
+		}
+
+		synchronized(m_flushLock)
+		{
+			trimToLimit(database, macAddress, uuid, limit);
+		}
+
+		return count;
+	}
+
+	private void flush_locked()
+	{
+		final int count = drain();
+
+		if( count == 0 )  return;
+
+		final long startTime = System.nanoTime();
+		final Backend_HistoricalDatabase database = getDatabase();
+		final String macAddress = m_device.getMacAddress();
+
+		database.add_multiple_start();
+
+		try
+		{
+			for( int i = 0; i < count; i++ )
+			{
+				database.add_multiple_next(macAddress, m_flushUuids[i], m_flushData[i]);
+
+				final Long limit = m_flushLimitsByUuid.get(m_flushUuids[i]);
+
+				if( limit == null || m_flushLimits[i] < limit )
+				{
+					m_flushLimitsByUuid.put(m_flushUuids[i], m_flushLimits[i]);
+				}
+
+				m_flushUuids[i] = null;
+				m_flushData[i] = null;
+			}
+		}
+		finally
+		{
+			database.add_multiple_end();
+		}
+
+		final Iterator<Map.Entry<UUID, Long>> iterator = m_flushLimitsByUuid.entrySet().iterator();
+
+		while( iterator.hasNext() )
+		{
+			final Map.Entry<UUID, Long> entry = iterator.next();
+
+			iterator.remove();
+
+			trimToLimit(database, macAddress, entry.getKey(), entry.getValue());
+		}
+
+		synchronized(m_flushTimeEstimator)
+		{
+			m_flushTimeEstimator.addTime((System.nanoTime() - startTime) / 1000000000.0);
+		}
+	}
+
+	private static void trimToLimit(final Backend_HistoricalDatabase database, final String macAddress, final UUID uuid, final long limit)
+	{
+		if( limit == Long.MAX_VALUE )  return;
+
+		final long overLimit = database.getCount(macAddress, uuid, EpochTimeRange.FROM_MIN_TO_MAX) - Math.max(limit, 0);
+
+		if( overLimit > 0 )
+		{
+			database.delete_singleUuid_inRange(macAddress, uuid, EpochTimeRange.FROM_MIN_TO_MAX, overLimit);
+		}
+	}
+
+	private synchronized int drain()
+	{
+		m_flushPosted = false;
+		m_urgentFlushPosted = false;
+
+		final int count = m_size;
+
+		if( m_flushUuids.length < count )
+		{
+			m_flushUuids = new UUID[m_uuids.length];
+			m_flushData = new HistoricalData[m_uuids.length];
+			m_flushLimits = new long[m_uuids.length];
+		}
+
+		for( int i = 0; i < count; i++ )
+		{
+			final int index = (m_head + i) % m_uuids.length;
+
+			m_flushUuids[i] = m_uuids[index];
+			m_flushData[i] = m_data[index];
+			m_flushLimits[i] = m_limits[index];
+
+			m_uuids[index] = null;
+			m_data[index] = null;
+		}
+
+		m_head = 0;
+		m_size = 0;
+
+		return count;
+	}
+}
@@ -4,6 +4,8 @@ import java.lang.reflect.Field;
 import java.util.HashMap;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import android.bluetooth.BluetoothAdapter;
 import android.bluetooth.BluetoothDevice;
@@ -21,22 +23,36 @@ import com.idevicesinc.sweetblue.utils.UuidNameMap_ListWrapper;
 
 class P_Logger
 {
-	private String[] m_debugThreadNamePool;
-	private int m_poolIndex = 0;
-	private final HashMap<Integer, String> m_threadNames = new HashMap<Integer, String>();
+	//--- DRK > Used as the log tag when caller info isn't captured.
+	private static final String TAG = "SweetBlue";
+
+	private static final String PLACEHOLDER = "{}";
+
+	private final String[] m_debugThreadNamePool;
+	private final AtomicInteger m_poolIndex = new AtomicInteger(0);
+	private final ConcurrentHashMap<Integer, String> m_threadNames = new ConcurrentHashMap<Integer, String>();
 	private HashMap<Integer, String> m_gattStatusCodes = null;
 	private HashMap<Integer, String> m_gattConnStates = null;
 	private HashMap<Integer, String> m_gattBleStates = null;
 	private HashMap<Integer, String> m_gattBondStates = null;
 	private HashMap<Integer, String> m_unbondReasonCodes = null;
-	private boolean m_enabled;
+	private final boolean m_enabled;
+	private final int m_minLevel;
+	private final boolean m_includeCaller;
 	private final UuidNameMap_ListWrapper m_nameMap;
 	
 	public P_Logger(String[] debugThreadNamePool, List<UuidNameMap> debugUuidNameDicts, boolean enabled)
+	{
+		this(debugThreadNamePool, debugUuidNameDicts, enabled, Log.VERBOSE, true);
+	}
+
+	public P_Logger(String[] debugThreadNamePool, List<UuidNameMap> debugUuidNameDicts, boolean enabled, int minLevel, boolean includeCaller)
 	{		
 		m_debugThreadNamePool = debugThreadNamePool;
 		m_nameMap = new UuidNameMap_ListWrapper(debugUuidNameDicts);
 		m_enabled = enabled;
+		m_minLevel = minLevel;
+		m_includeCaller = includeCaller;
 		
 		//--- DRK > Most of the time this will give the first alphabetical thread name to the main thread.
 		//--- 		Just a convenience.
@@ -48,7 +64,7 @@ class P_Logger
 	
 	public void printBuildInfo()
 	{
-		if( !m_enabled )  return;
+		if( !isEnabled(Log.DEBUG) )  return;
 		
 		int level = Log.DEBUG;
 
@@ -65,8 +81,16 @@ class P_Logger
 	{
 		return m_enabled;
 	}
+
+	/**
+	 * Check this before building an expensive message for the given {@link Log} level.
+	 */
+	public boolean isEnabled(final int level)
+	{
+		return m_enabled && level >= m_minLevel;
+	}
 	
-	public synchronized String getDebugAction(String action)
+	public String getDebugAction(String action)
 	{
         String[] action_split = action.split("\\.");
     	String action_debug = action_split[action_split.length-1];
@@ -74,26 +98,17 @@ class P_Logger
     	return action_debug;
 	}
 	
-	public synchronized String getThreadName(int threadId)
+	public String getThreadName(int threadId)
 	{
-		String threadName = null;
-		
-		if( m_threadNames != null )
-		{
-			threadName = m_threadNames.get(threadId);
-			
-			if( threadName == null )
-			{
-				threadName = m_debugThreadNamePool[m_poolIndex % m_debugThreadNamePool.length];
-				threadName = threadName + "(" + threadId +")";
-				
-				m_threadNames.put(threadId, threadName);
-				
-				m_poolIndex++;
-			}
-		}
-		
-		return threadName == null ? "" : threadName;
+		final String threadName = m_threadNames.get(threadId);
+
+		if( threadName != null )  return threadName;
+
+		final int poolIndex = m_poolIndex.getAndIncrement();
+		final String newThreadName = m_debugThreadNamePool[poolIndex % m_debugThreadNamePool.length] + "(" + threadId +")";
+		final String existingThreadName = m_threadNames.putIfAbsent(threadId, newThreadName);
+
+		return existingThreadName != null ? existingThreadName : newThreadName;
 	}
 	
 	private StackTraceElement getSoonestTrace()
@@ -118,20 +133,34 @@ class P_Logger
 	private String prefixMessage(String methodName, String message)
 	{
 		String threadName = getThreadName(Process.myTid());
-		message = threadName + " " + methodName + "() - " + message;
+
+		if( methodName != null )
+		{
+			message = threadName + " " + methodName + "() - " + message;
+		}
+		else
+		{
+			message = threadName + " - " + message;
+		}
 		
 		return message;
 	}
 	
 	public void log(int level, String message)
 	{
-		if( !m_enabled )  return;
-		
-		StackTraceElement trace = getSoonestTrace();
-		String className = trace.getClassName();
-		String[] className_split = className.split("\\.");
-		className = className_split[className_split.length-1];
-		log_private(level, className, message, trace);
+		if( !isEnabled(level) )  return;
+
+		if( m_includeCaller )
+		{
+			StackTraceElement trace = getSoonestTrace();
+			String className = trace.getClassName();
+			className = className.substring(className.lastIndexOf('.') + 1);
+			log_private(level, className, message, trace);
+		}
+		else
+		{
+			log_private(level, TAG, message, null);
+		}
 	}
 	
 	public void log_status(int gattStatus)
@@ -141,9 +170,10 @@ class P_Logger
 	
 	public void log_status(int gattStatus, String message)
 	{
-		if( !m_enabled )  return;
-		
 		int level = Utils.isSuccess(gattStatus) ? Log.INFO : Log.WARN;
+
+		if( !isEnabled(level) )  return;
+
 		message = gattStatus(gattStatus) + " " + message;
 		
 		log(level, message);
@@ -151,17 +181,52 @@ class P_Logger
 	
 	public void log(int level, String tag, String message)
 	{
-		if( !m_enabled )  return;
+		if( !isEnabled(level) )  return;
 		
-		StackTraceElement trace = getSoonestTrace();
+		StackTraceElement trace = m_includeCaller ? getSoonestTrace() : null;
 		log_private(level, tag, message, trace); 
 	}
+
+	/**
+	 * Same as {@link #log(int, String)} but the message is only built if the level is enabled. Each <code>{}</code> in <code>format</code>
+	 * is replaced by the next argument, so callers can pass raw values instead of concatenating strings up front.
+	 */
+	public void log_format(int level, String format, Object ... args)
+	{
+		if( !isEnabled(level) )  return;
+
+		log(level, format(format, args));
+	}
 	
-	private void log_private(int level, String tag, String message, StackTraceElement trace)
+	private void log_private(int level, String tag, String message, StackTraceElement trace_nullable)
 	{
-		message = prefixMessage(trace.getMethodName(), message);
+		message = prefixMessage(trace_nullable != null ? trace_nullable.getMethodName() : null, message);
 		Log.println(level, tag, message);
 	}
+
+	static String format(final String format, final Object ... args)
+	{
+		if( args == null || args.length == 0 )  return format;
+
+		final StringBuilder builder = new StringBuilder(format.length() + args.length * 16);
+		int start = 0;
+		int argIndex = 0;
+
+		while( argIndex < args.length )
+		{
+			final int index = format.indexOf(PLACEHOLDER, start);
+
+			if( index == -1 )  break;
+
+			builder.append(format, start, index);
+			builder.append(args[argIndex++]);
+			start = index + PLACEHOLDER.length();
+		}
+
+		builder.append(format, start, format.length());
+
+		return builder.toString();
+	}
 	
 	public void d(String tag, String message)
 	{
@@ -213,6 +278,32 @@ class P_Logger
 	{
 		log(Log.WARN, message);
 	}
+
+
+	public void d_format(String format, Object ... args)
+	{
+		log_format(Log.DEBUG, format, args);
+	}
+
+	public void i_format(String format, Object ... args)
+	{
+		log_format(Log.INFO, format, args);
+	}
+
+	public void v_format(String format, Object ... args)
+	{
+		log_format(Log.VERBOSE, format, args);
+	}
+
+	public void e_format(String format, Object ... args)
+	{
+		log_format(Log.ERROR, format, args);
+	}
+
+	public void w_format(String format, Object ... args)
+	{
+		log_format(Log.WARN, format, args);
+	}
 	
 	
 	
@@ -2,7 +2,9 @@ package com.idevicesinc.sweetblue;
 
 import android.bluetooth.BluetoothDevice;
 import android.bluetooth.BluetoothGatt;
+import android.util.Log;
 import com.idevicesinc.sweetblue.BleManager.UhOhListener.UhOh;
+import com.idevicesinc.sweetblue.backend.stack.Backend_BleGatt;
 import com.idevicesinc.sweetblue.utils.Utils;
 
 
@@ -10,7 +12,7 @@ class P_NativeDeviceWrapper
 {
 	private final BleDevice m_device;
 	private BluetoothDevice m_device_native;
-	private	BluetoothGatt m_gatt;
+	private	Backend_BleGatt m_gatt;
 	private final String m_address;
 	private final P_Logger m_logger;
 	private final BleManager m_mngr;
@@ -133,26 +135,47 @@ class P_NativeDeviceWrapper
 		}
 	}
 	
-	public BluetoothGatt getGatt()
+	public Backend_BleGatt getGatt()
 	{
 		return m_gatt;
 	}
+
+	public BluetoothGatt getNativeGatt()
+	{
+		return m_gatt != null ? m_gatt.getNative() : null;
+	}
 	
 	private void updateGattFromCallback(BluetoothGatt gatt)
 	{
 		if (gatt == null)
 		{
-			m_logger.w("Gatt object from callback is null.");
+			//--- DRK > Stacks without native instances always call back with null, so only worth a warning if we're expecting one.
+			if( m_gatt == null || m_gatt.getNative() != null )
+			{
+				m_logger.w("Gatt object from callback is null.");
+			}
 		}
 		else
 		{
-			setGatt(gatt);
+			synchronized (this)
+			{
+				if( m_gatt != null && m_gatt.getNative() == gatt )  return;
+			}
+
+			setGatt(m_mngr.getStack().wrap(gatt));
 		}
 	}
 	
-	void updateGattInstance(BluetoothGatt gatt)
+	void updateGattInstance(Backend_BleGatt gatt)
 	{
-		updateGattFromCallback(gatt);
+		if( gatt == null )
+		{
+			m_logger.w("Gatt object from connect is null.");
+		}
+		else
+		{
+			setGatt(gatt);
+		}
 	}
 	
 	void updateNativeConnectionState(BluetoothGatt gatt)
@@ -175,7 +198,7 @@ class P_NativeDeviceWrapper
 			
 			updateGattFromCallback(gatt);
 			
-			m_logger.i(m_logger.gattConn(m_nativeConnectionState));
+			if( m_logger.isEnabled(Log.INFO) )  m_logger.i(m_logger.gattConn(m_nativeConnectionState));
 		}
 	}
 	
@@ -221,7 +244,7 @@ class P_NativeDeviceWrapper
 	
 	public int getNativeConnectionState()
 	{
-		return m_device.getManager().getNative().getConnectionState(m_device_native, BluetoothGatt.GATT_SERVER );
+		return m_device.getManager().getStack().getConnectionState(m_device_native);
 	}
 	
 	public int getConnectionState()
@@ -235,7 +258,7 @@ class P_NativeDeviceWrapper
 			{
 				if( m_nativeConnectionState != reportedNativeConnectionState )
 				{
-					m_logger.e("Tracked native state "+m_logger.gattConn(m_nativeConnectionState)+" doesn't match reported state "+m_logger.gattConn(reportedNativeConnectionState)+".");
+					if( m_logger.isEnabled(Log.ERROR) )  m_logger.e("Tracked native state "+m_logger.gattConn(m_nativeConnectionState)+" doesn't match reported state "+m_logger.gattConn(reportedNativeConnectionState)+".");
 				}
 				
 				connectedStateThatWeWillGoWith = m_nativeConnectionState;
@@ -250,7 +273,7 @@ class P_NativeDeviceWrapper
 					//---		but we haven't called connect yet. Really rare...only seen once after 4 months.
 					if( m_nativeConnectionState == null )
 					{
-						m_logger.e("Gatt is null with " + m_logger.gattConn(connectedStateThatWeWillGoWith));
+						if( m_logger.isEnabled(Log.ERROR) )  m_logger.e("Gatt is null with " + m_logger.gattConn(connectedStateThatWeWillGoWith));
 						
 						connectedStateThatWeWillGoWith = BluetoothGatt.STATE_DISCONNECTED;
 						
@@ -332,7 +355,7 @@ class P_NativeDeviceWrapper
 		}
 	}
 	
-	private void setGatt(BluetoothGatt gatt)
+	private void setGatt(Backend_BleGatt gatt)
 	{
 		synchronized (this)
 		{
@@ -343,9 +366,11 @@ class P_NativeDeviceWrapper
 				//---		As a result of a brief audit, moved gatt object setting from the ending state
 				//---		handler of the connect task in P_BleDevice_Listeners to the execute method of the connect task itself.
 				//---		Doesn't solve any particular issue found, but seems more logical.
-				m_mngr.ASSERT(m_gatt == gatt, "Different gatt object set.");
+				final boolean same = m_gatt == gatt || gatt != null && m_gatt.getNative() != null && m_gatt.getNative() == gatt.getNative();
+
+				m_mngr.ASSERT(same, "Different gatt object set.");
 				
-				if( m_gatt != gatt )
+				if( !same )
 				{
 					closeGatt(/*disconnectAlso=*/false);
 				}
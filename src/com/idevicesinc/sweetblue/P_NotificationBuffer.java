@@ -0,0 +1,356 @@
+package com.idevicesinc.sweetblue;
+
+import android.util.Log;
+
+import com.idevicesinc.sweetblue.BleManager.UhOhListener.UhOh;
+import com.idevicesinc.sweetblue.BleManagerConfig.NotificationOverflowPolicy;
+
+import java.util.HashMap;
+import java.util.UUID;
+
+/**
+ * Ring buffer that notifications from all devices go through on their way from the native callback thread to
+ * {@link P_PollManager}. Filling it costs no post to the update thread, and it's drained on the update thread
+ * at most {@link BleManagerConfig#maxNotificationBatchSize} at a time by a single post, same as batched scan results in {@link P_Task_Scan}.
+ * It holds {@link BleManagerConfig#notificationBufferSize} notifications, and only drops any when full if
+ * {@link BleManagerConfig#notificationOverflowPolicy} says to, otherwise it grows until drained.
+ */
+class P_NotificationBuffer
+{
+	private final BleManager m_mngr;
+
+	//--- DRK > Parallel arrays instead of an entry object per notification so filling the buffer doesn't allocate.
+	private BleDevice[] m_devices = new BleDevice[0];
+	private UUID[] m_serviceUuids = new UUID[0];
+	private UUID[] m_charUuids = new UUID[0];
+	private byte[][] m_values = new byte[0][];
+
+	private int m_head = 0;
+	private int m_count = 0;
+
+	//--- DRK > Only used for NotificationOverflowPolicy#KEEP_LATEST, to find the waiting slot for a device's characteristic.
+	private final HashMap<BleDevice, HashMap<UUID, Integer>> m_slotIndex = new HashMap<BleDevice, HashMap<UUID, Integer>>();
+
+	private boolean m_drainPosted = false;
+
+	private long m_overrunCount = 0;
+	private long m_coalescedCount = 0;
+	private long m_overrunCount_lastLogged = 0;
+
+	//--- DRK > Reused by m_drain so copying out of the buffer doesn't allocate either. Only touched on the update thread.
+	private BleDevice[] m_batch_devices = new BleDevice[0];
+	private UUID[] m_batch_serviceUuids = new UUID[0];
+	private UUID[] m_batch_charUuids = new UUID[0];
+	private byte[][] m_batch_values = new byte[0][];
+
+	private final Runnable m_drain = new Runnable()
+	{
+		@Override public void run()
+		{
+			drain();
+		}
+	};
+
+	P_NotificationBuffer(final BleManager mngr)
+	{
+		m_mngr = mngr;
+	}
+
+	/**
+	 * Called from the native callback thread. The value should already be a copy.
+	 */
+	void add(final BleDevice device, final UUID serviceUuid, final UUID charUuid, final byte[] value)
+	{
+		final boolean post;
+
+		synchronized (this)
+		{
+			final BleManagerConfig config = m_mngr.m_config;
+			final NotificationOverflowPolicy policy = config.notificationOverflowPolicy != null ? config.notificationOverflowPolicy : NotificationOverflowPolicy.GROW;
+			final boolean keepLatest = policy == NotificationOverflowPolicy.KEEP_LATEST;
+
+			if( keepLatest )
+			{
+				final int slot = getIndexedSlot(device, serviceUuid, charUuid);
+
+				if( slot >= 0 )
+				{
+					m_values[slot] = value;
+					m_coalescedCount++;
+
+					return;
+				}
+			}
+
+			resizeIfPossible(Math.max(1, config.notificationBufferSize));
+
+			if( m_count == m_devices.length )
+			{
+				if( policy == NotificationOverflowPolicy.GROW )
+				{
+					grow();
+				}
+				else
+				{
+					m_overrunCount++;
+
+					if( !keepLatest )  return;
+
+					unindex(m_head);
+					clearSlot(m_head);
+
+					m_head = (m_head + 1) % m_devices.length;
+					m_count--;
+				}
+			}
+
+			final int slot = (m_head + m_count) % m_devices.length;
+
+			m_devices[slot] = device;
+			m_serviceUuids[slot] = serviceUuid;
+			m_charUuids[slot] = charUuid;
+			m_values[slot] = value;
+			m_count++;
+
+			if( keepLatest )
+			{
+				index(slot);
+			}
+
+			post = !m_drainPosted;
+			m_drainPosted = true;
+		}
+
+		if( post )
+		{
+			postDrain(/*force=*/false);
+		}
+	}
+
+	void postDrain(final boolean force)
+	{
+		if( force )
+		{
+			m_mngr.getUpdateLoop().forcePost(m_drain);
+		}
+		else
+		{
+			m_mngr.getUpdateLoop().postIfNeeded(m_drain);
+		}
+	}
+
+	void deliver(final BleDevice device, final UUID serviceUuid, final UUID charUuid, final byte[] value)
+	{
+		synchronized (device.m_threadLock)
+		{
+			device.getPollManager().onCharacteristicChangedFromNativeNotify(serviceUuid, charUuid, value);
+		}
+	}
+
+	/**
+	 * Called on the update thread after notifications were dropped because the buffer was full, with how many since the last call.
+	 */
+	void onOverrun(final long newOverruns)
+	{
+		final P_Logger logger = m_mngr.getLogger();
+
+		if( logger.isEnabled(Log.WARN) )
+		{
+			logger.w("Notification buffer dropped " + newOverruns + " notification(s) - consider a bigger BleManagerConfig#notificationBufferSize or NotificationOverflowPolicy#GROW.");
+		}
+
+		m_mngr.uhOh(UhOh.NOTIFICATIONS_DROPPED);
+	}
+
+	synchronized long getOverrunCount()
+	{
+		return m_overrunCount;
+	}
+
+	synchronized long getCoalescedCount()
+	{
+		return m_coalescedCount;
+	}
+
+	void drain()
+	{
+		final int maxBatchSize = Math.max(1, m_mngr.m_config.maxNotificationBatchSize);
+		final int count;
+		final boolean more;
+		final long newOverruns;
+
+		synchronized (this)
+		{
+			count = Math.min(maxBatchSize, m_count);
+
+			if( m_batch_devices.length < count )
+			{
+				m_batch_devices = new BleDevice[count];
+				m_batch_serviceUuids = new UUID[count];
+				m_batch_charUuids = new UUID[count];
+				m_batch_values = new byte[count][];
+			}
+
+			for( int i = 0; i < count; i++ )
+			{
+				final int slot = (m_head + i) % m_devices.length;
+
+				m_batch_devices[i] = m_devices[slot];
+				m_batch_serviceUuids[i] = m_serviceUuids[slot];
+				m_batch_charUuids[i] = m_charUuids[slot];
+				m_batch_values[i] = m_values[slot];
+
+				unindex(slot);
+				clearSlot(slot);
+			}
+
+			if( count > 0 )
+			{
+				m_head = (m_head + count) % m_devices.length;
+				m_count -= count;
+			}
+
+			more = m_count > 0;
+			m_drainPosted = more;
+
+			newOverruns = m_overrunCount - m_overrunCount_lastLogged;
+			m_overrunCount_lastLogged = m_overrunCount;
+		}
+
+		if( newOverruns > 0 )
+		{
+			onOverrun(newOverruns);
+		}
+
+		for( int i = 0; i < count; i++ )
+		{
+			deliver(m_batch_devices[i], m_batch_serviceUuids[i], m_batch_charUuids[i], m_batch_values[i]);
+
+			m_batch_devices[i] = null;
+			m_batch_serviceUuids[i] = null;
+			m_batch_charUuids[i] = null;
+			m_batch_values[i] = null;
+		}
+
+		if( more )
+		{
+			postDrain(/*force=*/true);
+		}
+	}
+
+	/**
+	 * Picks up changes to {@link BleManagerConfig#notificationBufferSize}, but only while nothing is waiting so slots never have to move.
+	 * This is also what shrinks the buffer back down after {@link #grow()}.
+	 */
+	private void resizeIfPossible(final int size)
+	{
+		if( m_devices.length == size || m_count > 0 )  return;
+
+		m_devices = new BleDevice[size];
+		m_serviceUuids = new UUID[size];
+		m_charUuids = new UUID[size];
+		m_values = new byte[size][];
+		m_head = 0;
+		m_slotIndex.clear();
+	}
+
+	/**
+	 * Doubles the capacity, moving what's waiting to the front in order.
+	 */
+	private void grow()
+	{
+		final int size = m_devices.length * 2;
+
+		final BleDevice[] devices = new BleDevice[size];
+		final UUID[] serviceUuids = new UUID[size];
+		final UUID[] charUuids = new UUID[size];
+		final byte[][] values = new byte[size][];
+
+		for( int i = 0; i < m_count; i++ )
+		{
+			final int slot = (m_head + i) % m_devices.length;
+
+			devices[i] = m_devices[slot];
+			serviceUuids[i] = m_serviceUuids[slot];
+			charUuids[i] = m_charUuids[slot];
+			values[i] = m_values[slot];
+		}
+
+		m_devices = devices;
+		m_serviceUuids = serviceUuids;
+		m_charUuids = charUuids;
+		m_values = values;
+		m_head = 0;
+
+		//--- DRK > Only has anything in it if the policy was just switched away from KEEP_LATEST. Later slots win, same as when they were added.
+		if( !m_slotIndex.isEmpty() )
+		{
+			m_slotIndex.clear();
+
+			for( int i = 0; i < m_count; i++ )
+			{
+				index(i);
+			}
+		}
+	}
+
+	private int getIndexedSlot(final BleDevice device, final UUID serviceUuid, final UUID charUuid)
+	{
+		final HashMap<UUID, Integer> slots = m_slotIndex.get(device);
+
+		if( slots == null )  return -1;
+
+		final Integer slot = slots.get(charUuid);
+
+		if( slot == null )  return -1;
+
+		//--- DRK > Same characteristic UUID under a different service is a different characteristic, so doesn't coalesce.
+		final UUID waitingServiceUuid = m_serviceUuids[slot];
+
+		if( waitingServiceUuid == null ? serviceUuid != null : !waitingServiceUuid.equals(serviceUuid) )  return -1;
+
+		return slot;
+	}
+
+	private void index(final int slot)
+	{
+		HashMap<UUID, Integer> slots = m_slotIndex.get(m_devices[slot]);
+
+		if( slots == null )
+		{
+			slots = new HashMap<UUID, Integer>();
+			m_slotIndex.put(m_devices[slot], slots);
+		}
+
+		slots.put(m_charUuids[slot], slot);
+	}
+
+	private void unindex(final int slot)
+	{
+		if( m_slotIndex.isEmpty() )  return;
+
+		final HashMap<UUID, Integer> slots = m_slotIndex.get(m_devices[slot]);
+
+		if( slots == null )  return;
+
+		final Integer indexed = slots.get(m_charUuids[slot]);
+
+		//--- DRK > A newer slot for the same characteristic may have taken over the index, in which case leave it be.
+		if( indexed == null || indexed != slot )  return;
+
+		slots.remove(m_charUuids[slot]);
+
+		if( slots.isEmpty() )
+		{
+			m_slotIndex.remove(m_devices[slot]);
+		}
+	}
+
+	private void clearSlot(final int slot)
+	{
+		m_devices[slot] = null;
+		m_serviceUuids[slot] = null;
+		m_charUuids[slot] = null;
+		m_values[slot] = null;
+	}
+}
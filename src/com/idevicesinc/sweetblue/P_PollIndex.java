@@ -0,0 +1,71 @@
+package com.idevicesinc.sweetblue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.UUID;
+
+/**
+ * Holds {@link P_PollManager}'s entries in the order they were added, and the same entries again split up by characteristic {@link UUID},
+ * so lookups for one characteristic only have to look at a few. The per-characteristic lists keep insertion order too, so going
+ * through one gives the same entries in the same order as going through everything and skipping other characteristics would.
+ */
+class P_PollIndex<T>
+{
+	private final ArrayList<T> m_all = new ArrayList<T>();
+	private final HashMap<UUID, ArrayList<T>> m_byUuid = new HashMap<UUID, ArrayList<T>>();
+
+	//--- DRK > Handed out for characteristics with no entries so callers can always just loop. Never added to.
+	private final ArrayList<T> m_none = new ArrayList<T>();
+
+	void add(final UUID charUuid, final T entry)
+	{
+		m_all.add(entry);
+
+		ArrayList<T> entries = m_byUuid.get(charUuid);
+
+		if( entries == null )
+		{
+			entries = new ArrayList<T>();
+			m_byUuid.put(charUuid, entries);
+		}
+
+		entries.add(entry);
+	}
+
+	/**
+	 * Removes the entry from both views. Safe to call while going backwards through the list returned by {@link #get(UUID)}.
+	 */
+	void remove(final UUID charUuid, final T entry)
+	{
+		final ArrayList<T> entries = m_byUuid.get(charUuid);
+
+		if( entries == null || !entries.remove(entry) )  return;
+
+		m_all.remove(entry);
+
+		if( entries.isEmpty() )
+		{
+			m_byUuid.remove(charUuid);
+		}
+	}
+
+	/**
+	 * Returns the entries for the given characteristic, in the order they were added. Don't modify what's returned, use {@link #remove(UUID, Object)}.
+	 */
+	ArrayList<T> get(final UUID charUuid)
+	{
+		final ArrayList<T> entries = m_byUuid.get(charUuid);
+
+		return entries != null ? entries : m_none;
+	}
+
+	T get(final int index)
+	{
+		return m_all.get(index);
+	}
+
+	int size()
+	{
+		return m_all.size();
+	}
+}
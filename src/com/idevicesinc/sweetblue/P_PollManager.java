@@ -1,7 +1,6 @@
 package com.idevicesinc.sweetblue;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.UUID;
 
 import android.bluetooth.BluetoothGatt;
@@ -61,7 +60,10 @@ class P_PollManager
 	
 	private static class TrackingWrappingReadListener extends PollingReadListener
 	{
-		private byte[] m_lastValue = null;
+		//--- DRK > Last value is copied into a buffer that's reused from read to read instead of holding on to each event's array.
+		private byte[] m_lastValue = BleDevice.EMPTY_BYTE_ARRAY;
+		private int m_lastLength = 0;
+		private boolean m_hasLastValue = false;
 		
 		TrackingWrappingReadListener(ReadWriteListener readWriteListener, Handler handler, boolean postToMain)
 		{
@@ -72,7 +74,9 @@ class P_PollManager
 		{
 			if( event.status() == Status.SUCCESS )
 			{
-				if( event.type().isNativeNotification() || m_lastValue == null || !Arrays.equals(m_lastValue, event.data()) )
+				final byte[] data = event.data();
+				
+				if( event.type().isNativeNotification() || !m_hasLastValue || !isLastValue(data) )
 				{
 					super.onEvent(event);
 				}
@@ -81,15 +85,46 @@ class P_PollManager
 					m_entry.onSuccessOrFailure();
 				}
 				
-				m_lastValue = event.data();
+				setLastValue(data);
 			}
 			else
 			{
-				m_lastValue = null;
+				m_hasLastValue = false;
 				
 				super.onEvent(event);
 			}
 		}
+		
+		private boolean isLastValue(final byte[] data)
+		{
+			if( data == null || data.length != m_lastLength )  return false;
+			
+			for( int i = 0; i < m_lastLength; i++ )
+			{
+				if( data[i] != m_lastValue[i] )  return false;
+			}
+			
+			return true;
+		}
+		
+		private void setLastValue(final byte[] data)
+		{
+			if( data == null )
+			{
+				m_hasLastValue = false;
+				
+				return;
+			}
+			
+			if( m_lastValue.length < data.length )
+			{
+				m_lastValue = new byte[data.length];
+			}
+			
+			System.arraycopy(data, 0, m_lastValue, 0, data.length);
+			m_lastLength = data.length;
+			m_hasLastValue = true;
+		}
 	}
 	
 	private static class CallbackEntry
@@ -160,43 +195,43 @@ class P_PollManager
 			}
 		}
 		
-		void onCharacteristicChangedFromNativeNotify(byte[] value)
+		/**
+		 * Returns the event that was sent, or <code>null</code> if none was, so the next matching entry can send the same one
+		 * instead of building its own.
+		 */
+		ReadWriteEvent onCharacteristicChangedFromNativeNotify(byte[] value, final ReadWriteEvent previousEvent_nullable)
 		{
 			//--- DRK > The early-outs in this method are for when, for example, a native onNotify comes in on a random thread,
 			//---		BleDevice#disconnect() is called on main thread before notify gets passed to main thread (to here).
 			//---		Explicit disconnect clears all service/characteristic state and notify shouldn't get sent to app-land
 			//---		regardless.
-			if( m_device.is(BleDeviceState.DISCONNECTED) )  return;
+			if( m_device.is(BleDeviceState.DISCONNECTED) )  return null;
 			
-			P_Characteristic characteristic = m_device.getServiceManager().getCharacteristic(m_serviceUuid, m_charUuid);
+			final ReadWriteEvent result;
 			
-			if( characteristic == null )  return;
-			
-			BluetoothGattCharacteristic char_native = characteristic.getGuaranteedNative();
-			Type type = P_ServiceManager.modifyResultType(char_native, Type.NOTIFICATION);
-			int gattStatus = BleStatuses.GATT_STATUS_NOT_APPLICABLE;
-			
-			if( value == null )
+			if( previousEvent_nullable != null && (m_serviceUuid == null ? previousEvent_nullable.serviceUuid() == null : m_serviceUuid.equals(previousEvent_nullable.serviceUuid())) )
 			{
-				ReadWriteEvent result = new ReadWriteEvent(m_device, m_serviceUuid, m_charUuid, null, type, Target.CHARACTERISTIC, value, Status.NULL_DATA, gattStatus, 0.0, 0.0);
-
-				m_device.invokeReadWriteCallback(m_pollingReadListener, result);
+				result = previousEvent_nullable;
 			}
 			else
 			{
-				if( value.length == 0 )
-				{
-					ReadWriteEvent result = new ReadWriteEvent(m_device, m_serviceUuid, m_charUuid, null, type, Target.CHARACTERISTIC, value, Status.EMPTY_DATA, gattStatus, 0.0, 0.0);
-					m_device.invokeReadWriteCallback(m_pollingReadListener, result);
-				}
-				else
-				{
-					ReadWriteEvent result = new ReadWriteEvent(m_device, m_serviceUuid, m_charUuid, null, type, Target.CHARACTERISTIC, value, Status.SUCCESS, gattStatus, 0.0, 0.0);
-					m_device.invokeReadWriteCallback(m_pollingReadListener, result);
-				}
+				P_Characteristic characteristic = m_device.getServiceManager().getCharacteristic(m_serviceUuid, m_charUuid);
+				
+				if( characteristic == null )  return null;
+				
+				BluetoothGattCharacteristic char_native = characteristic.getGuaranteedNative();
+				Type type = P_ServiceManager.modifyResultType(char_native, Type.NOTIFICATION);
+				int gattStatus = BleStatuses.GATT_STATUS_NOT_APPLICABLE;
+				Status status = value == null ? Status.NULL_DATA : (value.length == 0 ? Status.EMPTY_DATA : Status.SUCCESS);
+				
+				result = new ReadWriteEvent(m_device, m_serviceUuid, m_charUuid, null, type, Target.CHARACTERISTIC, value, status, gattStatus, 0.0, 0.0);
 			}
 			
+			m_device.invokeReadWriteCallback(m_pollingReadListener, result);
+			
 			m_timeTracker = 0.0;
+			
+			return result;
 		}
 		
 		void onSuccessOrFailure()
@@ -230,8 +265,9 @@ class P_PollManager
 	}
 	
 	private final BleDevice m_device;
-	private final ArrayList<CallbackEntry> m_entries = new ArrayList<CallbackEntry>();
 	
+	//--- DRK > Keyed by characteristic alone since a null service UUID on either side matches any service, so service is checked per entry.
+	private final P_PollIndex<CallbackEntry> m_entries = new P_PollIndex<CallbackEntry>();
 
 	P_PollManager(BleDevice device)
 	{
@@ -246,14 +282,13 @@ class P_PollManager
 		
 		if( !allowDuplicatePollEntries )
 		{
-			for( int i = m_entries.size()-1; i >= 0; i-- )
+			final ArrayList<CallbackEntry> entries = m_entries.get(charUuid);
+			
+			for( int i = entries.size()-1; i >= 0; i-- )
 			{
-				CallbackEntry ithEntry = m_entries.get(i);
+				CallbackEntry ithEntry = entries.get(i);
 
-				if( ithEntry.m_charUuid.equals(charUuid) )
-				{
-					ithEntry.m_interval = interval;
-				}
+				ithEntry.m_interval = interval;
 				
 				if( ithEntry.isFor(serviceUuid, charUuid, interval, /*listener=*/null, usingNotify) )
 				{
@@ -275,20 +310,22 @@ class P_PollManager
 			newEntry.m_notifyState = state;
 		}
 
-		m_entries.add(newEntry);
+		m_entries.add(charUuid, newEntry);
 	}
 	
 	void stopPoll(final UUID serviceUuid, final UUID characteristicUuid, Double interval_nullable, ReadWriteListener listener, boolean usingNotify)
 	{
 		if( m_device.isNull() )  return;
 		
-		for( int i = m_entries.size()-1; i >= 0; i-- )
+		final ArrayList<CallbackEntry> entries = m_entries.get(characteristicUuid);
+		
+		for( int i = entries.size()-1; i >= 0; i-- )
 		{
-			CallbackEntry ithEntry = m_entries.get(i);
+			CallbackEntry ithEntry = entries.get(i);
 			
 			if( ithEntry.isFor(serviceUuid, characteristicUuid, interval_nullable, listener, usingNotify) )
 			{
-				m_entries.remove(i);
+				m_entries.remove(characteristicUuid, ithEntry);
 			}
 		}
 	}
@@ -310,13 +347,18 @@ class P_PollManager
 	{
 		synchronized (m_entries)
 		{
-			for( int i = 0; i < m_entries.size(); i++ )
+			//--- DRK > Events are immutable so entries for the same characteristic can all be handed the same one.
+			ReadWriteEvent event = null;
+			
+			final ArrayList<CallbackEntry> entries = m_entries.get(charUuid);
+			
+			for( int i = 0; i < entries.size(); i++ )
 			{
-				CallbackEntry ithEntry = m_entries.get(i);
+				CallbackEntry ithEntry = entries.get(i);
 				
 				if( ithEntry.isFor(serviceUuid, charUuid) && ithEntry.usingNotify() )
 				{
-					ithEntry.onCharacteristicChangedFromNativeNotify(value);
+					event = ithEntry.onCharacteristicChangedFromNativeNotify(value, event);
 				}
 			}
 		}
@@ -326,9 +368,11 @@ class P_PollManager
 	{
 		E_NotifyState highestState = E_NotifyState.NOT_ENABLED;
 		
-		for( int i = 0; i < m_entries.size(); i++ )
+		final ArrayList<CallbackEntry> entries = m_entries.get(charUuid);
+		
+		for( int i = 0; i < entries.size(); i++ )
 		{
-			CallbackEntry ithEntry = m_entries.get(i);
+			CallbackEntry ithEntry = entries.get(i);
 			
 			if( ithEntry.isFor(serviceUuid, charUuid) )
 			{
@@ -344,9 +388,11 @@ class P_PollManager
 	
 	void onNotifyStateChange(final UUID serviceUuid, final UUID charUuid, E_NotifyState state)
 	{
-		for( int i = 0; i < m_entries.size(); i++ )
+		final ArrayList<CallbackEntry> entries = m_entries.get(charUuid);
+		
+		for( int i = 0; i < entries.size(); i++ )
 		{
-			CallbackEntry ithEntry = m_entries.get(i);
+			CallbackEntry ithEntry = entries.get(i);
 			
 			if( ithEntry.usingNotify() && ithEntry.isFor(serviceUuid, charUuid) )
 			{
@@ -0,0 +1,148 @@
+package com.idevicesinc.sweetblue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+
+import com.idevicesinc.sweetblue.utils.Interval;
+
+/**
+ * Sits in front of {@link BleManager}'s discovery path and swallows advertisements whose scan record is byte-for-byte the same as the
+ * last one let through for the same mac address, until {@link BleManagerConfig#scanDeduplicationWindow} has gone by. RSSI from
+ * every advertisement, swallowed or not, is folded into a running estimate per device.
+ */
+class P_ScanDeduplicator
+{
+	private static class Entry
+	{
+		private byte[] m_scanRecord;
+		private double m_timeLetThrough;
+		private double m_timeLastSeen;
+		private double m_rssi;
+		private boolean m_ignored;
+	}
+
+	private static final double PURGE_RATE = 10.0;
+
+	private final HashMap<String, Entry> m_entries = new HashMap<String, Entry>();
+	private double m_timeTracker = 0.0;
+	private double m_timeSincePurge = 0.0;
+
+	private Entry m_lastEntry = null;
+	private boolean m_letThrough;
+	private int m_rssi;
+
+	/**
+	 * Call for every advertisement, then check {@link #letThrough()} and {@link #getRssi()}.
+	 */
+	void onScan(final BleManagerConfig config, final String macAddress, final int rssi, final byte[] scanRecord_nullable)
+	{
+		final double window = Interval.secs(config.scanDeduplicationWindow);
+
+		if( !Interval.isEnabled(window) )
+		{
+			m_lastEntry = null;
+			m_letThrough = true;
+			m_rssi = rssi;
+
+			return;
+		}
+
+		Entry entry = m_entries.get(macAddress);
+
+		if( entry == null )
+		{
+			entry = new Entry();
+			entry.m_rssi = rssi;
+			entry.m_timeLetThrough = m_timeTracker;
+			entry.m_scanRecord = scanRecord_nullable;
+
+			m_entries.put(macAddress, entry);
+
+			m_letThrough = true;
+		}
+		else
+		{
+			final double smoothing = Math.max(0.0, Math.min(1.0, config.scanRssiSmoothingFactor));
+
+			entry.m_rssi += (rssi - entry.m_rssi) * smoothing;
+
+			if( m_timeTracker - entry.m_timeLetThrough >= window || !Arrays.equals(entry.m_scanRecord, scanRecord_nullable) )
+			{
+				entry.m_timeLetThrough = m_timeTracker;
+				entry.m_scanRecord = scanRecord_nullable;
+				entry.m_ignored = false;
+
+				m_letThrough = true;
+			}
+			else
+			{
+				m_letThrough = false;
+			}
+		}
+
+		entry.m_timeLastSeen = m_timeTracker;
+
+		m_lastEntry = entry;
+
+		m_rssi = (int) Math.round(entry.m_rssi);
+	}
+
+	/**
+	 * Whether the last advertisement passed to {@link #onScan(BleManagerConfig, String, int, byte[])} should go on to the full discovery path.
+	 */
+	boolean letThrough()
+	{
+		return m_letThrough;
+	}
+
+	/**
+	 * The RSSI estimate after the last call to {@link #onScan(BleManagerConfig, String, int, byte[])}.
+	 */
+	int getRssi()
+	{
+		return m_rssi;
+	}
+
+	/**
+	 * Whether the advertisement that was last let through for the same mac address as the last call to
+	 * {@link #onScan(BleManagerConfig, String, int, byte[])} was turned away by a {@link BleManagerConfig.ScanFilter}.
+	 */
+	boolean wasIgnored()
+	{
+		return m_lastEntry != null && m_lastEntry.m_ignored;
+	}
+
+	/**
+	 * Call if the advertisement just let through was turned away by a {@link BleManagerConfig.ScanFilter}, so its duplicates can be dropped early.
+	 */
+	void onIgnored()
+	{
+		if( m_lastEntry != null )
+		{
+			m_lastEntry.m_ignored = true;
+		}
+	}
+
+	void update(final double timeStep, final BleManagerConfig config)
+	{
+		m_timeTracker += timeStep;
+		m_timeSincePurge += timeStep;
+
+		if( m_timeSincePurge < PURGE_RATE )  return;
+
+		m_timeSincePurge = 0.0;
+
+		//--- DRK > Forget devices we haven't heard from in a while so the map doesn't grow forever in busy places.
+		final double maxAge = Math.max(PURGE_RATE, Interval.secs(config.scanDeduplicationWindow));
+		final Iterator<Entry> iterator = m_entries.values().iterator();
+
+		while( iterator.hasNext() )
+		{
+			if( m_timeTracker - iterator.next().m_timeLastSeen > maxAge )
+			{
+				iterator.remove();
+			}
+		}
+	}
+}
@@ -2,9 +2,10 @@ package com.idevicesinc.sweetblue;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
 
+import android.annotation.TargetApi;
 import android.bluetooth.BluetoothDevice;
+import android.os.Build;
 
 import com.idevicesinc.sweetblue.BleManagerConfig.ScanFilter;
 import com.idevicesinc.sweetblue.BleManagerConfig.ScanFilter.Please;
@@ -16,6 +17,7 @@ class P_ScanFilterManager
 	private final ArrayList<BleManagerConfig.ScanFilter> m_filters = new ArrayList<BleManagerConfig.ScanFilter>();
 	private final ScanFilter m_default;
 	private final BleManager m_mngr;
+	private int m_version = 0;
 	
 	P_ScanFilterManager(final BleManager mngr, final ScanFilter defaultFilter)
 	{
@@ -26,11 +28,12 @@ class P_ScanFilterManager
 	void clear()
 	{
 		m_filters.clear();
+		m_version++;
 	}
 	
 	void remove(ScanFilter filter)
 	{
-		while( m_filters.remove(filter) ){};
+		while( m_filters.remove(filter) ){  m_version++;  };
 	}
 	
 	void add(ScanFilter filter)
@@ -43,9 +46,85 @@ class P_ScanFilterManager
 		}
 		
 		m_filters.add(filter);
+		m_version++;
+	}
+
+	/**
+	 * Incremented whenever the set of filters changes, so a running scan can tell if its native filters are stale.
+	 */
+	int getVersion()
+	{
+		return m_version;
+	}
+
+	/**
+	 * Called when a device is added to the {@link BleManager} some way other than being discovered, since native filters compiled
+	 * before that wouldn't let its advertisements through.
+	 */
+	void onKnownDeviceAdded()
+	{
+		m_version++;
+	}
+
+	/**
+	 * Returns native filters equivalent to or looser than the current set of {@link ScanFilter}s, or <code>null</code> if
+	 * the controller can't be told to drop anything, either because {@link BleManagerConfig#offloadScanFilters} is off,
+	 * there are no filters, or one of them can't be expressed natively.
+	 * The Java side of each filter still runs on every discovery, so native filters only need to be a superset.
+	 */
+	@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+	List<android.bluetooth.le.ScanFilter> compileNativeFilters()
+	{
+		if( !m_mngr.m_config.offloadScanFilters )  return null;
+
+		if( m_filters.size() == 0 && m_default == null )  return null;
+
+		final ArrayList<android.bluetooth.le.ScanFilter> nativeFilters = new ArrayList<android.bluetooth.le.ScanFilter>();
+
+		if( m_default != null && !compile(m_default, nativeFilters) )  return null;
+
+		for( int i = 0; i < m_filters.size(); i++ )
+		{
+			if( !compile(m_filters.get(i), nativeFilters) )  return null;
+		}
+
+		//--- DRK > Filters only decide whether new devices get in. Devices we already know about are let through regardless
+		//---		so they keep getting rediscovered, so the controller has to let them through too.
+		final List<BleDevice> knownDevices = m_mngr.m_deviceMngr.getList();
+
+		//--- DRK > Scans start on their own thread so the list has to be locked while we go through it.
+		synchronized (knownDevices)
+		{
+			if( knownDevices.size() > BleManagerConfig.MAX_OFFLOADED_KNOWN_DEVICES )  return null;
+
+			for( int i = 0; i < knownDevices.size(); i++ )
+			{
+				nativeFilters.add(new android.bluetooth.le.ScanFilter.Builder().setDeviceAddress(knownDevices.get(i).getMacAddress()).build());
+			}
+		}
+
+		return nativeFilters;
+	}
+
+	@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+	private static boolean compile(final ScanFilter filter, final List<android.bluetooth.le.ScanFilter> nativeFilters)
+	{
+		//--- DRK > Exact class checks because a subclass could override onEvent() to acknowledge more than the criteria say.
+		if( filter.getClass() == BleManagerConfig.DeclarativeScanFilter.class )
+		{
+			return ((BleManagerConfig.DeclarativeScanFilter) filter).compile(nativeFilters);
+		}
+		else if( filter.getClass() == BleManagerConfig.DefaultScanFilter.class )
+		{
+			return ((BleManagerConfig.DefaultScanFilter) filter).compile(nativeFilters);
+		}
+		else
+		{
+			return false;
+		}
 	}
 	
-	BleManagerConfig.ScanFilter.Please allow(P_Logger logger, BluetoothDevice nativeInstance, List<UUID> uuids, String deviceName, String normalizedDeviceName, byte[] scanRecord, int rssi, State.ChangeIntent lastDisconnectIntent)
+	BleManagerConfig.ScanFilter.Please allow(P_Logger logger, BluetoothDevice nativeInstance, String deviceName, String normalizedDeviceName, byte[] scanRecord, int rssi, State.ChangeIntent lastDisconnectIntent)
 	{
 		if( m_filters.size() == 0 && m_default == null )  return Please.acknowledge();
 		
@@ -53,7 +132,7 @@ class P_ScanFilterManager
 		
 		if( m_default != null )
 		{
-			result = new ScanEvent(nativeInstance, uuids, deviceName, normalizedDeviceName, scanRecord, rssi, lastDisconnectIntent);
+			result = new ScanEvent(nativeInstance, deviceName, normalizedDeviceName, scanRecord, rssi, lastDisconnectIntent);
 			
 			final Please please = m_default.onEvent(result);
 			
@@ -69,7 +148,7 @@ class P_ScanFilterManager
 		
 		for( int i = 0; i < m_filters.size(); i++ )
 		{
-			result = result != null ? result : new ScanEvent(nativeInstance, uuids, deviceName, normalizedDeviceName, scanRecord, rssi, lastDisconnectIntent);
+			result = result != null ? result : new ScanEvent(nativeInstance, deviceName, normalizedDeviceName, scanRecord, rssi, lastDisconnectIntent);
 			
 			final ScanFilter ithFilter = m_filters.get(i);
 			
@@ -328,7 +328,7 @@ class P_ServerServiceManager
 	private void getTasks(ForEach_Breakable<P_Task_AddService> forEach)
 	{
 		final P_TaskQueue queue = m_server.getManager().getTaskQueue();
-		final List<PA_Task> queue_raw = queue.getRaw();
+		final List<PA_Task> queue_raw = queue.getRaw(m_server);
 
 		for( int i = queue_raw.size()-1; i >= 0; i-- )
 		{
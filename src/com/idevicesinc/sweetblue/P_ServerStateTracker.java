@@ -75,7 +75,7 @@ class P_ServerStateTracker
 	public int getStateMask(final String macAddress)
 	{
 		final P_TaskQueue queue = m_server.getManager().getTaskQueue();
-		final List<PA_Task> queue_raw = queue.getRaw();
+		final List<PA_Task> queue_raw = queue.getRaw(m_server);
 		final int bitForUnknownState = BleServerState.DISCONNECTED.bit();
 		final PA_Task current = queue.getCurrent();
 
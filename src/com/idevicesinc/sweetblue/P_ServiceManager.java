@@ -142,7 +142,7 @@ class P_ServiceManager
 			}
 		}
 		
-		if( target == Target.RSSI )  return null;
+		if( target == Target.RSSI || target == Target.MTU || target == Target.CONNECTION_PRIORITY )  return null;
 		
 		final P_Characteristic characteristic = getCharacteristic(serviceUuid, characteristicUuid);
 		
@@ -258,11 +258,11 @@ class P_ServiceManager
 	{
 		synchronized (m_serviceMap)
 		{
-			if( !m_device.getManager().ASSERT(m_device.getNativeGatt() != null) )  return;
+			if( !m_device.getManager().ASSERT(m_device.m_nativeWrapper.getGatt() != null) )  return;
 			
 			//--- DRK > Observed a random concurrent modification exception a few times, so
 			//---		applying this blanket fix to at least avoid that.
-			List<BluetoothGattService> services = m_device.getNativeGatt().getServices();
+			List<BluetoothGattService> services = m_device.m_nativeWrapper.getGatt().getServices();
 			Object[] raw = services.toArray();
 			
 			for( int i = 0; i < raw.length; i++ )
@@ -1,6 +1,8 @@
 package com.idevicesinc.sweetblue;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 
 import android.os.Handler;
@@ -8,8 +10,10 @@ import android.os.Looper;
 
 class P_TaskQueue
 {
-	private final ArrayList<PA_Task> m_queue = new ArrayList<PA_Task>();
+	private final P_TaskQueue_Indexed m_queue = new P_TaskQueue_Indexed();
 	private PA_Task m_current;
+	private final HashMap<Object, PA_Task> m_laneCurrents = new HashMap<Object, PA_Task>();
+	private final ArrayList<PA_Task> m_laneCurrents_updateList = new ArrayList<PA_Task>();
 	private long m_updateCount;
 	private final P_Logger m_logger;
 	private final BleManager m_mngr;
@@ -43,7 +47,41 @@ class P_TaskQueue
 
 	public PA_Task peek()
 	{
-		return m_queue.size() > 0 ? m_queue.get(0) : null;
+		return m_queue.peek();
+	}
+	
+	/**
+	 * Same as {@link #peek()} but only looks at tasks that would run in the same lane as the given task.
+	 * See {@link BleManagerConfig#parallelDeviceTasks}.
+	 */
+	public PA_Task peekInLaneOf(PA_Task task)
+	{
+		if( !isParallel() )  return peek();
+		
+		final Iterator<PA_Task> iterator = task.getDevice() != null ? m_queue.iterator(P_TaskQueue_Indexed.getOwnerKey(task)) : m_queue.iterator_deviceless();
+		
+		return iterator.hasNext() ? iterator.next() : null;
+	}
+	
+	private boolean isParallel()
+	{
+		return m_mngr.m_config.parallelDeviceTasks;
+	}
+	
+	/**
+	 * Returns the key of the lane a task runs in, or <code>null</code> for the global lane that manager and server tasks
+	 * (and every task when {@link BleManagerConfig#parallelDeviceTasks} is off) share.
+	 */
+	private Object getLane(PA_Task task)
+	{
+		return isParallel() && task.getDevice() != null ? P_TaskQueue_Indexed.getOwnerKey(task) : null;
+	}
+	
+	private PA_Task getCurrentInLaneOf(PA_Task task)
+	{
+		final Object lane = getLane(task);
+		
+		return lane == null ? m_current : m_laneCurrents.get(lane);
 	}
 	
 	private void initHandler()
@@ -61,16 +99,36 @@ class P_TaskQueue
 		thread.start();
 	}
 	
+	private void tryCancellingDeviceLanes(PA_Task newTask)
+	{
+		//--- DRK > Things like turning ble off have to be able to cancel whatever is running for every device, not just the global lane.
+		if( m_laneCurrents.isEmpty() || getLane(newTask) != null )  return;
+		
+		final ArrayList<PA_Task> currents = new ArrayList<PA_Task>(m_laneCurrents.values());
+		
+		for( int i = 0; i < currents.size(); i++ )
+		{
+			if( currents.get(i).isCancellableBy(newTask) )
+			{
+				endTask(currents.get(i), PE_TaskState.CANCELLED);
+			}
+		}
+	}
+	
 	private boolean tryCancellingCurrentTask(PA_Task newTask)
 	{
-		if( getCurrent() != null && getCurrent().isCancellableBy(newTask) )
+		tryCancellingDeviceLanes(newTask);
+		
+		final PA_Task current = getCurrentInLaneOf(newTask);
+		
+		if( current != null && current.isCancellableBy(newTask) )
 		{
 //			int soonestSpot = U_BtTaskQueue.findSoonestSpot(m_queue, newTask);
 			
 //			if( soonestSpot == 0 )
 			{
-				endCurrentTask(PE_TaskState.CANCELLED);
-				addAtIndex(newTask, 0);
+				endTask(current, PE_TaskState.CANCELLED);
+				addToFront(newTask);
 				
 				return true;
 			}
@@ -81,16 +139,18 @@ class P_TaskQueue
 	
 	private boolean tryInterruptingCurrentTask(PA_Task newTask)
 	{
-		if( getCurrent() != null && getCurrent().isInterruptableBy(newTask) )
+		final PA_Task current = getCurrentInLaneOf(newTask);
+		
+		if( current != null && current.isInterruptableBy(newTask) )
 		{
 //			int soonestSpot = U_BtTaskQueue.findSoonestSpot(m_queue, newTask);
 			
 //			if( soonestSpot == 0 )
 			{
-				PA_Task current_saved = getCurrent();
-				endCurrentTask(PE_TaskState.INTERRUPTED);
-				addAtIndex(newTask, 0);
-				addAtIndex(current_saved, 1);
+				PA_Task current_saved = current;
+				endTask(current, PE_TaskState.INTERRUPTED);
+				addToFront(newTask);
+				addAfter(current_saved, newTask);
 				
 				return true;
 			}
@@ -101,11 +161,18 @@ class P_TaskQueue
 	
 	private boolean tryInsertingIntoQueue(PA_Task newTask)
 	{
-		int soonestSpot = PU_TaskQueue.findSoonestSpot(m_queue, newTask);
+		if( m_queue.isEmpty() )
+		{
+			addToBack(newTask);
+			
+			return true;
+		}
 		
-		if( soonestSpot >= 0 )
+		PA_Task soonestSpot = m_queue.findSoonestSpot(newTask);
+		
+		if( soonestSpot != null )
 		{
-			addAtIndex(newTask, soonestSpot);
+			addBefore(newTask, soonestSpot);
 			
 			return true;
 		}
@@ -113,44 +180,63 @@ class P_TaskQueue
 		return false;
 	}
 	
+	private void addToFront(PA_Task task)
+	{
+		m_queue.addToFront(task);
+		
+		onAdded(task);
+	}
+	
 	private void addToBack(PA_Task task)
 	{
-		addAtIndex(task, -1);
+		m_queue.addToBack(task);
+		
+		onAdded(task);
+	}
+	
+	private void addBefore(PA_Task task, PA_Task before)
+	{
+		m_queue.addBefore(task, before);
+		
+		onAdded(task);
+	}
+	
+	private void addAfter(PA_Task task, PA_Task after)
+	{
+		m_queue.addAfter(task, after);
+		
+		onAdded(task);
 	}
 	
 	public void softlyCancelTasks(PA_Task task)
 	{
-		for( int i = 0; i < m_queue.size()-1; i++ )
+		//--- DRK > Soft cancellation is always between tasks of the same device or server, so only those are checked.
+		//---		The last task in the queue is skipped as it always has been, since that's usually the task just added.
+		final PA_Task last = m_queue.peekLast();
+		final Iterator<PA_Task> iterator = m_queue.iterator(P_TaskQueue_Indexed.getOwnerKey(task));
+		
+		while( iterator.hasNext() )
 		{
-			PA_Task ithTask = m_queue.get(i);
-			if( ithTask.isSoftlyCancellableBy(task) )
+			PA_Task ithTask = iterator.next();
+			if( ithTask != last && ithTask.isSoftlyCancellableBy(task) )
 			{
 				ithTask.attemptToSoftlyCancel(task);
 			}
 		}
 		
-		if( getCurrent() != null )
+		final PA_Task current = getCurrentInLaneOf(task);
+		
+		if( current != null )
 		{
-			if( getCurrent().isSoftlyCancellableBy(task) )
+			if( current.isSoftlyCancellableBy(task) )
 			{
-				getCurrent().attemptToSoftlyCancel(task);
+				current.attemptToSoftlyCancel(task);
 			}
 		}
 	}
 	
-	private void addAtIndex(PA_Task task, int index)
+	private void onAdded(PA_Task task)
 	{
-		if( index >= 0 )
-		{
-			m_queue.add(index, task);
-		}
-		else
-		{
-			m_queue.add(task);
-			
-			index = m_queue.size()-1;
-		}
-
 		task.assignDefaultOrdinal(this);
 		
 		softlyCancelTasks(task);
@@ -199,7 +285,7 @@ class P_TaskQueue
 			return;
 		}
 
-		if( m_current == null )
+		if( m_current == null || isParallel() )
 		{
 			dequeue();
 		}
@@ -209,29 +295,83 @@ class P_TaskQueue
 			getCurrent().update_internal(timeStep);
 		}
 		
+		if( !m_laneCurrents.isEmpty() )
+		{
+			//--- DRK > Copying because updating a task can end it, which removes it from its lane.
+			m_laneCurrents_updateList.addAll(m_laneCurrents.values());
+			
+			for( int i = 0; i < m_laneCurrents_updateList.size(); i++ )
+			{
+				m_laneCurrents_updateList.get(i).update_internal(timeStep);
+			}
+			
+			m_laneCurrents_updateList.clear();
+		}
+		
 		m_updateCount++;
 	}
 	
 	private void dequeue()
 	{
-		if( !m_mngr.ASSERT(m_current == null) )  return;
-		if( m_queue.size() == 0 )  return;
+		if( m_queue.isEmpty() )  return;
+		
+		boolean dequeued = false;
+		
+		if( m_current == null )
+		{
+			m_current = dequeue(isParallel() ? m_queue.iterator_deviceless() : m_queue.iterator());
+			
+			dequeued = m_current != null;
+		}
 		
-		for( int i = 0; i < m_queue.size(); i++ )
+		//--- DRK > Device lanes sit still while something critical like turning ble on or off is running in the global lane.
+		if( isParallel() && (m_current == null || m_current.getPriority() != PE_TaskPriority.CRITICAL) )
 		{
-			PA_Task newPotentialCurrent = m_queue.get(i);
+			final ArrayList<Object> owners = new ArrayList<Object>(m_queue.getOwnerKeys());
+			
+			for( int i = 0; i < owners.size(); i++ )
+			{
+				final Object owner = owners.get(i);
+				
+				if( m_laneCurrents.containsKey(owner) )  continue;
+				
+				final PA_Task first = m_queue.peek(owner);
+				
+				if( first == null || first.getDevice() == null )  continue;
+				
+				final PA_Task newCurrent = dequeue(m_queue.iterator(owner));
+				
+				if( newCurrent != null )
+				{
+					m_laneCurrents.put(owner, newCurrent);
+					
+					dequeued = true;
+				}
+			}
+		}
+		
+		if( dequeued )
+		{
+			print();
+		}
+	}
+	
+	private PA_Task dequeue(final Iterator<PA_Task> iterator)
+	{
+		while( iterator.hasNext() )
+		{
+			PA_Task newPotentialCurrent = iterator.next();
 			
 			if( newPotentialCurrent.isArmable() )
 			{
-				m_queue.remove(i);
-				m_current = newPotentialCurrent;
-				m_current.arm(m_executeHandler);
+				m_queue.remove(newPotentialCurrent);
+				newPotentialCurrent.arm(m_executeHandler);
 				
-				break;
+				return newPotentialCurrent;
 			}
 		}
 		
-		print();
+		return null;
 	}
 	
 	public long getUpdateCount()
@@ -239,20 +379,76 @@ class P_TaskQueue
 		return m_updateCount;
 	}
 	
+	/**
+	 * Returns the task running in the global lane, which is the only lane unless {@link BleManagerConfig#parallelDeviceTasks} is on.
+	 */
 	public PA_Task getCurrent()
 	{
 //		return m_pendingEndingStateForCurrentTask != null ? null : m_current;
 		return m_current;
 	}
 	
-	private boolean endCurrentTask(PE_TaskState endingState)
+	/**
+	 * Returns the current task in any lane that matches, checking the global lane first.
+	 */
+	private PA_Task findCurrent(Class<? extends PA_Task> taskClass, BleManager mngr_nullable, BleDevice device_nullable, BleServer server_nullable)
+	{
+		if( PU_TaskQueue.isMatch(m_current, taskClass, mngr_nullable, device_nullable, server_nullable) )
+		{
+			return m_current;
+		}
+		
+		if( m_laneCurrents.isEmpty() || server_nullable != null )
+		{
+			return null;
+		}
+		else if( device_nullable != null )
+		{
+			final PA_Task laneCurrent = m_laneCurrents.get(P_TaskQueue_Indexed.getOwnerKey(device_nullable));
+			
+			return PU_TaskQueue.isMatch(laneCurrent, taskClass, mngr_nullable, device_nullable, server_nullable) ? laneCurrent : null;
+		}
+		else
+		{
+			for( PA_Task laneCurrent : m_laneCurrents.values() )
+			{
+				if( PU_TaskQueue.isMatch(laneCurrent, taskClass, mngr_nullable, device_nullable, server_nullable) )
+				{
+					return laneCurrent;
+				}
+			}
+			
+			return null;
+		}
+	}
+	
+	private boolean isCurrent(PA_Task task)
+	{
+		if( task == null )  return false;
+		
+		return task == m_current || m_laneCurrents.get(P_TaskQueue_Indexed.getOwnerKey(task)) == task;
+	}
+	
+	private boolean endTask(PA_Task task, PE_TaskState endingState)
 	{
 		if( !m_mngr.ASSERT(endingState.isEndingState()) )	return false;
-		if( getCurrent() == null ) 							return false;
+		if( task == null ) 									return false;
 //		if( m_pendingEndingStateForCurrentTask != null )	return false;
 		
-		PA_Task current_saved = m_current;
-		m_current = null;
+		if( task == m_current )
+		{
+			m_current = null;
+		}
+		else if( m_laneCurrents.get(P_TaskQueue_Indexed.getOwnerKey(task)) == task )
+		{
+			m_laneCurrents.remove(P_TaskQueue_Indexed.getOwnerKey(task));
+		}
+		else
+		{
+			return false;
+		}
+		
+		PA_Task current_saved = task;
 		current_saved.setEndingState(endingState);
 		
 		print();
@@ -266,7 +462,7 @@ class P_TaskQueue
 	{
 		PA_Task current = getCurrent(taskClass, manager);
 		
-		if( PU_TaskQueue.isMatch(getCurrent(), taskClass, manager, null, null) )
+		if( current != null )
 		{
 			tryEndingTask(current, PE_TaskState.INTERRUPTED);
 			
@@ -308,9 +504,11 @@ class P_TaskQueue
 	
 	private boolean tryEndingTask(final Class<? extends PA_Task> taskClass, final BleManager mngr_nullable, final BleDevice device_nullable, final BleServer server_nullable, final PE_TaskState endingState)
 	{
-		if( PU_TaskQueue.isMatch(getCurrent(), taskClass, mngr_nullable, device_nullable, server_nullable ) )
+		final PA_Task current = findCurrent(taskClass, mngr_nullable, device_nullable, server_nullable);
+		
+		if( current != null )
 		{
-			return endCurrentTask(endingState);
+			return endTask(current, endingState);
 		}
 		
 		return false;
@@ -327,9 +525,9 @@ class P_TaskQueue
 			{
 				synchronized (P_TaskQueue.this)
 				{
-					if( task != null && task == getCurrent())
+					if( isCurrent(task) )
 					{
-						if( !endCurrentTask(endingState) )
+						if( !endTask(task, endingState) )
 						{
 							m_mngr.ASSERT(false);
 						}
@@ -341,29 +539,21 @@ class P_TaskQueue
 	
 	public boolean isCurrent(Class<? extends PA_Task> taskClass, BleManager mngr)
 	{
-		return PU_TaskQueue.isMatch(getCurrent(), taskClass, mngr, null, null);
+		return findCurrent(taskClass, mngr, null, null) != null;
 	}
 	
 	public boolean isCurrent(Class<? extends PA_Task> taskClass, BleDevice device)
 	{
-		return PU_TaskQueue.isMatch(getCurrent(), taskClass, null, device, null);
+		return findCurrent(taskClass, null, device, null) != null;
 	}
 	public boolean isCurrent(Class<? extends PA_Task> taskClass, BleServer server)
 	{
-		return PU_TaskQueue.isMatch(getCurrent(), taskClass, null, null, server);
+		return findCurrent(taskClass, null, null, server) != null;
 	}
 	
 	private boolean isInQueue(Class<? extends PA_Task> taskClass, BleManager mngr_nullable, BleDevice device_nullable, BleServer server_nullable)
 	{
-		for( int i = 0; i < m_queue.size(); i++ )
-		{
-			if( PU_TaskQueue.isMatch(m_queue.get(i), taskClass, mngr_nullable, device_nullable, server_nullable) )
-			{
-				return true;
-			}
-		}
-		
-		return false;
+		return m_queue.find(taskClass, mngr_nullable, device_nullable, server_nullable) != null;
 	}
 	
 	public int getSize()
@@ -371,9 +561,20 @@ class P_TaskQueue
 		return m_queue.size();
 	}
 
-	public List<PA_Task> getRaw()
+	/**
+	 * Returns the number of tasks waiting for the given device, not counting the one currently executing.
+	 */
+	public int getSize(BleDevice device)
+	{
+		return m_queue.size(P_TaskQueue_Indexed.getOwnerKey(device));
+	}
+
+	/**
+	 * Returns a copy of the tasks queued for the given server, in queue order.
+	 */
+	public List<PA_Task> getRaw(BleServer server)
 	{
-		return m_queue;
+		return m_queue.toList(P_TaskQueue_Indexed.getOwnerKey(server));
 	}
 	
 	public boolean isInQueue(Class<? extends PA_Task> taskClass, BleManager mngr)
@@ -398,50 +599,29 @@ class P_TaskQueue
 	
 	public <T extends PA_Task> T get(Class<? extends PA_Task> taskClass, BleManager mngr)
 	{
-		if( PU_TaskQueue.isMatch(getCurrent(), taskClass, mngr, null, null) )
-		{
-			return (T) getCurrent();
-		}
+		final PA_Task current = findCurrent(taskClass, mngr, null, null);
 		
-		for( int i = 0; i < m_queue.size(); i++ )
+		if( current != null )
 		{
-			if( PU_TaskQueue.isMatch(m_queue.get(i), taskClass, mngr, null, null) )
-			{
-				return (T) m_queue.get(i);
-			}
+			return (T) current;
 		}
 		
-		return null;
+		return (T) m_queue.find(taskClass, mngr, null, null);
 	}
 	
 	public <T extends PA_Task> T getCurrent(Class<? extends PA_Task> taskClass, BleDevice device)
 	{
-		if( PU_TaskQueue.isMatch(getCurrent(), taskClass, null, device, null) )
-		{
-			return (T) getCurrent();
-		}
-		
-		return null;
+		return (T) findCurrent(taskClass, null, device, null);
 	}
 	
 	public <T extends PA_Task> T getCurrent(Class<? extends PA_Task> taskClass, BleManager mngr)
 	{
-		if( PU_TaskQueue.isMatch(getCurrent(), taskClass, mngr, null, null) )
-		{
-			return (T) getCurrent();
-		}
-		
-		return null;
+		return (T) findCurrent(taskClass, mngr, null, null);
 	}
 	
 	public <T extends PA_Task> T getCurrent(Class<? extends PA_Task> taskClass, BleServer server)
 	{
-		if( PU_TaskQueue.isMatch(getCurrent(), taskClass, null, null, server) )
-		{
-			return (T) getCurrent();
-		}
-		
-		return null;
+		return (T) findCurrent(taskClass, null, null, server);
 	}
 	
 	void print()
@@ -452,9 +632,9 @@ class P_TaskQueue
 		}
 	}
 	
-	private void clearQueueOf$removeFromQueue(int index)
+	private void clearQueueOf$removeFromQueue(PA_Task task)
 	{
-		PA_Task task = m_queue.remove(index);
+		m_queue.remove(task);
 
 		if( task.wasSoftlyCancelled() )
 		{
@@ -470,45 +650,48 @@ class P_TaskQueue
 	
 	public void clearQueueOf(Class<? extends PA_Task> taskClass, BleManager mngr)
 	{
-		for( int i = m_queue.size()-1; i >= 0; i-- )
+		final List<PA_Task> matches = m_queue.findAll(taskClass, mngr, null, null);
+		
+		for( int i = matches.size()-1; i >= 0; i-- )
 		{
-			if( PU_TaskQueue.isMatch(m_queue.get(i), taskClass, mngr, null, null) )
-			{
-				clearQueueOf$removeFromQueue(i);
-			}
+			clearQueueOf$removeFromQueue(matches.get(i));
 		}
 	}
 	
 	public void clearQueueOf(Class<? extends PA_Task> taskClass, BleDevice device)
 	{
-		for( int i = m_queue.size()-1; i >= 0; i-- )
+		final List<PA_Task> matches = m_queue.findAll(taskClass, null, device, null);
+		
+		for( int i = matches.size()-1; i >= 0; i-- )
 		{
-			if( PU_TaskQueue.isMatch(m_queue.get(i), taskClass, null, device, null) )
-			{
-				clearQueueOf$removeFromQueue(i);
-			}
+			clearQueueOf$removeFromQueue(matches.get(i));
 		}
 	}
 	
 	public void clearQueueOf(Class<? extends PA_Task> taskClass, BleServer server)
 	{
-		for( int i = m_queue.size()-1; i >= 0; i-- )
+		final List<PA_Task> matches = m_queue.findAll(taskClass, null, null, server);
+		
+		for( int i = matches.size()-1; i >= 0; i-- )
 		{
-			if( PU_TaskQueue.isMatch(m_queue.get(i), taskClass, null, null, server) )
-			{
-				clearQueueOf$removeFromQueue(i);
-			}
+			clearQueueOf$removeFromQueue(matches.get(i));
 		}
 	}
 	@Override public String toString()
 	{
-		final String current = m_current != null ? m_current.toString() : "no current task";
+		String current = m_current != null ? m_current.toString() : "no current task";
+		
+		if( !m_laneCurrents.isEmpty() )
+		{
+			current += " " + m_laneCurrents.values();
+		}
+		
 //		if( m_pendingEndingStateForCurrentTask != null)
 //		{
 //			current += "(" + m_pendingEndingStateForCurrentTask.name() +")";
 //		}
 		
-		final String queue = m_queue.size() > 0 ? m_queue.toString() : "[queue empty]";
+		final String queue = !m_queue.isEmpty() ? m_queue.toString() : "[queue empty]";
 		
 		final String toReturn = current + " " + queue;
 		
@@ -0,0 +1,492 @@
+package com.idevicesinc.sweetblue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Ordered storage for the tasks waiting in {@link P_TaskQueue}. Each task is given a sparse <code>long</code> position key
+ * so that it can be inserted anywhere (including at the front for cancellations and interruptions) without shifting
+ * everything after it. Secondary indexes by {@link PE_TaskPriority}, by owner ({@link BleDevice}, {@link BleServer} or
+ * {@link BleManager}), by concrete task class, and of tasks without a device keep inserts and the common
+ * "is there a task of type X for Y" lookups from having to walk the entire queue.
+ * <br><br>
+ * NOTE: {@link #findSoonestSpot(PA_Task)} gives the same answer as a front-to-back scan with {@link PA_Task#isMoreImportantThan(PA_Task)}
+ * as long as overrides of that method only ever promote a task above a non-lower priority task that belongs to the same owner,
+ * which is true of every task in the library.
+ */
+class P_TaskQueue_Indexed
+{
+	private static final long KEY_GAP = 1L << 32;
+
+	private static class Entry
+	{
+		private long m_key;
+		private final PE_TaskPriority m_priority;
+		private final Object m_owner;
+		private final Class<?> m_class;
+		private final boolean m_deviceless;
+
+		Entry(final long key, final PE_TaskPriority priority, final Object owner, final Class<?> taskClass, final boolean deviceless)
+		{
+			m_key = key;
+			m_priority = priority;
+			m_owner = owner;
+			m_class = taskClass;
+			m_deviceless = deviceless;
+		}
+	}
+
+	private final TreeMap<Long, PA_Task> m_ordered = new TreeMap<Long, PA_Task>();
+	private final IdentityHashMap<PA_Task, Entry> m_entries = new IdentityHashMap<PA_Task, Entry>();
+	private final EnumMap<PE_TaskPriority, TreeMap<Long, PA_Task>> m_byPriority = new EnumMap<PE_TaskPriority, TreeMap<Long, PA_Task>>(PE_TaskPriority.class);
+	private final HashMap<Object, TreeMap<Long, PA_Task>> m_byOwner = new HashMap<Object, TreeMap<Long, PA_Task>>();
+	private final HashMap<Class<?>, TreeMap<Long, PA_Task>> m_byClass = new HashMap<Class<?>, TreeMap<Long, PA_Task>>();
+	private final TreeMap<Long, PA_Task> m_deviceless = new TreeMap<Long, PA_Task>();
+
+	P_TaskQueue_Indexed()
+	{
+		for( final PE_TaskPriority priority : PE_TaskPriority.values() )
+		{
+			m_byPriority.put(priority, new TreeMap<Long, PA_Task>());
+		}
+	}
+
+	/**
+	 * Returns the key used by the owner index. {@link BleDevice#equals(BleDevice)} and {@link BleServer#equals(BleServer)} both defer
+	 * to their native objects but don't override {@link Object#hashCode()}, so we key on the native object when there is one.
+	 */
+	static Object getOwnerKey(final PA_Task task)
+	{
+		if( task.getDevice() != null )
+		{
+			return getOwnerKey(task.getDevice());
+		}
+		else if( task.getServer() != null )
+		{
+			return getOwnerKey(task.getServer());
+		}
+		else
+		{
+			return task.getManager();
+		}
+	}
+
+	static Object getOwnerKey(final BleDevice device)
+	{
+		return device.getNative() != null ? device.getNative() : device;
+	}
+
+	static Object getOwnerKey(final BleServer server)
+	{
+		return server.getNative() != null ? server.getNative() : server;
+	}
+
+	public int size()
+	{
+		return m_ordered.size();
+	}
+
+	/**
+	 * Returns the number of tasks belonging to the given owner key (see {@link #getOwnerKey(PA_Task)}).
+	 */
+	public int size(final Object ownerKey)
+	{
+		final TreeMap<Long, PA_Task> owned = m_byOwner.get(ownerKey);
+
+		return owned != null ? owned.size() : 0;
+	}
+
+	public boolean isEmpty()
+	{
+		return m_ordered.isEmpty();
+	}
+
+	public boolean contains(final PA_Task task)
+	{
+		return m_entries.containsKey(task);
+	}
+
+	public PA_Task peek()
+	{
+		return m_ordered.isEmpty() ? null : m_ordered.firstEntry().getValue();
+	}
+
+	public PA_Task peekLast()
+	{
+		return m_ordered.isEmpty() ? null : m_ordered.lastEntry().getValue();
+	}
+
+	/**
+	 * Returns all tasks in queue order.
+	 */
+	public Iterator<PA_Task> iterator()
+	{
+		return m_ordered.values().iterator();
+	}
+
+	/**
+	 * Returns the tasks belonging to the given owner key (see {@link #getOwnerKey(PA_Task)}) in queue order.
+	 */
+	public Iterator<PA_Task> iterator(final Object ownerKey)
+	{
+		final TreeMap<Long, PA_Task> owned = m_byOwner.get(ownerKey);
+
+		return owned != null ? owned.values().iterator() : new ArrayList<PA_Task>(0).iterator();
+	}
+
+	/**
+	 * Returns the tasks that aren't for any {@link BleDevice} (i.e. manager and server tasks) in queue order.
+	 */
+	public Iterator<PA_Task> iterator_deviceless()
+	{
+		return m_deviceless.values().iterator();
+	}
+
+	/**
+	 * Returns the owner keys (see {@link #getOwnerKey(PA_Task)}) that currently have at least one task queued.
+	 */
+	public Set<Object> getOwnerKeys()
+	{
+		return Collections.unmodifiableSet(m_byOwner.keySet());
+	}
+
+	public PA_Task peek(final Object ownerKey)
+	{
+		final TreeMap<Long, PA_Task> owned = m_byOwner.get(ownerKey);
+
+		return owned != null ? owned.firstEntry().getValue() : null;
+	}
+
+	public List<PA_Task> toList()
+	{
+		return new ArrayList<PA_Task>(m_ordered.values());
+	}
+
+	public List<PA_Task> toList(final Object ownerKey)
+	{
+		final TreeMap<Long, PA_Task> owned = m_byOwner.get(ownerKey);
+
+		return owned != null ? new ArrayList<PA_Task>(owned.values()) : new ArrayList<PA_Task>(0);
+	}
+
+	/**
+	 * Returns the task that the given task should be inserted in front of, or <code>null</code> if it should go to the back.
+	 */
+	public PA_Task findSoonestSpot(final PA_Task taskToAdd)
+	{
+		if( m_ordered.isEmpty() )  return null;
+
+		//--- DRK > First the plain priority case...the earliest task with a lower priority that the new task agrees it's more important than.
+		PA_Task soonest = null;
+		long soonestKey = Long.MAX_VALUE;
+		long searchFrom = Long.MIN_VALUE;
+		final int priority = taskToAdd.getPriority().ordinal();
+
+		while( true )
+		{
+			Map.Entry<Long, PA_Task> earliest = null;
+
+			for( int i = 0; i < priority; i++ )
+			{
+				final Map.Entry<Long, PA_Task> ith = m_byPriority.get(PE_TaskPriority.values()[i]).ceilingEntry(searchFrom);
+
+				if( ith != null && (earliest == null || ith.getKey() < earliest.getKey()) )
+				{
+					earliest = ith;
+				}
+			}
+
+			if( earliest == null )  break;
+
+			if( taskToAdd.isMoreImportantThan(earliest.getValue()) )
+			{
+				soonest = earliest.getValue();
+				soonestKey = earliest.getKey();
+
+				break;
+			}
+
+			searchFrom = earliest.getKey() + 1;
+		}
+
+		//--- DRK > Then overrides that let a task jump ahead of an equal or higher priority task of the same device, like a transaction lock.
+		final TreeMap<Long, PA_Task> owned = m_byOwner.get(getOwnerKey(taskToAdd));
+
+		if( owned != null )
+		{
+			for( final Map.Entry<Long, PA_Task> entry : owned.headMap(soonestKey, false).entrySet() )
+			{
+				if( taskToAdd.isMoreImportantThan(entry.getValue()) )
+				{
+					return entry.getValue();
+				}
+			}
+		}
+
+		return soonest;
+	}
+
+	/**
+	 * Returns the first task in queue order that {@link PU_TaskQueue#isMatch(PA_Task, Class, BleManager, BleDevice, BleServer)}s, or <code>null</code>.
+	 */
+	public PA_Task find(final Class<? extends PA_Task> taskClass, final BleManager mngr_nullable, final BleDevice device_nullable, final BleServer server_nullable)
+	{
+		if( mngr_nullable == null && (device_nullable != null || server_nullable != null) )
+		{
+			final Object ownerKey = device_nullable != null ? getOwnerKey(device_nullable) : getOwnerKey(server_nullable);
+			final TreeMap<Long, PA_Task> owned = m_byOwner.get(ownerKey);
+
+			if( owned == null )  return null;
+
+			for( final PA_Task task : owned.values() )
+			{
+				if( PU_TaskQueue.isMatch(task, taskClass, mngr_nullable, device_nullable, server_nullable) )
+				{
+					return task;
+				}
+			}
+
+			return null;
+		}
+		else
+		{
+			Map.Entry<Long, PA_Task> earliest = null;
+
+			for( final Map.Entry<Class<?>, TreeMap<Long, PA_Task>> entry : m_byClass.entrySet() )
+			{
+				if( !taskClass.isAssignableFrom(entry.getKey()) )  continue;
+
+				for( final Map.Entry<Long, PA_Task> ith : entry.getValue().entrySet() )
+				{
+					if( earliest != null && ith.getKey() > earliest.getKey() )  break;
+
+					if( PU_TaskQueue.isMatch(ith.getValue(), taskClass, mngr_nullable, device_nullable, server_nullable) )
+					{
+						earliest = ith;
+
+						break;
+					}
+				}
+			}
+
+			return earliest != null ? earliest.getValue() : null;
+		}
+	}
+
+	/**
+	 * Returns every matching task in queue order.
+	 */
+	public List<PA_Task> findAll(final Class<? extends PA_Task> taskClass, final BleManager mngr_nullable, final BleDevice device_nullable, final BleServer server_nullable)
+	{
+		final ArrayList<PA_Task> toReturn = new ArrayList<PA_Task>();
+
+		if( mngr_nullable == null && (device_nullable != null || server_nullable != null) )
+		{
+			final Object ownerKey = device_nullable != null ? getOwnerKey(device_nullable) : getOwnerKey(server_nullable);
+			final TreeMap<Long, PA_Task> owned = m_byOwner.get(ownerKey);
+
+			if( owned == null )  return toReturn;
+
+			for( final PA_Task task : owned.values() )
+			{
+				if( PU_TaskQueue.isMatch(task, taskClass, mngr_nullable, device_nullable, server_nullable) )
+				{
+					toReturn.add(task);
+				}
+			}
+		}
+		else
+		{
+			final TreeMap<Long, PA_Task> matches = new TreeMap<Long, PA_Task>();
+
+			for( final Map.Entry<Class<?>, TreeMap<Long, PA_Task>> entry : m_byClass.entrySet() )
+			{
+				if( !taskClass.isAssignableFrom(entry.getKey()) )  continue;
+
+				for( final Map.Entry<Long, PA_Task> ith : entry.getValue().entrySet() )
+				{
+					if( PU_TaskQueue.isMatch(ith.getValue(), taskClass, mngr_nullable, device_nullable, server_nullable) )
+					{
+						matches.put(ith.getKey(), ith.getValue());
+					}
+				}
+			}
+
+			toReturn.addAll(matches.values());
+		}
+
+		return toReturn;
+	}
+
+	public void addToFront(final PA_Task task)
+	{
+		final long key = m_ordered.isEmpty() ? 0 : m_ordered.firstKey() - KEY_GAP;
+
+		put(task, key);
+	}
+
+	public void addToBack(final PA_Task task)
+	{
+		final long key = m_ordered.isEmpty() ? 0 : m_ordered.lastKey() + KEY_GAP;
+
+		put(task, key);
+	}
+
+	/**
+	 * Inserts the task right in front of <code>before</code>, or at the back if <code>before</code> is <code>null</code>.
+	 */
+	public void addBefore(final PA_Task task, final PA_Task before)
+	{
+		if( before == null || !m_entries.containsKey(before) )
+		{
+			addToBack(task);
+
+			return;
+		}
+
+		long beforeKey = m_entries.get(before).m_key;
+		Long previousKey = m_ordered.lowerKey(beforeKey);
+
+		if( previousKey != null && beforeKey - previousKey < 2 )
+		{
+			renumber();
+
+			beforeKey = m_entries.get(before).m_key;
+			previousKey = m_ordered.lowerKey(beforeKey);
+		}
+
+		final long key = previousKey == null ? beforeKey - KEY_GAP : previousKey + (beforeKey - previousKey) / 2;
+
+		put(task, key);
+	}
+
+	/**
+	 * Inserts the task right behind <code>after</code>, or at the back if <code>after</code> is <code>null</code>.
+	 */
+	public void addAfter(final PA_Task task, final PA_Task after)
+	{
+		if( after == null || !m_entries.containsKey(after) )
+		{
+			addToBack(task);
+
+			return;
+		}
+
+		final Long nextKey = m_ordered.higherKey(m_entries.get(after).m_key);
+
+		if( nextKey == null )
+		{
+			addToBack(task);
+		}
+		else
+		{
+			addBefore(task, m_ordered.get(nextKey));
+		}
+	}
+
+	public boolean remove(final PA_Task task)
+	{
+		final Entry entry = m_entries.remove(task);
+
+		if( entry == null )  return false;
+
+		m_ordered.remove(entry.m_key);
+		m_byPriority.get(entry.m_priority).remove(entry.m_key);
+		removeFrom(m_byOwner, entry.m_owner, entry.m_key);
+		removeFrom(m_byClass, entry.m_class, entry.m_key);
+
+		if( entry.m_deviceless )
+		{
+			m_deviceless.remove(entry.m_key);
+		}
+
+		return true;
+	}
+
+	private void put(final PA_Task task, final long key)
+	{
+		final Entry entry = new Entry(key, task.getPriority(), getOwnerKey(task), task.getClass(), task.getDevice() == null);
+
+		m_entries.put(task, entry);
+
+		index(task, entry);
+	}
+
+	private void index(final PA_Task task, final Entry entry)
+	{
+		m_ordered.put(entry.m_key, task);
+		m_byPriority.get(entry.m_priority).put(entry.m_key, task);
+		addTo(m_byOwner, entry.m_owner, entry.m_key, task);
+		addTo(m_byClass, entry.m_class, entry.m_key, task);
+
+		if( entry.m_deviceless )
+		{
+			m_deviceless.put(entry.m_key, task);
+		}
+	}
+
+	private void renumber()
+	{
+		final List<PA_Task> tasks = toList();
+
+		m_ordered.clear();
+		m_byOwner.clear();
+		m_byClass.clear();
+		m_deviceless.clear();
+
+		for( final TreeMap<Long, PA_Task> bucket : m_byPriority.values() )
+		{
+			bucket.clear();
+		}
+
+		for( int i = 0; i < tasks.size(); i++ )
+		{
+			final PA_Task ith = tasks.get(i);
+			final Entry entry = m_entries.get(ith);
+
+			entry.m_key = i * KEY_GAP;
+
+			index(ith, entry);
+		}
+	}
+
+	private static <K> void addTo(final HashMap<K, TreeMap<Long, PA_Task>> index, final K key, final long position, final PA_Task task)
+	{
+		TreeMap<Long, PA_Task> tasks = index.get(key);
+
+		if( tasks == null )
+		{
+			tasks = new TreeMap<Long, PA_Task>();
+			index.put(key, tasks);
+		}
+
+		tasks.put(position, task);
+	}
+
+	private static <K> void removeFrom(final HashMap<K, TreeMap<Long, PA_Task>> index, final K key, final long position)
+	{
+		final TreeMap<Long, PA_Task> tasks = index.get(key);
+
+		if( tasks == null )  return;
+
+		tasks.remove(position);
+
+		if( tasks.isEmpty() )
+		{
+			index.remove(key);
+		}
+	}
+
+	@Override public String toString()
+	{
+		return m_ordered.values().toString();
+	}
+}
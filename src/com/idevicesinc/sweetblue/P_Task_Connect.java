@@ -2,14 +2,14 @@ package com.idevicesinc.sweetblue;
 
 import com.idevicesinc.sweetblue.BleDevice.ConnectionFailListener.AutoConnectUsage;
 
-import android.bluetooth.BluetoothGatt;
+import com.idevicesinc.sweetblue.backend.stack.Backend_BleGatt;
 
 class P_Task_Connect extends PA_Task_RequiresBleOn
 {
 	private final PE_TaskPriority m_priority;
 	private final boolean m_explicit;
 	private int m_gattStatus = BleStatuses.GATT_STATUS_NOT_APPLICABLE;
-	private BluetoothGatt m_gatt = null;
+	private Backend_BleGatt m_gatt = null;
 	
 	private AutoConnectUsage m_autoConnectUsage = AutoConnectUsage.UNKNOWN;
 	
@@ -52,7 +52,7 @@ class P_Task_Connect extends PA_Task_RequiresBleOn
 			
 			m_autoConnectUsage = useAutoConnect ? AutoConnectUsage.USED : AutoConnectUsage.NOT_USED;
 			
-			m_gatt = getDevice().getNative().connectGatt(getDevice().getManager().getApplicationContext(), useAutoConnect, getDevice().getListeners());
+			m_gatt = getManager().getStack().connectGatt(getManager().getApplicationContext(), getDevice().getNative(), useAutoConnect, getDevice().getListeners());
 			
 			if( m_gatt == null )
 			{
@@ -85,7 +85,7 @@ class P_Task_Connect extends PA_Task_RequiresBleOn
 		return m_autoConnectUsage;
 	}
 	
-	public BluetoothGatt getGatt()
+	public Backend_BleGatt getGatt()
 	{
 		return m_gatt;
 	}
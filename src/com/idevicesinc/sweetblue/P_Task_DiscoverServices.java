@@ -1,7 +1,5 @@
 package com.idevicesinc.sweetblue;
 
-import java.lang.reflect.Method;
-
 import com.idevicesinc.sweetblue.BleManager.UhOhListener.UhOh;
 
 class P_Task_DiscoverServices extends PA_Task_RequiresConnection
@@ -25,7 +23,7 @@ class P_Task_DiscoverServices extends PA_Task_RequiresConnection
 			}
 		}
 		
-		if( !getDevice().getNativeGatt().discoverServices() )
+		if( !getDevice().m_nativeWrapper.getGatt().discoverServices() )
 		{
 			failImmediately();
 			
@@ -35,20 +33,10 @@ class P_Task_DiscoverServices extends PA_Task_RequiresConnection
 	
 	private void refresh()
 	{
-		try
-		{
-	        Method method = getDevice().getNativeGatt().getClass().getMethod("refresh", (Class[]) null);
-	        Boolean result = (Boolean) method.invoke(getDevice().getNativeGatt(), (Object[]) null);
-	        
-	        if( result == null || !result )
-	        {
-//	        	failImmediately();
-	        }
-	    }
-		catch (Exception e)
+		if( !getDevice().m_nativeWrapper.getGatt().refresh() )
 		{
-//			fail();
-	    }
+//			failImmediately();
+		}
 	}
 	
 	@Override public PE_TaskPriority getPriority()
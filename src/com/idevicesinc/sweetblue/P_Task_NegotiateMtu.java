@@ -0,0 +1,91 @@
+package com.idevicesinc.sweetblue;
+
+import android.bluetooth.BluetoothGatt;
+
+import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener.ReadWriteEvent;
+import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener.Status;
+import com.idevicesinc.sweetblue.utils.Utils;
+
+/**
+ * Asks the remote device for a bigger ATT MTU so that {@link P_Task_Write} can send more per packet.
+ */
+class P_Task_NegotiateMtu extends PA_Task_Transactionable implements PA_Task.I_StateListener
+{
+	protected final P_WrappingReadWriteListener m_readWriteListener;
+	private final int m_mtu;
+
+	public P_Task_NegotiateMtu(BleDevice device, int mtu, P_WrappingReadWriteListener listener, BleTransaction txn_nullable, PE_TaskPriority priority)
+	{
+		super(device, txn_nullable, false, priority);
+
+		m_readWriteListener = listener;
+		m_mtu = mtu;
+	}
+
+	private ReadWriteEvent newEvent(Status status, int gattStatus, int mtu)
+	{
+		return new ReadWriteEvent(getDevice(), /*mtu=*/mtu, status, gattStatus, getTotalTime(), getTotalTimeExecuting());
+	}
+
+	@Override protected void onNotExecutable()
+	{
+		super.onNotExecutable();
+
+		getDevice().invokeReadWriteCallback(m_readWriteListener, newEvent(Status.NOT_CONNECTED, BleStatuses.GATT_STATUS_NOT_APPLICABLE, 0));
+	}
+
+	private void fail(Status status, int gattStatus)
+	{
+		this.fail();
+
+		getDevice().invokeReadWriteCallback(m_readWriteListener, newEvent(status, gattStatus, 0));
+	}
+
+	@Override public void execute()
+	{
+		if( !getDevice().m_nativeWrapper.getGatt().requestMtu(m_mtu) )
+		{
+			fail(Status.FAILED_TO_SEND_OUT, BleStatuses.GATT_STATUS_NOT_APPLICABLE);
+		}
+	}
+
+	private void succeed(int gattStatus, int mtu)
+	{
+		super.succeed();
+
+		final ReadWriteEvent event = newEvent(Status.SUCCESS, gattStatus, mtu);
+
+		getDevice().invokeReadWriteCallback(m_readWriteListener, event);
+	}
+
+	public void onMtuChanged(BluetoothGatt gatt, int mtu, int status)
+	{
+		getManager().ASSERT(gatt == getDevice().getNativeGatt());
+
+		if( Utils.isSuccess(status) )
+		{
+			succeed(status, mtu);
+		}
+		else
+		{
+			fail(Status.REMOTE_GATT_FAILURE, status);
+		}
+	}
+
+	@Override public void onStateChange(PA_Task task, PE_TaskState state)
+	{
+		if( state == PE_TaskState.TIMED_OUT )
+		{
+			getDevice().invokeReadWriteCallback(m_readWriteListener, newEvent(Status.TIMED_OUT, BleStatuses.GATT_STATUS_NOT_APPLICABLE, 0));
+		}
+		else if( state == PE_TaskState.SOFTLY_CANCELLED )
+		{
+			getDevice().invokeReadWriteCallback(m_readWriteListener, newEvent(getCancelType(), BleStatuses.GATT_STATUS_NOT_APPLICABLE, 0));
+		}
+	}
+
+	@Override protected BleTask getTaskType()
+	{
+		return BleTask.NEGOTIATE_MTU;
+	}
+}
@@ -4,6 +4,7 @@ import java.util.UUID;
 
 import android.bluetooth.BluetoothGatt;
 import android.bluetooth.BluetoothGattCharacteristic;
+import android.util.Log;
 
 import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener;
 import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener.ReadWriteEvent;
@@ -47,7 +48,7 @@ class P_Task_Read extends PA_Task_ReadOrWrite
 			return;
 		}
 		
-		if( !getDevice().getNativeGatt().readCharacteristic(char_native) )
+		if( !getDevice().m_nativeWrapper.getGatt().readCharacteristic(char_native) )
 		{
 			fail(Status.FAILED_TO_SEND_OUT, BleStatuses.GATT_STATUS_NOT_APPLICABLE, Target.CHARACTERISTIC, getCharUuid(), ReadWriteEvent.NON_APPLICABLE_UUID);
 			
@@ -105,7 +106,7 @@ class P_Task_Read extends PA_Task_ReadOrWrite
 		
 		if( state == PE_TaskState.TIMED_OUT )
 		{
-			m_logger.w(m_logger.charName(getCharUuid()) + " read timed out!");
+			if( m_logger.isEnabled(Log.WARN) )  m_logger.w(m_logger.charName(getCharUuid()) + " read timed out!");
 
 			final ReadWriteEvent event = newReadWriteEvent(Status.TIMED_OUT, BleStatuses.GATT_STATUS_NOT_APPLICABLE, Target.CHARACTERISTIC, getServiceUuid(), getCharUuid(), ReadWriteEvent.NON_APPLICABLE_UUID);
 			
@@ -45,7 +45,7 @@ class P_Task_ReadRssi extends PA_Task_Transactionable implements PA_Task.I_State
 
 	@Override public void execute()
 	{
-		if( !getDevice().getNativeGatt().readRemoteRssi() )
+		if( !getDevice().m_nativeWrapper.getGatt().readRemoteRssi() )
 		{
 			fail(Status.FAILED_TO_SEND_OUT, BleStatuses.GATT_STATUS_NOT_APPLICABLE);
 		}
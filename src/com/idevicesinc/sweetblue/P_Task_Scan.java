@@ -2,6 +2,7 @@ package com.idevicesinc.sweetblue;
 
 import android.annotation.TargetApi;
 import android.bluetooth.le.ScanCallback;
+import android.bluetooth.le.ScanFilter;
 import android.bluetooth.le.ScanRecord;
 import android.bluetooth.le.ScanResult;
 import android.bluetooth.le.ScanSettings;
@@ -11,6 +12,7 @@ import com.idevicesinc.sweetblue.PA_StateTracker.E_Intent;
 import com.idevicesinc.sweetblue.utils.Interval;
 import com.idevicesinc.sweetblue.utils.Utils;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @TargetApi(Build.VERSION_CODES.LOLLIPOP)
@@ -30,6 +32,11 @@ class P_Task_Scan extends PA_Task_RequiresBleOn
 
 	private final int m_retryCountMax = 3;
 
+	private int m_nativeFilterVersion = 0;
+
+	//--- DRK > What the running native scan was started with, null if it wasn't given any filters.
+	private List<ScanFilter> m_nativeFilters = null;
+
 	private final ScanCallback m_scanCallback_postLollipop = !Utils.isLollipop() ? null : new ScanCallback()
 	{
 		public void onScanResult(final int callbackType, final ScanResult result)
@@ -47,8 +54,26 @@ class P_Task_Scan extends PA_Task_RequiresBleOn
 			});
 		}
 
-		public void onBatchScanResults(List<ScanResult> results)
+		public void onBatchScanResults(final List<ScanResult> results)
 		{
+			if( results == null || results.isEmpty() )  return;
+
+			getManager().m_nativeStateTracker.append(BleManagerState.SCANNING, getIntent(), BleStatuses.GATT_STATUS_NOT_APPLICABLE);
+
+			final boolean post;
+
+			synchronized (m_pendingBatch)
+			{
+				m_pendingBatch.addAll(results);
+
+				post = !m_batchPosted;
+				m_batchPosted = true;
+			}
+
+			if( post )
+			{
+				getManager().getUpdateLoop().postIfNeeded(m_processBatch);
+			}
 		}
 
 		public void onScanFailed(int errorCode)
@@ -67,6 +92,42 @@ class P_Task_Scan extends PA_Task_RequiresBleOn
 
 	};
 	
+	//--- DRK > Results from onBatchScanResults() pile up here and get drained on the update thread by m_processBatch,
+	//---		at most BleManagerConfig#maxScanBatchSize at a time, so a whole batch costs one post instead of one per result.
+	private final ArrayList<ScanResult> m_pendingBatch = new ArrayList<ScanResult>();
+	private final ArrayList<ScanResult> m_processingBatch = new ArrayList<ScanResult>();
+	private boolean m_batchPosted = false;
+
+	private final Runnable m_processBatch = new Runnable()
+	{
+		@Override public void run()
+		{
+			final int maxBatchSize = Math.max(1, getManager().m_config.maxScanBatchSize);
+			final boolean more;
+
+			synchronized (m_pendingBatch)
+			{
+				final int count = Math.min(maxBatchSize, m_pendingBatch.size());
+				final List<ScanResult> toProcess = m_pendingBatch.subList(0, count);
+
+				m_processingBatch.addAll(toProcess);
+				toProcess.clear();
+
+				more = !m_pendingBatch.isEmpty();
+				m_batchPosted = more;
+			}
+
+			getManager().onDiscovered_batch(m_processingBatch);
+
+			m_processingBatch.clear();
+
+			if( more )
+			{
+				getManager().getUpdateLoop().forcePost(this);
+			}
+		}
+	};
+
 	public P_Task_Scan(BleManager manager, I_StateListener listener, double scanTime, boolean isPoll)
 	{
 		super(manager, listener);
@@ -96,7 +157,7 @@ class P_Task_Scan extends PA_Task_RequiresBleOn
 		//---		but then by the time we get here it can be false. isExecutable() is currently not thread-safe
 		//---		either, thus we're doing the manual check in the native stack. Before 5.0 the scan would just fail
 		//---		so we'd fail as we do below, but Android 5.0 makes this an exception for at least some phones (OnePlus One (A0001)).
-		if( !getManager().getNative().getAdapter().isEnabled() )
+		if( !getManager().getStack().isEnabled() )
 		{
 			fail();
 
@@ -108,7 +169,7 @@ class P_Task_Scan extends PA_Task_RequiresBleOn
 			m_mode = E_Mode.BLE;
 			getManager().m_nativeStateTracker.append(BleManagerState.SCANNING, getIntent(), BleStatuses.GATT_STATUS_NOT_APPLICABLE);
 
-			startNativeScan_postLollipop();
+			startNativeScan_postLollipop(compileNativeFilters());
 		}
 		else
 		{
@@ -121,7 +182,19 @@ class P_Task_Scan extends PA_Task_RequiresBleOn
 		}
 	}
 
-	private void startNativeScan_postLollipop()
+	/**
+	 * Returns <code>null</code> instead of an empty list, so that two sets of filters that both let everything through compare equal.
+	 */
+	private List<ScanFilter> compileNativeFilters()
+	{
+		final List<ScanFilter> nativeFilters = getManager().getFilterManager().compileNativeFilters();
+
+		m_nativeFilterVersion = getManager().getFilterManager().getVersion();
+
+		return nativeFilters != null && !nativeFilters.isEmpty() ? nativeFilters : null;
+	}
+
+	private void startNativeScan_postLollipop(final List<ScanFilter> nativeFilters_nullable)
 	{
 		final int scanMode;
 
@@ -141,9 +214,18 @@ class P_Task_Scan extends PA_Task_RequiresBleOn
 			scanMode = ScanSettings.SCAN_MODE_LOW_POWER;
 		}
 
-		final ScanSettings scanSettings = !Utils.isLollipop() ? null : new ScanSettings.Builder().setScanMode(scanMode).build();
+		final ScanSettings.Builder builder = new ScanSettings.Builder().setScanMode(scanMode);
 
-		getManager().getNativeAdapter().getBluetoothLeScanner().startScan(null, scanSettings, m_scanCallback_postLollipop);
+		if( Interval.isEnabled(getManager().m_config.scanReportDelay) && getManager().getStack().isScanBatchingSupported() )
+		{
+			builder.setReportDelay(getManager().m_config.scanReportDelay.millis());
+		}
+
+		final ScanSettings scanSettings = builder.build();
+
+		m_nativeFilters = nativeFilters_nullable;
+
+		getManager().getStack().startScan(nativeFilters_nullable, scanSettings, m_scanCallback_postLollipop);
 	}
 
 	private P_Task_Scan.E_Mode startNativeScan_preLollipop(final E_Intent intent)
@@ -155,7 +237,7 @@ class P_Task_Scan extends PA_Task_RequiresBleOn
 
 		while( retryCount <= m_retryCountMax )
 		{
-			final boolean success = getManager().getNativeAdapter().startLeScan(getManager().m_listeners.m_scanCallback_preLollipop);
+			final boolean success = getManager().getStack().startLeScan(getManager().m_listeners.m_scanCallback_preLollipop);
 
 			if( success )
 			{
@@ -190,11 +272,11 @@ class P_Task_Scan extends PA_Task_RequiresBleOn
 					//---		Android somehow, sometimes, keeps the same actual BleManager instance in memory, so it's not
 					//---		far-fetched to assume that the scan from the previous app run can sometimes still be ongoing.
 					//m_btMngr.getAdapter().stopLeScan(m_listeners.m_scanCallback);
-					getManager().getNativeAdapter().stopLeScan(getManager().m_listeners.m_scanCallback_preLollipop);
+					getManager().getStack().stopLeScan(getManager().m_listeners.m_scanCallback_preLollipop);
 				}
 				else
 				{
-					m_logger.w("Failed startLeScan() attempt number " + retryCount + ". Trying again...");
+					m_logger.w_format("Failed startLeScan() attempt number {}. Trying again...", retryCount);
 				}
 			}
 
@@ -219,7 +301,7 @@ class P_Task_Scan extends PA_Task_RequiresBleOn
 		{
 			if( retryCount > 0 )
 			{
-				m_logger.w("Started native scan with " + (retryCount+1) + " attempts.");
+				m_logger.w_format("Started native scan with {} attempts.", retryCount+1);
 			}
 
 			if( getManager().m_config.enableCrashResolver )
@@ -237,7 +319,7 @@ class P_Task_Scan extends PA_Task_RequiresBleOn
 	{
 		if( getManager().m_config.revertToClassicDiscoveryIfNeeded )
 		{
-			if( !getManager().getNativeAdapter().startDiscovery() )
+			if( !getManager().getStack().startDiscovery() )
 			{
 				m_logger.w("Classic discovery failed to start!");
 
@@ -275,7 +357,7 @@ class P_Task_Scan extends PA_Task_RequiresBleOn
 	{
 		if( this.getState() == PE_TaskState.EXECUTING && getTimeout() == Interval.INFINITE.secs() )
 		{
-			if( getTotalTimeExecuting() >= getMinimumScanTime() && getQueue().getSize() > 0 && isSelfInterruptableBy(getQueue().peek()) )
+			if( getTotalTimeExecuting() >= getMinimumScanTime() && getQueue().getSize() > 0 && isSelfInterruptableBy(getQueue().peekInLaneOf(this)) )
 			{
 				selfInterrupt();
 			}
@@ -284,6 +366,26 @@ class P_Task_Scan extends PA_Task_RequiresBleOn
 				selfInterrupt();
 			}
 		}
+
+		restartNativeScanIfFiltersChanged();
+	}
+
+	private void restartNativeScanIfFiltersChanged()
+	{
+		//--- DRK > A filter added through BleManager#startScan() while we're already scanning would otherwise never see
+		//---		anything the controller is dropping for us, so start over with a freshly compiled set. This includes going from
+		//---		no native filters to some, since an unfiltered scan costs more. But many changes compile to the same native
+		//---		filters, and restarting costs us whatever was in flight, so only restart if the compiled set actually differs.
+		if( this.getState() != PE_TaskState.EXECUTING || m_mode != E_Mode.BLE )  return;
+		if( m_nativeFilterVersion == getManager().getFilterManager().getVersion() )  return;
+
+		final List<ScanFilter> nativeFilters = compileNativeFilters();
+
+		if( m_nativeFilters == null ? nativeFilters == null : m_nativeFilters.equals(nativeFilters) )  return;
+
+		getManager().getStack().stopScan(m_scanCallback_postLollipop);
+
+		startNativeScan_postLollipop(nativeFilters);
 	}
 	
 	@Override public PE_TaskPriority getPriority()
@@ -0,0 +1,85 @@
+package com.idevicesinc.sweetblue;
+
+import android.bluetooth.BluetoothGatt;
+
+import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener.ReadWriteEvent;
+import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener.Status;
+
+/**
+ * Wraps {@link BluetoothGatt#requestConnectionPriority(int)}. There's no callback for it, so the task ends as soon as the request is sent.
+ */
+class P_Task_SetConnectionPriority extends PA_Task_Transactionable implements PA_Task.I_StateListener
+{
+	protected final P_WrappingReadWriteListener m_readWriteListener;
+	private final BleConnectionPriority m_priority;
+
+	public P_Task_SetConnectionPriority(BleDevice device, BleConnectionPriority priority, P_WrappingReadWriteListener listener, BleTransaction txn_nullable, PE_TaskPriority taskPriority)
+	{
+		super(device, txn_nullable, false, taskPriority);
+
+		m_readWriteListener = listener;
+		m_priority = priority;
+	}
+
+	BleConnectionPriority getConnectionPriority()
+	{
+		return m_priority;
+	}
+
+	private ReadWriteEvent newEvent(Status status, int gattStatus)
+	{
+		return new ReadWriteEvent(getDevice(), m_priority, status, gattStatus, getTotalTime(), getTotalTimeExecuting());
+	}
+
+	@Override protected void onNotExecutable()
+	{
+		super.onNotExecutable();
+
+		getDevice().invokeReadWriteCallback(m_readWriteListener, newEvent(Status.NOT_CONNECTED, BleStatuses.GATT_STATUS_NOT_APPLICABLE));
+	}
+
+	private void fail(Status status, int gattStatus)
+	{
+		this.fail();
+
+		getDevice().invokeReadWriteCallback(m_readWriteListener, newEvent(status, gattStatus));
+	}
+
+	@Override public void execute()
+	{
+		if( !getDevice().m_nativeWrapper.getGatt().requestConnectionPriority(m_priority.getNativeValue()) )
+		{
+			fail(Status.FAILED_TO_SEND_OUT, BleStatuses.GATT_STATUS_NOT_APPLICABLE);
+		}
+		else
+		{
+			getDevice().updateConnectionPriority(m_priority);
+
+			succeed();
+		}
+	}
+
+	@Override protected void succeed()
+	{
+		super.succeed();
+
+		getDevice().invokeReadWriteCallback(m_readWriteListener, newEvent(Status.SUCCESS, BleStatuses.GATT_STATUS_NOT_APPLICABLE));
+	}
+
+	@Override public void onStateChange(PA_Task task, PE_TaskState state)
+	{
+		if( state == PE_TaskState.TIMED_OUT )
+		{
+			getDevice().invokeReadWriteCallback(m_readWriteListener, newEvent(Status.TIMED_OUT, BleStatuses.GATT_STATUS_NOT_APPLICABLE));
+		}
+		else if( state == PE_TaskState.SOFTLY_CANCELLED )
+		{
+			getDevice().invokeReadWriteCallback(m_readWriteListener, newEvent(getCancelType(), BleStatuses.GATT_STATUS_NOT_APPLICABLE));
+		}
+	}
+
+	@Override protected BleTask getTaskType()
+	{
+		return BleTask.SET_CONNECTION_PRIORITY;
+	}
+}
@@ -5,6 +5,7 @@ import java.util.UUID;
 import android.bluetooth.BluetoothGatt;
 import android.bluetooth.BluetoothGattCharacteristic;
 import android.bluetooth.BluetoothGattDescriptor;
+import android.util.Log;
 
 import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener.ReadWriteEvent;
 import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener.Status;
@@ -80,7 +81,7 @@ class P_Task_ToggleNotify extends PA_Task_ReadOrWrite implements PA_Task.I_State
 			return;
 		}
 		
-		if( !getDevice().getNativeGatt().setCharacteristicNotification(char_native, m_enable) )
+		if( !getDevice().m_nativeWrapper.getGatt().setCharacteristicNotification(char_native, m_enable) )
 		{
 			this.fail(Status.FAILED_TO_TOGGLE_NOTIFICATION, BleStatuses.GATT_STATUS_NOT_APPLICABLE, Target.CHARACTERISTIC, getCharUuid(), ReadWriteEvent.NON_APPLICABLE_UUID);
 			
@@ -108,7 +109,7 @@ class P_Task_ToggleNotify extends PA_Task_ReadOrWrite implements PA_Task.I_State
 			return;
 		}
 
-		if( !getDevice().getNativeGatt().writeDescriptor(descriptor) )
+		if( !getDevice().m_nativeWrapper.getGatt().writeDescriptor(descriptor) )
 		{
 			this.fail(Status.FAILED_TO_SEND_OUT, BleStatuses.GATT_STATUS_NOT_APPLICABLE, Target.DESCRIPTOR, getCharUuid(), m_descUuid);
 
@@ -181,7 +182,7 @@ class P_Task_ToggleNotify extends PA_Task_ReadOrWrite implements PA_Task.I_State
 		
 		if( state == PE_TaskState.TIMED_OUT )
 		{
-			m_logger.w(m_logger.charName(getCharUuid()) + " descriptor write timed out!");
+			if( m_logger.isEnabled(Log.WARN) )  m_logger.w(m_logger.charName(getCharUuid()) + " descriptor write timed out!");
 
 			final ReadWriteEvent event = newReadWriteEvent(Status.TIMED_OUT, BleStatuses.GATT_STATUS_NOT_APPLICABLE, Target.DESCRIPTOR, getServiceUuid(), getCharUuid(), m_descUuid);
 			getDevice().invokeReadWriteCallback(m_readWriteListener, event);
@@ -30,14 +30,14 @@ class P_Task_TurnBleOff extends PA_Task
 	
 	@Override public void execute()
 	{
-		if( getManager().getNative().getAdapter().getState() == BluetoothAdapter.STATE_OFF )
+		if( getManager().getStack().getState() == BluetoothAdapter.STATE_OFF )
 		{
 			this.redundant();
 			
 			return;
 		}
 		
-		if( getManager().getNative().getAdapter().getState() == BluetoothAdapter.STATE_TURNING_OFF )
+		if( getManager().getStack().getState() == BluetoothAdapter.STATE_TURNING_OFF )
 		{
 			return;
 		}
@@ -46,7 +46,7 @@ class P_Task_TurnBleOff extends PA_Task
 		{
 			this.fail();
 		}
-		else if( !getManager().getNative().getAdapter().disable() )
+		else if( !getManager().getStack().disable() )
 		{
 			this.fail();
 			
@@ -35,14 +35,14 @@ class P_Task_TurnBleOn extends PA_Task
 
 	@Override public void execute()
 	{
-		if( getManager().getNative().getAdapter().getState() == BluetoothAdapter.STATE_ON )
+		if( getManager().getStack().getState() == BluetoothAdapter.STATE_ON )
 		{
 			this.redundant();
 			
 			return;
 		}
 		
-		if( getManager().getNative().getAdapter().getState() == BluetoothAdapter.STATE_TURNING_ON )
+		if( getManager().getStack().getState() == BluetoothAdapter.STATE_TURNING_ON )
 		{
 			return;
 		}
@@ -51,7 +51,7 @@ class P_Task_TurnBleOn extends PA_Task
 		{
 			this.fail();
 		}
-		else if( !getManager().getNative().getAdapter().enable() )
+		else if( !getManager().getStack().enable() )
 		{
 			this.fail();
 			
@@ -2,9 +2,9 @@ package com.idevicesinc.sweetblue;
 
 import java.util.UUID;
 
-import android.annotation.SuppressLint;
 import android.bluetooth.BluetoothGatt;
 import android.bluetooth.BluetoothGattCharacteristic;
+import android.util.Log;
 
 import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener.ReadWriteEvent;
 import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener.Status;
@@ -13,10 +13,15 @@ import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener.Type;
 import com.idevicesinc.sweetblue.utils.FutureData;
 import com.idevicesinc.sweetblue.utils.Utils;
 import com.idevicesinc.sweetblue.BleManager.UhOhListener.UhOh;
+import com.idevicesinc.sweetblue.backend.stack.Backend_BleGatt;
 
 class P_Task_Write extends PA_Task_ReadOrWrite
 {
-	public static final int MTU_LIMIT = 20;
+	//--- DRK > Opcode plus attribute handle, which take up the rest of each packet.
+	private static final int ATT_WRITE_HEADER_SIZE = 3;
+
+	//--- DRK > Reliable write chunks go out as Prepare Write Requests, which also carry a 2-byte value offset.
+	private static final int ATT_PREPARE_WRITE_HEADER_SIZE = 5;
 	
 	private byte[] m_allDataToSend;
 
@@ -24,7 +29,8 @@ class P_Task_Write extends PA_Task_ReadOrWrite
 	
 	private int m_offset = 0;
 	private byte[] m_maxChunkBuffer;
-	private final int m_maxChunkSize = MTU_LIMIT;
+	private int m_maxSingleWriteSize = BleDeviceConfig.DEFAULT_MTU_SIZE - ATT_WRITE_HEADER_SIZE;
+	private int m_maxChunkSize = BleDeviceConfig.DEFAULT_MTU_SIZE - ATT_PREPARE_WRITE_HEADER_SIZE;
 	
 	private byte[] m_lastChunkBufferSent;
 	
@@ -45,7 +51,7 @@ class P_Task_Write extends PA_Task_ReadOrWrite
 	
 	private boolean weBeChunkin()
 	{
-		return m_allDataToSend != null && m_allDataToSend.length > m_maxChunkSize;
+		return m_allDataToSend != null && m_allDataToSend.length > m_maxSingleWriteSize;
 	}
 
 	@Override public void execute()
@@ -54,6 +60,10 @@ class P_Task_Write extends PA_Task_ReadOrWrite
 
 		m_allDataToSend = m_futureData.getData();
 
+		//--- DRK > Read here rather than in the constructor since an MTU negotiation could have been queued ahead of us.
+		m_maxSingleWriteSize = getDevice().getEffectiveMtu() - ATT_WRITE_HEADER_SIZE;
+		m_maxChunkSize = getDevice().getEffectiveMtu() - ATT_PREPARE_WRITE_HEADER_SIZE;
+
 		if( m_allDataToSend == null )
 		{
 			fail(Status.NULL_DATA, BleStatuses.GATT_STATUS_NOT_APPLICABLE, Target.CHARACTERISTIC, getCharUuid(), ReadWriteEvent.NON_APPLICABLE_UUID);
@@ -82,7 +92,7 @@ class P_Task_Write extends PA_Task_ReadOrWrite
 		}
 		else
 		{
-			if( !getDevice().getNativeGatt().beginReliableWrite() )
+			if( !getDevice().m_nativeWrapper.getGatt().beginReliableWrite() )
 			{
 				fail(Status.FAILED_TO_SEND_OUT, BleStatuses.GATT_STATUS_NOT_APPLICABLE, Target.CHARACTERISTIC, getCharUuid(), ReadWriteEvent.NON_APPLICABLE_UUID);
 				
@@ -95,7 +105,8 @@ class P_Task_Write extends PA_Task_ReadOrWrite
 	
 	private byte[] getMaxChunkBuffer()
 	{
-		m_maxChunkBuffer = m_maxChunkBuffer != null ? m_maxChunkBuffer : new byte[m_maxChunkSize];
+		//--- DRK > The chunk size follows the MTU, which can change between executions of the same task.
+		m_maxChunkBuffer = m_maxChunkBuffer != null && m_maxChunkBuffer.length == m_maxChunkSize ? m_maxChunkBuffer : new byte[m_maxChunkSize];
 		Utils.memset(m_maxChunkBuffer, (byte) 0x0, m_maxChunkBuffer.length);
 		
 		return m_maxChunkBuffer;
@@ -124,7 +135,7 @@ class P_Task_Write extends PA_Task_ReadOrWrite
 			return;
 		}
 		
-		if( !getDevice().getNativeGatt().writeCharacteristic(char_native) )
+		if( !getDevice().m_nativeWrapper.getGatt().writeCharacteristic(char_native) )
 		{
 			fail(Status.FAILED_TO_SEND_OUT, BleStatuses.GATT_STATUS_NOT_APPLICABLE, Target.CHARACTERISTIC, getCharUuid(), ReadWriteEvent.NON_APPLICABLE_UUID);
 			
@@ -157,7 +168,7 @@ class P_Task_Write extends PA_Task_ReadOrWrite
 				 
 				 if( m_offset >= m_allDataToSend.length )
 				 {
-					 if( !gatt.executeReliableWrite() )
+					 if( !getDevice().m_nativeWrapper.getGatt().executeReliableWrite() )
 					 {
 						 //TODO: Use new more accurate error status?
 						 fail(Status.REMOTE_GATT_FAILURE, gattStatus, Target.CHARACTERISTIC, uuid, ReadWriteEvent.NON_APPLICABLE_UUID);
@@ -181,7 +192,7 @@ class P_Task_Write extends PA_Task_ReadOrWrite
 		 {
 			 if( weBeChunkin() )
 			 {
-				 abortReliableWrite(getDevice().getNativeGatt());
+				 abortReliableWrite(getDevice().m_nativeWrapper.getGatt());
 			 }
 			 
 			 fail(Status.REMOTE_GATT_FAILURE, gattStatus, Target.CHARACTERISTIC, uuid, ReadWriteEvent.NON_APPLICABLE_UUID);
@@ -205,28 +216,19 @@ class P_Task_Write extends PA_Task_ReadOrWrite
 	
 	private boolean canAbortReliableWrite()
 	{
-		return getDevice().getNativeGatt() != null && weBeChunkin();
+		return getDevice().m_nativeWrapper.getGatt() != null && weBeChunkin();
 	}
 	
-	@SuppressLint("NewApi")
-	@SuppressWarnings("deprecation")
-	private void abortReliableWrite(final BluetoothGatt gatt)
+	private void abortReliableWrite(final Backend_BleGatt gatt)
 	{
-		if( android.os.Build.VERSION.SDK_INT < 19 )
-		{
-			gatt.abortReliableWrite(getDevice().getNative());
-		}
-		else
-		{
-			gatt.abortReliableWrite();	
-		}
+		gatt.abortReliableWrite(getDevice().getNative());
 	}
 	
 	private void abortReliableWriteIfNeeded()
 	{
 		if( canAbortReliableWrite() )
 		{
-			abortReliableWrite(getDevice().getNativeGatt());
+			abortReliableWrite(getDevice().m_nativeWrapper.getGatt());
 		}
 	}
 	
@@ -236,7 +238,7 @@ class P_Task_Write extends PA_Task_ReadOrWrite
 		
 		if( state == PE_TaskState.TIMED_OUT )
 		{
-			m_logger.w(m_logger.charName(getCharUuid()) + " write timed out!");
+			if( m_logger.isEnabled(Log.WARN) )  m_logger.w(m_logger.charName(getCharUuid()) + " write timed out!");
 			
 			abortReliableWriteIfNeeded();
 			
@@ -0,0 +1,325 @@
+package com.idevicesinc.sweetblue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.UUID;
+
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.util.Log;
+
+import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener.ReadWriteEvent;
+import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener.Status;
+import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener.Target;
+import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener.Type;
+import com.idevicesinc.sweetblue.utils.FutureData;
+import com.idevicesinc.sweetblue.utils.TimeEstimator;
+import com.idevicesinc.sweetblue.utils.Utils;
+
+/**
+ * Sends a whole stream of data as back-to-back {@link BluetoothGattCharacteristic#WRITE_TYPE_NO_RESPONSE} packets from one task, so the queue
+ * is held for the duration of the transfer instead of having a task per packet. Each {@link android.bluetooth.BluetoothGattCallback#onCharacteristicWrite(BluetoothGatt, BluetoothGattCharacteristic, int)}
+ * counts as a credit for one more packet, with up to {@link BleDeviceConfig#writeStreamWindow} packets handed to the stack at once.
+ */
+class P_Task_WriteStream extends PA_Task_ReadOrWrite
+{
+	//--- DRK > Opcode plus attribute handle, which take up the rest of each packet.
+	private static final int ATT_WRITE_HEADER_SIZE = 3;
+
+	static interface I_Source
+	{
+		/**
+		 * Fills the start of the buffer with the next packet's worth of data and returns how much was filled, or -1 when there's no more.
+		 */
+		int read(byte[] buffer) throws IOException;
+	}
+
+	static class InputStreamSource implements I_Source
+	{
+		private final InputStream m_stream;
+
+		InputStreamSource(final InputStream stream)
+		{
+			m_stream = stream;
+		}
+
+		@Override public int read(final byte[] buffer) throws IOException
+		{
+			int filled = 0;
+
+			//--- DRK > Keep reading until the packet is full so short reads from the stream don't turn into short packets.
+			while( filled < buffer.length )
+			{
+				final int read = m_stream.read(buffer, filled, buffer.length - filled);
+
+				if( read < 0 )  break;
+
+				filled += read;
+			}
+
+			return filled > 0 ? filled : -1;
+		}
+	}
+
+	/**
+	 * Each {@link FutureData} is split into packets on its own, so a packet never holds the end of one and the start of the next.
+	 */
+	static class FutureDataSource implements I_Source
+	{
+		private final Iterator<? extends FutureData> m_sequence;
+
+		private byte[] m_current = null;
+		private int m_offset = 0;
+
+		FutureDataSource(final Iterator<? extends FutureData> sequence)
+		{
+			m_sequence = sequence;
+		}
+
+		@Override public int read(final byte[] buffer)
+		{
+			while( m_current == null || m_offset >= m_current.length )
+			{
+				if( !m_sequence.hasNext() )  return -1;
+
+				final FutureData next = m_sequence.next();
+
+				m_current = next != null ? next.getData() : null;
+				m_offset = 0;
+			}
+
+			final int count = Math.min(buffer.length, m_current.length - m_offset);
+
+			System.arraycopy(m_current, m_offset, buffer, 0, count);
+			m_offset += count;
+
+			return count;
+		}
+	}
+
+	private final I_Source m_source;
+	private final int m_window;
+	private final TimeEstimator m_estimator;
+
+	private byte[] m_packetBuffer;
+	private byte[] m_pendingPacket = null;
+	private boolean m_sourceDone = false;
+	private int m_inFlight = 0;
+	private long m_bytesSent = 0;
+	private long m_lastCreditTime = 0;
+
+	private Integer m_originalWriteType = null;
+
+	public P_Task_WriteStream(BleDevice device, P_Characteristic characteristic, final I_Source source, final int window, final TimeEstimator estimator, boolean requiresBonding, P_WrappingReadWriteListener writeListener, BleTransaction txn, PE_TaskPriority priority)
+	{
+		super(device, characteristic, writeListener, requiresBonding, txn, priority);
+
+		m_source = source;
+		m_window = Math.max(1, window);
+		m_estimator = estimator;
+	}
+
+	@Override protected ReadWriteEvent newReadWriteEvent(final Status status, final int gattStatus, final Target target, final UUID serviceUuid, final UUID charUuid, final UUID descUuid)
+	{
+		return new ReadWriteEvent(getDevice(), serviceUuid, charUuid, descUuid, Type.WRITE_NO_RESPONSE, target, null, status, gattStatus, getTotalTime(), getTotalTimeExecuting());
+	}
+
+	TimeEstimator getEstimator()
+	{
+		return m_estimator;
+	}
+
+	long getBytesSent()
+	{
+		return m_bytesSent;
+	}
+
+	@Override public void execute()
+	{
+		super.execute();
+
+		final BluetoothGattCharacteristic char_native = getDevice().getNativeCharacteristic(getServiceUuid(), getCharUuid());
+
+		if( char_native == null )
+		{
+			fail(Status.NO_MATCHING_TARGET, BleStatuses.GATT_STATUS_NOT_APPLICABLE, Target.CHARACTERISTIC, getCharUuid(), ReadWriteEvent.NON_APPLICABLE_UUID);
+
+			return;
+		}
+
+		//--- DRK > Read here rather than in the constructor since an MTU negotiation could have been queued ahead of us.
+		m_packetBuffer = new byte[getDevice().getEffectiveMtu() - ATT_WRITE_HEADER_SIZE];
+
+		m_originalWriteType = char_native.getWriteType();
+		char_native.setWriteType(BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE);
+
+		m_lastCreditTime = System.currentTimeMillis();
+
+		if( !readNextPacket() )  return;
+
+		if( m_pendingPacket == null )
+		{
+			fail(Status.EMPTY_DATA, BleStatuses.GATT_STATUS_NOT_APPLICABLE, Target.CHARACTERISTIC, getCharUuid(), ReadWriteEvent.NON_APPLICABLE_UUID);
+
+			return;
+		}
+
+		pump(char_native);
+	}
+
+	/**
+	 * Reads into {@link #m_pendingPacket}, leaving it <code>null</code> at the end of the source. Returns <code>false</code> if the task failed.
+	 */
+	private boolean readNextPacket()
+	{
+		final int length;
+
+		try
+		{
+			length = m_source.read(m_packetBuffer);
+		}
+		catch(IOException e)
+		{
+			if( m_logger.isEnabled(Log.WARN) )  m_logger.w(m_logger.charName(getCharUuid()) + " write stream couldn't read its source: " + e);
+
+			fail(Status.NULL_DATA, BleStatuses.GATT_STATUS_NOT_APPLICABLE, Target.CHARACTERISTIC, getCharUuid(), ReadWriteEvent.NON_APPLICABLE_UUID);
+
+			return false;
+		}
+
+		if( length < 0 )
+		{
+			m_pendingPacket = null;
+			m_sourceDone = true;
+		}
+		else if( length == m_packetBuffer.length )
+		{
+			m_pendingPacket = m_packetBuffer;
+		}
+		else
+		{
+			m_pendingPacket = new byte[length];
+			System.arraycopy(m_packetBuffer, 0, m_pendingPacket, 0, length);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Hands packets to the stack until the window is full, the stack pushes back, or the source runs dry.
+	 */
+	private void pump(final BluetoothGattCharacteristic char_native)
+	{
+		while( m_pendingPacket != null && m_inFlight < m_window )
+		{
+			if( !char_native.setValue(m_pendingPacket) )
+			{
+				fail(Status.FAILED_TO_SET_VALUE_ON_TARGET, BleStatuses.GATT_STATUS_NOT_APPLICABLE, Target.CHARACTERISTIC, getCharUuid(), ReadWriteEvent.NON_APPLICABLE_UUID);
+
+				return;
+			}
+
+			//--- DRK > The stack refuses while its own buffers are full, so just hold on to the packet and try again on the next
+			//---		credit or update. If it never frees up then the task times out like any other stalled write.
+			if( !getDevice().m_nativeWrapper.getGatt().writeCharacteristic(char_native) )  return;
+
+			m_inFlight++;
+			m_bytesSent += m_pendingPacket.length;
+
+			if( !readNextPacket() )  return;
+		}
+
+		if( m_sourceDone && m_inFlight == 0 )
+		{
+			succeed();
+		}
+	}
+
+	@Override public void update(final double timeStep)
+	{
+		super.update(timeStep);
+
+		if( getState() != PE_TaskState.EXECUTING || m_inFlight > 0 || m_pendingPacket == null )  return;
+
+		final BluetoothGattCharacteristic char_native = getDevice().getNativeCharacteristic(getServiceUuid(), getCharUuid());
+
+		if( char_native == null )  return;
+
+		pump(char_native);
+	}
+
+	public void onCharacteristicWrite(final BluetoothGatt gatt, final UUID uuid, final int gattStatus)
+	{
+		getManager().ASSERT(gatt == getDevice().getNativeGatt());
+
+		if( !this.isFor(uuid) )  return;
+
+		if( !acknowledgeCallback(gattStatus) )  return;
+
+		if( !Utils.isSuccess(gattStatus) )
+		{
+			fail(Status.REMOTE_GATT_FAILURE, gattStatus, Target.CHARACTERISTIC, uuid, ReadWriteEvent.NON_APPLICABLE_UUID);
+
+			return;
+		}
+
+		final long now = System.currentTimeMillis();
+
+		m_inFlight = Math.max(0, m_inFlight - 1);
+		m_estimator.addTime((now - m_lastCreditTime) / 1000.0);
+		m_lastCreditTime = now;
+
+		resetTimeout(getTimeout());
+
+		pump(getDevice().getNativeCharacteristic(getServiceUuid(), getCharUuid()));
+	}
+
+	@Override protected void succeed()
+	{
+		super.succeed();
+
+		final ReadWriteEvent event = newReadWriteEvent(Status.SUCCESS, BluetoothGatt.GATT_SUCCESS, getDefaultTarget(), getServiceUuid(), getCharUuid(), ReadWriteEvent.NON_APPLICABLE_UUID);
+		getDevice().invokeReadWriteCallback(m_readWriteListener, event);
+	}
+
+	private void restoreWriteType()
+	{
+		if( m_originalWriteType == null )  return;
+
+		final BluetoothGattCharacteristic char_native = getDevice().getNativeCharacteristic(getServiceUuid(), getCharUuid());
+
+		if( char_native != null )
+		{
+			char_native.setWriteType(m_originalWriteType);
+		}
+
+		m_originalWriteType = null;
+	}
+
+	@Override public void onStateChange(final PA_Task task, final PE_TaskState state)
+	{
+		super.onStateChange(task, state);
+
+		if( state.isEndingState() )
+		{
+			restoreWriteType();
+		}
+
+		if( state == PE_TaskState.TIMED_OUT )
+		{
+			if( m_logger.isEnabled(Log.WARN) )  m_logger.w(m_logger.charName(getCharUuid()) + " write stream timed out after " + m_bytesSent + " bytes!");
+
+			getDevice().invokeReadWriteCallback(m_readWriteListener, newReadWriteEvent(Status.TIMED_OUT, BleStatuses.GATT_STATUS_NOT_APPLICABLE, Target.CHARACTERISTIC, getServiceUuid(), getCharUuid(), ReadWriteEvent.NON_APPLICABLE_UUID));
+		}
+		else if( state == PE_TaskState.SOFTLY_CANCELLED )
+		{
+			getDevice().invokeReadWriteCallback(m_readWriteListener, newReadWriteEvent(getCancelType(), BleStatuses.GATT_STATUS_NOT_APPLICABLE, Target.CHARACTERISTIC, getServiceUuid(), getCharUuid(), ReadWriteEvent.NON_APPLICABLE_UUID));
+		}
+	}
+
+	@Override protected BleTask getTaskType()
+	{
+		return BleTask.WRITE_STREAM;
+	}
+}
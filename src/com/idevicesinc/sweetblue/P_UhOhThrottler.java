@@ -45,7 +45,7 @@ class P_UhOhThrottler
 	
 	synchronized void uhOh(UhOh reason, double throttle)
 	{
-		m_mngr.getLogger().w(reason+"");
+		m_mngr.getLogger().w_format("{}", reason);
 		
 		if( throttle > 0.0 )
 		{
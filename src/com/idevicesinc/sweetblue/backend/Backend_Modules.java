@@ -3,7 +3,9 @@ package com.idevicesinc.sweetblue.backend;
 import com.idevicesinc.sweetblue.backend.historical.Backend_HistoricalDataList;
 import com.idevicesinc.sweetblue.backend.historical.Backend_HistoricalDataList_Default;
 import com.idevicesinc.sweetblue.backend.historical.Backend_HistoricalDatabase;
-import com.idevicesinc.sweetblue.backend.historical.Backend_HistoricalDatabase_Default;
+import com.idevicesinc.sweetblue.backend.historical.Backend_HistoricalDatabase_Sqlite;
+import com.idevicesinc.sweetblue.backend.stack.Backend_BleStack;
+import com.idevicesinc.sweetblue.backend.stack.Backend_BleStack_Default;
 
 /**
  * A collection of {@link java.lang.Class} instances used through {@link Class#newInstance()} to create instances of backend modules.
@@ -11,5 +13,6 @@ import com.idevicesinc.sweetblue.backend.historical.Backend_HistoricalDatabase_D
 public class Backend_Modules
 {
 	public static Class<? extends Backend_HistoricalDataList> HISTORICAL_DATA_LIST = Backend_HistoricalDataList_Default.class;
-	public static Class<? extends Backend_HistoricalDatabase> HISTORICAL_DATABASE = Backend_HistoricalDatabase_Default.class;
+	public static Class<? extends Backend_HistoricalDatabase> HISTORICAL_DATABASE = Backend_HistoricalDatabase_Sqlite.class;
+	public static Class<? extends Backend_BleStack> BLE_STACK = Backend_BleStack_Default.class;
 }
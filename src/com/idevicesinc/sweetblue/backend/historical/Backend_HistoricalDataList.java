@@ -6,7 +6,9 @@ import com.idevicesinc.sweetblue.utils.ForEach_Breakable;
 import com.idevicesinc.sweetblue.utils.ForEach_Returning;
 import com.idevicesinc.sweetblue.utils.ForEach_Void;
 import com.idevicesinc.sweetblue.utils.HistoricalData;
+import com.idevicesinc.sweetblue.utils.HistoricalDataBuckets;
 import com.idevicesinc.sweetblue.utils.HistoricalDataCursor;
+import com.idevicesinc.sweetblue.utils.HistoricalDataValueType;
 import com.idevicesinc.sweetblue.utils.UpdateLoop;
 import com.idevicesinc.sweetblue.utils.UuidNameMap;
 
@@ -52,11 +54,18 @@ public interface Backend_HistoricalDataList
 
 	String getMacAddress();
 
-	void load(final AsyncLoadCallback callback_nullable);
+	/**
+	 * Loads data from the database into memory, keeping at most the newest <code>limit</code> entries in memory once done.
+	 */
+	void load(final long limit, final AsyncLoadCallback callback_nullable);
 
 	int getLoadState();
 
 	HistoricalDataCursor getCursor(final EpochTimeRange range);
 
+	HistoricalDataBuckets getBuckets(final EpochTimeRange range, final long bucketWidth_millis, final HistoricalDataValueType valueType, final int byteOffset);
+
 	EpochTimeRange getRange();
+
+	void compact();
 }
@@ -1,34 +1,51 @@
 package com.idevicesinc.sweetblue.backend.historical;
 
-import android.util.Log;
-
 import com.idevicesinc.sweetblue.BleDeviceConfig;
 import com.idevicesinc.sweetblue.utils.EmptyIterator;
+import com.idevicesinc.sweetblue.utils.EpochTime;
 import com.idevicesinc.sweetblue.utils.EpochTimeRange;
 import com.idevicesinc.sweetblue.utils.ForEach_Breakable;
 import com.idevicesinc.sweetblue.utils.ForEach_Returning;
 import com.idevicesinc.sweetblue.utils.ForEach_Void;
 import com.idevicesinc.sweetblue.utils.HistoricalData;
+import com.idevicesinc.sweetblue.utils.HistoricalDataBuckets;
 import com.idevicesinc.sweetblue.utils.HistoricalDataCursor;
-import com.idevicesinc.sweetblue.utils.SingleElementIterator;
+import com.idevicesinc.sweetblue.utils.HistoricalDataValueType;
 import com.idevicesinc.sweetblue.utils.UpdateLoop;
 
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.UUID;
 
+/**
+ * Keeps historical data in memory using a {@link P_HistoricalDataStore}, so a sample costs its timestamp, its payload, and a couple
+ * of ints of bookkeeping rather than a {@link HistoricalData} plus its {@link com.idevicesinc.sweetblue.utils.EpochTime}.
+ * Range lookups are binary searches over the timestamps, and the limit from
+ * {@link BleDeviceConfig.HistoricalDataLogFilter.Please} is enforced by dropping the oldest samples.
+ */
 public class Backend_HistoricalDataList_Default implements Backend_HistoricalDataList
 {
 	private static final Iterator<HistoricalData> EMPTY_ITERATOR = new EmptyIterator<HistoricalData>();
 	private static final HistoricalDataCursor EMPTY_CURSOR = new P_HistoricalDataCursor_Empty();
 
-	private HistoricalData m_data = null;
+	private final P_HistoricalDataStore m_store = new P_HistoricalDataStore();
+	private final P_HistoricalDataIndexCache_Lru m_indexCache = new P_HistoricalDataIndexCache_Lru();
+
+	private int m_lookupFrom;
+	private int m_lookupTo;
 
 	private String m_macAddress;
+	private UUID m_uuid;
 	private Backend_HistoricalDatabase m_database;
+	private UpdateLoop m_updateLoop;
+
+	//--- DRK > Last limit passed in through an add, so a load doesn't pull in more than the next add would keep.
+	private long m_limit = Long.MAX_VALUE;
+	private long m_loadLimit = Long.MAX_VALUE;
 
-	private boolean m_hasShownWarning_read = false;
-	private boolean m_hasShownWarning_write = false;
+	private int m_loadState = LOAD_STATE__NOT_LOADED;
+	private final ArrayList<AsyncLoadCallback> m_loadCallbacks = new ArrayList<AsyncLoadCallback>();
 
 	public Backend_HistoricalDataList_Default()
 	{
@@ -37,71 +54,99 @@ public class Backend_HistoricalDataList_Default implements Backend_HistoricalDat
 	@Override public void init(final Backend_HistoricalDatabase database, final UpdateLoop updateLoop, final String macAddress, final UUID uuid, final String uuidName, final boolean hasExistingTable)
 	{
 		m_database = database;
+		m_updateLoop = updateLoop;
 		m_macAddress = macAddress;
+		m_uuid = uuid;
 	}
 
-	private boolean isDataInRange(final EpochTimeRange range)
+	/**
+	 * Finds the index bounds of the given range and leaves them in {@link #m_lookupFrom} and {@link #m_lookupTo} (exclusive).
+	 */
+	private void lookup(final EpochTimeRange range)
 	{
-		return m_data != null && m_data.getEpochTime().isBetween_inclusive(range);
-	}
+		final long fromDate = range.from().toMilliseconds();
+		final long toDate = range.to().toMilliseconds();
+		final int size = m_store.getSize();
+		final long firstIndex = m_store.getEvictedCount();
 
-	private void printWarning_read()
-	{
-		if( m_hasShownWarning_read )  return;
+		final int slot = m_indexCache.find(fromDate, toDate);
 
-		printWarning();
-
-		m_hasShownWarning_read = true;
-	}
+		if( slot >= 0 )
+		{
+			m_lookupFrom = (int) (m_indexCache.getFromIndex(slot, firstIndex) - firstIndex);
+			m_lookupTo = (int) (m_indexCache.getToIndex(slot, firstIndex) - firstIndex);
 
-	private void printWarning_write()
-	{
-		if( m_hasShownWarning_write )  return;
+			return;
+		}
 
-		printWarning();
+		//--- DRK > Ranges that start before or end after all the data, like anything ending "now", don't need a search for that bound.
+		m_lookupFrom = size == 0 || fromDate <= m_store.getTime(0) ? 0 : m_store.lowerBound(fromDate);
+		m_lookupTo = size == 0 || toDate >= m_store.getTime(size - 1) ? size : m_store.upperBound(toDate);
 
-		m_hasShownWarning_write = true;
+		m_indexCache.put(fromDate, toDate, firstIndex + m_lookupFrom, firstIndex + m_lookupTo);
 	}
 
-	static void printWarning()
+	private void add_private(final long time, final byte[] blob)
 	{
-		Log.w
-		(
-			"SweetBlue",
-			"NOTICE: The historical data API backend in this version of SweetBlue can only track one piece of data at a time to RAM only. " +
-					"Please contact sweetblue@idevicesinc.com to discuss upgrading to the unlimited backend with database persistence."
-		);
+		m_store.add(time, blob);
+
+		m_indexCache.onInserted(time, m_store.getEvictedCount());
 	}
 
-	@Override public void add_single(HistoricalData historicalData, BleDeviceConfig.HistoricalDataLogFilter.PersistenceLevel logChoice, long limit)
+	private void remove_private(final int from, final int to)
 	{
-		if( logChoice == BleDeviceConfig.HistoricalDataLogFilter.PersistenceLevel.NONE )  return;
+		if( from >= to )  return;
+
+		final long firstIndex = m_store.getEvictedCount();
 
-		if( limit <= 0 )
+		m_store.remove(from, to);
+
+		//--- DRK > Removing from the front just advances the evicted count, which the cache already accounts for.
+		if( from > 0 )
 		{
-			m_data = null;
+			m_indexCache.onRemoved(firstIndex + from, firstIndex + to, m_store.getEvictedCount());
 		}
+	}
 
-		final boolean alreadyHadData = m_data != null;
+	private void enforceLimit(final long limit)
+	{
+		m_limit = limit;
 
-		m_data = historicalData;
+		final int size = m_store.getSize();
 
-		if( alreadyHadData || logChoice == BleDeviceConfig.HistoricalDataLogFilter.PersistenceLevel.DISK )
+		if( size > limit )
 		{
-			printWarning_write();
+			remove_private(0, (int) (size - Math.max(limit, 0)));
 		}
 	}
 
-	@Override public void add_multiple(Iterator<HistoricalData> historicalData, BleDeviceConfig.HistoricalDataLogFilter.PersistenceLevel logChoice, final long limit)
+	@Override public synchronized void add_single(HistoricalData historicalData, BleDeviceConfig.HistoricalDataLogFilter.PersistenceLevel logChoice, long limit)
 	{
-		while(historicalData.hasNext() )
+		if( !logChoice.includesMemory() )  return;
+
+		add_private(historicalData.getEpochTime_millis(), historicalData.getBlob());
+
+		enforceLimit(limit);
+	}
+
+	@Override public synchronized void add_multiple(Iterator<HistoricalData> historicalData, BleDeviceConfig.HistoricalDataLogFilter.PersistenceLevel logChoice, final long limit)
+	{
+		if( !logChoice.includesMemory() )  return;
+
+		while( historicalData.hasNext() )
 		{
-			add_single(historicalData.next(), logChoice, Long.MAX_VALUE);
+			final HistoricalData next = historicalData.next();
+
+			add_private(next.getEpochTime_millis(), next.getBlob());
 		}
+
+		enforceLimit(limit);
 	}
 
-	@Override public void add_multiple(ForEach_Returning<HistoricalData> historicalData, BleDeviceConfig.HistoricalDataLogFilter.PersistenceLevel logChoice, final long limit)
+	@Override public synchronized void add_multiple(ForEach_Returning<HistoricalData> historicalData, BleDeviceConfig.HistoricalDataLogFilter.PersistenceLevel logChoice, final long limit)
 	{
+		if( !logChoice.includesMemory() )  return;
+
 		int i = 0;
 
 		while( true )
@@ -110,83 +155,118 @@ public class Backend_HistoricalDataList_Default implements Backend_HistoricalDat
 
 			if( next == null )  break;
 
-			add_single(next, logChoice, limit);
+			add_private(next.getEpochTime_millis(), next.getBlob());
 
 			i++;
 		}
+
+		enforceLimit(limit);
 	}
 
-	@Override public int getCount(EpochTimeRange range)
+	@Override public synchronized int getCount(EpochTimeRange range)
 	{
-		if( isDataInRange(range) )
+		lookup(range);
+
+		return Math.max(0, m_lookupTo - m_lookupFrom);
+	}
+
+	@Override public synchronized HistoricalData get(EpochTimeRange range, int offset)
+	{
+		if( offset < 0 )  return HistoricalData.NULL;
+
+		lookup(range);
+
+		final int index = m_lookupFrom + offset;
+
+		if( index < m_lookupTo )
 		{
-			return 1;
+			return m_store.get(index);
 		}
 		else
 		{
-			return 0;
+			return HistoricalData.NULL;
 		}
 	}
 
-	@Override public HistoricalData get(EpochTimeRange range, int offset)
+	@Override public synchronized Iterator<HistoricalData> getIterator(EpochTimeRange range)
 	{
-		if( isDataInRange(range) )
+		lookup(range);
+
+		final int from = m_lookupFrom;
+		final int to = m_lookupTo;
+
+		if( from >= to )  return EMPTY_ITERATOR;
+
+		return new Iterator<HistoricalData>()
 		{
-			if( offset > 0 )
-			{
-				printWarning_read();
+			private int m_index = from;
+			private int m_to = to;
+			private boolean m_canRemove = false;
 
-				return HistoricalData.NULL;
+			@Override public boolean hasNext()
+			{
+				return m_index < m_to;
 			}
-			else
+
+			@Override public HistoricalData next()
 			{
-				return m_data;
+				synchronized(Backend_HistoricalDataList_Default.this)
+				{
+					if( m_index >= m_to || m_index >= m_store.getSize() )  throw new NoSuchElementException();
+
+					m_canRemove = true;
+
+					return m_store.get(m_index++);
+				}
 			}
-		}
-		else
-		{
-			return HistoricalData.NULL;
-		}
-	}
 
-	@Override public Iterator<HistoricalData> getIterator(EpochTimeRange range)
-	{
-		if( isDataInRange(range) )
-		{
-			return new SingleElementIterator<HistoricalData>(m_data)
+			@Override public void remove()
 			{
-				@Override protected void onRemove()
+				synchronized(Backend_HistoricalDataList_Default.this)
 				{
-					m_data = null;
+					if( !m_canRemove )  throw new IllegalStateException();
+
+					m_canRemove = false;
+
+					m_index--;
+					m_to--;
+
+					remove_private(m_index, m_index + 1);
 				}
-			};
-		}
-		else
-		{
-			return EMPTY_ITERATOR;
-		}
+			}
+		};
 	}
 
-	@Override public boolean doForEach(EpochTimeRange range, Object forEach)
+	@Override public synchronized boolean doForEach(EpochTimeRange range, Object forEach)
 	{
-		if( isDataInRange(range) )
+		lookup(range);
+
+		final int from = m_lookupFrom;
+		final int to = m_lookupTo;
+
+		if( forEach instanceof ForEach_Void )
 		{
-			if( forEach instanceof ForEach_Void )
-			{
-				((ForEach_Void)forEach).next(m_data);
+			final ForEach_Void<HistoricalData> forEach_cast = (ForEach_Void<HistoricalData>) forEach;
 
-				return true;
-			}
-			else if( forEach instanceof ForEach_Breakable )
+			for( int i = from; i < to; i++ )
 			{
-				((ForEach_Breakable)forEach).next(m_data);
-
-				return true;
+				forEach_cast.next(m_store.get(i));
 			}
-			else
+
+			return true;
+		}
+		else if( forEach instanceof ForEach_Breakable )
+		{
+			final ForEach_Breakable<HistoricalData> forEach_cast = (ForEach_Breakable<HistoricalData>) forEach;
+
+			for( int i = from; i < to; i++ )
 			{
-				return false;
+				final ForEach_Breakable.Please please = forEach_cast.next(m_store.get(i));
+
+				if( please != null && please.shouldBreak() )  break;
 			}
+
+			return true;
 		}
 		else
 		{
@@ -194,31 +274,28 @@ public class Backend_HistoricalDataList_Default implements Backend_HistoricalDat
 		}
 	}
 
-	@Override public void delete_fromMemoryOnly(EpochTimeRange range, long count)
+	@Override public synchronized void delete_fromMemoryOnly(EpochTimeRange range, long count)
 	{
-		if( count > 0 && isDataInRange(range) )
-		{
-			m_data = null;
-		}
+		if( count <= 0 )  return;
 
-		if( count > 1 )
-		{
-			printWarning_write();
-		}
+		lookup(range);
+
+		final int from = m_lookupFrom;
+		final int to = (int) Math.min(m_lookupTo, from + count);
+
+		remove_private(from, to);
 	}
 
 	@Override public void delete_fromMemoryOnlyForNowButDatabaseSoon(EpochTimeRange range, long count)
 	{
 		delete_fromMemoryOnly(range, count);
-
-		printWarning_write();
 	}
 
 	@Override public void delete_fromMemoryAndDatabase(EpochTimeRange range, long count)
 	{
 		delete_fromMemoryOnly(range, count);
 
-		printWarning_write();
+		m_database.delete_singleUuid_inRange(m_macAddress, m_uuid, range, count);
 	}
 
 	@Override public String getMacAddress()
@@ -226,38 +303,153 @@ public class Backend_HistoricalDataList_Default implements Backend_HistoricalDat
 		return m_macAddress;
 	}
 
-	@Override public void load(AsyncLoadCallback callback_nullable)
+	@Override public synchronized void load(final long limit, final AsyncLoadCallback callback_nullable)
 	{
-		printWarning_write();
+		if( m_loadState == LOAD_STATE__LOADED )
+		{
+			if( callback_nullable != null )
+			{
+				callback_nullable.onDone();
+			}
+
+			return;
+		}
+
+		if( callback_nullable != null )
+		{
+			m_loadCallbacks.add(callback_nullable);
+		}
+
+		if( m_loadState == LOAD_STATE__LOADING )
+		{
+			m_loadLimit = Math.min(m_loadLimit, limit);
+
+			return;
+		}
+
+		m_loadState = LOAD_STATE__LOADING;
+		m_loadLimit = limit;
+
+		m_updateLoop.forcePost(new Runnable()
+		{
+			@Override public void run()
+			{
+				load_private();
+			}
+		});
 	}
 
-	@Override public int getLoadState()
+	private void load_private()
 	{
-		return LOAD_STATE__NOT_LOADED;
+		//--- DRK > Anything already in memory was also sent to the database, so only pull in what's older than that.
+		final long oldestInMemory;
+		final long room;
+
+		synchronized(this)
+		{
+			oldestInMemory = m_store.getSize() > 0 ? m_store.getTime(0) : Long.MAX_VALUE;
+			room = Math.min(m_loadLimit, m_limit) - m_store.getSize();
+		}
+
+		if( room > 0 )
+		{
+			final EpochTimeRange range = oldestInMemory == Long.MAX_VALUE ? EpochTimeRange.FROM_MIN_TO_MAX : EpochTimeRange.fromMin_toGiven(new EpochTime(oldestInMemory - 1));
+
+			load_newest(range, room);
+		}
+
+		final AsyncLoadCallback[] callbacks;
+
+		synchronized(this)
+		{
+			m_loadState = LOAD_STATE__LOADED;
+
+			callbacks = m_loadCallbacks.toArray(new AsyncLoadCallback[m_loadCallbacks.size()]);
+			m_loadCallbacks.clear();
+		}
+
+		for( int i = 0; i < callbacks.length; i++ )
+		{
+			callbacks[i].onDone();
+		}
 	}
 
-	@Override public HistoricalDataCursor getCursor(EpochTimeRange range)
+	/**
+	 * Pages in only the newest <code>count</code> rows of the range, skipping the rest on disk, so a big table never has to fit in memory.
+	 */
+	private void load_newest(final EpochTimeRange range, final long count)
 	{
-		if( m_data != null )
+		final HistoricalDataCursor cursor = m_database.getCursor(m_macAddress, m_uuid, range);
+
+		try
 		{
-			final ArrayList<HistoricalData> list = new ArrayList<HistoricalData>();
-			list.add(m_data);
+			if( !cursor.moveToPosition((int) Math.max(0, cursor.getCount() - count)) )  return;
 
-			P_HistoricalDataIndexCache indexCache = new P_HistoricalDataIndexCache(m_data.getEpochTime(), m_data.getEpochTime(), 0, 0);
+			do
+			{
+				final long time = cursor.getEpochTime();
+				final byte[] blob = cursor.getBlob();
 
-			return new P_HistoricalDataCursor_List(list, indexCache);
+				synchronized(this)
+				{
+					add_private(time, blob);
+				}
+			}
+			while( cursor.moveToNext() );
 		}
-		else
+		finally
+		{
+			cursor.close();
+		}
+	}
+
+	@Override public synchronized int getLoadState()
+	{
+		return m_loadState;
+	}
+
+	@Override public synchronized HistoricalDataCursor getCursor(EpochTimeRange range)
+	{
+		lookup(range);
+
+		final int from = m_lookupFrom;
+		final int to = m_lookupTo;
+
+		if( from >= to )  return EMPTY_CURSOR;
+
+		return new P_HistoricalDataCursor_Memory(this, m_store, from, to - from);
+	}
+
+	@Override public synchronized HistoricalDataBuckets getBuckets(EpochTimeRange range, long bucketWidth_millis, HistoricalDataValueType valueType, int byteOffset)
+	{
+		lookup(range);
+
+		final P_HistoricalDataBucketer bucketer = new P_HistoricalDataBucketer(bucketWidth_millis);
+		final long[] value = new long[1];
+
+		for( int i = m_lookupFrom; i < m_lookupTo; i++ )
 		{
-			return EMPTY_CURSOR;
+			if( m_store.readValue(i, valueType, byteOffset, value) )
+			{
+				bucketer.add(m_store.getTime(i), value[0]);
+			}
 		}
+
+		return bucketer.toBuckets();
 	}
 
-	@Override public EpochTimeRange getRange()
+	@Override public synchronized void compact()
 	{
-		if( m_data != null )
+		m_store.trimToSize();
+	}
+
+	@Override public synchronized EpochTimeRange getRange()
+	{
+		final int size = m_store.getSize();
+
+		if( size > 0 )
 		{
-			return EpochTimeRange.instant(m_data.getEpochTime());
+			return new EpochTimeRange(m_store.getTime(0), m_store.getTime(size - 1));
 		}
 		else
 		{
@@ -9,7 +9,10 @@ import com.idevicesinc.sweetblue.BleManager;
 import com.idevicesinc.sweetblue.utils.EpochTimeRange;
 import com.idevicesinc.sweetblue.utils.ForEach_Void;
 import com.idevicesinc.sweetblue.utils.HistoricalData;
+import com.idevicesinc.sweetblue.utils.HistoricalDataBuckets;
 import com.idevicesinc.sweetblue.utils.HistoricalDataCursor;
+import com.idevicesinc.sweetblue.utils.HistoricalDataValueType;
+import com.idevicesinc.sweetblue.utils.UpdateLoop;
 
 import java.util.UUID;
 
@@ -25,7 +28,11 @@ public interface Backend_HistoricalDatabase
 	public static final String COLUMN_NAME__EPOCH_TIME = "date";
 	public static final String COLUMN_NAME__DATA = "data";
 
-	void init(final BleManager manager);
+	/**
+	 * The given {@link UpdateLoop} is the one {@link BleManager} does all its historical data work on, for anything the backend
+	 * wants to do off the calling thread.
+	 */
+	void init(final BleManager manager, final UpdateLoop updateLoop);
 
 	void add_single(final String macAddress, final UUID uuid, final HistoricalData data, final long maxCountToDelete);
 
@@ -33,6 +40,12 @@ public interface Backend_HistoricalDatabase
 
 	void add_multiple_next(final String macAddress, final UUID uuid, final HistoricalData data);
 
+	/**
+	 * Same as {@link #add_multiple_next(String, UUID, HistoricalData)} but takes the row as is, so that something like an import doesn't
+	 * have to create a {@link HistoricalData} for every sample.
+	 */
+	void add_multiple_next(final String macAddress, final UUID uuid, final long epochTime_millis, final byte[] data);
+
 	void add_multiple_end();
 
 	void delete_singleUuid_all(final String macAddress, final UUID uuid);
@@ -51,7 +64,17 @@ public interface Backend_HistoricalDatabase
 
 	HistoricalDataCursor getCursor(final String macAddress, final UUID uuid, final EpochTimeRange range);
 
+	HistoricalDataBuckets getBuckets(final String macAddress, final UUID uuid, final EpochTimeRange range, final long bucketWidth_millis, final HistoricalDataValueType valueType, final int byteOffset);
+
 	Cursor query(final String query);
 
+	long getByteCount(final String macAddress, final UUID uuid);
+
+	String[] getMacAddresses(final UUID uuid);
+
+	HistoricalData[] getLatest(final String[] macAddresses, final UUID uuid);
+
+	void compact();
+
 	String getTableName(final String macAddress, final UUID uuid);
 }
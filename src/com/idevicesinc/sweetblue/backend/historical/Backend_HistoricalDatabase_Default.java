@@ -3,14 +3,19 @@ package com.idevicesinc.sweetblue.backend.historical;
 
 import android.content.Context;
 import android.database.Cursor;
+import android.util.Log;
 
 import com.idevicesinc.sweetblue.BleManager;
 import com.idevicesinc.sweetblue.utils.EmptyCursor;
 import com.idevicesinc.sweetblue.utils.EpochTimeRange;
 import com.idevicesinc.sweetblue.utils.ForEach_Void;
 import com.idevicesinc.sweetblue.utils.HistoricalData;
+import com.idevicesinc.sweetblue.utils.HistoricalDataBuckets;
 import com.idevicesinc.sweetblue.utils.HistoricalDataCursor;
+import com.idevicesinc.sweetblue.utils.HistoricalDataValueType;
+import com.idevicesinc.sweetblue.utils.UpdateLoop;
 
+import java.util.Arrays;
 import java.util.UUID;
 
 /**
@@ -35,12 +40,17 @@ public class Backend_HistoricalDatabase_Default implements Backend_HistoricalDat
 	{
 		if( m_hasShownWarning == true )  return;
 
-		Backend_HistoricalDataList_Default.printWarning();
+		Log.w
+		(
+			"SweetBlue",
+			"NOTICE: Backend_Modules.HISTORICAL_DATABASE is set to a backend that doesn't persist anything. " +
+					"Use Backend_HistoricalDatabase_Sqlite to keep historical data across app sessions."
+		);
 
 		m_hasShownWarning = true;
 	}
 
-	@Override public void init(final BleManager manager)
+	@Override public void init(final BleManager manager, final UpdateLoop updateLoop)
 	{
 
 	}
@@ -60,6 +70,11 @@ public class Backend_HistoricalDatabase_Default implements Backend_HistoricalDat
 		printWarning();
 	}
 
+	@Override public void add_multiple_next(final String macAddress, final UUID uuid, final long epochTime_millis, final byte[] data)
+	{
+		printWarning();
+	}
+
 	@Override public void add_multiple_end()
 	{
 		printWarning();
@@ -111,6 +126,13 @@ public class Backend_HistoricalDatabase_Default implements Backend_HistoricalDat
 		return EMPTY_CURSOR;
 	}
 
+	@Override public HistoricalDataBuckets getBuckets(String macAddress, UUID uuid, EpochTimeRange range, long bucketWidth_millis, HistoricalDataValueType valueType, int byteOffset)
+	{
+		printWarning();
+
+		return HistoricalDataBuckets.NULL;
+	}
+
 	@Override public Cursor query(String query)
 	{
 		printWarning();
@@ -118,6 +140,36 @@ public class Backend_HistoricalDatabase_Default implements Backend_HistoricalDat
 		return EmptyCursor.SINGLETON;
 	}
 
+	@Override public long getByteCount(String macAddress, UUID uuid)
+	{
+		printWarning();
+
+		return 0;
+	}
+
+	@Override public String[] getMacAddresses(UUID uuid)
+	{
+		printWarning();
+
+		return new String[0];
+	}
+
+	@Override public HistoricalData[] getLatest(String[] macAddresses, UUID uuid)
+	{
+		printWarning();
+
+		final HistoricalData[] latest = new HistoricalData[macAddresses.length];
+
+		Arrays.fill(latest, HistoricalData.NULL);
+
+		return latest;
+	}
+
+	@Override public void compact()
+	{
+		printWarning();
+	}
+
 	@Override public String getTableName(String macAddress, UUID uuid)
 	{
 		printWarning();
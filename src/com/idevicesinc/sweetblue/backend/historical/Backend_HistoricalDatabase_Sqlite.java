@@ -0,0 +1,1068 @@
+package com.idevicesinc.sweetblue.backend.historical;
+
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import com.idevicesinc.sweetblue.BleManager;
+import com.idevicesinc.sweetblue.utils.EmptyCursor;
+import com.idevicesinc.sweetblue.utils.EpochTimeRange;
+import com.idevicesinc.sweetblue.utils.ForEach_Void;
+import com.idevicesinc.sweetblue.utils.HistoricalData;
+import com.idevicesinc.sweetblue.utils.HistoricalDataBuckets;
+import com.idevicesinc.sweetblue.utils.HistoricalDataCursor;
+import com.idevicesinc.sweetblue.utils.HistoricalDataValueType;
+import com.idevicesinc.sweetblue.utils.UpdateLoop;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * SQLite implementation of {@link Backend_HistoricalDatabase}. Each MAC-address/UUID combination gets its own table
+ * with an index on {@link #COLUMN_NAME__EPOCH_TIME}.
+ * <br><br>
+ * Rows passed to {@link #add_single(String, UUID, HistoricalData, long)} are queued in memory and written together in one
+ * transaction on the historical data {@link UpdateLoop} at most every {@link #COMMIT_INTERVAL_MILLIS}, or sooner once {@link #COMMIT_THRESHOLD}
+ * rows are waiting, so a characteristic notifying many times a second doesn't cost a journal sync per notification. Queuing only takes a
+ * lock around the queue itself, which a commit swaps out before writing, so adding a row never waits on a transaction. Rows between
+ * {@link #add_multiple_start()} and {@link #add_multiple_end()} are written in a single transaction when the latter is called.
+ * Any read or delete first commits whatever is queued, so callers always see their own writes.
+ */
+public class Backend_HistoricalDatabase_Sqlite implements Backend_HistoricalDatabase
+{
+	public static final String DATABASE_NAME = "sweetblue_historical_data.db";
+
+	/**
+	 * Longest amount of time a row added through {@link #add_single(String, UUID, HistoricalData, long)} waits in memory before it's committed.
+	 */
+	public static final long COMMIT_INTERVAL_MILLIS = 1000;
+
+	/**
+	 * Number of queued rows that triggers a commit without waiting for {@link #COMMIT_INTERVAL_MILLIS}.
+	 */
+	public static final int COMMIT_THRESHOLD = 512;
+
+	private static final int DATABASE_VERSION = 1;
+
+	//--- DRK > Rough per-row cost of the date, rowid, record header, and index entry on top of the blob itself.
+	private static final int ROW_OVERHEAD_BYTES = 24;
+
+	//--- DRK > How many of the newest rows are averaged to estimate the size of a table without reading all of it.
+	private static final int BYTE_COUNT_SAMPLE_SIZE = 256;
+
+	private static final int AUTO_VACUUM_INCREMENTAL = 2;
+
+	private static final int MAC_ADDRESS_DIGITS = 12;
+
+	//--- DRK > Selected after the public columns when paging, see loadWindow().
+	private static final int COLUMN_INDEX__ROWID = COLUMN_INDEX__DATA + 1;
+
+	private static final String HEX_DIGITS = "0123456789ABCDEF";
+
+	//--- DRK > Enough digits for any non-negative long, so times padded with it compare correctly as strings.
+	private static final String ZERO_PADDING = "0000000000000000000";
+
+	private static final String TABLE_PREFIX = "historical_";
+	private static final String INDEX_SUFFIX = "_date";
+
+	private static final String WHERE_RANGE = " WHERE " + COLUMN_NAME__EPOCH_TIME + " >= ? AND " + COLUMN_NAME__EPOCH_TIME + " <= ?";
+
+	//--- DRK > Rowid breaks ties so that paging through rows with the same date is stable.
+	private static final String ORDER_BY = " ORDER BY " + COLUMN_NAME__EPOCH_TIME + " ASC, rowid ASC";
+
+	private static final HistoricalDataCursor EMPTY_CURSOR = new P_HistoricalDataCursor_Empty();
+
+	//--- DRK > Parallel arrays instead of a HistoricalData per row so raw rows from an import can be queued as is.
+	private static class PendingTable
+	{
+		private long[] m_epochTimes = new long[16];
+		private byte[][] m_blobs = new byte[16][];
+		private int m_rowCount = 0;
+		private long m_countToTrim = 0;
+
+		private void add(final long epochTime_millis, final byte[] blob)
+		{
+			if( m_rowCount == m_epochTimes.length )
+			{
+				m_epochTimes = Arrays.copyOf(m_epochTimes, m_rowCount * 2);
+				m_blobs = Arrays.copyOf(m_blobs, m_rowCount * 2);
+			}
+
+			m_epochTimes[m_rowCount] = epochTime_millis;
+			m_blobs[m_rowCount] = blob;
+			m_rowCount++;
+		}
+	}
+
+	private static class OpenHelper extends SQLiteOpenHelper
+	{
+		public OpenHelper(final Context context)
+		{
+			super(context, DATABASE_NAME, null, DATABASE_VERSION);
+		}
+
+		@Override public void onCreate(final SQLiteDatabase db)
+		{
+			//--- DRK > Tables are created lazily, one per mac address/uuid.
+		}
+
+		@Override public void onUpgrade(final SQLiteDatabase db, final int oldVersion, final int newVersion)
+		{
+		}
+	}
+
+	private final OpenHelper m_helper;
+
+	private SQLiteDatabase m_database = null;
+	private boolean m_failedToOpen = false;
+
+	private final HashSet<String> m_tables = new HashSet<String>();
+	private final HashMap<String, SQLiteStatement> m_insertStatements = new HashMap<String, SQLiteStatement>();
+
+	//--- DRK > Everything touching the database itself is synchronized on this, but the queue is only ever touched while holding
+	//---		m_pendingLock, and that lock is never held while waiting on this, so adding rows never waits on a commit.
+	private final Object m_pendingLock = new Object();
+	private HashMap<String, PendingTable> m_pending = new HashMap<String, PendingTable>();
+	private int m_pendingCount = 0;
+	private int m_multipleAddDepth = 0;
+	private boolean m_commitPosted = false;
+	private boolean m_urgentCommitPosted = false;
+
+	//--- DRK > What m_pending is swapped with for a commit to write from, only touched while synchronized on this.
+	private HashMap<String, PendingTable> m_committing = new HashMap<String, PendingTable>();
+
+	private UpdateLoop m_updateLoop = null;
+
+	private final Runnable m_commitRunnable = new Runnable()
+	{
+		@Override public void run()
+		{
+			synchronized (m_pendingLock)
+			{
+				//--- DRK > add_multiple_end() will commit everything at once, including whatever this was posted for.
+				if( m_multipleAddDepth > 0 )
+				{
+					m_commitPosted = false;
+					m_urgentCommitPosted = false;
+
+					return;
+				}
+			}
+
+			flush();
+		}
+	};
+
+	public Backend_HistoricalDatabase_Sqlite(final Context context)
+	{
+		m_helper = new OpenHelper(context);
+	}
+
+	@Override public void init(final BleManager manager, final UpdateLoop updateLoop)
+	{
+		m_updateLoop = updateLoop;
+	}
+
+	/**
+	 * Writes any rows still queued from {@link #add_single(String, UUID, HistoricalData, long)} to disk right away, for example
+	 * when the app is going to the background.
+	 */
+	public synchronized void flush()
+	{
+		commit();
+	}
+
+	@Override public void add_single(final String macAddress, final UUID uuid, final HistoricalData data, final long maxCountToDelete)
+	{
+		final String tableName = getTableName(macAddress, uuid);
+		final boolean commitNow;
+		final boolean commitLater;
+
+		synchronized (m_pendingLock)
+		{
+			final PendingTable pending = getPending(tableName);
+
+			if( maxCountToDelete > 0 )
+			{
+				pending.m_countToTrim = pending.m_countToTrim > Long.MAX_VALUE - maxCountToDelete ? Long.MAX_VALUE : pending.m_countToTrim + maxCountToDelete;
+			}
+
+			addPending(pending, data.getEpochTime_millis(), data.getBlob());
+
+			if( m_multipleAddDepth > 0 )  return;
+
+			commitNow = !m_urgentCommitPosted && m_pendingCount >= COMMIT_THRESHOLD;
+			commitLater = !m_commitPosted;
+
+			m_urgentCommitPosted |= commitNow;
+			m_commitPosted = true;
+		}
+
+		if( m_updateLoop == null )
+		{
+			//--- DRK > Only if init() was never called, in which case there's nowhere else to do it.
+			flush();
+		}
+		else if( commitNow )
+		{
+			m_updateLoop.forcePost(m_commitRunnable);
+		}
+		else if( commitLater )
+		{
+			m_updateLoop.forcePost(m_commitRunnable, COMMIT_INTERVAL_MILLIS);
+		}
+	}
+
+	@Override public void add_multiple_start()
+	{
+		synchronized (m_pendingLock)
+		{
+			m_multipleAddDepth++;
+		}
+	}
+
+	@Override public void add_multiple_next(final String macAddress, final UUID uuid, final HistoricalData data)
+	{
+		add_multiple_next(macAddress, uuid, data.getEpochTime_millis(), data.getBlob());
+	}
+
+	@Override public void add_multiple_next(final String macAddress, final UUID uuid, final long epochTime_millis, final byte[] data)
+	{
+		final String tableName = getTableName(macAddress, uuid);
+
+		synchronized (m_pendingLock)
+		{
+			addPending(getPending(tableName), epochTime_millis, data);
+		}
+	}
+
+	@Override public void add_multiple_end()
+	{
+		synchronized (m_pendingLock)
+		{
+			if( m_multipleAddDepth == 0 )  return;
+
+			m_multipleAddDepth--;
+
+			if( m_multipleAddDepth > 0 )  return;
+		}
+
+		flush();
+	}
+
+	@Override public synchronized void delete_singleUuid_all(final String macAddress, final UUID uuid)
+	{
+		final String tableName = getTableName(macAddress, uuid);
+
+		synchronized (m_pendingLock)
+		{
+			m_pendingCount -= removePending(tableName);
+		}
+
+		final SQLiteDatabase db = getDatabase();
+
+		if( db == null || !m_tables.contains(tableName) )  return;
+
+		final SQLiteStatement insert = m_insertStatements.remove(tableName);
+
+		if( insert != null )
+		{
+			insert.close();
+		}
+
+		try
+		{
+			db.execSQL("DROP TABLE IF EXISTS " + tableName);
+
+			m_tables.remove(tableName);
+		}
+		catch(SQLiteException e)
+		{
+			logError(e);
+		}
+	}
+
+	@Override public synchronized void delete_singleUuid_inRange(final String macAddress, final UUID uuid, final EpochTimeRange range, final long maxCountToDelete)
+	{
+		commit();
+
+		final SQLiteDatabase db = getDatabase();
+
+		if( db == null )  return;
+
+		try
+		{
+			delete(db, getTableName(macAddress, uuid), range, maxCountToDelete);
+		}
+		catch(SQLiteException e)
+		{
+			logError(e);
+		}
+	}
+
+	@Override public synchronized void delete_singleUuid_singleDate(final String macAddress, final UUID uuid, final long date)
+	{
+		delete_singleUuid_inRange(macAddress, uuid, new EpochTimeRange(date, date), Long.MAX_VALUE);
+	}
+
+	@Override public synchronized void delete_multipleUuids(final String[] macAddresses, final UUID[] uuids, final EpochTimeRange range, final long count)
+	{
+		commit();
+
+		final SQLiteDatabase db = getDatabase();
+
+		if( db == null )  return;
+
+		try
+		{
+			db.beginTransaction();
+
+			try
+			{
+				for( int i = 0; i < uuids.length; i++ )
+				{
+					delete(db, getTableName(macAddresses[i], uuids[i]), range, count);
+				}
+
+				db.setTransactionSuccessful();
+			}
+			finally
+			{
+				db.endTransaction();
+			}
+		}
+		catch(SQLiteException e)
+		{
+			logError(e);
+		}
+	}
+
+	@Override public synchronized boolean doesDataExist(final String macAddress, final UUID uuid)
+	{
+		final String tableName = getTableName(macAddress, uuid);
+
+		synchronized (m_pendingLock)
+		{
+			final PendingTable pending = m_pending.get(tableName);
+
+			if( pending != null && pending.m_rowCount > 0 )  return true;
+		}
+
+		return getDatabase() != null && m_tables.contains(tableName);
+	}
+
+	@Override public synchronized void load(final String macAddress, final UUID uuid, final EpochTimeRange range, final ForEach_Void<HistoricalData> forEach)
+	{
+		final Cursor cursor = queryRange(getTableName(macAddress, uuid), range);
+
+		if( cursor == null )  return;
+
+		try
+		{
+			while( cursor.moveToNext() )
+			{
+				forEach.next(HistoricalData.fromCursor(cursor));
+			}
+		}
+		finally
+		{
+			cursor.close();
+		}
+	}
+
+	@Override public synchronized int getCount(final String macAddress, final UUID uuid, final EpochTimeRange range)
+	{
+		commit();
+
+		return getCount(getTableName(macAddress, uuid), range);
+	}
+
+	private int getCount(final String tableName, final EpochTimeRange range)
+	{
+		final SQLiteDatabase db = getDatabase();
+
+		if( db == null || !m_tables.contains(tableName) )  return 0;
+
+		try
+		{
+			final SQLiteStatement statement = db.compileStatement("SELECT COUNT(*) FROM " + tableName + WHERE_RANGE);
+
+			try
+			{
+				bindRange(statement, range);
+
+				return (int) Math.min(Integer.MAX_VALUE, statement.simpleQueryForLong());
+			}
+			finally
+			{
+				statement.close();
+			}
+		}
+		catch(SQLiteException e)
+		{
+			logError(e);
+
+			return 0;
+		}
+	}
+
+	@Override public synchronized HistoricalDataCursor getCursor(final String macAddress, final UUID uuid, final EpochTimeRange range)
+	{
+		commit();
+
+		final String tableName = getTableName(macAddress, uuid);
+		final int count = getCount(tableName, range);
+
+		if( count == 0 )  return EMPTY_CURSOR;
+
+		return new P_HistoricalDataCursor_Paged(this, m_updateLoop, tableName, range, count);
+	}
+
+	/**
+	 * Fills the given store with up to <code>limit</code> rows of the range. If <code>after_nullable</code> holds the date and rowid of a row,
+	 * the window starts right after that row, which SQLite can seek to through the date index. Otherwise the first <code>offset</code> rows are
+	 * skipped, which means stepping over every one of them, so that's only for jumping to a window whose previous window was never loaded.
+	 * The date and rowid of the window's last row are put in <code>lastKey_out</code>, so the next window can start after it.
+	 */
+	synchronized void loadWindow(final String tableName, final EpochTimeRange range, final long[] after_nullable, final int offset, final int limit, final P_HistoricalDataStore window, final long[] lastKey_out)
+	{
+		window.clear();
+
+		commit();
+
+		final SQLiteDatabase db = getDatabase();
+
+		if( db == null || !m_tables.contains(tableName) )  return;
+
+		final String from = String.valueOf(range.from().toMilliseconds());
+		final String to = String.valueOf(range.to().toMilliseconds());
+		final String select = "SELECT " + COLUMN_NAME__EPOCH_TIME + ", " + COLUMN_NAME__DATA + ", rowid FROM " + tableName + WHERE_RANGE;
+		final String sql;
+		final String[] args;
+
+		if( after_nullable != null )
+		{
+			final String afterTime = String.valueOf(after_nullable[0]);
+
+			sql = select + " AND (" + COLUMN_NAME__EPOCH_TIME + " > ? OR (" + COLUMN_NAME__EPOCH_TIME + " = ? AND rowid > ?))" + ORDER_BY + " LIMIT ?";
+			args = new String[]{from, to, afterTime, afterTime, String.valueOf(after_nullable[1]), String.valueOf(limit)};
+		}
+		else
+		{
+			sql = select + ORDER_BY + " LIMIT ? OFFSET ?";
+			args = new String[]{from, to, String.valueOf(limit), String.valueOf(offset)};
+		}
+
+		try
+		{
+			final Cursor cursor = db.rawQuery(sql, args);
+
+			try
+			{
+				while( cursor.moveToNext() )
+				{
+					window.add(cursor.getLong(COLUMN_INDEX__EPOCH_TIME), cursor.getBlob(COLUMN_INDEX__DATA));
+
+					lastKey_out[0] = cursor.getLong(COLUMN_INDEX__EPOCH_TIME);
+					lastKey_out[1] = cursor.getLong(COLUMN_INDEX__ROWID);
+				}
+			}
+			finally
+			{
+				cursor.close();
+			}
+		}
+		catch(SQLiteException e)
+		{
+			logError(e);
+		}
+	}
+
+	/**
+	 * Aggregates inside SQLite so that only one row per bucket ever makes it into Java, no matter how many samples are in the range.
+	 */
+	@Override public synchronized HistoricalDataBuckets getBuckets(final String macAddress, final UUID uuid, final EpochTimeRange range, final long bucketWidth_millis, final HistoricalDataValueType valueType, final int byteOffset)
+	{
+		commit();
+
+		final String tableName = getTableName(macAddress, uuid);
+		final SQLiteDatabase db = getDatabase();
+
+		if( db == null || !m_tables.contains(tableName) || bucketWidth_millis <= 0 || byteOffset < 0 )  return HistoricalDataBuckets.NULL;
+
+		final String values = getBucketValuesSql(tableName, bucketWidth_millis, valueType, byteOffset);
+		final String[] args = {String.valueOf(range.from().toMilliseconds()), String.valueOf(range.to().toMilliseconds())};
+
+		try
+		{
+			//--- DRK > First and last values come from MIN() and MAX() of "<time into bucket, zero-padded> <value>" strings, so
+			//---		the string for the earliest or latest row in each bucket wins and everything comes out of one pass over the range.
+			final String endKey = "substr('" + ZERO_PADDING + "' || (" + COLUMN_NAME__EPOCH_TIME + " - b), -" + ZERO_PADDING.length() + ") || ' ' || v";
+			final Cursor stats = db.rawQuery("SELECT b, COUNT(*), MIN(v), MAX(v), AVG(v), MIN(" + endKey + "), MAX(" + endKey + ") FROM " + values + " GROUP BY b ORDER BY b", args);
+
+			final int size = stats.getCount();
+			final long[] startTimes = new long[size];
+			final int[] counts = new int[size];
+			final long[] mins = new long[size];
+			final long[] maxes = new long[size];
+			final double[] averages = new double[size];
+			final long[] firsts = new long[size];
+			final long[] lasts = new long[size];
+
+			try
+			{
+				for( int i = 0; stats.moveToNext(); i++ )
+				{
+					startTimes[i] = stats.getLong(0);
+					counts[i] = stats.getInt(1);
+					mins[i] = stats.getLong(2);
+					maxes[i] = stats.getLong(3);
+					averages[i] = stats.getDouble(4);
+					firsts[i] = parseBucketEnd(stats.getString(5));
+					lasts[i] = parseBucketEnd(stats.getString(6));
+				}
+			}
+			finally
+			{
+				stats.close();
+			}
+
+			if( size == 0 )  return HistoricalDataBuckets.NULL;
+
+			return new HistoricalDataBuckets(bucketWidth_millis, startTimes, counts, mins, maxes, averages, firsts, lasts, size);
+		}
+		catch(SQLiteException e)
+		{
+			logError(e);
+
+			return HistoricalDataBuckets.NULL;
+		}
+	}
+
+	private static long parseBucketEnd(final String endKey)
+	{
+		return Long.parseLong(endKey.substring(ZERO_PADDING.length() + 1));
+	}
+
+	/**
+	 * Returns SQL that turns the one-character hex digit at the given position of <code>h</code> into its value. A <code>CASE</code> rather than
+	 * <code>instr()</code>, since <code>instr()</code> only showed up in SQLite 3.7.15 and Android 4.3 and 4.4 ship with 3.7.11.
+	 */
+	private static String getHexDigitSql(final int position)
+	{
+		final StringBuilder digit = new StringBuilder("(CASE substr(h, ").append(position).append(", 1)");
+
+		for( int i = 0; i < HEX_DIGITS.length(); i++ )
+		{
+			digit.append(" WHEN '").append(HEX_DIGITS.charAt(i)).append("' THEN ").append(i);
+		}
+
+		return digit.append(" END)").toString();
+	}
+
+	/**
+	 * Returns a subquery with a bucket start column <code>b</code>, the date, and the decoded value <code>v</code> of each row in a range
+	 * whose blob is long enough. SQLite can't read an integer out of a blob directly, so the value is put together from the hex digits of its bytes.
+	 */
+	private static String getBucketValuesSql(final String tableName, final long bucketWidth_millis, final HistoricalDataValueType valueType, final int byteOffset)
+	{
+		final int byteCount = valueType.getByteCount();
+		final StringBuilder unsigned = new StringBuilder();
+
+		for( int i = 0; i < byteCount; i++ )
+		{
+			final int significance = valueType.isLittleEndian() ? i : byteCount - 1 - i;
+
+			if( i > 0 )
+			{
+				unsigned.append(" + ");
+			}
+
+			unsigned.append("(").append(getHexDigitSql(2 * i + 1)).append(" * 16 + ").append(getHexDigitSql(2 * i + 2)).append(")");
+			unsigned.append(" * ").append(1L << (8 * significance));
+		}
+
+		final String value;
+
+		if( valueType.isSigned() )
+		{
+			value = "CASE WHEN u >= " + (1L << (8 * byteCount - 1)) + " THEN u - " + (1L << (8 * byteCount)) + " ELSE u END";
+		}
+		else
+		{
+			value = "u";
+		}
+
+		final String date = COLUMN_NAME__EPOCH_TIME;
+		final String bucket = date + " - ((" + date + " % " + bucketWidth_millis + ") + " + bucketWidth_millis + ") % " + bucketWidth_millis;
+
+		return
+			"(SELECT b, " + date + ", " + value + " AS v FROM " +
+				"(SELECT " + bucket + " AS b, " + date + ", " + unsigned + " AS u FROM " +
+					"(SELECT " + date + ", hex(substr(" + COLUMN_NAME__DATA + ", " + (byteOffset + 1) + ", " + byteCount + ")) AS h FROM " + tableName + WHERE_RANGE +
+					" AND length(" + COLUMN_NAME__DATA + ") >= " + (byteOffset + byteCount) + ")))";
+	}
+
+	@Override public synchronized Cursor query(final String query)
+	{
+		commit();
+
+		final SQLiteDatabase db = getDatabase();
+
+		if( db == null )  return EmptyCursor.SINGLETON;
+
+		try
+		{
+			return db.rawQuery(query, null);
+		}
+		catch(SQLiteException e)
+		{
+			logError(e);
+
+			return EmptyCursor.SINGLETON;
+		}
+	}
+
+	/**
+	 * Returns an estimate based on the row count and the average size of the newest rows, since summing every blob would mean reading the whole table.
+	 */
+	@Override public synchronized long getByteCount(final String macAddress, final UUID uuid)
+	{
+		commit();
+
+		final String tableName = getTableName(macAddress, uuid);
+		final int count = getCount(tableName, EpochTimeRange.FROM_MIN_TO_MAX);
+
+		if( count == 0 )  return 0;
+
+		try
+		{
+			final SQLiteStatement statement = getDatabase().compileStatement
+			(
+				"SELECT IFNULL(AVG(length(" + COLUMN_NAME__DATA + ")), 0) FROM " +
+				"(SELECT " + COLUMN_NAME__DATA + " FROM " + tableName + " ORDER BY " + COLUMN_NAME__EPOCH_TIME + " DESC LIMIT " + BYTE_COUNT_SAMPLE_SIZE + ")"
+			);
+
+			try
+			{
+				return count * (statement.simpleQueryForLong() + ROW_OVERHEAD_BYTES);
+			}
+			finally
+			{
+				statement.close();
+			}
+		}
+		catch(SQLiteException e)
+		{
+			logError(e);
+
+			return 0;
+		}
+	}
+
+	/**
+	 * Table names only keep the letters and digits of a MAC address, so addresses are rebuilt in the usual upper case, colon-separated format.
+	 */
+	@Override public synchronized String[] getMacAddresses(final UUID uuid)
+	{
+		commit();
+
+		if( getDatabase() == null )  return new String[0];
+
+		final StringBuilder suffix = new StringBuilder("_");
+		appendAlphanumeric(suffix, uuid.toString());
+		final String suffix_string = suffix.toString();
+
+		final ArrayList<String> macAddresses = new ArrayList<String>();
+
+		for( final String tableName : m_tables )
+		{
+			if( !tableName.endsWith(suffix_string) )  continue;
+
+			final String mac = tableName.substring(TABLE_PREFIX.length(), tableName.length() - suffix_string.length());
+
+			if( mac.length() != MAC_ADDRESS_DIGITS )  continue;
+
+			final StringBuilder builder = new StringBuilder(MAC_ADDRESS_DIGITS + MAC_ADDRESS_DIGITS / 2 - 1);
+
+			for( int i = 0; i < mac.length(); i++ )
+			{
+				if( i > 0 && i % 2 == 0 )
+				{
+					builder.append(':');
+				}
+
+				builder.append(Character.toUpperCase(mac.charAt(i)));
+			}
+
+			macAddresses.add(builder.toString());
+		}
+
+		return macAddresses.toArray(new String[macAddresses.size()]);
+	}
+
+	/**
+	 * Looks up every table under one lock, and each lookup only reads the end of the date index.
+	 */
+	@Override public synchronized HistoricalData[] getLatest(final String[] macAddresses, final UUID uuid)
+	{
+		commit();
+
+		final HistoricalData[] latest = new HistoricalData[macAddresses.length];
+		final SQLiteDatabase db = getDatabase();
+
+		for( int i = 0; i < macAddresses.length; i++ )
+		{
+			latest[i] = HistoricalData.NULL;
+
+			final String tableName = getTableName(macAddresses[i], uuid);
+
+			if( db == null || !m_tables.contains(tableName) )  continue;
+
+			try
+			{
+				final Cursor cursor = db.rawQuery("SELECT " + COLUMN_NAME__EPOCH_TIME + ", " + COLUMN_NAME__DATA + " FROM " + tableName + " ORDER BY " + COLUMN_NAME__EPOCH_TIME + " DESC, rowid DESC LIMIT 1", null);
+
+				try
+				{
+					if( cursor.moveToFirst() )
+					{
+						latest[i] = HistoricalData.fromCursor(cursor);
+					}
+				}
+				finally
+				{
+					cursor.close();
+				}
+			}
+			catch(SQLiteException e)
+			{
+				logError(e);
+			}
+		}
+
+		return latest;
+	}
+
+	/**
+	 * Returns pages freed by deletes to the file system and truncates the write-ahead log.
+	 */
+	@Override public synchronized void compact()
+	{
+		commit();
+
+		final SQLiteDatabase db = getDatabase();
+
+		if( db == null )  return;
+
+		try
+		{
+			runPragma(db, "PRAGMA incremental_vacuum");
+			runPragma(db, "PRAGMA wal_checkpoint(TRUNCATE)");
+		}
+		catch(SQLiteException e)
+		{
+			logError(e);
+		}
+	}
+
+	private static long runPragma(final SQLiteDatabase db, final String pragma)
+	{
+		final Cursor cursor = db.rawQuery(pragma, null);
+
+		try
+		{
+			return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+		}
+		finally
+		{
+			cursor.close();
+		}
+	}
+
+	@Override public String getTableName(final String macAddress, final UUID uuid)
+	{
+		final String uuidString = uuid.toString();
+		final StringBuilder builder = new StringBuilder(TABLE_PREFIX.length() + macAddress.length() + uuidString.length() + 1);
+
+		builder.append(TABLE_PREFIX);
+		appendAlphanumeric(builder, macAddress);
+		builder.append('_');
+		appendAlphanumeric(builder, uuidString);
+
+		return builder.toString();
+	}
+
+	private static void appendAlphanumeric(final StringBuilder builder, final String string)
+	{
+		for( int i = 0; i < string.length(); i++ )
+		{
+			final char ch = string.charAt(i);
+
+			if( Character.isLetterOrDigit(ch) )
+			{
+				builder.append(Character.toLowerCase(ch));
+			}
+		}
+	}
+
+	private PendingTable getPending(final String tableName)
+	{
+		PendingTable pending = m_pending.get(tableName);
+
+		if( pending == null )
+		{
+			pending = new PendingTable();
+
+			m_pending.put(tableName, pending);
+		}
+
+		return pending;
+	}
+
+	private void addPending(final PendingTable pending, final long epochTime_millis, final byte[] blob)
+	{
+		pending.add(epochTime_millis, blob);
+		m_pendingCount++;
+	}
+
+	private int removePending(final String tableName)
+	{
+		final PendingTable pending = m_pending.remove(tableName);
+
+		return pending != null ? pending.m_rowCount : 0;
+	}
+
+	/**
+	 * Swaps the queue out for an empty one while holding {@link #m_pendingLock}, then writes it while only synchronized on this.
+	 */
+	private void commit()
+	{
+		synchronized (m_pendingLock)
+		{
+			m_commitPosted = false;
+			m_urgentCommitPosted = false;
+
+			if( m_pendingCount == 0 )  return;
+
+			final HashMap<String, PendingTable> pending = m_pending;
+
+			m_pending = m_committing;
+			m_committing = pending;
+			m_pendingCount = 0;
+		}
+
+		final SQLiteDatabase db = getDatabase();
+
+		try
+		{
+			if( db == null )  return;
+
+			db.beginTransaction();
+
+			try
+			{
+				for( final Map.Entry<String, PendingTable> entry : m_committing.entrySet() )
+				{
+					final String tableName = entry.getKey();
+					final PendingTable pending = entry.getValue();
+
+					createTableIfNeeded(db, tableName);
+
+					if( pending.m_countToTrim > 0 )
+					{
+						delete(db, tableName, EpochTimeRange.FROM_MIN_TO_MAX, pending.m_countToTrim);
+					}
+
+					final SQLiteStatement insert = getInsertStatement(db, tableName);
+
+					for( int i = 0; i < pending.m_rowCount; i++ )
+					{
+						insert.bindLong(COLUMN_INDEX__EPOCH_TIME + 1, pending.m_epochTimes[i]);
+						insert.bindBlob(COLUMN_INDEX__DATA + 1, pending.m_blobs[i]);
+						insert.executeInsert();
+					}
+
+					insert.clearBindings();
+				}
+
+				db.setTransactionSuccessful();
+			}
+			finally
+			{
+				db.endTransaction();
+			}
+		}
+		catch(SQLiteException e)
+		{
+			logError(e);
+		}
+		finally
+		{
+			//--- DRK > Rows that couldn't be written are dropped rather than retried forever.
+			m_committing.clear();
+		}
+	}
+
+	private void delete(final SQLiteDatabase db, final String tableName, final EpochTimeRange range, final long maxCountToDelete)
+	{
+		if( maxCountToDelete <= 0 || !m_tables.contains(tableName) )  return;
+
+		final String sql;
+
+		if( maxCountToDelete == Long.MAX_VALUE )
+		{
+			sql = "DELETE FROM " + tableName + WHERE_RANGE;
+		}
+		else
+		{
+			sql = "DELETE FROM " + tableName + " WHERE rowid IN (SELECT rowid FROM " + tableName + WHERE_RANGE + ORDER_BY + " LIMIT ?)";
+		}
+
+		final SQLiteStatement statement = db.compileStatement(sql);
+
+		try
+		{
+			bindRange(statement, range);
+
+			if( maxCountToDelete != Long.MAX_VALUE )
+			{
+				statement.bindLong(3, maxCountToDelete);
+			}
+
+			statement.execute();
+		}
+		finally
+		{
+			statement.close();
+		}
+	}
+
+	private Cursor queryRange(final String tableName, final EpochTimeRange range)
+	{
+		commit();
+
+		final SQLiteDatabase db = getDatabase();
+
+		if( db == null || !m_tables.contains(tableName) )  return null;
+
+		final String[] args = {String.valueOf(range.from().toMilliseconds()), String.valueOf(range.to().toMilliseconds())};
+
+		try
+		{
+			return db.rawQuery("SELECT " + COLUMN_NAME__EPOCH_TIME + ", " + COLUMN_NAME__DATA + " FROM " + tableName + WHERE_RANGE + ORDER_BY, args);
+		}
+		catch(SQLiteException e)
+		{
+			logError(e);
+
+			return null;
+		}
+	}
+
+	private static void bindRange(final SQLiteStatement statement, final EpochTimeRange range)
+	{
+		statement.bindLong(1, range.from().toMilliseconds());
+		statement.bindLong(2, range.to().toMilliseconds());
+	}
+
+	private SQLiteStatement getInsertStatement(final SQLiteDatabase db, final String tableName)
+	{
+		SQLiteStatement insert = m_insertStatements.get(tableName);
+
+		if( insert == null )
+		{
+			insert = db.compileStatement("INSERT INTO " + tableName + " (" + COLUMN_NAME__EPOCH_TIME + ", " + COLUMN_NAME__DATA + ") VALUES (?, ?)");
+
+			m_insertStatements.put(tableName, insert);
+		}
+
+		return insert;
+	}
+
+	private void createTableIfNeeded(final SQLiteDatabase db, final String tableName)
+	{
+		if( m_tables.contains(tableName) )  return;
+
+		db.execSQL("CREATE TABLE IF NOT EXISTS " + tableName + " (" + COLUMN_NAME__EPOCH_TIME + " INTEGER NOT NULL, " + COLUMN_NAME__DATA + " BLOB)");
+		db.execSQL("CREATE INDEX IF NOT EXISTS " + tableName + INDEX_SUFFIX + " ON " + tableName + " (" + COLUMN_NAME__EPOCH_TIME + ")");
+
+		m_tables.add(tableName);
+	}
+
+	private SQLiteDatabase getDatabase()
+	{
+		if( m_database != null || m_failedToOpen )  return m_database;
+
+		try
+		{
+			final SQLiteDatabase db = m_helper.getWritableDatabase();
+
+			enableIncrementalVacuumIfNeeded(db);
+
+			//--- DRK > Lets readers on other connections go ahead while a commit is in flight, and syncs less often than the rollback journal.
+			db.enableWriteAheadLogging();
+
+			final Cursor cursor = db.rawQuery("SELECT name FROM sqlite_master WHERE type = 'table' AND name LIKE ?", new String[]{TABLE_PREFIX + "%"});
+
+			try
+			{
+				while( cursor.moveToNext() )
+				{
+					m_tables.add(cursor.getString(0));
+				}
+			}
+			finally
+			{
+				cursor.close();
+			}
+
+			m_database = db;
+		}
+		catch(SQLiteException e)
+		{
+			m_failedToOpen = true;
+
+			logError(e);
+		}
+
+		return m_database;
+	}
+
+	/**
+	 * Deleted rows only give space back to the file system if the database was created with incremental vacuuming, and switching to it
+	 * takes a full vacuum, so only do that while there are no historical tables yet and it's still cheap.
+	 */
+	private static void enableIncrementalVacuumIfNeeded(final SQLiteDatabase db)
+	{
+		if( runPragma(db, "PRAGMA auto_vacuum") == AUTO_VACUUM_INCREMENTAL )  return;
+
+		final Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM sqlite_master WHERE type = 'table' AND name LIKE ?", new String[]{TABLE_PREFIX + "%"});
+
+		try
+		{
+			if( !cursor.moveToFirst() || cursor.getLong(0) > 0 )  return;
+		}
+		finally
+		{
+			cursor.close();
+		}
+
+		db.execSQL("PRAGMA auto_vacuum = INCREMENTAL");
+		db.execSQL("VACUUM");
+	}
+
+	private static void logError(final SQLiteException e)
+	{
+		Log.e("SweetBlue", "Historical database error: " + e.getMessage());
+	}
+}
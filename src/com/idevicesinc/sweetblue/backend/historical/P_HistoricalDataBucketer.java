@@ -0,0 +1,117 @@
+package com.idevicesinc.sweetblue.backend.historical;
+
+import com.idevicesinc.sweetblue.utils.HistoricalDataBuckets;
+
+/**
+ * Builds {@link HistoricalDataBuckets} from values fed in time order, growing primitive arrays as new buckets start.
+ */
+class P_HistoricalDataBucketer
+{
+	private static final int INITIAL_CAPACITY = 16;
+
+	private final long m_bucketWidth;
+
+	private long[] m_startTimes = new long[INITIAL_CAPACITY];
+	private int[] m_counts = new int[INITIAL_CAPACITY];
+	private long[] m_mins = new long[INITIAL_CAPACITY];
+	private long[] m_maxes = new long[INITIAL_CAPACITY];
+	private double[] m_sums = new double[INITIAL_CAPACITY];
+	private long[] m_firsts = new long[INITIAL_CAPACITY];
+	private long[] m_lasts = new long[INITIAL_CAPACITY];
+	private int m_size = 0;
+
+	P_HistoricalDataBucketer(final long bucketWidth_millis)
+	{
+		m_bucketWidth = bucketWidth_millis;
+	}
+
+	/**
+	 * Returns the start of the bucket the given time falls into, rounding down for times before 1970 too.
+	 */
+	static long getBucketStart(final long time, final long bucketWidth_millis)
+	{
+		return time - ((time % bucketWidth_millis) + bucketWidth_millis) % bucketWidth_millis;
+	}
+
+	/**
+	 * Adds a value. Times must not decrease from one call to the next.
+	 */
+	void add(final long time, final long value)
+	{
+		final long start = getBucketStart(time, m_bucketWidth);
+		final int last = m_size - 1;
+
+		if( last >= 0 && m_startTimes[last] == start )
+		{
+			m_counts[last]++;
+			m_mins[last] = Math.min(m_mins[last], value);
+			m_maxes[last] = Math.max(m_maxes[last], value);
+			m_sums[last] += value;
+			m_lasts[last] = value;
+
+			return;
+		}
+
+		ensureCapacity();
+
+		m_startTimes[m_size] = start;
+		m_counts[m_size] = 1;
+		m_mins[m_size] = value;
+		m_maxes[m_size] = value;
+		m_sums[m_size] = value;
+		m_firsts[m_size] = value;
+		m_lasts[m_size] = value;
+		m_size++;
+	}
+
+	private void ensureCapacity()
+	{
+		if( m_size < m_startTimes.length )  return;
+
+		final int capacity = m_startTimes.length * 2;
+
+		m_startTimes = copyOf(m_startTimes, capacity);
+		m_counts = copyOf(m_counts, capacity);
+		m_mins = copyOf(m_mins, capacity);
+		m_maxes = copyOf(m_maxes, capacity);
+		m_firsts = copyOf(m_firsts, capacity);
+		m_lasts = copyOf(m_lasts, capacity);
+
+		final double[] sums = new double[capacity];
+		System.arraycopy(m_sums, 0, sums, 0, m_size);
+		m_sums = sums;
+	}
+
+	private long[] copyOf(final long[] array, final int capacity)
+	{
+		final long[] copy = new long[capacity];
+
+		System.arraycopy(array, 0, copy, 0, m_size);
+
+		return copy;
+	}
+
+	private int[] copyOf(final int[] array, final int capacity)
+	{
+		final int[] copy = new int[capacity];
+
+		System.arraycopy(array, 0, copy, 0, m_size);
+
+		return copy;
+	}
+
+	/**
+	 * Hands the arrays over to the result, so this must be the last call made on this instance.
+	 */
+	HistoricalDataBuckets toBuckets()
+	{
+		if( m_size == 0 )  return HistoricalDataBuckets.NULL;
+
+		for( int i = 0; i < m_size; i++ )
+		{
+			m_sums[i] /= m_counts[i];
+		}
+
+		return new HistoricalDataBuckets(m_bucketWidth, m_startTimes, m_counts, m_mins, m_maxes, m_sums, m_firsts, m_lasts, m_size);
+	}
+}
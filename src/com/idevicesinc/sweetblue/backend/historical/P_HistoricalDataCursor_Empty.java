@@ -90,6 +90,11 @@ class P_HistoricalDataCursor_Empty implements HistoricalDataCursor
 		return EMPTY_BLOB;
 	}
 
+	@Override public int copyBlobInto(byte[] destination)
+	{
+		return 0;
+	}
+
 	@Override public HistoricalData getHistoricalData()
 	{
 		return HistoricalData.NULL;
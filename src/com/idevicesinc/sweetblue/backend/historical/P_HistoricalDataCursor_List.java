@@ -1,8 +1,5 @@
 package com.idevicesinc.sweetblue.backend.historical;
 
-import android.database.Cursor;
-
-import com.idevicesinc.sweetblue.utils.EpochTimeRange;
 import com.idevicesinc.sweetblue.utils.HistoricalData;
 import com.idevicesinc.sweetblue.utils.HistoricalDataCursor;
 
@@ -28,9 +25,9 @@ class P_HistoricalDataCursor_List implements HistoricalDataCursor
 		return m_indexCache.getCount();
 	}
 
-	private boolean checkPosition(final int newPosition)
+	private boolean checkPosition(final int position)
 	{
-		return newPosition >= m_indexCache.m_from_index && newPosition <= m_indexCache.m_to_index;
+		return position >= 0 && position < getCount();
 	}
 
 	@Override public int getPosition()
@@ -49,17 +46,19 @@ class P_HistoricalDataCursor_List implements HistoricalDataCursor
 		{
 			m_position = position;
 
-			return false;
+			return true;
 		}
 		else
 		{
+			m_position = position < 0 ? -1 : getCount();
+
 			return false;
 		}
 	}
 
 	@Override public boolean moveToFirst()
 	{
-		return moveToPosition(m_indexCache.m_from_index);
+		return moveToPosition(0);
 	}
 
 	@Override public boolean moveToLast()
@@ -79,22 +78,22 @@ class P_HistoricalDataCursor_List implements HistoricalDataCursor
 
 	@Override public boolean isFirst()
 	{
-		return getPosition() == 0;
+		return getCount() > 0 && getPosition() == 0;
 	}
 
 	@Override public boolean isLast()
 	{
-		return getPosition() == getCount()-1;
+		return getCount() > 0 && getPosition() == getCount()-1;
 	}
 
 	@Override public boolean isBeforeFirst()
 	{
-		return m_position == -1;
+		return getCount() == 0 || m_position == -1;
 	}
 
 	@Override public boolean isAfterLast()
 	{
-		return m_position >= getCount();
+		return getCount() == 0 || m_position >= getCount();
 	}
 
 	@Override public void close()
@@ -119,16 +118,24 @@ class P_HistoricalDataCursor_List implements HistoricalDataCursor
 		return getHistoricalData().getBlob();
 	}
 
+	@Override public int copyBlobInto(byte[] destination)
+	{
+		final byte[] blob = getBlob();
+
+		System.arraycopy(blob, 0, destination, 0, Math.min(blob.length, destination.length));
+
+		return blob.length;
+	}
+
 	@Override public HistoricalData getHistoricalData()
 	{
 		if( checkPosition(getPosition()) )
 		{
-			return m_historicalData.get(getPosition());
+			return m_historicalData.get(m_indexCache.m_from_index + getPosition());
 		}
 		else
 		{
 			return HistoricalData.NULL;
 		}
 	}
-
 }
@@ -0,0 +1,166 @@
+package com.idevicesinc.sweetblue.backend.historical;
+
+import com.idevicesinc.sweetblue.utils.HistoricalData;
+import com.idevicesinc.sweetblue.utils.HistoricalDataCursor;
+
+/**
+ * {@link HistoricalDataCursor} over a range of a {@link P_HistoricalDataStore}. Positions stay put while new data is appended
+ * or old data is evicted from the front, but deleting or inserting data inside the range shifts what the cursor sees.
+ */
+class P_HistoricalDataCursor_Memory implements HistoricalDataCursor
+{
+	private static final byte[] EMPTY_BLOB = new byte[0];
+
+	private final Object m_lock;
+	private final P_HistoricalDataStore m_store;
+	private final long m_first;
+	private final int m_count;
+
+	private int m_position = -1;
+
+	private boolean m_isClosed = false;
+
+	public P_HistoricalDataCursor_Memory(final Object lock, final P_HistoricalDataStore store, final int from_index, final int count)
+	{
+		m_lock = lock;
+		m_store = store;
+		m_first = store.getEvictedCount() + from_index;
+		m_count = count;
+	}
+
+	private int getStoreIndex()
+	{
+		if( m_position < 0 || m_position >= m_count )  return -1;
+
+		final long index = m_first - m_store.getEvictedCount() + m_position;
+
+		return index >= 0 && index < m_store.getSize() ? (int) index : -1;
+	}
+
+	@Override public int getCount()
+	{
+		return m_count;
+	}
+
+	@Override public int getPosition()
+	{
+		return m_position;
+	}
+
+	@Override public boolean move(int offset)
+	{
+		return moveToPosition(m_position + offset);
+	}
+
+	@Override public boolean moveToPosition(int position)
+	{
+		if( position < 0 )
+		{
+			m_position = -1;
+
+			return false;
+		}
+		else if( position >= m_count )
+		{
+			m_position = m_count;
+
+			return false;
+		}
+		else
+		{
+			m_position = position;
+
+			return true;
+		}
+	}
+
+	@Override public boolean moveToFirst()
+	{
+		return moveToPosition(0);
+	}
+
+	@Override public boolean moveToLast()
+	{
+		return moveToPosition(m_count - 1);
+	}
+
+	@Override public boolean moveToNext()
+	{
+		return moveToPosition(m_position + 1);
+	}
+
+	@Override public boolean moveToPrevious()
+	{
+		return moveToPosition(m_position - 1);
+	}
+
+	@Override public boolean isFirst()
+	{
+		return m_count > 0 && m_position == 0;
+	}
+
+	@Override public boolean isLast()
+	{
+		return m_count > 0 && m_position == m_count - 1;
+	}
+
+	@Override public boolean isBeforeFirst()
+	{
+		return m_count == 0 || m_position < 0;
+	}
+
+	@Override public boolean isAfterLast()
+	{
+		return m_count == 0 || m_position >= m_count;
+	}
+
+	@Override public void close()
+	{
+		m_isClosed = true;
+	}
+
+	@Override public boolean isClosed()
+	{
+		return m_isClosed;
+	}
+
+	@Override public long getEpochTime()
+	{
+		synchronized(m_lock)
+		{
+			final int index = getStoreIndex();
+
+			return index >= 0 ? m_store.getTime(index) : 0L;
+		}
+	}
+
+	@Override public byte[] getBlob()
+	{
+		synchronized(m_lock)
+		{
+			final int index = getStoreIndex();
+
+			return index >= 0 ? m_store.getBlob(index) : EMPTY_BLOB;
+		}
+	}
+
+	@Override public int copyBlobInto(byte[] destination)
+	{
+		synchronized(m_lock)
+		{
+			final int index = getStoreIndex();
+
+			return index >= 0 ? m_store.copyBlobInto(index, destination) : 0;
+		}
+	}
+
+	@Override public HistoricalData getHistoricalData()
+	{
+		synchronized(m_lock)
+		{
+			final int index = getStoreIndex();
+
+			return index >= 0 ? m_store.get(index) : HistoricalData.NULL;
+		}
+	}
+}
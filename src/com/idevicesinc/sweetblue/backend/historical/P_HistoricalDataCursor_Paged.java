@@ -0,0 +1,302 @@
+package com.idevicesinc.sweetblue.backend.historical;
+
+import com.idevicesinc.sweetblue.utils.EpochTimeRange;
+import com.idevicesinc.sweetblue.utils.HistoricalData;
+import com.idevicesinc.sweetblue.utils.HistoricalDataCursor;
+import com.idevicesinc.sweetblue.utils.UpdateLoop;
+
+/**
+ * {@link HistoricalDataCursor} over a date range of a {@link Backend_HistoricalDatabase_Sqlite} table that only ever holds a
+ * window of {@link #WINDOW_SIZE} rows in memory. Once the cursor is halfway through a window the next one is loaded on
+ * the historical data {@link UpdateLoop}, so scrolling forward through a large range rarely waits on disk.
+ * <br><br>
+ * Each window starts right after the date and rowid of the last row of the window before it, so loading a window costs the same no matter
+ * how far into the range it is. Only jumping straight to a window whose previous window was never loaded has to skip rows by offset.
+ */
+class P_HistoricalDataCursor_Paged implements HistoricalDataCursor
+{
+	static final int WINDOW_SIZE = 256;
+
+	private static final byte[] EMPTY_BLOB = new byte[0];
+
+	private final Backend_HistoricalDatabase_Sqlite m_database;
+	private final UpdateLoop m_prefetchLoop;
+	private final String m_tableName;
+	private final EpochTimeRange m_range;
+	private final int m_count;
+
+	private int m_position = -1;
+	private boolean m_isClosed = false;
+
+	private P_HistoricalDataStore m_window = new P_HistoricalDataStore();
+	private int m_windowStart = -1;
+
+	//--- DRK > Shared with the historical data thread, guarded by this.
+	private P_HistoricalDataStore m_prefetched = null;
+	private int m_prefetchedStart = -1;
+	private P_HistoricalDataStore m_spare = null;
+	private int m_prefetchRequestedStart = -1;
+
+	//--- DRK > Date and rowid of the last row of each full window loaded so far, indexed by the number of the window that comes after. Guarded by this.
+	private final long[][] m_windowKeys;
+
+	public P_HistoricalDataCursor_Paged(final Backend_HistoricalDatabase_Sqlite database, final UpdateLoop prefetchLoop, final String tableName, final EpochTimeRange range, final int count)
+	{
+		m_database = database;
+		m_prefetchLoop = prefetchLoop;
+		m_tableName = tableName;
+		m_range = range;
+		m_count = count;
+		m_windowKeys = new long[(count + WINDOW_SIZE - 1) / WINDOW_SIZE][];
+	}
+
+	private void load(final int start, final P_HistoricalDataStore store)
+	{
+		final int windowNumber = start / WINDOW_SIZE;
+		final long[] after;
+
+		synchronized(this)
+		{
+			after = windowNumber < m_windowKeys.length ? m_windowKeys[windowNumber] : null;
+		}
+
+		final long[] lastKey = new long[2];
+
+		loadWindow(after, start, store, lastKey);
+
+		//--- DRK > A short window means rows were deleted out from under us, so don't trust where it ended.
+		if( store.getSize() == WINDOW_SIZE && windowNumber + 1 < m_windowKeys.length )
+		{
+			synchronized(this)
+			{
+				m_windowKeys[windowNumber + 1] = lastKey;
+			}
+		}
+	}
+
+	void loadWindow(final long[] after_nullable, final int offset, final P_HistoricalDataStore store, final long[] lastKey_out)
+	{
+		m_database.loadWindow(m_tableName, m_range, after_nullable, offset, WINDOW_SIZE, store, lastKey_out);
+	}
+
+	void postPrefetch(final Runnable prefetch)
+	{
+		m_prefetchLoop.forcePost(prefetch);
+	}
+
+	private int getWindowIndex()
+	{
+		if( m_isClosed || m_position < 0 || m_position >= m_count )  return -1;
+
+		if( m_windowStart < 0 || m_position < m_windowStart || m_position >= m_windowStart + m_window.getSize() )
+		{
+			final int start = m_position - m_position % WINDOW_SIZE;
+
+			if( !takePrefetched(start) )
+			{
+				load(start, m_window);
+				m_windowStart = start;
+			}
+		}
+
+		final int index = m_position - m_windowStart;
+
+		//--- DRK > Rows can be deleted out from under a cursor, in which case the window comes back short.
+		if( index >= m_window.getSize() )  return -1;
+
+		prefetchIfNeeded();
+
+		return index;
+	}
+
+	private synchronized boolean takePrefetched(final int start)
+	{
+		if( m_prefetched == null || m_prefetchedStart != start )  return false;
+
+		m_spare = m_window;
+		m_window = m_prefetched;
+		m_windowStart = start;
+
+		m_prefetched = null;
+		m_prefetchedStart = -1;
+
+		return true;
+	}
+
+	private void prefetchIfNeeded()
+	{
+		final int nextStart = m_windowStart + WINDOW_SIZE;
+
+		if( nextStart >= m_count || m_position - m_windowStart < WINDOW_SIZE / 2 )  return;
+
+		synchronized(this)
+		{
+			if( m_prefetchRequestedStart == nextStart || m_prefetchedStart == nextStart )  return;
+
+			m_prefetchRequestedStart = nextStart;
+		}
+
+		postPrefetch(new Runnable()
+		{
+			@Override public void run()
+			{
+				prefetch(nextStart);
+			}
+		});
+	}
+
+	private void prefetch(final int start)
+	{
+		final P_HistoricalDataStore store;
+
+		synchronized(this)
+		{
+			if( m_isClosed || m_prefetchRequestedStart != start )  return;
+
+			store = m_spare != null ? m_spare : new P_HistoricalDataStore();
+			m_spare = null;
+		}
+
+		load(start, store);
+
+		synchronized(this)
+		{
+			if( m_isClosed )  return;
+
+			m_prefetched = store;
+			m_prefetchedStart = start;
+
+			//--- DRK > Otherwise going back to the window before this one would never prefetch this one again.
+			if( m_prefetchRequestedStart == start )
+			{
+				m_prefetchRequestedStart = -1;
+			}
+		}
+	}
+
+	@Override public int getCount()
+	{
+		return m_count;
+	}
+
+	@Override public int getPosition()
+	{
+		return m_position;
+	}
+
+	@Override public boolean move(int offset)
+	{
+		return moveToPosition(m_position + offset);
+	}
+
+	@Override public boolean moveToPosition(int position)
+	{
+		if( position < 0 )
+		{
+			m_position = -1;
+
+			return false;
+		}
+		else if( position >= m_count )
+		{
+			m_position = m_count;
+
+			return false;
+		}
+		else
+		{
+			m_position = position;
+
+			return true;
+		}
+	}
+
+	@Override public boolean moveToFirst()
+	{
+		return moveToPosition(0);
+	}
+
+	@Override public boolean moveToLast()
+	{
+		return moveToPosition(m_count - 1);
+	}
+
+	@Override public boolean moveToNext()
+	{
+		return moveToPosition(m_position + 1);
+	}
+
+	@Override public boolean moveToPrevious()
+	{
+		return moveToPosition(m_position - 1);
+	}
+
+	@Override public boolean isFirst()
+	{
+		return m_count > 0 && m_position == 0;
+	}
+
+	@Override public boolean isLast()
+	{
+		return m_count > 0 && m_position == m_count - 1;
+	}
+
+	@Override public boolean isBeforeFirst()
+	{
+		return m_count == 0 || m_position < 0;
+	}
+
+	@Override public boolean isAfterLast()
+	{
+		return m_count == 0 || m_position >= m_count;
+	}
+
+	@Override public void close()
+	{
+		synchronized(this)
+		{
+			m_isClosed = true;
+
+			m_prefetched = null;
+			m_prefetchedStart = -1;
+			m_prefetchRequestedStart = -1;
+			m_spare = null;
+		}
+
+		m_window = new P_HistoricalDataStore();
+		m_windowStart = -1;
+	}
+
+	@Override public boolean isClosed()
+	{
+		return m_isClosed;
+	}
+
+	@Override public long getEpochTime()
+	{
+		final int index = getWindowIndex();
+
+		return index >= 0 ? m_window.getTime(index) : 0L;
+	}
+
+	@Override public byte[] getBlob()
+	{
+		final int index = getWindowIndex();
+
+		return index >= 0 ? m_window.getBlob(index) : EMPTY_BLOB;
+	}
+
+	@Override public int copyBlobInto(byte[] destination)
+	{
+		final int index = getWindowIndex();
+
+		return index >= 0 ? m_window.copyBlobInto(index, destination) : 0;
+	}
+
+	@Override public HistoricalData getHistoricalData()
+	{
+		final int index = getWindowIndex();
+
+		return index >= 0 ? m_window.get(index) : HistoricalData.NULL;
+	}
+}
@@ -0,0 +1,167 @@
+package com.idevicesinc.sweetblue.backend.historical;
+
+/**
+ * Remembers the index bounds of the last few date ranges looked up in a {@link P_HistoricalDataStore}, so that
+ * for example a chart flipping between a few fixed ranges doesn't search for them again on every redraw.
+ * <br><br>
+ * Indices are absolute, meaning they count samples evicted from the front by {@link P_HistoricalDataStore#getEvictedCount()},
+ * so evictions never invalidate an entry. Inserts and deletes adjust entries in place through {@link #onInserted(long, long)}
+ * and {@link #onRemoved(long, long, long)}, which keeps every entry exact without recomputing anything.
+ */
+class P_HistoricalDataIndexCache_Lru
+{
+	static final int DEFAULT_CAPACITY = 8;
+
+	private final long[] m_fromDates;
+	private final long[] m_toDates;
+	private final long[] m_fromIndices;
+	private final long[] m_toIndices;
+	private final long[] m_lastUsed;
+
+	private int m_size = 0;
+	private long m_useCounter = 0;
+
+	P_HistoricalDataIndexCache_Lru()
+	{
+		this(DEFAULT_CAPACITY);
+	}
+
+	P_HistoricalDataIndexCache_Lru(final int capacity)
+	{
+		m_fromDates = new long[capacity];
+		m_toDates = new long[capacity];
+		m_fromIndices = new long[capacity];
+		m_toIndices = new long[capacity];
+		m_lastUsed = new long[capacity];
+	}
+
+	/**
+	 * Returns the slot holding the given range, or <code>-1</code> if it's not cached.
+	 */
+	int find(final long fromDate, final long toDate)
+	{
+		for( int i = 0; i < m_size; i++ )
+		{
+			if( m_fromDates[i] == fromDate && m_toDates[i] == toDate )
+			{
+				m_lastUsed[i] = ++m_useCounter;
+
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Caches a range, evicting the least recently used one if full. The to-index is exclusive.
+	 */
+	void put(final long fromDate, final long toDate, final long fromIndex, final long toIndex)
+	{
+		int slot = m_size;
+
+		if( m_size < m_fromDates.length )
+		{
+			m_size++;
+		}
+		else
+		{
+			slot = 0;
+
+			for( int i = 1; i < m_size; i++ )
+			{
+				if( m_lastUsed[i] < m_lastUsed[slot] )
+				{
+					slot = i;
+				}
+			}
+		}
+
+		m_fromDates[slot] = fromDate;
+		m_toDates[slot] = toDate;
+		m_fromIndices[slot] = fromIndex;
+		m_toIndices[slot] = toIndex;
+		m_lastUsed[slot] = ++m_useCounter;
+	}
+
+	long getFromIndex(final int slot, final long firstIndex)
+	{
+		clampTo(slot, firstIndex);
+
+		return m_fromIndices[slot];
+	}
+
+	long getToIndex(final int slot, final long firstIndex)
+	{
+		clampTo(slot, firstIndex);
+
+		return m_toIndices[slot];
+	}
+
+	/**
+	 * Entries can point before the first index still in the store if samples in their range were evicted,
+	 * so pull them forward before adjusting for anything else.
+	 */
+	private void clampTo(final int slot, final long firstIndex)
+	{
+		m_fromIndices[slot] = Math.max(m_fromIndices[slot], firstIndex);
+		m_toIndices[slot] = Math.max(m_toIndices[slot], firstIndex);
+	}
+
+	/**
+	 * Call after a sample with the given time was added anywhere in the store.
+	 */
+	void onInserted(final long date, final long firstIndex)
+	{
+		for( int i = 0; i < m_size; i++ )
+		{
+			clampTo(i, firstIndex);
+
+			if( date < m_fromDates[i] )
+			{
+				m_fromIndices[i]++;
+				m_toIndices[i]++;
+			}
+			else if( date <= m_toDates[i] )
+			{
+				//--- DRK > The common case of new data landing at the end of an open-ended range like "last hour".
+				m_toIndices[i]++;
+			}
+		}
+	}
+
+	/**
+	 * Call after the samples at absolute indices [from, to) were removed from anywhere but the front.
+	 */
+	void onRemoved(final long fromIndex, final long toIndex, final long firstIndex)
+	{
+		for( int i = 0; i < m_size; i++ )
+		{
+			clampTo(i, firstIndex);
+
+			m_fromIndices[i] = adjustForRemoval(m_fromIndices[i], fromIndex, toIndex);
+			m_toIndices[i] = adjustForRemoval(m_toIndices[i], fromIndex, toIndex);
+		}
+	}
+
+	private static long adjustForRemoval(final long index, final long fromIndex, final long toIndex)
+	{
+		if( index < fromIndex )
+		{
+			return index;
+		}
+		else if( index >= toIndex )
+		{
+			return index - (toIndex - fromIndex);
+		}
+		else
+		{
+			return fromIndex;
+		}
+	}
+
+	void clear()
+	{
+		m_size = 0;
+	}
+}
@@ -0,0 +1,359 @@
+package com.idevicesinc.sweetblue.backend.historical;
+
+import com.idevicesinc.sweetblue.utils.HistoricalData;
+import com.idevicesinc.sweetblue.utils.HistoricalDataValueType;
+
+/**
+ * Time-sorted storage for historical data that avoids an object per sample. Timestamps live in a <code>long[]</code>
+ * and payloads are packed into one byte arena addressed by offset and length. Samples dropped from the front,
+ * for example to honor a log limit, only move a start index so the arrays behave like a ring buffer, and the space
+ * they leave behind is reclaimed in bulk once it's worth it.
+ * <br><br>
+ * Indices passed to and returned from this class are relative to the oldest sample currently stored. Not thread-safe.
+ */
+class P_HistoricalDataStore
+{
+	private static final int INITIAL_CAPACITY = 16;
+	private static final int INITIAL_ARENA_CAPACITY = 256;
+
+	private long[] m_times = new long[INITIAL_CAPACITY];
+	private int[] m_offsets = new int[INITIAL_CAPACITY];
+	private int[] m_lengths = new int[INITIAL_CAPACITY];
+	private int m_start = 0;
+	private int m_size = 0;
+
+	private byte[] m_arena = new byte[INITIAL_ARENA_CAPACITY];
+	private int m_arenaEnd = 0;
+	private int m_arenaGarbage = 0;
+
+	//--- DRK > True as long as payloads sit in the arena in the same order as their timestamps, which lets compaction happen in place.
+	private boolean m_arenaOrdered = true;
+
+	private long m_evictedCount = 0;
+
+	int getSize()
+	{
+		return m_size;
+	}
+
+	/**
+	 * Total number of samples ever removed from the front, so that a caller can hold on to a stable position while new samples are appended.
+	 */
+	long getEvictedCount()
+	{
+		return m_evictedCount;
+	}
+
+	long getTime(final int index)
+	{
+		return m_times[m_start + index];
+	}
+
+	int getLength(final int index)
+	{
+		return m_lengths[m_start + index];
+	}
+
+	byte[] getBlob(final int index)
+	{
+		final byte[] blob = new byte[getLength(index)];
+
+		copyBlobInto(index, blob);
+
+		return blob;
+	}
+
+	/**
+	 * Copies as much of the payload as fits and returns its full length.
+	 */
+	int copyBlobInto(final int index, final byte[] destination)
+	{
+		final int length = m_lengths[m_start + index];
+
+		System.arraycopy(m_arena, m_offsets[m_start + index], destination, 0, Math.min(length, destination.length));
+
+		return length;
+	}
+
+	/**
+	 * Reads the payload as a number, or returns <code>false</code> if it's too short. The value is left in <code>value_out[0]</code>
+	 * so that aggregating over many samples doesn't box anything.
+	 */
+	boolean readValue(final int index, final HistoricalDataValueType valueType, final int byteOffset, final long[] value_out)
+	{
+		if( byteOffset < 0 || m_lengths[m_start + index] < byteOffset + valueType.getByteCount() )  return false;
+
+		value_out[0] = valueType.read(m_arena, m_offsets[m_start + index] + byteOffset);
+
+		return true;
+	}
+
+	HistoricalData get(final int index)
+	{
+		return new HistoricalData(getBlob(index), getTime(index));
+	}
+
+	/**
+	 * Returns the index of the first sample whose time is >= the given time, or {@link #getSize()} if there is none.
+	 */
+	int lowerBound(final long time)
+	{
+		int low = m_start;
+		int high = m_start + m_size;
+
+		while( low < high )
+		{
+			final int mid = (low + high) >>> 1;
+
+			if( m_times[mid] < time )
+			{
+				low = mid + 1;
+			}
+			else
+			{
+				high = mid;
+			}
+		}
+
+		return low - m_start;
+	}
+
+	/**
+	 * Returns the index of the first sample whose time is > the given time, or {@link #getSize()} if there is none.
+	 */
+	int upperBound(final long time)
+	{
+		int low = m_start;
+		int high = m_start + m_size;
+
+		while( low < high )
+		{
+			final int mid = (low + high) >>> 1;
+
+			if( m_times[mid] <= time )
+			{
+				low = mid + 1;
+			}
+			else
+			{
+				high = mid;
+			}
+		}
+
+		return low - m_start;
+	}
+
+	/**
+	 * Adds a sample, keeping samples sorted by time. Samples with equal times keep the order they were added in.
+	 * Returns the index the sample landed at.
+	 */
+	int add(final long time, final byte[] blob)
+	{
+		final int length = blob != null ? blob.length : 0;
+
+		ensureArenaCapacity(length);
+		ensureIndexCapacity();
+
+		//--- DRK > Common case is data arriving in order, so check the end before doing a search.
+		final int index = m_size == 0 || m_times[m_start + m_size - 1] <= time ? m_size : upperBound(time);
+		final int slot = m_start + index;
+
+		if( index < m_size )
+		{
+			final int count = m_size - index;
+
+			System.arraycopy(m_times, slot, m_times, slot + 1, count);
+			System.arraycopy(m_offsets, slot, m_offsets, slot + 1, count);
+			System.arraycopy(m_lengths, slot, m_lengths, slot + 1, count);
+
+			m_arenaOrdered = false;
+		}
+
+		if( length > 0 )
+		{
+			System.arraycopy(blob, 0, m_arena, m_arenaEnd, length);
+		}
+
+		m_times[slot] = time;
+		m_offsets[slot] = m_arenaEnd;
+		m_lengths[slot] = length;
+
+		m_arenaEnd += length;
+		m_size++;
+
+		return index;
+	}
+
+	/**
+	 * Removes the samples in [from, to).
+	 */
+	void remove(final int from, final int to)
+	{
+		final int count = to - from;
+
+		if( count <= 0 )  return;
+
+		for( int i = m_start + from; i < m_start + to; i++ )
+		{
+			m_arenaGarbage += m_lengths[i];
+		}
+
+		if( from == 0 )
+		{
+			m_start += count;
+			m_evictedCount += count;
+		}
+		else if( to < m_size )
+		{
+			final int tailCount = m_size - to;
+
+			System.arraycopy(m_times, m_start + to, m_times, m_start + from, tailCount);
+			System.arraycopy(m_offsets, m_start + to, m_offsets, m_start + from, tailCount);
+			System.arraycopy(m_lengths, m_start + to, m_lengths, m_start + from, tailCount);
+		}
+
+		m_size -= count;
+
+		if( m_size == 0 )
+		{
+			clear_private();
+		}
+	}
+
+	void clear()
+	{
+		m_evictedCount += m_size;
+
+		clear_private();
+	}
+
+	private void clear_private()
+	{
+		m_start = 0;
+		m_size = 0;
+		m_arenaEnd = 0;
+		m_arenaGarbage = 0;
+		m_arenaOrdered = true;
+	}
+
+	/**
+	 * Gives back memory left over from when more samples were stored, for example after old data was deleted.
+	 */
+	void trimToSize()
+	{
+		int capacity = INITIAL_CAPACITY;
+
+		while( capacity < m_size * 2 )
+		{
+			capacity *= 2;
+		}
+
+		if( capacity < m_times.length )
+		{
+			m_times = moveToFront(m_times, capacity);
+			m_offsets = moveToFront(m_offsets, capacity);
+			m_lengths = moveToFront(m_lengths, capacity);
+
+			m_start = 0;
+		}
+
+		final int liveBytes = m_arenaEnd - m_arenaGarbage;
+		int arenaCapacity = INITIAL_ARENA_CAPACITY;
+
+		while( liveBytes > arenaCapacity - arenaCapacity / 4 )
+		{
+			arenaCapacity *= 2;
+		}
+
+		if( arenaCapacity < m_arena.length )
+		{
+			compactArena(arenaCapacity);
+		}
+	}
+
+	private void ensureIndexCapacity()
+	{
+		if( m_start + m_size < m_times.length )  return;
+
+		//--- DRK > Only grow if at least half the array is actually in use, otherwise just slide everything back to the front.
+		final int capacity = m_size >= m_times.length / 2 ? m_times.length * 2 : m_times.length;
+
+		m_times = moveToFront(m_times, capacity);
+		m_offsets = moveToFront(m_offsets, capacity);
+		m_lengths = moveToFront(m_lengths, capacity);
+
+		m_start = 0;
+	}
+
+	private long[] moveToFront(final long[] array, final int capacity)
+	{
+		final long[] destination = capacity == array.length ? array : new long[capacity];
+
+		System.arraycopy(array, m_start, destination, 0, m_size);
+
+		return destination;
+	}
+
+	private int[] moveToFront(final int[] array, final int capacity)
+	{
+		final int[] destination = capacity == array.length ? array : new int[capacity];
+
+		System.arraycopy(array, m_start, destination, 0, m_size);
+
+		return destination;
+	}
+
+	private void ensureArenaCapacity(final int length)
+	{
+		if( m_arenaEnd + length <= m_arena.length )  return;
+
+		final int liveBytes = m_arenaEnd - m_arenaGarbage;
+
+		int capacity = m_arena.length;
+
+		//--- DRK > Leave a quarter of the arena free after compacting so that compactions stay rare relative to adds.
+		while( liveBytes + length > capacity - capacity / 4 )
+		{
+			capacity *= 2;
+		}
+
+		compactArena(capacity);
+	}
+
+	private void compactArena(final int capacity)
+	{
+		if( m_arenaOrdered && capacity == m_arena.length )
+		{
+			int end = 0;
+
+			for( int i = m_start; i < m_start + m_size; i++ )
+			{
+				System.arraycopy(m_arena, m_offsets[i], m_arena, end, m_lengths[i]);
+
+				m_offsets[i] = end;
+				end += m_lengths[i];
+			}
+
+			m_arenaEnd = end;
+		}
+		else
+		{
+			final byte[] arena = new byte[capacity];
+			int end = 0;
+
+			for( int i = m_start; i < m_start + m_size; i++ )
+			{
+				System.arraycopy(m_arena, m_offsets[i], arena, end, m_lengths[i]);
+
+				m_offsets[i] = end;
+				end += m_lengths[i];
+			}
+
+			m_arena = arena;
+			m_arenaEnd = end;
+		}
+
+		m_arenaGarbage = 0;
+		m_arenaOrdered = true;
+	}
+}
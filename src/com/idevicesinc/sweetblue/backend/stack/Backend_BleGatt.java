@@ -0,0 +1,65 @@
+package com.idevicesinc.sweetblue.backend.stack;
+
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattDescriptor;
+import android.bluetooth.BluetoothGattService;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Defines a specification for a single GATT connection as returned by {@link Backend_BleStack#connectGatt(android.content.Context, BluetoothDevice, boolean, android.bluetooth.BluetoothGattCallback)}.
+ * Methods mirror their counterparts on {@link BluetoothGatt}.
+ */
+public interface Backend_BleGatt
+{
+	/**
+	 * Returns the native instance if this connection is backed by one, otherwise <code>null</code>.
+	 */
+	BluetoothGatt getNative();
+
+	boolean discoverServices();
+
+	List<BluetoothGattService> getServices();
+
+	BluetoothGattService getService(final UUID serviceUuid);
+
+	boolean readCharacteristic(final BluetoothGattCharacteristic characteristic);
+
+	boolean writeCharacteristic(final BluetoothGattCharacteristic characteristic);
+
+	boolean setCharacteristicNotification(final BluetoothGattCharacteristic characteristic, final boolean enable);
+
+	boolean writeDescriptor(final BluetoothGattDescriptor descriptor);
+
+	boolean readRemoteRssi();
+
+	/**
+	 * Asks to negotiate the ATT MTU, with the result delivered through {@link android.bluetooth.BluetoothGattCallback#onMtuChanged(BluetoothGatt, int, int)}.
+	 * Returns <code>false</code> if the request couldn't be sent, including on Android versions before Lollipop.
+	 */
+	boolean requestMtu(final int mtu);
+
+	/**
+	 * Mirrors {@link BluetoothGatt#requestConnectionPriority(int)}, which has no callback. Returns <code>false</code> if the request
+	 * couldn't be sent, including on Android versions before Lollipop.
+	 */
+	boolean requestConnectionPriority(final int connectionPriority);
+
+	boolean beginReliableWrite();
+
+	boolean executeReliableWrite();
+
+	void abortReliableWrite(final BluetoothDevice device);
+
+	/**
+	 * Clears any cached services, returning <code>false</code> if that's not possible.
+	 */
+	boolean refresh();
+
+	void disconnect();
+
+	void close();
+}
@@ -0,0 +1,145 @@
+package com.idevicesinc.sweetblue.backend.stack;
+
+import android.annotation.SuppressLint;
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattDescriptor;
+import android.bluetooth.BluetoothGattService;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Default implementation of {@link Backend_BleGatt} that simply forwards to a {@link BluetoothGatt}.
+ */
+public class Backend_BleGatt_Default implements Backend_BleGatt
+{
+	private final BluetoothGatt m_gatt;
+
+	public Backend_BleGatt_Default(final BluetoothGatt gatt)
+	{
+		m_gatt = gatt;
+	}
+
+	@Override public BluetoothGatt getNative()
+	{
+		return m_gatt;
+	}
+
+	@Override public boolean discoverServices()
+	{
+		return m_gatt.discoverServices();
+	}
+
+	@Override public List<BluetoothGattService> getServices()
+	{
+		return m_gatt.getServices();
+	}
+
+	@Override public BluetoothGattService getService(final UUID serviceUuid)
+	{
+		return m_gatt.getService(serviceUuid);
+	}
+
+	@Override public boolean readCharacteristic(final BluetoothGattCharacteristic characteristic)
+	{
+		return m_gatt.readCharacteristic(characteristic);
+	}
+
+	@Override public boolean writeCharacteristic(final BluetoothGattCharacteristic characteristic)
+	{
+		return m_gatt.writeCharacteristic(characteristic);
+	}
+
+	@Override public boolean setCharacteristicNotification(final BluetoothGattCharacteristic characteristic, final boolean enable)
+	{
+		return m_gatt.setCharacteristicNotification(characteristic, enable);
+	}
+
+	@Override public boolean writeDescriptor(final BluetoothGattDescriptor descriptor)
+	{
+		return m_gatt.writeDescriptor(descriptor);
+	}
+
+	@Override public boolean readRemoteRssi()
+	{
+		return m_gatt.readRemoteRssi();
+	}
+
+	@SuppressLint("NewApi")
+	@Override public boolean requestMtu(final int mtu)
+	{
+		if( android.os.Build.VERSION.SDK_INT < 21 )
+		{
+			return false;
+		}
+		else
+		{
+			return m_gatt.requestMtu(mtu);
+		}
+	}
+
+	@SuppressLint("NewApi")
+	@Override public boolean requestConnectionPriority(final int connectionPriority)
+	{
+		if( android.os.Build.VERSION.SDK_INT < 21 )
+		{
+			return false;
+		}
+		else
+		{
+			return m_gatt.requestConnectionPriority(connectionPriority);
+		}
+	}
+
+	@Override public boolean beginReliableWrite()
+	{
+		return m_gatt.beginReliableWrite();
+	}
+
+	@Override public boolean executeReliableWrite()
+	{
+		return m_gatt.executeReliableWrite();
+	}
+
+	@SuppressLint("NewApi")
+	@SuppressWarnings("deprecation")
+	@Override public void abortReliableWrite(final BluetoothDevice device)
+	{
+		if( android.os.Build.VERSION.SDK_INT < 19 )
+		{
+			m_gatt.abortReliableWrite(device);
+		}
+		else
+		{
+			m_gatt.abortReliableWrite();
+		}
+	}
+
+	@Override public boolean refresh()
+	{
+		try
+		{
+			final Method method = m_gatt.getClass().getMethod("refresh", (Class[]) null);
+			final Boolean result = (Boolean) method.invoke(m_gatt, (Object[]) null);
+
+			return result != null && result;
+		}
+		catch(Exception e)
+		{
+			return false;
+		}
+	}
+
+	@Override public void disconnect()
+	{
+		m_gatt.disconnect();
+	}
+
+	@Override public void close()
+	{
+		m_gatt.close();
+	}
+}
@@ -0,0 +1,71 @@
+package com.idevicesinc.sweetblue.backend.stack;
+
+import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCallback;
+import android.bluetooth.le.ScanCallback;
+import android.bluetooth.le.ScanFilter;
+import android.bluetooth.le.ScanSettings;
+import android.content.Context;
+
+import com.idevicesinc.sweetblue.BleManager;
+
+import java.util.List;
+
+/**
+ * Defines a specification for the adapter-level half of the native BLE stack that {@link BleManager} talks to.
+ * Methods mirror their counterparts on {@link BluetoothAdapter}, {@link android.bluetooth.BluetoothManager} and
+ * {@link BluetoothDevice}, and callbacks are delivered through the same native callback interfaces SweetBlue already passes in.
+ */
+public interface Backend_BleStack
+{
+	void init(final Context context, final BleManager manager);
+
+	/**
+	 * Returns the native adapter if this stack is backed by one, otherwise <code>null</code>.
+	 */
+	BluetoothAdapter getNativeAdapter();
+
+	int getState();
+
+	boolean isEnabled();
+
+	boolean enable();
+
+	boolean disable();
+
+	BluetoothDevice getRemoteDevice(final String macAddress);
+
+	int getConnectionState(final BluetoothDevice device);
+
+	boolean startLeScan(final BluetoothAdapter.LeScanCallback callback);
+
+	void stopLeScan(final BluetoothAdapter.LeScanCallback callback);
+
+	/**
+	 * Returns whether {@link #startScan(List, ScanSettings, ScanCallback)} honors {@link ScanSettings#getReportDelayMillis()},
+	 * i.e. whether results can be delivered through {@link ScanCallback#onBatchScanResults(List)}.
+	 */
+	boolean isScanBatchingSupported();
+
+	/**
+	 * Starts a post-Lollipop scan. <code>filters_nullable</code> are passed down to the controller if given, so results not matching any of them are never delivered.
+	 */
+	void startScan(final List<ScanFilter> filters_nullable, final ScanSettings settings, final ScanCallback callback);
+
+	void stopScan(final ScanCallback callback);
+
+	boolean startDiscovery();
+
+	boolean isDiscovering();
+
+	boolean cancelDiscovery();
+
+	Backend_BleGatt connectGatt(final Context context, final BluetoothDevice device, final boolean autoConnect, final BluetoothGattCallback callback);
+
+	/**
+	 * Wraps a {@link BluetoothGatt} handed back through a native callback. Stacks that never produce native instances can return <code>null</code>.
+	 */
+	Backend_BleGatt wrap(final BluetoothGatt gatt);
+}
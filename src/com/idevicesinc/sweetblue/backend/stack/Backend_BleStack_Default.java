@@ -0,0 +1,130 @@
+package com.idevicesinc.sweetblue.backend.stack;
+
+import android.annotation.SuppressLint;
+import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCallback;
+import android.bluetooth.BluetoothManager;
+import android.bluetooth.BluetoothProfile;
+import android.bluetooth.le.ScanCallback;
+import android.bluetooth.le.ScanFilter;
+import android.bluetooth.le.ScanSettings;
+import android.content.Context;
+
+import com.idevicesinc.sweetblue.BleManager;
+import com.idevicesinc.sweetblue.utils.Utils;
+
+import java.util.List;
+
+/**
+ * Default implementation of {@link Backend_BleStack} that simply forwards to Android's {@link BluetoothManager} and {@link BluetoothAdapter}.
+ */
+public class Backend_BleStack_Default implements Backend_BleStack
+{
+	private BluetoothManager m_btMngr;
+
+	@Override public void init(final Context context, final BleManager manager)
+	{
+		m_btMngr = (BluetoothManager) context.getApplicationContext().getSystemService(Context.BLUETOOTH_SERVICE);
+	}
+
+	@Override public BluetoothAdapter getNativeAdapter()
+	{
+		return m_btMngr != null ? m_btMngr.getAdapter() : null;
+	}
+
+	@Override public int getState()
+	{
+		//--- DRK > Account for unit testing. When using robolectric the bluetooth manager comes back null,
+		//---		so just pretend ble is on.
+		if( m_btMngr == null )
+		{
+			return BluetoothAdapter.STATE_ON;
+		}
+		else
+		{
+			return m_btMngr.getAdapter().getState();
+		}
+	}
+
+	@Override public boolean isEnabled()
+	{
+		return getNativeAdapter().isEnabled();
+	}
+
+	@Override public boolean enable()
+	{
+		return getNativeAdapter().enable();
+	}
+
+	@Override public boolean disable()
+	{
+		return getNativeAdapter().disable();
+	}
+
+	@Override public BluetoothDevice getRemoteDevice(final String macAddress)
+	{
+		return getNativeAdapter().getRemoteDevice(macAddress);
+	}
+
+	@Override public int getConnectionState(final BluetoothDevice device)
+	{
+		return m_btMngr.getConnectionState(device, BluetoothProfile.GATT_SERVER);
+	}
+
+	@SuppressWarnings("deprecation")
+	@Override public boolean startLeScan(final BluetoothAdapter.LeScanCallback callback)
+	{
+		return getNativeAdapter().startLeScan(callback);
+	}
+
+	@SuppressWarnings("deprecation")
+	@Override public void stopLeScan(final BluetoothAdapter.LeScanCallback callback)
+	{
+		getNativeAdapter().stopLeScan(callback);
+	}
+
+	@SuppressLint("NewApi")
+	@Override public boolean isScanBatchingSupported()
+	{
+		return Utils.isLollipop() && getNativeAdapter() != null && getNativeAdapter().isOffloadedScanBatchingSupported();
+	}
+
+	@SuppressLint("NewApi")
+	@Override public void startScan(final List<ScanFilter> filters_nullable, final ScanSettings settings, final ScanCallback callback)
+	{
+		getNativeAdapter().getBluetoothLeScanner().startScan(filters_nullable, settings, callback);
+	}
+
+	@SuppressLint("NewApi")
+	@Override public void stopScan(final ScanCallback callback)
+	{
+		getNativeAdapter().getBluetoothLeScanner().stopScan(callback);
+	}
+
+	@Override public boolean startDiscovery()
+	{
+		return getNativeAdapter().startDiscovery();
+	}
+
+	@Override public boolean isDiscovering()
+	{
+		return getNativeAdapter().isDiscovering();
+	}
+
+	@Override public boolean cancelDiscovery()
+	{
+		return getNativeAdapter().cancelDiscovery();
+	}
+
+	@Override public Backend_BleGatt connectGatt(final Context context, final BluetoothDevice device, final boolean autoConnect, final BluetoothGattCallback callback)
+	{
+		return wrap(device.connectGatt(context, autoConnect, callback));
+	}
+
+	@Override public Backend_BleGatt wrap(final BluetoothGatt gatt)
+	{
+		return gatt != null ? new Backend_BleGatt_Default(gatt) : null;
+	}
+}
@@ -0,0 +1,957 @@
+package com.idevicesinc.sweetblue.backend.stack;
+
+import android.annotation.SuppressLint;
+import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCallback;
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattDescriptor;
+import android.bluetooth.BluetoothGattService;
+import android.bluetooth.BluetoothProfile;
+import android.bluetooth.le.ScanCallback;
+import android.bluetooth.le.ScanFilter;
+import android.bluetooth.le.ScanRecord;
+import android.bluetooth.le.ScanResult;
+import android.bluetooth.le.ScanSettings;
+import android.content.Context;
+import android.content.Intent;
+
+import com.idevicesinc.sweetblue.BleManager;
+import com.idevicesinc.sweetblue.utils.Interval;
+import com.idevicesinc.sweetblue.utils.Uuids;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An in-process implementation of {@link Backend_BleStack} that fakes an adapter and a configurable number of peripherals
+ * so that scanning, connecting, service discovery, reads, writes, and notifications can be driven through the normal
+ * task queue without a radio. All native callbacks are delivered from a single background thread after
+ * {@link Config#latency}, with a <code>null</code> {@link BluetoothGatt} argument since there's no native instance to give.
+ * <br><br>
+ * Framework classes like {@link BluetoothDevice} and {@link BluetoothGattService} are still used as plain data holders, so this
+ * needs a JVM where those are real, for example a Robolectric test run or an actual device. Install it through
+ * {@link com.idevicesinc.sweetblue.backend.Backend_Modules#BLE_STACK} before the first call to {@link BleManager#get(Context)}.
+ */
+public class Backend_BleStack_Simulated implements Backend_BleStack
+{
+	/**
+	 * Knobs for the simulation. Change the fields of {@link #CONFIG} before {@link BleManager} is created.
+	 */
+	public static class Config
+	{
+		/**
+		 * Delay between an operation being started and its native callback being delivered.
+		 */
+		public Interval latency = Interval.millis(20);
+
+		/**
+		 * Largest ATT MTU the simulated peripheral agrees to through {@link Backend_BleGatt#requestMtu(int)}. Connections start out at 23
+		 * like real ones, and payloads bigger than the current MTU minus 3 are charged one extra {@link #latency} per additional packet.
+		 */
+		public int mtu = 247;
+
+		/**
+		 * Chance from 0.0 to 1.0 that any given callback is silently dropped, which SweetBlue will see as a timeout.
+		 */
+		public double packetLoss = 0.0;
+
+		/**
+		 * Number of peripherals that will advertise while scanning.
+		 */
+		public int deviceCount = 10;
+
+		/**
+		 * How often every peripheral advertises while a scan is running.
+		 */
+		public Interval advertisingInterval = Interval.millis(100);
+
+		/**
+		 * How often enabled notifications fire, or {@link Interval#DISABLED} to never send them.
+		 */
+		public Interval notifyInterval = Interval.secs(1.0);
+
+		/**
+		 * The one service every peripheral exposes and advertises.
+		 */
+		public UUID serviceUuid = UUID.fromString("0000FFF0-0000-1000-8000-00805F9B34FB");
+
+		/**
+		 * The one characteristic under {@link #serviceUuid}, supporting read, write, and notify.
+		 */
+		public UUID charUuid = UUID.fromString("0000FFF1-0000-1000-8000-00805F9B34FB");
+
+		/**
+		 * Seed for RSSI jitter and {@link #packetLoss} so runs are repeatable.
+		 */
+		public long randomSeed = 0L;
+	}
+
+	/**
+	 * Settings used by every new instance.
+	 */
+	public static final Config CONFIG = new Config();
+
+	private static final String MAC_PREFIX = "5A:1E:00:00:";
+
+	//--- DRK > What every connection starts out with according to the spec.
+	private static final int MIN_MTU = 23;
+
+	private final Config m_config;
+	private final Object m_lock = new Object();
+	private final HashMap<String, P_Peripheral> m_peripherals = new HashMap<String, P_Peripheral>();
+	private final List<P_Peripheral> m_advertisers = new ArrayList<P_Peripheral>();
+
+	private Context m_context;
+	private ScheduledExecutorService m_executor;
+	private Random m_random;
+
+	private int m_state = BluetoothAdapter.STATE_ON;
+
+	private BluetoothAdapter.LeScanCallback m_leScanCallback = null;
+	private ScanCallback m_scanCallback = null;
+	private List<ScanFilter> m_scanFilters = null;
+	private long m_scanReportDelay = 0;
+	private long m_lastBatchTime = 0;
+	private final List<ScanResult> m_batch = new ArrayList<ScanResult>();
+	private ScheduledFuture<?> m_advertising = null;
+
+	public Backend_BleStack_Simulated()
+	{
+		final Config config = new Config();
+		config.latency = CONFIG.latency;
+		config.mtu = CONFIG.mtu;
+		config.packetLoss = CONFIG.packetLoss;
+		config.deviceCount = CONFIG.deviceCount;
+		config.advertisingInterval = CONFIG.advertisingInterval;
+		config.notifyInterval = CONFIG.notifyInterval;
+		config.serviceUuid = CONFIG.serviceUuid;
+		config.charUuid = CONFIG.charUuid;
+		config.randomSeed = CONFIG.randomSeed;
+
+		m_config = config;
+	}
+
+	/**
+	 * Returns the mac address that the peripheral at the given index, from 0 up to {@link Config#deviceCount}, advertises with.
+	 */
+	public static String getMacAddress(final int index)
+	{
+		return MAC_PREFIX + String.format("%02X:%02X", (index >> 8) & 0xFF, index & 0xFF);
+	}
+
+	@Override public void init(final Context context, final BleManager manager)
+	{
+		m_context = context.getApplicationContext();
+		m_random = new Random(m_config.randomSeed);
+		m_executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+		{
+			@Override public Thread newThread(final Runnable r)
+			{
+				final Thread thread = new Thread(r, "sweetblue_simulated_stack");
+				thread.setDaemon(true);
+
+				return thread;
+			}
+		});
+
+		for( int i = 0; i < m_config.deviceCount; i++ )
+		{
+			final P_Peripheral peripheral = getPeripheral(getMacAddress(i), String.format("SIM_%04d", i));
+
+			if( peripheral != null )
+			{
+				m_advertisers.add(peripheral);
+			}
+		}
+	}
+
+	@Override public BluetoothAdapter getNativeAdapter()
+	{
+		return null;
+	}
+
+	@Override public int getState()
+	{
+		synchronized (m_lock)
+		{
+			return m_state;
+		}
+	}
+
+	@Override public boolean isEnabled()
+	{
+		return getState() == BluetoothAdapter.STATE_ON;
+	}
+
+	@Override public boolean enable()
+	{
+		return transition(BluetoothAdapter.STATE_OFF, BluetoothAdapter.STATE_TURNING_ON, BluetoothAdapter.STATE_ON);
+	}
+
+	@Override public boolean disable()
+	{
+		return transition(BluetoothAdapter.STATE_ON, BluetoothAdapter.STATE_TURNING_OFF, BluetoothAdapter.STATE_OFF);
+	}
+
+	@Override public BluetoothDevice getRemoteDevice(final String macAddress)
+	{
+		final P_Peripheral peripheral = getPeripheral(macAddress, null);
+
+		return peripheral != null ? peripheral.m_device : null;
+	}
+
+	@Override public int getConnectionState(final BluetoothDevice device)
+	{
+		final P_Peripheral peripheral = device != null ? getPeripheral(device.getAddress(), null) : null;
+
+		synchronized (m_lock)
+		{
+			return peripheral != null ? peripheral.m_connectionState : BluetoothProfile.STATE_DISCONNECTED;
+		}
+	}
+
+	@Override public boolean startLeScan(final BluetoothAdapter.LeScanCallback callback)
+	{
+		synchronized (m_lock)
+		{
+			if( !isEnabled() )  return false;
+
+			m_leScanCallback = callback;
+			startAdvertising();
+
+			return true;
+		}
+	}
+
+	@Override public void stopLeScan(final BluetoothAdapter.LeScanCallback callback)
+	{
+		synchronized (m_lock)
+		{
+			if( m_leScanCallback != callback )  return;
+
+			m_leScanCallback = null;
+			stopAdvertisingIfNeeded();
+		}
+	}
+
+	@Override public boolean isScanBatchingSupported()
+	{
+		return true;
+	}
+
+	@SuppressLint("NewApi")
+	@Override public void startScan(final List<ScanFilter> filters_nullable, final ScanSettings settings, final ScanCallback callback)
+	{
+		synchronized (m_lock)
+		{
+			if( !isEnabled() )  return;
+
+			m_scanCallback = callback;
+			m_scanFilters = filters_nullable != null && !filters_nullable.isEmpty() ? new ArrayList<ScanFilter>(filters_nullable) : null;
+			m_scanReportDelay = settings != null ? settings.getReportDelayMillis() : 0;
+			m_lastBatchTime = System.currentTimeMillis();
+			m_batch.clear();
+			startAdvertising();
+		}
+	}
+
+	@Override public void stopScan(final ScanCallback callback)
+	{
+		synchronized (m_lock)
+		{
+			if( m_scanCallback != callback )  return;
+
+			m_scanCallback = null;
+			m_batch.clear();
+			stopAdvertisingIfNeeded();
+		}
+	}
+
+	@Override public boolean startDiscovery()
+	{
+		//--- DRK > Classic discovery isn't simulated.
+		return false;
+	}
+
+	@Override public boolean isDiscovering()
+	{
+		return false;
+	}
+
+	@Override public boolean cancelDiscovery()
+	{
+		return false;
+	}
+
+	@Override public Backend_BleGatt connectGatt(final Context context, final BluetoothDevice device, final boolean autoConnect, final BluetoothGattCallback callback)
+	{
+		final P_Peripheral peripheral = device != null ? getPeripheral(device.getAddress(), null) : null;
+
+		if( peripheral == null || !isEnabled() )  return null;
+
+		final P_Gatt gatt = new P_Gatt(peripheral, callback);
+
+		synchronized (m_lock)
+		{
+			peripheral.m_connectionState = BluetoothProfile.STATE_CONNECTING;
+		}
+
+		gatt.post(1, new Runnable()
+		{
+			@Override public void run()
+			{
+				synchronized (m_lock)
+				{
+					peripheral.m_connectionState = BluetoothProfile.STATE_CONNECTED;
+				}
+
+				callback.onConnectionStateChange(null, BluetoothGatt.GATT_SUCCESS, BluetoothProfile.STATE_CONNECTED);
+			}
+		});
+
+		return gatt;
+	}
+
+	@Override public Backend_BleGatt wrap(final BluetoothGatt gatt)
+	{
+		return null;
+	}
+
+	private boolean transition(final int from, final int via, final int to)
+	{
+		synchronized (m_lock)
+		{
+			if( m_state != from )  return false;
+
+			m_state = via;
+		}
+
+		broadcastState(from, via);
+
+		m_executor.schedule(new Runnable()
+		{
+			@Override public void run()
+			{
+				synchronized (m_lock)
+				{
+					m_state = to;
+
+					if( to == BluetoothAdapter.STATE_OFF )
+					{
+						m_leScanCallback = null;
+						m_scanCallback = null;
+						stopAdvertisingIfNeeded();
+					}
+				}
+
+				broadcastState(via, to);
+			}
+		}, m_config.latency.millis(), TimeUnit.MILLISECONDS);
+
+		return true;
+	}
+
+	private void broadcastState(final int previousState, final int newState)
+	{
+		final Intent intent = new Intent(BluetoothAdapter.ACTION_STATE_CHANGED);
+		intent.putExtra(BluetoothAdapter.EXTRA_PREVIOUS_STATE, previousState);
+		intent.putExtra(BluetoothAdapter.EXTRA_STATE, newState);
+
+		m_context.sendBroadcast(intent);
+	}
+
+	private void startAdvertising()
+	{
+		if( m_advertising != null )  return;
+
+		final long interval = Math.max(1L, m_config.advertisingInterval.millis());
+
+		m_advertising = m_executor.scheduleAtFixedRate(new Runnable()
+		{
+			@Override public void run()
+			{
+				advertise();
+			}
+		}, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	private void stopAdvertisingIfNeeded()
+	{
+		if( m_leScanCallback != null || m_scanCallback != null )  return;
+
+		if( m_advertising != null )
+		{
+			m_advertising.cancel(false);
+			m_advertising = null;
+		}
+	}
+
+	@SuppressLint("NewApi")
+	private void advertise()
+	{
+		for( int i = 0; i < m_advertisers.size(); i++ )
+		{
+			final P_Peripheral peripheral = m_advertisers.get(i);
+			final BluetoothAdapter.LeScanCallback leScanCallback;
+			final ScanCallback scanCallback;
+
+			synchronized (m_lock)
+			{
+				leScanCallback = m_leScanCallback;
+				scanCallback = m_scanCallback;
+
+				if( peripheral.m_connectionState != BluetoothProfile.STATE_DISCONNECTED )  continue;
+			}
+
+			if( isDropped() )  continue;
+
+			final int rssi = -40 - m_random.nextInt(50);
+
+			if( leScanCallback != null )
+			{
+				leScanCallback.onLeScan(peripheral.m_device, rssi, peripheral.m_scanRecord);
+			}
+
+			if( scanCallback != null )
+			{
+				final ScanRecord scanRecord = newScanRecord(peripheral.m_scanRecord);
+
+				if( scanRecord != null )
+				{
+					final ScanResult result = new ScanResult(peripheral.m_device, scanRecord, rssi, System.nanoTime());
+
+					if( !passesScanFilters(result) )  continue;
+
+					if( m_scanReportDelay > 0 )
+					{
+						synchronized (m_lock)
+						{
+							m_batch.add(result);
+						}
+					}
+					else
+					{
+						scanCallback.onScanResult(ScanSettings.CALLBACK_TYPE_ALL_MATCHES, result);
+					}
+				}
+			}
+		}
+
+		flushBatchIfNeeded();
+	}
+
+	@SuppressLint("NewApi")
+	private boolean passesScanFilters(final ScanResult result)
+	{
+		final List<ScanFilter> filters;
+
+		synchronized (m_lock)
+		{
+			filters = m_scanFilters;
+		}
+
+		if( filters == null )  return true;
+
+		for( int i = 0; i < filters.size(); i++ )
+		{
+			if( filters.get(i).matches(result) )  return true;
+		}
+
+		return false;
+	}
+
+	@SuppressLint("NewApi")
+	private void flushBatchIfNeeded()
+	{
+		final ScanCallback scanCallback;
+		final List<ScanResult> batch;
+
+		synchronized (m_lock)
+		{
+			scanCallback = m_scanCallback;
+
+			if( scanCallback == null || m_scanReportDelay <= 0 || m_batch.isEmpty() )  return;
+			if( System.currentTimeMillis() - m_lastBatchTime < m_scanReportDelay )  return;
+
+			batch = new ArrayList<ScanResult>(m_batch);
+			m_batch.clear();
+			m_lastBatchTime = System.currentTimeMillis();
+		}
+
+		scanCallback.onBatchScanResults(batch);
+	}
+
+	private boolean isDropped()
+	{
+		return m_config.packetLoss > 0.0 && m_random.nextDouble() < m_config.packetLoss;
+	}
+
+	private P_Peripheral getPeripheral(final String macAddress, final String name)
+	{
+		synchronized (m_lock)
+		{
+			P_Peripheral peripheral = m_peripherals.get(macAddress);
+
+			if( peripheral == null )
+			{
+				final BluetoothDevice device = newNativeDevice(macAddress);
+
+				if( device == null )  return null;
+
+				peripheral = new P_Peripheral(device, name != null ? name : "SIM");
+				m_peripherals.put(macAddress, peripheral);
+			}
+
+			return peripheral;
+		}
+	}
+
+	private static BluetoothDevice newNativeDevice(final String macAddress)
+	{
+		try
+		{
+			final BluetoothAdapter adapter = BluetoothAdapter.getDefaultAdapter();
+
+			if( adapter != null )
+			{
+				return adapter.getRemoteDevice(macAddress);
+			}
+		}
+		catch(Exception e)
+		{
+		}
+
+		try
+		{
+			final Constructor<BluetoothDevice> constructor = BluetoothDevice.class.getDeclaredConstructor(String.class);
+			constructor.setAccessible(true);
+
+			return constructor.newInstance(macAddress);
+		}
+		catch(Exception e)
+		{
+			return null;
+		}
+	}
+
+	private static ScanRecord newScanRecord(final byte[] scanRecord)
+	{
+		try
+		{
+			final Method method = ScanRecord.class.getDeclaredMethod("parseFromBytes", byte[].class);
+			method.setAccessible(true);
+
+			return (ScanRecord) method.invoke(null, scanRecord);
+		}
+		catch(Exception e)
+		{
+			return null;
+		}
+	}
+
+	private static byte[] newAdvertisement(final String name, final UUID serviceUuid)
+	{
+		final byte[] nameBytes = name.getBytes();
+		final byte[] scanRecord = new byte[3 + 18 + 2 + nameBytes.length];
+		int i = 0;
+
+		scanRecord[i++] = 2;
+		scanRecord[i++] = 0x01;
+		scanRecord[i++] = 0x06;
+
+		scanRecord[i++] = 17;
+		scanRecord[i++] = 0x07;
+		final long lsb = serviceUuid.getLeastSignificantBits();
+		final long msb = serviceUuid.getMostSignificantBits();
+		for( int j = 0; j < 8; j++ )  scanRecord[i++] = (byte) (lsb >>> (j*8));
+		for( int j = 0; j < 8; j++ )  scanRecord[i++] = (byte) (msb >>> (j*8));
+
+		scanRecord[i++] = (byte) (nameBytes.length + 1);
+		scanRecord[i++] = 0x09;
+		System.arraycopy(nameBytes, 0, scanRecord, i, nameBytes.length);
+
+		return scanRecord;
+	}
+
+	private class P_Peripheral
+	{
+		private final BluetoothDevice m_device;
+		private final byte[] m_scanRecord;
+
+		private int m_connectionState = BluetoothProfile.STATE_DISCONNECTED;
+		private byte[] m_value = new byte[]{0};
+
+		P_Peripheral(final BluetoothDevice device, final String name)
+		{
+			m_device = device;
+			m_scanRecord = newAdvertisement(name, m_config.serviceUuid);
+		}
+
+		BluetoothGattService newService()
+		{
+			final BluetoothGattService service = new BluetoothGattService(m_config.serviceUuid, BluetoothGattService.SERVICE_TYPE_PRIMARY);
+			final int properties = BluetoothGattCharacteristic.PROPERTY_READ | BluetoothGattCharacteristic.PROPERTY_WRITE | BluetoothGattCharacteristic.PROPERTY_NOTIFY;
+			final int permissions = BluetoothGattCharacteristic.PERMISSION_READ | BluetoothGattCharacteristic.PERMISSION_WRITE;
+			final BluetoothGattCharacteristic characteristic = new BluetoothGattCharacteristic(m_config.charUuid, properties, permissions);
+			characteristic.addDescriptor(new BluetoothGattDescriptor(Uuids.CLIENT_CHARACTERISTIC_CONFIGURATION_DESCRIPTOR_UUID, BluetoothGattDescriptor.PERMISSION_WRITE));
+			service.addCharacteristic(characteristic);
+
+			return service;
+		}
+	}
+
+	private class P_Gatt implements Backend_BleGatt
+	{
+		private final P_Peripheral m_peripheral;
+		private final BluetoothGattCallback m_callback;
+
+		private List<BluetoothGattService> m_services = Collections.emptyList();
+		private boolean m_reliableWriting = false;
+		private boolean m_closed = false;
+		private int m_mtu = MIN_MTU;
+		private ScheduledFuture<?> m_notifying = null;
+
+		P_Gatt(final P_Peripheral peripheral, final BluetoothGattCallback callback)
+		{
+			m_peripheral = peripheral;
+			m_callback = callback;
+		}
+
+		private boolean isConnected()
+		{
+			synchronized (m_lock)
+			{
+				return !m_closed && m_peripheral.m_connectionState == BluetoothProfile.STATE_CONNECTED;
+			}
+		}
+
+		private void post(final int packetCount, final Runnable callback)
+		{
+			final long delay = m_config.latency.millis() * Math.max(1, packetCount);
+
+			m_executor.schedule(new Runnable()
+			{
+				@Override public void run()
+				{
+					synchronized (m_lock)
+					{
+						if( m_closed )  return;
+					}
+
+					if( isDropped() )  return;
+
+					callback.run();
+				}
+			}, delay, TimeUnit.MILLISECONDS);
+		}
+
+		private int packetCount(final byte[] data)
+		{
+			final int mtu;
+
+			synchronized (m_lock)
+			{
+				mtu = m_mtu;
+			}
+
+			final int payload = Math.max(1, mtu - 3);
+			final int length = data != null ? data.length : 0;
+
+			return Math.max(1, (length + payload - 1) / payload);
+		}
+
+		@Override public BluetoothGatt getNative()
+		{
+			return null;
+		}
+
+		@Override public boolean discoverServices()
+		{
+			if( !isConnected() )  return false;
+
+			post(1, new Runnable()
+			{
+				@Override public void run()
+				{
+					synchronized (m_lock)
+					{
+						final List<BluetoothGattService> services = new ArrayList<BluetoothGattService>();
+						services.add(m_peripheral.newService());
+						m_services = services;
+					}
+
+					m_callback.onServicesDiscovered(null, BluetoothGatt.GATT_SUCCESS);
+				}
+			});
+
+			return true;
+		}
+
+		@Override public List<BluetoothGattService> getServices()
+		{
+			synchronized (m_lock)
+			{
+				return m_services;
+			}
+		}
+
+		@Override public BluetoothGattService getService(final UUID serviceUuid)
+		{
+			final List<BluetoothGattService> services = getServices();
+
+			for( int i = 0; i < services.size(); i++ )
+			{
+				if( services.get(i).getUuid().equals(serviceUuid) )  return services.get(i);
+			}
+
+			return null;
+		}
+
+		@Override public boolean readCharacteristic(final BluetoothGattCharacteristic characteristic)
+		{
+			if( !isConnected() )  return false;
+
+			final byte[] value;
+
+			synchronized (m_lock)
+			{
+				value = m_peripheral.m_value;
+			}
+
+			post(packetCount(value), new Runnable()
+			{
+				@Override public void run()
+				{
+					characteristic.setValue(value);
+
+					m_callback.onCharacteristicRead(null, characteristic, BluetoothGatt.GATT_SUCCESS);
+				}
+			});
+
+			return true;
+		}
+
+		@Override public boolean writeCharacteristic(final BluetoothGattCharacteristic characteristic)
+		{
+			if( !isConnected() )  return false;
+
+			//--- DRK > Copied now like the real stack does, since callers are free to reuse the array as soon as this returns.
+			final byte[] value = characteristic.getValue() != null ? characteristic.getValue().clone() : new byte[0];
+
+			post(packetCount(value), new Runnable()
+			{
+				@Override public void run()
+				{
+					synchronized (m_lock)
+					{
+						m_peripheral.m_value = value;
+					}
+
+					m_callback.onCharacteristicWrite(null, characteristic, BluetoothGatt.GATT_SUCCESS);
+				}
+			});
+
+			return true;
+		}
+
+		@Override public boolean setCharacteristicNotification(final BluetoothGattCharacteristic characteristic, final boolean enable)
+		{
+			return isConnected();
+		}
+
+		@Override public boolean writeDescriptor(final BluetoothGattDescriptor descriptor)
+		{
+			if( !isConnected() )  return false;
+
+			final byte[] value = descriptor.getValue();
+
+			post(1, new Runnable()
+			{
+				@Override public void run()
+				{
+					final boolean enable = value != null && value.length > 0 && value[0] != 0;
+					updateNotifications(descriptor.getCharacteristic(), enable);
+
+					m_callback.onDescriptorWrite(null, descriptor, BluetoothGatt.GATT_SUCCESS);
+				}
+			});
+
+			return true;
+		}
+
+		private void updateNotifications(final BluetoothGattCharacteristic characteristic, final boolean enable)
+		{
+			synchronized (m_lock)
+			{
+				if( m_notifying != null )
+				{
+					m_notifying.cancel(false);
+					m_notifying = null;
+				}
+
+				if( !enable || characteristic == null || Interval.isDisabled(m_config.notifyInterval) )  return;
+
+				final long interval = Math.max(1L, m_config.notifyInterval.millis());
+
+				m_notifying = m_executor.scheduleAtFixedRate(new Runnable()
+				{
+					private int m_counter = 0;
+
+					@Override public void run()
+					{
+						if( !isConnected() || isDropped() )  return;
+
+						m_counter++;
+						characteristic.setValue(new byte[]{(byte) m_counter, (byte) (m_counter >> 8)});
+
+						m_callback.onCharacteristicChanged(null, characteristic);
+					}
+				}, interval, interval, TimeUnit.MILLISECONDS);
+			}
+		}
+
+		@Override public boolean readRemoteRssi()
+		{
+			if( !isConnected() )  return false;
+
+			post(1, new Runnable()
+			{
+				@Override public void run()
+				{
+					m_callback.onReadRemoteRssi(null, -40 - m_random.nextInt(50), BluetoothGatt.GATT_SUCCESS);
+				}
+			});
+
+			return true;
+		}
+
+		@Override public boolean requestMtu(final int mtu)
+		{
+			if( !isConnected() )  return false;
+
+			final int negotiated = Math.max(MIN_MTU, Math.min(mtu, m_config.mtu));
+
+			post(1, new Runnable()
+			{
+				@Override public void run()
+				{
+					synchronized (m_lock)
+					{
+						m_mtu = negotiated;
+					}
+
+					m_callback.onMtuChanged(null, negotiated, BluetoothGatt.GATT_SUCCESS);
+				}
+			});
+
+			return true;
+		}
+
+		@Override public boolean requestConnectionPriority(final int connectionPriority)
+		{
+			return isConnected();
+		}
+
+		@Override public boolean beginReliableWrite()
+		{
+			if( !isConnected() )  return false;
+
+			synchronized (m_lock)
+			{
+				m_reliableWriting = true;
+			}
+
+			return true;
+		}
+
+		@Override public boolean executeReliableWrite()
+		{
+			synchronized (m_lock)
+			{
+				if( !m_reliableWriting || !isConnected() )  return false;
+
+				m_reliableWriting = false;
+			}
+
+			post(1, new Runnable()
+			{
+				@Override public void run()
+				{
+					m_callback.onReliableWriteCompleted(null, BluetoothGatt.GATT_SUCCESS);
+				}
+			});
+
+			return true;
+		}
+
+		@Override public void abortReliableWrite(final BluetoothDevice device)
+		{
+			synchronized (m_lock)
+			{
+				m_reliableWriting = false;
+			}
+		}
+
+		@Override public boolean refresh()
+		{
+			synchronized (m_lock)
+			{
+				m_services = Collections.emptyList();
+			}
+
+			return true;
+		}
+
+		@Override public void disconnect()
+		{
+			synchronized (m_lock)
+			{
+				if( m_closed || m_peripheral.m_connectionState == BluetoothProfile.STATE_DISCONNECTED )  return;
+
+				m_peripheral.m_connectionState = BluetoothProfile.STATE_DISCONNECTING;
+			}
+
+			m_executor.schedule(new Runnable()
+			{
+				@Override public void run()
+				{
+					synchronized (m_lock)
+					{
+						m_peripheral.m_connectionState = BluetoothProfile.STATE_DISCONNECTED;
+
+						if( m_closed )  return;
+					}
+
+					updateNotifications(null, false);
+
+					//--- DRK > Disconnects always go through regardless of packet loss, same as a real stack eventually would.
+					m_callback.onConnectionStateChange(null, BluetoothGatt.GATT_SUCCESS, BluetoothProfile.STATE_DISCONNECTED);
+				}
+			}, m_config.latency.millis(), TimeUnit.MILLISECONDS);
+		}
+
+		@Override public void close()
+		{
+			updateNotifications(null, false);
+
+			synchronized (m_lock)
+			{
+				m_closed = true;
+				m_peripheral.m_connectionState = BluetoothProfile.STATE_DISCONNECTED;
+			}
+		}
+	}
+}
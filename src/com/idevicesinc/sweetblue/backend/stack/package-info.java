@@ -0,0 +1,7 @@
+/**
+ * Contains specification and implementations of the "backend" that sits between SweetBlue and the native Android BLE stack,
+ * i.e. {@link android.bluetooth.BluetoothAdapter} and {@link android.bluetooth.BluetoothGatt}. The default implementation simply
+ * forwards to Android. {@link com.idevicesinc.sweetblue.backend.stack.Backend_BleStack_Simulated} is an in-process stand-in with
+ * configurable latency, MTU, packet loss, and device count so that the task pipeline can be exercised and measured off-device.
+ */
+package com.idevicesinc.sweetblue.backend.stack;
@@ -0,0 +1,145 @@
+package com.idevicesinc.sweetblue.utils;
+
+import com.idevicesinc.sweetblue.annotations.Immutable;
+
+/**
+ * Result of {@link com.idevicesinc.sweetblue.BleDevice#getHistoricalData_buckets(java.util.UUID, EpochTimeRange, Interval, HistoricalDataValueType)}.
+ * Historical data is split into fixed-width time buckets aligned to multiples of {@link #getBucketWidth()} since 1970, and each
+ * bucket summarizes the values of the samples that fell into it. Buckets without any samples are left out, so use
+ * {@link #getStartTime_millis(int)} rather than assuming consecutive buckets are adjacent in time.
+ * <br><br>
+ * Values are stored in primitive arrays, so a week of one-minute buckets costs about as much memory as a few hundred
+ * {@link HistoricalData} instances would.
+ */
+@Immutable
+public class HistoricalDataBuckets implements UsesCustomNull
+{
+	/**
+	 * Special value that replaces Java's built-int <code>null</code> and
+	 * is used everywhere Java's would otherwise be used.
+	 */
+	public static final HistoricalDataBuckets NULL = new HistoricalDataBuckets(0, new long[0], new int[0], new long[0], new long[0], new double[0], new long[0], new long[0], 0);
+
+	private final long m_bucketWidth;
+	private final long[] m_startTimes;
+	private final int[] m_counts;
+	private final long[] m_mins;
+	private final long[] m_maxes;
+	private final double[] m_averages;
+	private final long[] m_firsts;
+	private final long[] m_lasts;
+	private final int m_size;
+
+	/**
+	 * Constructor used by backends. The arrays are not copied and must not be modified afterwards, and only the first
+	 * <code>size</code> elements of each are used.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	public HistoricalDataBuckets(final long bucketWidth_millis, final long[] startTimes, final int[] counts, final long[] mins, final long[] maxes, final double[] averages, final long[] firsts, final long[] lasts, final int size)
+	{
+		m_bucketWidth = bucketWidth_millis;
+		m_startTimes = startTimes;
+		m_counts = counts;
+		m_mins = mins;
+		m_maxes = maxes;
+		m_averages = averages;
+		m_firsts = firsts;
+		m_lasts = lasts;
+		m_size = size;
+	}
+
+	/**
+	 * Returns the width passed in when these buckets were requested.
+	 */
+	public Interval getBucketWidth()
+	{
+		return Interval.millis(m_bucketWidth);
+	}
+
+	/**
+	 * Returns the number of non-empty buckets.
+	 */
+	public int getBucketCount()
+	{
+		return m_size;
+	}
+
+	/**
+	 * Returns the start of the given bucket in milliseconds since 1970, inclusive. The bucket ends right before
+	 * this time plus {@link #getBucketWidth()}.
+	 */
+	public long getStartTime_millis(final int bucket)
+	{
+		return m_startTimes[bucket];
+	}
+
+	/**
+	 * Returns the number of samples that fell into the given bucket.
+	 */
+	public int getSampleCount(final int bucket)
+	{
+		return m_counts[bucket];
+	}
+
+	public long getMin(final int bucket)
+	{
+		return m_mins[bucket];
+	}
+
+	public long getMax(final int bucket)
+	{
+		return m_maxes[bucket];
+	}
+
+	public double getAverage(final int bucket)
+	{
+		return m_averages[bucket];
+	}
+
+	/**
+	 * Returns the value of the oldest sample in the given bucket.
+	 */
+	public long getFirst(final int bucket)
+	{
+		return m_firsts[bucket];
+	}
+
+	/**
+	 * Returns the value of the newest sample in the given bucket.
+	 */
+	public long getLast(final int bucket)
+	{
+		return m_lasts[bucket];
+	}
+
+	/**
+	 * Returns the number of samples summed over all buckets.
+	 */
+	public int getTotalSampleCount()
+	{
+		int total = 0;
+
+		for( int i = 0; i < m_size; i++ )
+		{
+			total += m_counts[i];
+		}
+
+		return total;
+	}
+
+	@Override public boolean isNull()
+	{
+		return this == NULL;
+	}
+
+	@Override public String toString()
+	{
+		return Utils.toString
+		(
+			this.getClass(),
+			"bucketWidth",		getBucketWidth(),
+			"bucketCount",		getBucketCount(),
+			"totalSampleCount",	getTotalSampleCount()
+		);
+	}
+}
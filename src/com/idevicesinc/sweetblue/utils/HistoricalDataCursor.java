@@ -150,6 +150,13 @@ public interface HistoricalDataCursor
 	 */
 	byte[] getBlob();
 
+	/**
+	 * Copies the BLOB of the historical data into the given array without allocating and returns the length of the BLOB.
+	 * If the array is shorter than the BLOB only what fits is copied, so a return value larger than <code>destination.length</code>
+	 * means a larger array is needed.
+	 */
+	int copyBlobInto(byte[] destination);
+
 	/**
 	 * Returns the historical data at the current position. Note that this may or may not allocate an instance on demand,
 	 * which may be a minor but unneccessary performance hit for your use case. See also {@link #getEpochTime()} and {@link #getBlob()} to directly
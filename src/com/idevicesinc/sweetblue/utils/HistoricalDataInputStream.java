@@ -0,0 +1,200 @@
+package com.idevicesinc.sweetblue.utils;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the format written by {@link HistoricalDataOutputStream} one sample at a time, for example through
+ * {@link com.idevicesinc.sweetblue.BleDevice#importHistoricalData(java.util.UUID, InputStream)}. The blob of the current sample
+ * is kept in a buffer that's reused between samples, so use {@link #copyBlobInto(byte[])} to read it without allocating.
+ * <br><br>
+ * Input is buffered internally, so there's no need to wrap the source in a {@link java.io.BufferedInputStream}.
+ */
+public class HistoricalDataInputStream implements Closeable
+{
+	/**
+	 * Blobs longer than this are treated as a sign of a corrupt stream rather than allocated.
+	 */
+	public static final int MAX_BLOB_LENGTH = 1 << 20;
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private final InputStream m_in;
+	private final byte[] m_buffer = new byte[BUFFER_SIZE];
+	private int m_position = 0;
+	private int m_limit = 0;
+
+	private boolean m_hasReadHeader = false;
+
+	private long m_time = 0;
+	private byte[] m_blob = new byte[64];
+	private int m_blobLength = 0;
+
+	public HistoricalDataInputStream(final InputStream in)
+	{
+		m_in = in;
+	}
+
+	/**
+	 * Advances to the next sample, returning <code>false</code> if the stream ended cleanly. Throws if the stream isn't in the
+	 * expected format or ends partway through a sample.
+	 */
+	public boolean next() throws IOException
+	{
+		if( !m_hasReadHeader )
+		{
+			readHeader();
+		}
+
+		if( !fill() )  return false;
+
+		final long zigzag = readVarint();
+
+		m_time += (zigzag >>> 1) ^ -(zigzag & 1);
+
+		final long length = readVarint();
+
+		if( length < 0 || length > MAX_BLOB_LENGTH )
+		{
+			throw new IOException("Invalid historical data blob length: " + length);
+		}
+
+		m_blobLength = (int) length;
+
+		if( m_blob.length < m_blobLength )
+		{
+			m_blob = new byte[Math.max(m_blobLength, m_blob.length * 2)];
+		}
+
+		readFully(m_blob, m_blobLength);
+
+		return true;
+	}
+
+	/**
+	 * Returns the timestamp of the current sample in milliseconds since 1970.
+	 */
+	public long getEpochTime()
+	{
+		return m_time;
+	}
+
+	public int getBlobLength()
+	{
+		return m_blobLength;
+	}
+
+	/**
+	 * Copies as much of the current blob as fits and returns its full length.
+	 */
+	public int copyBlobInto(final byte[] destination)
+	{
+		System.arraycopy(m_blob, 0, destination, 0, Math.min(m_blobLength, destination.length));
+
+		return m_blobLength;
+	}
+
+	/**
+	 * Returns a new copy of the current blob.
+	 */
+	public byte[] getBlob()
+	{
+		final byte[] blob = new byte[m_blobLength];
+
+		System.arraycopy(m_blob, 0, blob, 0, m_blobLength);
+
+		return blob;
+	}
+
+	public HistoricalData getHistoricalData()
+	{
+		return new HistoricalData(getBlob(), m_time);
+	}
+
+	private void readHeader() throws IOException
+	{
+		final byte[] header = new byte[HistoricalDataOutputStream.MAGIC.length + 1];
+
+		readFully(header, header.length);
+
+		for( int i = 0; i < HistoricalDataOutputStream.MAGIC.length; i++ )
+		{
+			if( header[i] != HistoricalDataOutputStream.MAGIC[i] )
+			{
+				throw new IOException("Not a historical data stream.");
+			}
+		}
+
+		if( header[header.length - 1] != HistoricalDataOutputStream.VERSION )
+		{
+			throw new IOException("Unsupported historical data stream version: " + header[header.length - 1]);
+		}
+
+		m_hasReadHeader = true;
+	}
+
+	/**
+	 * Makes sure at least one byte is buffered, returning <code>false</code> at the end of the stream.
+	 */
+	private boolean fill() throws IOException
+	{
+		if( m_position < m_limit )  return true;
+
+		int read;
+
+		do
+		{
+			read = m_in.read(m_buffer, 0, m_buffer.length);
+		}
+		while( read == 0 );
+
+		if( read < 0 )  return false;
+
+		m_position = 0;
+		m_limit = read;
+
+		return true;
+	}
+
+	private long readVarint() throws IOException
+	{
+		long value = 0;
+
+		for( int shift = 0; shift < 64; shift += 7 )
+		{
+			if( !fill() )  throw new EOFException();
+
+			final byte b = m_buffer[m_position++];
+
+			value |= (long) (b & 0x7F) << shift;
+
+			if( (b & 0x80) == 0 )  return value;
+		}
+
+		throw new IOException("Malformed varint in historical data stream.");
+	}
+
+	private void readFully(final byte[] destination, final int length) throws IOException
+	{
+		int offset = 0;
+
+		while( offset < length )
+		{
+			if( !fill() )  throw new EOFException();
+
+			final int count = Math.min(length - offset, m_limit - m_position);
+
+			System.arraycopy(m_buffer, m_position, destination, offset, count);
+
+			m_position += count;
+			offset += count;
+		}
+	}
+
+	@Override public void close() throws IOException
+	{
+		m_in.close();
+	}
+}
@@ -0,0 +1,122 @@
+package com.idevicesinc.sweetblue.utils;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes historical data in a compact binary format that {@link HistoricalDataInputStream} reads back, for example through
+ * {@link com.idevicesinc.sweetblue.BleDevice#exportHistoricalData(java.util.UUID, EpochTimeRange, OutputStream)}.
+ * <br><br>
+ * The format is a 4-byte {@link #MAGIC} and a 1-byte {@link #VERSION}, followed by one record per sample until the end of the stream.
+ * A record is the difference from the previous sample's timestamp (zero for the first) as a zigzag-encoded varint, then the blob length as a
+ * varint, then the blob itself. Samples logged at a steady rate end up costing one or two bytes of overhead each.
+ * <br><br>
+ * Output is buffered internally, so there's no need to wrap the destination in a {@link java.io.BufferedOutputStream}.
+ */
+public class HistoricalDataOutputStream implements Closeable, Flushable
+{
+	public static final byte[] MAGIC = {'S', 'B', 'H', 'D'};
+	public static final int VERSION = 1;
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private final OutputStream m_out;
+	private final byte[] m_buffer = new byte[BUFFER_SIZE];
+	private int m_position = 0;
+
+	private long m_previousTime = 0;
+	private int m_count = 0;
+
+	public HistoricalDataOutputStream(final OutputStream out)
+	{
+		m_out = out;
+
+		System.arraycopy(MAGIC, 0, m_buffer, 0, MAGIC.length);
+		m_buffer[MAGIC.length] = VERSION;
+		m_position = MAGIC.length + 1;
+	}
+
+	public void write(final HistoricalData historicalData) throws IOException
+	{
+		final byte[] blob = historicalData.getBlob();
+
+		write(historicalData.getEpochTime_millis(), blob, 0, blob.length);
+	}
+
+	public void write(final long epochTime_millis, final byte[] blob, final int offset, final int length) throws IOException
+	{
+		//--- DRK > Worst case is two 10-byte varints for the header, but the blob is written separately if it doesn't fit.
+		if( m_position + 20 > m_buffer.length )
+		{
+			flushBuffer();
+		}
+
+		final long delta = epochTime_millis - m_previousTime;
+
+		writeVarint((delta << 1) ^ (delta >> 63));
+		writeVarint(length);
+
+		if( m_position + length <= m_buffer.length )
+		{
+			System.arraycopy(blob, offset, m_buffer, m_position, length);
+			m_position += length;
+		}
+		else
+		{
+			flushBuffer();
+
+			m_out.write(blob, offset, length);
+		}
+
+		m_previousTime = epochTime_millis;
+		m_count++;
+	}
+
+	/**
+	 * Returns the number of samples written so far.
+	 */
+	public int getCount()
+	{
+		return m_count;
+	}
+
+	private void writeVarint(long value)
+	{
+		while( (value & ~0x7FL) != 0 )
+		{
+			m_buffer[m_position++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+
+		m_buffer[m_position++] = (byte) value;
+	}
+
+	private void flushBuffer() throws IOException
+	{
+		if( m_position == 0 )  return;
+
+		m_out.write(m_buffer, 0, m_position);
+		m_position = 0;
+	}
+
+	@Override public void flush() throws IOException
+	{
+		flushBuffer();
+
+		m_out.flush();
+	}
+
+	@Override public void close() throws IOException
+	{
+		try
+		{
+			flushBuffer();
+		}
+		finally
+		{
+			m_out.close();
+		}
+	}
+}
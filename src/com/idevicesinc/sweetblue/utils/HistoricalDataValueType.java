@@ -0,0 +1,73 @@
+package com.idevicesinc.sweetblue.utils;
+
+/**
+ * Describes how to interpret the blob of a {@link HistoricalData} as a number, for example when asking for
+ * {@link HistoricalDataBuckets} through {@link com.idevicesinc.sweetblue.BleDevice#getHistoricalData_buckets(java.util.UUID, EpochTimeRange, Interval, HistoricalDataValueType)}.
+ */
+public enum HistoricalDataValueType
+{
+	INT8		(1, true,	true),
+	UINT8		(1, false,	true),
+	INT16_LE	(2, true,	true),
+	UINT16_LE	(2, false,	true),
+	INT16_BE	(2, true,	false),
+	UINT16_BE	(2, false,	false),
+	INT32_LE	(4, true,	true),
+	UINT32_LE	(4, false,	true),
+	INT32_BE	(4, true,	false),
+	UINT32_BE	(4, false,	false);
+
+	private final int m_byteCount;
+	private final boolean m_isSigned;
+	private final boolean m_isLittleEndian;
+
+	private HistoricalDataValueType(final int byteCount, final boolean isSigned, final boolean isLittleEndian)
+	{
+		m_byteCount = byteCount;
+		m_isSigned = isSigned;
+		m_isLittleEndian = isLittleEndian;
+	}
+
+	/**
+	 * Number of bytes read from the blob.
+	 */
+	public int getByteCount()
+	{
+		return m_byteCount;
+	}
+
+	public boolean isSigned()
+	{
+		return m_isSigned;
+	}
+
+	public boolean isLittleEndian()
+	{
+		return m_isLittleEndian;
+	}
+
+	/**
+	 * Reads a value of this type starting at the given offset. The caller is responsible for making sure
+	 * there are at least {@link #getByteCount()} bytes available.
+	 */
+	public long read(final byte[] bytes, final int offset)
+	{
+		long value = 0;
+
+		for( int i = 0; i < m_byteCount; i++ )
+		{
+			final int index = m_isLittleEndian ? offset + m_byteCount - 1 - i : offset + i;
+
+			value = (value << 8) | (bytes[index] & 0xFF);
+		}
+
+		if( m_isSigned )
+		{
+			final int unusedBits = 64 - m_byteCount * 8;
+
+			value = (value << unusedBits) >> unusedBits;
+		}
+
+		return value;
+	}
+}
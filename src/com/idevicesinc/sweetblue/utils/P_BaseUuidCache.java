@@ -0,0 +1,54 @@
+package com.idevicesinc.sweetblue.utils;
+
+import java.util.UUID;
+
+/**
+ * Hands out shared {@link UUID} instances for 16 and 32-bit assigned numbers on top of the Bluetooth base UUID so that
+ * parsing advertisements doesn't allocate for the handful of services a given environment actually sees.
+ * Direct-mapped, so a collision just means a new instance; races are benign because {@link UUID} is immutable.
+ */
+final class P_BaseUuidCache
+{
+	private static final long BASE_MSB = 0x0000000000001000L;
+	private static final long BASE_LSB = 0x800000805F9B34FBL;
+
+	private static final int SIZE = 256;
+	private static final int MASK = SIZE - 1;
+
+	private static final UUID[] s_cache = new UUID[SIZE];
+
+	private P_BaseUuidCache(){}
+
+	static long toMsb(final long assignedNumber)
+	{
+		return ((assignedNumber & 0xFFFFFFFFL) << 32) | BASE_MSB;
+	}
+
+	static boolean isBased(final UUID uuid)
+	{
+		return uuid.getLeastSignificantBits() == BASE_LSB && (uuid.getMostSignificantBits() & 0xFFFFFFFFL) == BASE_MSB;
+	}
+
+	static long toAssignedNumber(final UUID uuid)
+	{
+		return uuid.getMostSignificantBits() >>> 32;
+	}
+
+	static UUID get(final long assignedNumber)
+	{
+		final long msb = toMsb(assignedNumber);
+		final int index = (int) ((assignedNumber ^ (assignedNumber >>> 8) ^ (assignedNumber >>> 16)) & MASK);
+		final UUID cached = s_cache[index];
+
+		if( cached != null && cached.getMostSignificantBits() == msb )
+		{
+			return cached;
+		}
+
+		final UUID uuid = new UUID(msb, BASE_LSB);
+
+		s_cache[index] = uuid;
+
+		return uuid;
+	}
+}
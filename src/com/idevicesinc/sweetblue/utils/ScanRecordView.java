@@ -0,0 +1,466 @@
+package com.idevicesinc.sweetblue.utils;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A reusable, zero-copy view over a raw scan record. {@link #wrap(byte[])} indexes the advertising data structures in place
+ * and every accessor reads straight from the wrapped array, only allocating when it has to hand back a new object
+ * (names, copies of manufacturer/service data, and {@link UUID}s that aren't built on the Bluetooth base UUID).
+ * <br><br>
+ * Instances are not thread-safe and are meant to be re-wrapped over and over by whoever owns them. The wrapped array is
+ * not copied, so it must not be modified while wrapped.
+ */
+public class ScanRecordView
+{
+	public static final int TYPE_FLAGS							= 0x01;
+	public static final int TYPE_SERVICE_UUIDS_16_PARTIAL		= 0x02;
+	public static final int TYPE_SERVICE_UUIDS_16_COMPLETE		= 0x03;
+	public static final int TYPE_SERVICE_UUIDS_32_PARTIAL		= 0x04;
+	public static final int TYPE_SERVICE_UUIDS_32_COMPLETE		= 0x05;
+	public static final int TYPE_SERVICE_UUIDS_128_PARTIAL		= 0x06;
+	public static final int TYPE_SERVICE_UUIDS_128_COMPLETE		= 0x07;
+	public static final int TYPE_LOCAL_NAME_SHORT				= 0x08;
+	public static final int TYPE_LOCAL_NAME_COMPLETE			= 0x09;
+	public static final int TYPE_TX_POWER_LEVEL					= 0x0A;
+	public static final int TYPE_SERVICE_DATA_16				= 0x16;
+	public static final int TYPE_SERVICE_DATA_32				= 0x20;
+	public static final int TYPE_SERVICE_DATA_128				= 0x21;
+	public static final int TYPE_MANUFACTURER_DATA				= 0xFF;
+
+	/**
+	 * Returned by {@link #getFlags()} and {@link #getManufacturerId()} if the scan record doesn't have them.
+	 */
+	public static final int NOT_PRESENT = -1;
+
+	/**
+	 * Returned by {@link #getTxPowerLevel()} if the scan record doesn't have it.
+	 */
+	public static final int TX_POWER_NOT_PRESENT = Integer.MIN_VALUE;
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final byte[] EMPTY = new byte[0];
+
+	private byte[] m_raw = EMPTY;
+	private int m_count = 0;
+	private int[] m_types = new int[8];
+	private int[] m_offsets = new int[8];
+	private int[] m_lengths = new int[8];
+
+	private int m_serviceUuidCount = -1;
+	private String m_name = null;
+	private boolean m_nameDecoded = false;
+
+	/**
+	 * Points this view at a new scan record and indexes it. <code>null</code> is treated as an empty record.
+	 * Returns <code>this</code> for chaining.
+	 */
+	public ScanRecordView wrap(final byte[] scanRecord_nullable)
+	{
+		m_raw = scanRecord_nullable != null ? scanRecord_nullable : EMPTY;
+		m_count = 0;
+		m_serviceUuidCount = -1;
+		m_name = null;
+		m_nameDecoded = false;
+
+		int offset = 0;
+
+		while( offset < m_raw.length )
+		{
+			final int length = m_raw[offset] & 0xFF;
+
+			//--- DRK > Zero length means the rest is padding, and anything running off the end is garbage.
+			if( length == 0 || offset + 1 + length > m_raw.length )  break;
+
+			if( m_count == m_types.length )
+			{
+				grow();
+			}
+
+			m_types[m_count] = m_raw[offset + 1] & 0xFF;
+			m_offsets[m_count] = offset + 2;
+			m_lengths[m_count] = length - 1;
+			m_count++;
+
+			offset += 1 + length;
+		}
+
+		return this;
+	}
+
+	private void grow()
+	{
+		final int newLength = m_types.length * 2;
+		final int[] types = new int[newLength];
+		final int[] offsets = new int[newLength];
+		final int[] lengths = new int[newLength];
+
+		System.arraycopy(m_types, 0, types, 0, m_count);
+		System.arraycopy(m_offsets, 0, offsets, 0, m_count);
+		System.arraycopy(m_lengths, 0, lengths, 0, m_count);
+
+		m_types = types;
+		m_offsets = offsets;
+		m_lengths = lengths;
+	}
+
+	/**
+	 * Returns the currently wrapped array, never <code>null</code>.
+	 */
+	public byte[] getRaw()
+	{
+		return m_raw;
+	}
+
+	/**
+	 * Returns the number of advertising data structures found.
+	 */
+	public int getStructureCount()
+	{
+		return m_count;
+	}
+
+	/**
+	 * Returns the AD type of the structure at the given index, for example {@link #TYPE_MANUFACTURER_DATA}.
+	 */
+	public int getStructureType(final int index)
+	{
+		return m_types[index];
+	}
+
+	/**
+	 * Returns the offset into {@link #getRaw()} where the data of the structure at the given index starts, just past its type byte.
+	 */
+	public int getStructureOffset(final int index)
+	{
+		return m_offsets[index];
+	}
+
+	/**
+	 * Returns the length of the data of the structure at the given index, not counting its type byte.
+	 */
+	public int getStructureLength(final int index)
+	{
+		return m_lengths[index];
+	}
+
+	/**
+	 * Returns the index of the first structure with the given AD type, or <code>-1</code>.
+	 */
+	public int indexOf(final int type)
+	{
+		for( int i = 0; i < m_count; i++ )
+		{
+			if( m_types[i] == type )  return i;
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Returns the advertised flags or {@link #NOT_PRESENT}.
+	 */
+	public int getFlags()
+	{
+		final int index = indexOf(TYPE_FLAGS);
+
+		return index == -1 || m_lengths[index] < 1 ? NOT_PRESENT : m_raw[m_offsets[index]] & 0xFF;
+	}
+
+	/**
+	 * Returns the advertised transmission power in dBm or {@link #TX_POWER_NOT_PRESENT}.
+	 */
+	public int getTxPowerLevel()
+	{
+		final int index = indexOf(TYPE_TX_POWER_LEVEL);
+
+		return index == -1 || m_lengths[index] < 1 ? TX_POWER_NOT_PRESENT : m_raw[m_offsets[index]];
+	}
+
+	/**
+	 * Returns the complete local name, or failing that the shortened one, or <code>null</code>. Decoded on first call.
+	 */
+	public String getName()
+	{
+		if( !m_nameDecoded )
+		{
+			int index = indexOf(TYPE_LOCAL_NAME_COMPLETE);
+			index = index != -1 ? index : indexOf(TYPE_LOCAL_NAME_SHORT);
+
+			m_name = index == -1 ? null : new String(m_raw, m_offsets[index], m_lengths[index], UTF_8);
+			m_nameDecoded = true;
+		}
+
+		return m_name;
+	}
+
+	private static int uuidWidth(final int type)
+	{
+		switch(type)
+		{
+			case TYPE_SERVICE_UUIDS_16_PARTIAL:
+			case TYPE_SERVICE_UUIDS_16_COMPLETE:	return 2;
+			case TYPE_SERVICE_UUIDS_32_PARTIAL:
+			case TYPE_SERVICE_UUIDS_32_COMPLETE:	return 4;
+			case TYPE_SERVICE_UUIDS_128_PARTIAL:
+			case TYPE_SERVICE_UUIDS_128_COMPLETE:	return 16;
+		}
+
+		return 0;
+	}
+
+	private static int serviceDataUuidWidth(final int type)
+	{
+		switch(type)
+		{
+			case TYPE_SERVICE_DATA_16:		return 2;
+			case TYPE_SERVICE_DATA_32:		return 4;
+			case TYPE_SERVICE_DATA_128:		return 16;
+		}
+
+		return 0;
+	}
+
+	private long readLittleEndian(final int offset, final int width)
+	{
+		long value = 0;
+
+		for( int i = width - 1; i >= 0; i-- )
+		{
+			value = (value << 8) | (m_raw[offset + i] & 0xFF);
+		}
+
+		return value;
+	}
+
+	private UUID readUuid(final int offset, final int width)
+	{
+		if( width == 16 )
+		{
+			final long lsb = readLittleEndian(offset, 8);
+			final long msb = readLittleEndian(offset + 8, 8);
+
+			return new UUID(msb, lsb);
+		}
+		else
+		{
+			return P_BaseUuidCache.get(readLittleEndian(offset, width));
+		}
+	}
+
+	private boolean uuidEquals(final int offset, final int width, final UUID uuid)
+	{
+		if( width == 16 )
+		{
+			return readLittleEndian(offset, 8) == uuid.getLeastSignificantBits() && readLittleEndian(offset + 8, 8) == uuid.getMostSignificantBits();
+		}
+		else
+		{
+			return P_BaseUuidCache.isBased(uuid) && readLittleEndian(offset, width) == P_BaseUuidCache.toAssignedNumber(uuid);
+		}
+	}
+
+	/**
+	 * Returns the total number of 16, 32, and 128-bit service uuids advertised.
+	 */
+	public int getServiceUuidCount()
+	{
+		if( m_serviceUuidCount == -1 )
+		{
+			int count = 0;
+
+			for( int i = 0; i < m_count; i++ )
+			{
+				final int width = uuidWidth(m_types[i]);
+
+				if( width != 0 )
+				{
+					count += m_lengths[i] / width;
+				}
+			}
+
+			m_serviceUuidCount = count;
+		}
+
+		return m_serviceUuidCount;
+	}
+
+	/**
+	 * Returns the service uuid at the given index, in the order they appear, where index is less than {@link #getServiceUuidCount()}.
+	 * 16 and 32-bit uuids come from a shared pool so don't allocate after the first time they're seen.
+	 */
+	public UUID getServiceUuid(int index)
+	{
+		for( int i = 0; i < m_count; i++ )
+		{
+			final int width = uuidWidth(m_types[i]);
+
+			if( width == 0 )  continue;
+
+			final int countInStructure = m_lengths[i] / width;
+
+			if( index < countInStructure )
+			{
+				return readUuid(m_offsets[i] + index * width, width);
+			}
+
+			index -= countInStructure;
+		}
+
+		throw new IndexOutOfBoundsException();
+	}
+
+	/**
+	 * Returns whether the given service uuid is advertised, without allocating anything.
+	 */
+	public boolean hasServiceUuid(final UUID uuid)
+	{
+		for( int i = 0; i < m_count; i++ )
+		{
+			final int width = uuidWidth(m_types[i]);
+
+			if( width == 0 )  continue;
+
+			for( int offset = m_offsets[i], end = m_offsets[i] + m_lengths[i]; offset + width <= end; offset += width )
+			{
+				if( uuidEquals(offset, width, uuid) )  return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Adds all advertised service uuids to the given list, for callers that keep one around.
+	 */
+	public void getServiceUuids(final List<UUID> list)
+	{
+		for( int i = 0; i < m_count; i++ )
+		{
+			final int width = uuidWidth(m_types[i]);
+
+			if( width == 0 )  continue;
+
+			for( int offset = m_offsets[i], end = m_offsets[i] + m_lengths[i]; offset + width <= end; offset += width )
+			{
+				list.add(readUuid(offset, width));
+			}
+		}
+	}
+
+	/**
+	 * Returns a new list of all advertised service uuids.
+	 */
+	public List<UUID> getServiceUuids()
+	{
+		final List<UUID> list = new ArrayList<UUID>(getServiceUuidCount());
+
+		getServiceUuids(list);
+
+		return list;
+	}
+
+	/**
+	 * Returns the company identifier from the first manufacturer specific data structure, or {@link #NOT_PRESENT}.
+	 */
+	public int getManufacturerId()
+	{
+		final int index = indexOf(TYPE_MANUFACTURER_DATA);
+
+		return index == -1 || m_lengths[index] < 2 ? NOT_PRESENT : (int) readLittleEndian(m_offsets[index], 2);
+	}
+
+	/**
+	 * Returns a copy of the first manufacturer specific data, not including the company identifier, or <code>null</code>.
+	 */
+	public byte[] getManufacturerData()
+	{
+		final int index = indexOf(TYPE_MANUFACTURER_DATA);
+
+		if( index == -1 || m_lengths[index] < 2 )  return null;
+
+		return copy(m_offsets[index] + 2, m_lengths[index] - 2);
+	}
+
+	/**
+	 * Returns the number of service data structures advertised.
+	 */
+	public int getServiceDataCount()
+	{
+		int count = 0;
+
+		for( int i = 0; i < m_count; i++ )
+		{
+			final int width = serviceDataUuidWidth(m_types[i]);
+
+			if( width != 0 && m_lengths[i] >= width )  count++;
+		}
+
+		return count;
+	}
+
+	/**
+	 * Returns the uuid of the service data structure at the given index, where index is less than {@link #getServiceDataCount()}.
+	 */
+	public UUID getServiceDataUuid(int index)
+	{
+		for( int i = 0; i < m_count; i++ )
+		{
+			final int width = serviceDataUuidWidth(m_types[i]);
+
+			if( width == 0 || m_lengths[i] < width )  continue;
+
+			if( index == 0 )
+			{
+				return readUuid(m_offsets[i], width);
+			}
+
+			index--;
+		}
+
+		throw new IndexOutOfBoundsException();
+	}
+
+	/**
+	 * Returns a copy of the data advertised for the given service uuid, not including the uuid itself, or <code>null</code>.
+	 */
+	public byte[] getServiceData(final UUID uuid)
+	{
+		for( int i = 0; i < m_count; i++ )
+		{
+			final int width = serviceDataUuidWidth(m_types[i]);
+
+			if( width == 0 || m_lengths[i] < width )  continue;
+
+			if( uuidEquals(m_offsets[i], width, uuid) )
+			{
+				return copy(m_offsets[i] + width, m_lengths[i] - width);
+			}
+		}
+
+		return null;
+	}
+
+	private byte[] copy(final int offset, final int length)
+	{
+		final byte[] data = new byte[length];
+
+		System.arraycopy(m_raw, offset, data, 0, length);
+
+		return data;
+	}
+
+	@Override public String toString()
+	{
+		return Utils.toString
+		(
+			this.getClass(),
+			"name",			getName(),
+			"flags",		getFlags(),
+			"txPower",		getTxPowerLevel(),
+			"services",		getServiceUuids()
+		);
+	}
+}
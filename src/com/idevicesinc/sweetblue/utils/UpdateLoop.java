@@ -157,7 +157,17 @@ public class UpdateLoop
 		
 		m_handler.postDelayed(runnable, 1);
 	}
-	
+
+	/**
+	 * Same as {@link #forcePost(Runnable)} but waits at least the given number of milliseconds before running.
+	 */
+	public void forcePost(Runnable runnable, long delay_millis)
+	{
+		waitForHandler();
+
+		m_handler.postDelayed(runnable, Math.max(delay_millis, 1));
+	}
+
 	public void postIfNeeded(Runnable runnable)
 	{
 		waitForHandler();
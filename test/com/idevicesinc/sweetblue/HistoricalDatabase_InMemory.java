@@ -0,0 +1,151 @@
+package com.idevicesinc.sweetblue;
+
+
+import android.database.Cursor;
+
+import com.idevicesinc.sweetblue.backend.historical.Backend_HistoricalDataList_Default;
+import com.idevicesinc.sweetblue.backend.historical.Backend_HistoricalDatabase;
+import com.idevicesinc.sweetblue.utils.EpochTime;
+import com.idevicesinc.sweetblue.utils.EpochTimeRange;
+import com.idevicesinc.sweetblue.utils.ForEach_Void;
+import com.idevicesinc.sweetblue.utils.HistoricalData;
+import com.idevicesinc.sweetblue.utils.HistoricalDataBuckets;
+import com.idevicesinc.sweetblue.utils.HistoricalDataCursor;
+import com.idevicesinc.sweetblue.utils.HistoricalDataValueType;
+import com.idevicesinc.sweetblue.utils.UpdateLoop;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+
+/**
+ * {@link Backend_HistoricalDatabase} for tests that need data "on disk" without Android's SQLite. Each table is a
+ * {@link Backend_HistoricalDataList_Default}, so deleting a count from a range drops its oldest rows first, same as
+ * {@link com.idevicesinc.sweetblue.backend.historical.Backend_HistoricalDatabase_Sqlite}.
+ */
+public class HistoricalDatabase_InMemory implements Backend_HistoricalDatabase {
+
+    private final HashMap<String, Backend_HistoricalDataList_Default> tables = new HashMap<String, Backend_HistoricalDataList_Default>();
+
+
+    public void add(String macAddress, UUID uuid, long time, byte[] blob) {
+        add_single(macAddress, uuid, new HistoricalData(time, blob), 0);
+    }
+
+    private Backend_HistoricalDataList_Default table(String macAddress, UUID uuid) {
+        String tableName = getTableName(macAddress, uuid);
+        Backend_HistoricalDataList_Default table = tables.get(tableName);
+        if (table == null) {
+            table = new Backend_HistoricalDataList_Default();
+            table.init(this, null, macAddress, uuid, uuid.toString(), true);
+            tables.put(tableName, table);
+        }
+        return table;
+    }
+
+    @Override public void init(BleManager manager, UpdateLoop updateLoop) {
+    }
+
+    @Override public void add_single(String macAddress, UUID uuid, HistoricalData data, long maxCountToDelete) {
+        Backend_HistoricalDataList_Default table = table(macAddress, uuid);
+        table.delete_fromMemoryOnly(EpochTimeRange.FROM_MIN_TO_MAX, maxCountToDelete);
+        table.add_single(data, BleDeviceConfig.HistoricalDataLogFilter.PersistenceLevel.MEMORY, Long.MAX_VALUE);
+    }
+
+    @Override public void add_multiple_start() {
+    }
+
+    @Override public void add_multiple_next(String macAddress, UUID uuid, HistoricalData data) {
+        add_single(macAddress, uuid, data, 0);
+    }
+
+    @Override public void add_multiple_next(String macAddress, UUID uuid, long epochTime_millis, byte[] data) {
+        add(macAddress, uuid, epochTime_millis, data);
+    }
+
+    @Override public void add_multiple_end() {
+    }
+
+    @Override public void delete_singleUuid_all(String macAddress, UUID uuid) {
+        tables.remove(getTableName(macAddress, uuid));
+    }
+
+    @Override public void delete_singleUuid_inRange(String macAddress, UUID uuid, EpochTimeRange range, long maxCountToDelete) {
+        table(macAddress, uuid).delete_fromMemoryOnly(range, maxCountToDelete);
+    }
+
+    @Override public void delete_singleUuid_singleDate(String macAddress, UUID uuid, long date) {
+        table(macAddress, uuid).delete_fromMemoryOnly(EpochTimeRange.fromGiven_toGiven(new EpochTime(date), new EpochTime(date)), Long.MAX_VALUE);
+    }
+
+    @Override public void delete_multipleUuids(String[] macAddresses, UUID[] uuids, EpochTimeRange range, long count) {
+        for (int i = 0; i < uuids.length; i++) {
+            delete_singleUuid_inRange(macAddresses[i], uuids[i], range, count);
+        }
+    }
+
+    @Override public boolean doesDataExist(String macAddress, UUID uuid) {
+        return getCount(macAddress, uuid, EpochTimeRange.FROM_MIN_TO_MAX) > 0;
+    }
+
+    @Override public void load(String macAddress, UUID uuid, EpochTimeRange range, ForEach_Void<HistoricalData> forEach) {
+        HistoricalDataCursor cursor = getCursor(macAddress, uuid, range);
+        while (cursor.moveToNext()) {
+            forEach.next(new HistoricalData(cursor.getEpochTime(), cursor.getBlob()));
+        }
+        cursor.close();
+    }
+
+    @Override public int getCount(String macAddress, UUID uuid, EpochTimeRange range) {
+        return table(macAddress, uuid).getCount(range);
+    }
+
+    @Override public HistoricalDataCursor getCursor(String macAddress, UUID uuid, EpochTimeRange range) {
+        return table(macAddress, uuid).getCursor(range);
+    }
+
+    @Override public HistoricalDataBuckets getBuckets(String macAddress, UUID uuid, EpochTimeRange range, long bucketWidth_millis, HistoricalDataValueType valueType, int byteOffset) {
+        return table(macAddress, uuid).getBuckets(range, bucketWidth_millis, valueType, byteOffset);
+    }
+
+    @Override public Cursor query(String query) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override public long getByteCount(String macAddress, UUID uuid) {
+        long byteCount = 0;
+        HistoricalDataCursor cursor = getCursor(macAddress, uuid, EpochTimeRange.FROM_MIN_TO_MAX);
+        while (cursor.moveToNext()) {
+            byteCount += cursor.getBlob().length;
+        }
+        cursor.close();
+        return byteCount;
+    }
+
+    @Override public String[] getMacAddresses(UUID uuid) {
+        ArrayList<String> macAddresses = new ArrayList<String>();
+        for (Map.Entry<String, Backend_HistoricalDataList_Default> entry : tables.entrySet()) {
+            if (entry.getKey().endsWith(uuid.toString()) && entry.getValue().getCount(EpochTimeRange.FROM_MIN_TO_MAX) > 0) {
+                macAddresses.add(entry.getValue().getMacAddress());
+            }
+        }
+        return macAddresses.toArray(new String[macAddresses.size()]);
+    }
+
+    @Override public HistoricalData[] getLatest(String[] macAddresses, UUID uuid) {
+        HistoricalData[] latest = new HistoricalData[macAddresses.length];
+        for (int i = 0; i < macAddresses.length; i++) {
+            int count = getCount(macAddresses[i], uuid, EpochTimeRange.FROM_MIN_TO_MAX);
+            latest[i] = count > 0 ? table(macAddresses[i], uuid).get(EpochTimeRange.FROM_MIN_TO_MAX, count - 1) : HistoricalData.NULL;
+        }
+        return latest;
+    }
+
+    @Override public void compact() {
+    }
+
+    @Override public String getTableName(String macAddress, UUID uuid) {
+        return macAddress + "_" + uuid;
+    }
+}
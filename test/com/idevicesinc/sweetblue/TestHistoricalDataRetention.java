@@ -0,0 +1,234 @@
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.utils.EpochTimeRange;
+import com.idevicesinc.sweetblue.utils.HistoricalDataCursor;
+import com.idevicesinc.sweetblue.utils.Interval;
+import org.junit.Before;
+import org.junit.Test;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.UUID;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * Checks the byte limits enforced by {@link P_HistoricalDataPruner}, and the pass {@link P_HistoricalDataGlobalRetention} runs after
+ * startup, against data in a {@link HistoricalDatabase_InMemory}. Every row is {@link #ROW_SIZE} bytes and row <code>i</code> is
+ * logged at <code>i * 100</code>, so which rows are left shows whether the oldest went first.
+ */
+public class TestHistoricalDataRetention {
+
+    private static final String MAC_A = "AA:AA:AA:AA:AA:AA";
+    private static final String MAC_B = "BB:BB:BB:BB:BB:BB";
+    private static final UUID UUID_1 = UUID.fromString("00002a37-0000-1000-8000-00805f9b34fb");
+    private static final UUID UUID_2 = UUID.fromString("00002a38-0000-1000-8000-00805f9b34fb");
+    private static final int ROW_SIZE = 10;
+
+    private static class TestRetention extends P_HistoricalDataGlobalRetention {
+        final LinkedHashMap<String, UUID[]> index = new LinkedHashMap<String, UUID[]>();
+        final List<String> known = new ArrayList<String>();
+        final List<String> scheduled = new ArrayList<String>();
+        final List<Runnable> posted = new ArrayList<Runnable>();
+        final List<Long> delays = new ArrayList<Long>();
+
+        TestRetention(BleManager mngr, HistoricalDatabase_InMemory database) {
+            super(mngr, null, database);
+        }
+
+        @Override void post(Runnable pass, long delay_millis) {
+            posted.add(pass);
+            delays.add(delay_millis);
+        }
+
+        @Override String[] getMacAddresses() {
+            return index.keySet().toArray(new String[index.size()]);
+        }
+
+        @Override UUID[] getUuids(String macAddress) {
+            return index.get(macAddress);
+        }
+
+        @Override boolean scheduleRetention(String macAddress) {
+            if (!known.contains(macAddress)) {
+                return false;
+            }
+            scheduled.add(macAddress);
+            return true;
+        }
+
+        void runPosted() {
+            List<Runnable> toRun = new ArrayList<Runnable>(posted);
+            posted.clear();
+            for (Runnable runnable : toRun) {
+                runnable.run();
+            }
+        }
+    }
+
+    private HistoricalDatabase_InMemory database;
+    private P_HistoricalDataPruner pruner;
+    private BleManagerConfig config;
+    private TestRetention retention;
+
+
+    @Before
+    public void setup() throws Exception {
+        database = new HistoricalDatabase_InMemory();
+        pruner = new P_HistoricalDataPruner(database);
+        pruner.startPass();
+
+        Field field = sun.misc.Unsafe.class.getDeclaredField("theUnsafe");
+        field.setAccessible(true);
+        BleManager mngr = (BleManager) ((sun.misc.Unsafe) field.get(null)).allocateInstance(BleManager.class);
+
+        config = new BleManagerConfig();
+        config.historicalDataRetentionInterval = Interval.secs(60);
+        mngr.m_config = config;
+
+        retention = new TestRetention(mngr, database);
+    }
+
+    @Test
+    public void maxBytesPerUuidTest() {
+        addRows(MAC_A, UUID_1, 100);
+        addRows(MAC_A, UUID_2, 20);
+
+        pruner.enforce(MAC_A, new UUID[]{UUID_1, UUID_2}, null, null, null, 50 * ROW_SIZE, null);
+
+        // Only the table over the limit loses anything, and what it loses is its oldest rows.
+        assertRows(MAC_A, UUID_1, 50, 100);
+        assertRows(MAC_A, UUID_2, 0, 20);
+    }
+
+    @Test
+    public void maxBytesTest() {
+        addRows(MAC_A, UUID_1, 100);
+        addRows(MAC_A, UUID_2, 100);
+
+        pruner.enforce(MAC_A, new UUID[]{UUID_1, UUID_2}, null, null, null, null, 60 * ROW_SIZE);
+
+        // Both tables are 70% over together, so each loses its oldest 70 rows.
+        assertRows(MAC_A, UUID_1, 70, 100);
+        assertRows(MAC_A, UUID_2, 70, 100);
+        assertTrue(database.getByteCount(MAC_A, UUID_1) + database.getByteCount(MAC_A, UUID_2) <= 60 * ROW_SIZE);
+    }
+
+    @Test
+    public void maxBytesAndPerUuidTest() {
+        addRows(MAC_A, UUID_1, 100);
+        addRows(MAC_A, UUID_2, 40);
+
+        pruner.enforce(MAC_A, new UUID[]{UUID_1, UUID_2}, null, null, null, 50 * ROW_SIZE, 60 * ROW_SIZE);
+
+        // The per-UUID limit takes UUID_1 down to 50 rows first, then the two tables together are a third over the device limit.
+        assertRows(MAC_A, UUID_1, 67, 100);
+        assertRows(MAC_A, UUID_2, 14, 40);
+        assertTrue(database.getByteCount(MAC_A, UUID_1) <= 50 * ROW_SIZE);
+        assertTrue(database.getByteCount(MAC_A, UUID_1) + database.getByteCount(MAC_A, UUID_2) <= 60 * ROW_SIZE);
+    }
+
+    @Test
+    public void batchSizeTest() {
+        addRows(MAC_A, UUID_1, P_HistoricalDataPruner.BATCH_SIZE * 2);
+
+        pruner.enforce(MAC_A, new UUID[]{UUID_1}, null, null, null, 0, null);
+        assertTrue(pruner.isOutOfBudget());
+        assertRows(MAC_A, UUID_1, P_HistoricalDataPruner.BATCH_SIZE, P_HistoricalDataPruner.BATCH_SIZE * 2);
+
+        pruner.startPass();
+        pruner.enforce(MAC_A, new UUID[]{UUID_1}, null, null, null, 0, null);
+        assertEquals(0, database.getCount(MAC_A, UUID_1, EpochTimeRange.FROM_MIN_TO_MAX));
+    }
+
+    @Test
+    public void startupPassTest() {
+        config.historicalDataMaxBytesPerUuid = 50 * ROW_SIZE;
+        config.historicalDataMaxBytesTotal = 80L * ROW_SIZE;
+
+        addRows(MAC_A, UUID_1, 100);
+        addRows(MAC_B, UUID_1, 100);
+        addRows(MAC_B, UUID_2, 100);
+        retention.index.put(MAC_A, new UUID[]{UUID_1});
+        retention.index.put(MAC_B, new UUID[]{UUID_1, UUID_2});
+        retention.known.add(MAC_A);
+
+        // Nothing happens until the startup delay is up.
+        retention.start();
+        assertEquals(1, retention.posted.size());
+        assertEquals(P_HistoricalDataGlobalRetention.STARTUP_DELAY_MILLIS, (long) retention.delays.get(0));
+        assertRows(MAC_B, UUID_1, 0, 100);
+
+        retention.runPosted();
+
+        // The known device is left to its own retention, the other one is held to the config's per-UUID limit, on disk only.
+        assertEquals(1, retention.scheduled.size());
+        assertEquals(MAC_A, retention.scheduled.get(0));
+
+        // Then the total across all three tables, 200 rows, is 60% over, so every table loses its oldest 60% on top of that.
+        assertRows(MAC_A, UUID_1, 60, 100);
+        assertRows(MAC_B, UUID_1, 80, 100);
+        assertRows(MAC_B, UUID_2, 80, 100);
+        assertTrue(totalBytes() <= config.historicalDataMaxBytesTotal);
+
+        // The next pass is a whole interval away.
+        assertEquals(1, retention.posted.size());
+        assertEquals(config.historicalDataRetentionInterval.millis(), (long) retention.delays.get(1));
+    }
+
+    @Test
+    public void startupPassOverBudgetTest() {
+        config.historicalDataMaxBytesTotal = 0L;
+
+        addRows(MAC_B, UUID_1, P_HistoricalDataPruner.BATCH_SIZE + 10);
+        retention.index.put(MAC_B, new UUID[]{UUID_1});
+
+        retention.start();
+        retention.runPosted();
+
+        // One batch only, and the rest follows shortly after instead of an interval later.
+        assertRows(MAC_B, UUID_1, P_HistoricalDataPruner.BATCH_SIZE, P_HistoricalDataPruner.BATCH_SIZE + 10);
+        assertEquals(P_HistoricalDataGlobalRetention.BATCH_DELAY_MILLIS, (long) retention.delays.get(1));
+
+        retention.runPosted();
+        assertEquals(0, database.getCount(MAC_B, UUID_1, EpochTimeRange.FROM_MIN_TO_MAX));
+    }
+
+    @Test
+    public void disabledTest() {
+        config.historicalDataRetentionInterval = Interval.DISABLED;
+
+        retention.start();
+        assertTrue(retention.posted.isEmpty());
+    }
+
+    private void addRows(String macAddress, UUID uuid, int count) {
+        for (int i = 0; i < count; i++) {
+            byte[] blob = new byte[ROW_SIZE];
+            blob[0] = (byte) i;
+            database.add(macAddress, uuid, i * 100, blob);
+        }
+    }
+
+    /**
+     * Asserts that exactly rows <code>from</code> (inclusive) through <code>to</code> (exclusive) are left.
+     */
+    private void assertRows(String macAddress, UUID uuid, int from, int to) {
+        HistoricalDataCursor cursor = database.getCursor(macAddress, uuid, EpochTimeRange.FROM_MIN_TO_MAX);
+        assertEquals(to - from, cursor.getCount());
+        for (int i = from; i < to; i++) {
+            assertTrue(cursor.moveToNext());
+            assertEquals(i * 100, cursor.getEpochTime());
+        }
+        assertFalse(cursor.moveToNext());
+        cursor.close();
+    }
+
+    private long totalBytes() {
+        return database.getByteCount(MAC_A, UUID_1) + database.getByteCount(MAC_B, UUID_1) + database.getByteCount(MAC_B, UUID_2);
+    }
+}
@@ -0,0 +1,104 @@
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.backend.historical.Backend_HistoricalDataList_Default;
+import com.idevicesinc.sweetblue.utils.EpochTime;
+import com.idevicesinc.sweetblue.utils.EpochTimeRange;
+import com.idevicesinc.sweetblue.utils.HistoricalData;
+import com.idevicesinc.sweetblue.utils.HistoricalDataBuckets;
+import com.idevicesinc.sweetblue.utils.HistoricalDataCursor;
+import com.idevicesinc.sweetblue.utils.HistoricalDataValueType;
+import org.junit.Before;
+import org.junit.Test;
+import java.util.UUID;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * Checks that {@link PU_HistoricalData} only reads a range from the in-memory list when the list has all of it, and otherwise
+ * goes to the database.
+ */
+public class TestHistoricalDataSource {
+
+    private static final String MAC = "AA:BB:CC:DD:EE:FF";
+    private static final UUID UUID_ = UUID.fromString("00002a37-0000-1000-8000-00805f9b34fb");
+    private static final long BUCKET_WIDTH = 1000;
+
+    private HistoricalDatabase_InMemory database;
+    private Backend_HistoricalDataList_Default list;
+
+
+    @Before
+    public void setup() {
+        database = new HistoricalDatabase_InMemory();
+        list = new Backend_HistoricalDataList_Default();
+        list.init(database, null, MAC, UUID_, "", true);
+    }
+
+    @Test
+    public void diskOnlyDataTest() {
+        // Older data on disk that was never loaded, or was capped out of memory, plus the newest samples in both.
+        for (int i = 0; i < 100; i++) {
+            database.add(MAC, UUID_, i * 100, new byte[]{(byte) i});
+        }
+        for (int i = 90; i < 100; i++) {
+            list.add_single(new HistoricalData(i * 100, new byte[]{(byte) i}), BleDeviceConfig.HistoricalDataLogFilter.PersistenceLevel.MEMORY, 10);
+        }
+
+        assertFalse(PU_HistoricalData.isListComplete(list, database, MAC, UUID_, EpochTimeRange.FROM_MIN_TO_MAX));
+
+        HistoricalDataBuckets buckets = getBuckets(EpochTimeRange.FROM_MIN_TO_MAX);
+        assertEquals(100, buckets.getTotalSampleCount());
+        assertEquals(10, buckets.getBucketCount());
+        assertEquals(0, buckets.getMin(0));
+
+        // A range that memory covers all of can still come from memory.
+        EpochTimeRange recent = EpochTimeRange.fromGiven_toGiven(new EpochTime(9000), new EpochTime(9900));
+        assertTrue(PU_HistoricalData.isListComplete(list, database, MAC, UUID_, recent));
+        assertEquals(10, getBuckets(recent).getTotalSampleCount());
+    }
+
+    @Test
+    public void diskOnlyDataCursorTest() {
+        for (int i = 0; i < 100; i++) {
+            database.add(MAC, UUID_, i * 100, new byte[]{(byte) i});
+        }
+        for (int i = 90; i < 100; i++) {
+            list.add_single(new HistoricalData(i * 100, new byte[]{(byte) i}), BleDeviceConfig.HistoricalDataLogFilter.PersistenceLevel.MEMORY, 10);
+        }
+
+        HistoricalDataCursor cursor = PU_HistoricalData.getCursor(list, database, MAC, UUID_, EpochTimeRange.FROM_MIN_TO_MAX);
+        assertEquals(100, cursor.getCount());
+        assertTrue(cursor.moveToFirst());
+        assertEquals(0, cursor.getEpochTime());
+        cursor.close();
+    }
+
+    @Test
+    public void memoryOnlyDataTest() {
+        // Nothing on disk, like with no database backend, so memory is the only place to look.
+        for (int i = 0; i < 10; i++) {
+            list.add_single(new HistoricalData(i * 100, new byte[]{(byte) i}), BleDeviceConfig.HistoricalDataLogFilter.PersistenceLevel.MEMORY, Long.MAX_VALUE);
+        }
+
+        assertTrue(PU_HistoricalData.isListComplete(list, database, MAC, UUID_, EpochTimeRange.FROM_MIN_TO_MAX));
+        assertEquals(10, getBuckets(EpochTimeRange.FROM_MIN_TO_MAX).getTotalSampleCount());
+        assertEquals(10, PU_HistoricalData.getCursor(list, database, MAC, UUID_, EpochTimeRange.FROM_MIN_TO_MAX).getCount());
+    }
+
+    @Test
+    public void noListTest() {
+        for (int i = 0; i < 10; i++) {
+            database.add(MAC, UUID_, i * 100, new byte[]{(byte) i});
+        }
+
+        assertFalse(PU_HistoricalData.isListComplete(null, database, MAC, UUID_, EpochTimeRange.FROM_MIN_TO_MAX));
+        assertEquals(10, PU_HistoricalData.getBuckets(null, database, MAC, UUID_, EpochTimeRange.FROM_MIN_TO_MAX, BUCKET_WIDTH, HistoricalDataValueType.UINT8, 0).getTotalSampleCount());
+    }
+
+    private HistoricalDataBuckets getBuckets(EpochTimeRange range) {
+        return PU_HistoricalData.getBuckets(list, database, MAC, UUID_, range, BUCKET_WIDTH, HistoricalDataValueType.UINT8, 0);
+    }
+}
@@ -0,0 +1,170 @@
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.BleManagerConfig.NotificationOverflowPolicy;
+import org.junit.Before;
+import org.junit.Test;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import static org.junit.Assert.assertEquals;
+
+
+/**
+ * Checks each {@link NotificationOverflowPolicy} of {@link P_NotificationBuffer}. Drains are run by hand instead of posted to the
+ * update thread, and notifications all come from a <code>null</code> device because {@link BleDevice} needs a real Android runtime.
+ */
+public class TestNotificationBuffer {
+
+    private static final UUID SERVICE = UUID.fromString("0000fff0-0000-1000-8000-00805f9b34fb");
+
+    private static class TestBuffer extends P_NotificationBuffer {
+        final List<String> delivered = new ArrayList<String>();
+        final List<Long> overruns = new ArrayList<Long>();
+        int postCount = 0;
+
+        TestBuffer(BleManager mngr) {
+            super(mngr);
+        }
+
+        @Override void postDrain(boolean force) {
+            postCount++;
+        }
+
+        @Override void deliver(BleDevice device, UUID serviceUuid, UUID charUuid, byte[] value) {
+            delivered.add(name(charUuid) + value[0]);
+        }
+
+        @Override void onOverrun(long newOverruns) {
+            overruns.add(newOverruns);
+        }
+    }
+
+    private BleManagerConfig config;
+    private TestBuffer buffer;
+
+
+    @Before
+    public void setup() throws Exception {
+        Field field = sun.misc.Unsafe.class.getDeclaredField("theUnsafe");
+        field.setAccessible(true);
+        BleManager mngr = (BleManager) ((sun.misc.Unsafe) field.get(null)).allocateInstance(BleManager.class);
+
+        config = new BleManagerConfig();
+        config.notificationBufferSize = 4;
+        config.maxNotificationBatchSize = 100;
+        mngr.m_config = config;
+
+        buffer = new TestBuffer(mngr);
+    }
+
+    @Test
+    public void losslessByDefaultTest() {
+        assertEquals(NotificationOverflowPolicy.GROW, new BleManagerConfig().notificationOverflowPolicy);
+
+        for (int i = 0; i < 10; i++) {
+            add("a", i);
+        }
+        assertEquals(1, buffer.postCount);
+
+        buffer.drain();
+        assertEquals(Arrays.asList("a0", "a1", "a2", "a3", "a4", "a5", "a6", "a7", "a8", "a9"), buffer.delivered);
+        assertEquals(0, buffer.getOverrunCount());
+        assertEquals(0, buffer.overruns.size());
+    }
+
+    @Test
+    public void nullPolicyTest() {
+        config.notificationOverflowPolicy = null;
+
+        for (int i = 0; i < 10; i++) {
+            add("a", i);
+        }
+
+        buffer.drain();
+        assertEquals(10, buffer.delivered.size());
+        assertEquals(0, buffer.getOverrunCount());
+    }
+
+    @Test
+    public void growAcrossWrapTest() {
+        config.maxNotificationBatchSize = 3;
+
+        // Drain part of the way so what's waiting wraps around the end of the buffer before it grows.
+        for (int i = 0; i < 4; i++) {
+            add("a", i);
+        }
+        buffer.drain();
+        for (int i = 4; i < 12; i++) {
+            add("a", i);
+        }
+
+        // Each partial drain asks for another one.
+        while (buffer.delivered.size() < 12) {
+            buffer.drain();
+        }
+        assertEquals(Arrays.asList("a0", "a1", "a2", "a3", "a4", "a5", "a6", "a7", "a8", "a9", "a10", "a11"), buffer.delivered);
+        assertEquals(4, buffer.postCount);
+    }
+
+    @Test
+    public void dropNewestTest() {
+        config.notificationOverflowPolicy = NotificationOverflowPolicy.DROP_NEWEST;
+
+        for (int i = 0; i < 10; i++) {
+            add("a", i);
+        }
+        assertEquals(6, buffer.getOverrunCount());
+
+        buffer.drain();
+        assertEquals(Arrays.asList("a0", "a1", "a2", "a3"), buffer.delivered);
+        assertEquals(Arrays.asList(6L), buffer.overruns);
+
+        // Drops are only reported once, and there's room again after the drain.
+        add("a", 10);
+        buffer.drain();
+        assertEquals(Arrays.asList("a0", "a1", "a2", "a3", "a10"), buffer.delivered);
+        assertEquals(Arrays.asList(6L), buffer.overruns);
+    }
+
+    @Test
+    public void keepLatestTest() {
+        config.notificationOverflowPolicy = NotificationOverflowPolicy.KEEP_LATEST;
+
+        add("a", 1);
+        add("b", 1);
+        add("a", 2);
+        assertEquals(1, buffer.getCoalescedCount());
+        assertEquals(0, buffer.getOverrunCount());
+
+        // Full at a, b, c, d, so e pushes out the oldest one.
+        add("c", 1);
+        add("d", 1);
+        add("e", 1);
+        assertEquals(1, buffer.getOverrunCount());
+
+        buffer.drain();
+        assertEquals(Arrays.asList("b1", "c1", "d1", "e1"), buffer.delivered);
+        assertEquals(Arrays.asList(1L), buffer.overruns);
+
+        // Nothing left waiting to coalesce with.
+        add("b", 2);
+        buffer.drain();
+        assertEquals(Arrays.asList("b1", "c1", "d1", "e1", "b2"), buffer.delivered);
+        assertEquals(1, buffer.getCoalescedCount());
+    }
+
+    private void add(String name, int value) {
+        buffer.add(null, SERVICE, uuid(name), new byte[]{(byte) value});
+    }
+
+    private static UUID uuid(String name) {
+        return new UUID(name.charAt(0), 0);
+    }
+
+    private static String name(UUID uuid) {
+        return String.valueOf((char) uuid.getMostSignificantBits());
+    }
+}
@@ -0,0 +1,149 @@
+package com.idevicesinc.sweetblue;
+
+
+import org.junit.Before;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * Checks that looking up {@link P_PollManager}'s entries through {@link P_PollIndex} finds the same entries, in the same order, as the
+ * linear scan over every entry that {@link P_PollManager} used to do. Entries here are stand-ins since real ones need a {@link BleDevice}.
+ */
+public class TestPollIndex {
+
+    private static final UUID CHAR_A = UUID.fromString("00002a37-0000-1000-8000-00805f9b34fb");
+    private static final UUID CHAR_B = UUID.fromString("00002a38-0000-1000-8000-00805f9b34fb");
+    private static final UUID CHAR_C = UUID.fromString("00002a39-0000-1000-8000-00805f9b34fb");
+    private static final UUID[] CHARS = {CHAR_A, CHAR_B, CHAR_C};
+
+    private static class Entry {
+        final UUID charUuid;
+        final int id;
+
+        Entry(UUID charUuid, int id) {
+            this.charUuid = charUuid;
+            this.id = id;
+        }
+
+        @Override public String toString() {
+            return charUuid.toString().substring(4, 8) + "#" + id;
+        }
+    }
+
+    private P_PollIndex<Entry> index;
+    private int nextId = 0;
+
+
+    @Before
+    public void setup() {
+        index = new P_PollIndex<Entry>();
+    }
+
+    @Test
+    public void addRemoveReAddTest() {
+        Entry a1 = add(CHAR_A);
+        Entry b1 = add(CHAR_B);
+        assertMatchesLinearScan();
+
+        // Last poll for the characteristic goes away...
+        index.remove(CHAR_A, a1);
+        assertTrue(index.get(CHAR_A).isEmpty());
+        assertMatchesLinearScan();
+
+        // ...and a new one for the same characteristic is found again, after the entry that outlived the old one.
+        Entry a2 = add(CHAR_A);
+        assertEquals(1, index.get(CHAR_A).size());
+        assertSame(a2, index.get(CHAR_A).get(0));
+        assertSame(b1, index.get(0));
+        assertSame(a2, index.get(1));
+        assertMatchesLinearScan();
+
+        // Removing twice, or with the wrong characteristic, leaves everything alone.
+        index.remove(CHAR_A, a1);
+        index.remove(CHAR_B, a2);
+        assertEquals(2, index.size());
+        assertMatchesLinearScan();
+    }
+
+    @Test
+    public void removeWhileGoingBackwardsTest() {
+        // What stopPoll() does, going backwards through one characteristic's entries and removing matches along the way.
+        for (int i = 0; i < 6; i++) {
+            add(i % 2 == 0 ? CHAR_A : CHAR_B);
+        }
+
+        List<Entry> entries = index.get(CHAR_A);
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            if (entries.get(i).id != 2) {
+                index.remove(CHAR_A, entries.get(i));
+            }
+        }
+        assertEquals(1, index.get(CHAR_A).size());
+        assertEquals(2, index.get(CHAR_A).get(0).id);
+        assertMatchesLinearScan();
+
+        // Then the rest of them, and then a re-add.
+        entries = index.get(CHAR_A);
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            index.remove(CHAR_A, entries.get(i));
+        }
+        assertTrue(index.get(CHAR_A).isEmpty());
+        add(CHAR_A);
+        assertMatchesLinearScan();
+    }
+
+    @Test
+    public void noEntriesTest() {
+        assertTrue(index.get(CHAR_A).isEmpty());
+        assertEquals(0, index.size());
+
+        // Entries for one characteristic never show up under another, and the empty list handed out isn't shared with real entries.
+        add(CHAR_B);
+        assertTrue(index.get(CHAR_A).isEmpty());
+        assertTrue(index.get(CHAR_C).isEmpty());
+        assertMatchesLinearScan();
+    }
+
+    @Test
+    public void randomOperationsTest() {
+        Random random = new Random(12345);
+        List<Entry> live = new ArrayList<Entry>();
+
+        for (int i = 0; i < 2000; i++) {
+            if (live.isEmpty() || random.nextInt(3) != 0) {
+                live.add(add(CHARS[random.nextInt(CHARS.length)]));
+            } else {
+                Entry entry = live.remove(random.nextInt(live.size()));
+                index.remove(entry.charUuid, entry);
+            }
+
+            assertEquals(live.size(), index.size());
+            assertMatchesLinearScan();
+        }
+    }
+
+    private Entry add(UUID charUuid) {
+        Entry entry = new Entry(charUuid, nextId++);
+        index.add(charUuid, entry);
+        return entry;
+    }
+
+    private void assertMatchesLinearScan() {
+        for (UUID charUuid : CHARS) {
+            List<Entry> scanned = new ArrayList<Entry>();
+            for (int i = 0; i < index.size(); i++) {
+                if (index.get(i).charUuid.equals(charUuid)) {
+                    scanned.add(index.get(i));
+                }
+            }
+            assertEquals(scanned, index.get(charUuid));
+        }
+    }
+}
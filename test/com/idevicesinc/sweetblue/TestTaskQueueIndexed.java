@@ -0,0 +1,246 @@
+package com.idevicesinc.sweetblue;
+
+
+import org.junit.Before;
+import org.junit.Test;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * Lives in the same package as {@link P_TaskQueue_Indexed} because the class is package-private. Tasks are owned by
+ * {@link BleManager} instances allocated without running the constructor, which needs a real Android runtime. The queue only
+ * ever uses them as owner keys.
+ */
+public class TestTaskQueueIndexed {
+
+    private static final PE_TaskPriority[] PRIORITIES = PE_TaskPriority.values();
+
+    static class TestTask extends PA_Task {
+        private final PE_TaskPriority priority;
+        private final boolean jumpsAhead;
+        private final boolean lockable;
+
+        TestTask(BleManager owner, PE_TaskPriority priority) {
+            this(owner, priority, false, false);
+        }
+
+        /**
+         * A task that <code>jumpsAhead</code> is more important than any <code>lockable</code> task of the same owner no matter the
+         * priority, the way a transaction's tasks get ahead of everything else for their device.
+         */
+        TestTask(BleManager owner, PE_TaskPriority priority, boolean jumpsAhead, boolean lockable) {
+            super(owner, null);
+            this.priority = priority;
+            this.jumpsAhead = jumpsAhead;
+            this.lockable = lockable;
+        }
+
+        @Override void execute() {
+            succeed();
+        }
+
+        @Override public PE_TaskPriority getPriority() {
+            return priority;
+        }
+
+        @Override public boolean isMoreImportantThan(PA_Task task) {
+            if (jumpsAhead && task.getManager() == getManager() && task instanceof TestTask && ((TestTask) task).lockable) {
+                return true;
+            }
+            return super.isMoreImportantThan(task);
+        }
+
+        @Override protected BleTask getTaskType() {
+            return BleTask.READ;
+        }
+    }
+
+    static class OtherTestTask extends TestTask {
+        OtherTestTask(BleManager owner, PE_TaskPriority priority) {
+            super(owner, priority);
+        }
+    }
+
+    private BleManager owner1;
+    private BleManager owner2;
+    private BleManager owner3;
+    private P_TaskQueue_Indexed queue;
+
+
+    @Before
+    public void setup() throws Exception {
+        owner1 = newOwner();
+        owner2 = newOwner();
+        owner3 = newOwner();
+        queue = new P_TaskQueue_Indexed();
+    }
+
+    @Test
+    public void priorityOrderingTest() {
+        TestTask low1 = add(new TestTask(owner1, PE_TaskPriority.LOW));
+        TestTask medium = add(new TestTask(owner2, PE_TaskPriority.MEDIUM));
+        TestTask low2 = add(new TestTask(owner2, PE_TaskPriority.LOW));
+        TestTask high1 = add(new TestTask(owner1, PE_TaskPriority.HIGH));
+        TestTask critical = add(new TestTask(owner2, PE_TaskPriority.CRITICAL));
+        TestTask high2 = add(new TestTask(owner2, PE_TaskPriority.HIGH));
+        TestTask trivial = add(new TestTask(owner1, PE_TaskPriority.TRIVIAL));
+
+        // Higher priorities go first, and equal priorities keep the order they were added in.
+        assertOrder(queue.iterator(), critical, high1, high2, medium, low1, low2, trivial);
+        assertOrder(queue.iterator(owner1), high1, low1, trivial);
+        assertOrder(queue.iterator(owner2), critical, high2, medium, low2);
+
+        assertSame(critical, queue.peek());
+        assertSame(trivial, queue.peekLast());
+        assertEquals(7, queue.size());
+    }
+
+    @Test
+    public void jumpAheadOfSameOwnerTest() {
+        TestTask high = add(new TestTask(owner1, PE_TaskPriority.HIGH, false, true));
+        TestTask otherOwnerHigh = add(new TestTask(owner2, PE_TaskPriority.HIGH, false, true));
+        TestTask medium = add(new TestTask(owner1, PE_TaskPriority.MEDIUM, false, true));
+
+        // Lower priority than everything queued, but gets ahead of its own owner's lockable tasks only.
+        TestTask jumper = add(new TestTask(owner1, PE_TaskPriority.LOW, true, false));
+
+        assertOrder(queue.iterator(), jumper, high, otherOwnerHigh, medium);
+    }
+
+    @Test
+    public void matchesLinearScanTest() {
+        BleManager[] owners = {owner1, owner2, owner3};
+        Random r = new Random(1);
+        List<PA_Task> expected = new ArrayList<PA_Task>();
+
+        for (int i = 0; i < 5000; i++) {
+            int op = r.nextInt(10);
+
+            if (op < 6 || expected.isEmpty()) {
+                TestTask task = new TestTask(owners[r.nextInt(owners.length)], PRIORITIES[r.nextInt(PRIORITIES.length)], r.nextInt(8) == 0, r.nextBoolean());
+                expected.add(findSoonestSpot_linear(expected, task), task);
+                add(task);
+            } else if (op < 7) {
+                TestTask task = new TestTask(owners[r.nextInt(owners.length)], PRIORITIES[r.nextInt(PRIORITIES.length)]);
+                expected.add(0, task);
+                queue.addToFront(task);
+            } else {
+                PA_Task task = expected.remove(r.nextInt(expected.size()));
+                assertTrue(queue.remove(task));
+            }
+
+            assertEquals(expected, queue.toList());
+        }
+
+        for (BleManager owner : owners) {
+            List<PA_Task> owned = new ArrayList<PA_Task>();
+            for (PA_Task task : expected) {
+                if (task.getManager() == owner) {
+                    owned.add(task);
+                }
+            }
+            assertEquals(owned, queue.toList(owner));
+        }
+    }
+
+    @Test
+    public void addToFrontAndBeforeTest() {
+        TestTask back = add(new TestTask(owner1, PE_TaskPriority.LOW));
+        TestTask front = new TestTask(owner1, PE_TaskPriority.LOW);
+        queue.addToFront(front);
+
+        // Enough inserts at the same spot to run out of room between keys, so they have to be renumbered.
+        List<TestTask> between = new ArrayList<TestTask>();
+        for (int i = 0; i < 100; i++) {
+            TestTask task = new TestTask(owner1, PE_TaskPriority.LOW);
+            queue.addBefore(task, back);
+            between.add(task);
+        }
+
+        Iterator<PA_Task> iterator = queue.iterator();
+        assertSame(front, iterator.next());
+        for (TestTask task : between) {
+            assertSame(task, iterator.next());
+        }
+        assertSame(back, iterator.next());
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void removalTest() {
+        TestTask high = add(new TestTask(owner1, PE_TaskPriority.HIGH));
+        OtherTestTask other = add(new OtherTestTask(owner1, PE_TaskPriority.MEDIUM));
+        TestTask low = add(new TestTask(owner2, PE_TaskPriority.LOW));
+
+        assertTrue(queue.remove(other));
+        assertFalse(queue.remove(other));
+        assertFalse(queue.contains(other));
+        assertEquals(2, queue.size());
+        assertEquals(1, queue.size(owner1));
+        assertNull(queue.find(OtherTestTask.class, owner1, null, null));
+        assertSame(high, queue.find(TestTask.class, owner1, null, null));
+        assertSame(low, queue.find(TestTask.class, owner2, null, null));
+
+        // A task added after a removal still lands by priority.
+        TestTask medium = add(new TestTask(owner2, PE_TaskPriority.MEDIUM));
+        assertOrder(queue.iterator(), high, medium, low);
+
+        assertTrue(queue.remove(high));
+        assertTrue(queue.remove(low));
+        assertFalse(queue.getOwnerKeys().contains(owner1));
+        assertSame(medium, queue.peek());
+
+        assertTrue(queue.remove(medium));
+        assertTrue(queue.isEmpty());
+        assertNull(queue.peek());
+        assertNull(queue.findSoonestSpot(new TestTask(owner1, PE_TaskPriority.CRITICAL)));
+    }
+
+    /**
+     * Same as what {@link P_TaskQueue} does for a task that doesn't cancel or interrupt the current one.
+     */
+    private <T extends PA_Task> T add(T task) {
+        PA_Task soonestSpot = queue.findSoonestSpot(task);
+        if (soonestSpot != null) {
+            queue.addBefore(task, soonestSpot);
+        } else {
+            queue.addToBack(task);
+        }
+        return task;
+    }
+
+    /**
+     * The front-to-back scan that {@link P_TaskQueue} used before {@link P_TaskQueue_Indexed}.
+     */
+    private static int findSoonestSpot_linear(List<PA_Task> tasks, PA_Task taskToAdd) {
+        for (int i = 0; i < tasks.size(); i++) {
+            if (taskToAdd.isMoreImportantThan(tasks.get(i))) {
+                return i;
+            }
+        }
+        return tasks.size();
+    }
+
+    private static void assertOrder(Iterator<PA_Task> iterator, PA_Task... expected) {
+        for (PA_Task task : expected) {
+            assertTrue(iterator.hasNext());
+            assertSame(task, iterator.next());
+        }
+        assertFalse(iterator.hasNext());
+    }
+
+    private static BleManager newOwner() throws Exception {
+        Field field = sun.misc.Unsafe.class.getDeclaredField("theUnsafe");
+        field.setAccessible(true);
+        return (BleManager) ((sun.misc.Unsafe) field.get(null)).allocateInstance(BleManager.class);
+    }
+}
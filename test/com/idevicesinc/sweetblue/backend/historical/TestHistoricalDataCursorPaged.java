@@ -0,0 +1,189 @@
+package com.idevicesinc.sweetblue.backend.historical;
+
+
+import com.idevicesinc.sweetblue.utils.EpochTimeRange;
+import org.junit.Before;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * Runs {@link P_HistoricalDataCursor_Paged} over rows held in arrays instead of a SQLite table, with prefetches queued up here
+ * instead of posted to the historical data thread, so tests decide when they run.
+ */
+public class TestHistoricalDataCursorPaged {
+
+    private static final int WINDOW = P_HistoricalDataCursor_Paged.WINDOW_SIZE;
+    private static final int COUNT = WINDOW * 3 + 10;
+
+    private class TestCursor extends P_HistoricalDataCursor_Paged {
+        // Offset of every window loaded, whether by a prefetch or not, and whether it started after a known row.
+        final List<Integer> loads = new ArrayList<Integer>();
+        final List<Boolean> loadsAfterKey = new ArrayList<Boolean>();
+        final List<Runnable> posted = new ArrayList<Runnable>();
+
+        TestCursor() {
+            super(null, null, "table", EpochTimeRange.FROM_MIN_TO_MAX, COUNT);
+        }
+
+        @Override void loadWindow(long[] after_nullable, int offset, P_HistoricalDataStore store, long[] lastKey_out) {
+            store.clear();
+
+            // Row i has date i * 10 and rowid i, the way loadWindow pages through a table.
+            int start = after_nullable != null ? (int) after_nullable[1] + 1 : offset;
+            if (after_nullable != null) {
+                assertEquals(start * 10 - 10, after_nullable[0]);
+            }
+
+            loads.add(start);
+            loadsAfterKey.add(after_nullable != null);
+
+            for (int i = start; i < Math.min(start + WINDOW, COUNT); i++) {
+                store.add(i * 10, new byte[]{(byte) i});
+                lastKey_out[0] = i * 10;
+                lastKey_out[1] = i;
+            }
+        }
+
+        @Override void postPrefetch(Runnable prefetch) {
+            posted.add(prefetch);
+        }
+
+        void runPosted() {
+            List<Runnable> toRun = new ArrayList<Runnable>(posted);
+            posted.clear();
+            for (Runnable runnable : toRun) {
+                runnable.run();
+            }
+        }
+    }
+
+    private TestCursor cursor;
+
+
+    @Before
+    public void setup() {
+        cursor = new TestCursor();
+    }
+
+    @Test
+    public void pageBoundaryTest() {
+        for (int i = 0; i < COUNT; i++) {
+            assertTrue(cursor.moveToNext());
+            assertRow(i);
+        }
+        assertFalse(cursor.moveToNext());
+        assertTrue(cursor.isAfterLast());
+        assertEquals(0, cursor.getEpochTime());
+
+        // Never ran a prefetch, so every window was loaded when the cursor got to it, each one after the last row of the one before.
+        assertEquals(list(0, WINDOW, WINDOW * 2, WINDOW * 3), cursor.loads);
+        assertEquals(list(false, true, true, true), cursor.loadsAfterKey);
+
+        // Either side of a boundary, going backwards.
+        assertTrue(cursor.moveToPosition(WINDOW));
+        assertRow(WINDOW);
+        assertTrue(cursor.moveToPrevious());
+        assertRow(WINDOW - 1);
+        assertTrue(cursor.moveToLast());
+        assertRow(COUNT - 1);
+        assertTrue(cursor.isLast());
+    }
+
+    @Test
+    public void jumpPastUnloadedWindowTest() {
+        // Nothing is known about the rows before the last window, so it has to be loaded by offset.
+        assertTrue(cursor.moveToLast());
+        assertRow(COUNT - 1);
+        assertEquals(list(WINDOW * 3), cursor.loads);
+        assertEquals(list(false), cursor.loadsAfterKey);
+    }
+
+    @Test
+    public void prefetchTest() {
+        // Nothing is prefetched until the cursor is halfway through a window.
+        moveAndRead(WINDOW / 2 - 1);
+        assertTrue(cursor.posted.isEmpty());
+
+        moveAndRead(WINDOW / 2);
+        assertEquals(1, cursor.posted.size());
+
+        // Only once per window.
+        moveAndRead(WINDOW - 1);
+        assertEquals(1, cursor.posted.size());
+
+        cursor.runPosted();
+        assertEquals(list(0, WINDOW), cursor.loads);
+
+        // Still no repost while the prefetched window waits to be used.
+        moveAndRead(WINDOW - 2);
+        assertTrue(cursor.posted.isEmpty());
+
+        // Crossing into the prefetched window doesn't touch the database.
+        moveAndRead(WINDOW);
+        assertEquals(2, cursor.loads.size());
+
+        // Going back a window and through its middle again prefetches the window after it again.
+        moveAndRead(WINDOW / 2);
+        assertEquals(list(0, WINDOW, 0), cursor.loads);
+        assertEquals(1, cursor.posted.size());
+        cursor.runPosted();
+        moveAndRead(WINDOW);
+        assertEquals(list(0, WINDOW, 0, WINDOW), cursor.loads);
+
+        // A prefetch the cursor has moved on from by the time it runs does nothing, only the one for the window after is loaded.
+        moveAndRead(WINDOW + WINDOW / 2);
+        assertEquals(1, cursor.posted.size());
+        moveAndRead(WINDOW * 3 - 1);
+        assertEquals(2, cursor.posted.size());
+        cursor.runPosted();
+        assertEquals(list(0, WINDOW, 0, WINDOW, WINDOW * 2, WINDOW * 3), cursor.loads);
+        moveAndRead(WINDOW * 3);
+        assertEquals(6, cursor.loads.size());
+    }
+
+    @Test
+    public void closeTest() {
+        moveAndRead(WINDOW / 2);
+        assertEquals(1, cursor.posted.size());
+
+        cursor.close();
+        assertTrue(cursor.isClosed());
+
+        // The prefetch posted before the close doesn't hit the database.
+        cursor.runPosted();
+        assertEquals(list(0), cursor.loads);
+
+        // Nothing more is read or prefetched once closed.
+        assertTrue(cursor.moveToPosition(WINDOW - 1));
+        assertEquals(0, cursor.getEpochTime());
+        assertEquals(0, cursor.getBlob().length);
+        assertTrue(cursor.getHistoricalData().isNull());
+        assertTrue(cursor.posted.isEmpty());
+        assertEquals(list(0), cursor.loads);
+    }
+
+    private void moveAndRead(int position) {
+        assertTrue(cursor.moveToPosition(position));
+        assertRow(position);
+    }
+
+    private void assertRow(int position) {
+        assertEquals(position, cursor.getPosition());
+        assertEquals(position * 10, cursor.getEpochTime());
+        assertArrayEquals(new byte[]{(byte) position}, cursor.getBlob());
+    }
+
+    private static <T> List<T> list(T... items) {
+        List<T> list = new ArrayList<T>();
+        for (T item : items) {
+            list.add(item);
+        }
+        return list;
+    }
+}
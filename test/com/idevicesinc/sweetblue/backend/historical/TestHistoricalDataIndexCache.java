@@ -0,0 +1,97 @@
+package com.idevicesinc.sweetblue.backend.historical;
+
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * Lives in the same package as {@link P_HistoricalDataIndexCache_Lru} because the class is package-private.
+ */
+public class TestHistoricalDataIndexCache {
+
+
+    @Test
+    public void evictsLeastRecentlyUsedTest() {
+        P_HistoricalDataIndexCache_Lru cache = new P_HistoricalDataIndexCache_Lru(2);
+        cache.put(0, 100, 0, 10);
+        cache.put(100, 200, 10, 20);
+
+        // Touching the first range makes the second one the least recently used.
+        assertTrue(cache.find(0, 100) >= 0);
+        cache.put(200, 300, 20, 30);
+
+        assertEquals(-1, cache.find(100, 200));
+        assertTrue(cache.find(0, 100) >= 0);
+        assertTrue(cache.find(200, 300) >= 0);
+
+        cache.clear();
+        assertEquals(-1, cache.find(0, 100));
+    }
+
+    @Test
+    public void appendTest() {
+        P_HistoricalDataIndexCache_Lru cache = new P_HistoricalDataIndexCache_Lru();
+        cache.put(100, 200, 0, 4);
+
+        // Inside the range, like new data landing at the end of "last hour".
+        cache.onInserted(150, 0);
+        assertRange(cache, 100, 200, 0, 0, 5);
+
+        // Before the range shifts both bounds.
+        cache.onInserted(50, 0);
+        assertRange(cache, 100, 200, 0, 1, 6);
+
+        // After the range leaves it alone.
+        cache.onInserted(300, 0);
+        assertRange(cache, 100, 200, 0, 1, 6);
+    }
+
+    @Test
+    public void evictionFromFrontTest() {
+        P_HistoricalDataIndexCache_Lru cache = new P_HistoricalDataIndexCache_Lru();
+        cache.put(100, 200, 10, 20);
+
+        // Indices are absolute, so evicting samples before the range changes nothing...
+        assertRange(cache, 100, 200, 5, 10, 20);
+
+        // ...and evicting into the range pulls the from-index forward.
+        assertRange(cache, 100, 200, 15, 15, 20);
+        assertRange(cache, 100, 200, 25, 25, 25);
+    }
+
+    @Test
+    public void middleDeleteTest() {
+        P_HistoricalDataIndexCache_Lru cache = new P_HistoricalDataIndexCache_Lru();
+        cache.put(100, 200, 10, 20);
+        cache.put(300, 400, 30, 40);
+
+        // Inside the first range, before the second.
+        cache.onRemoved(12, 15, 0);
+        assertRange(cache, 100, 200, 0, 10, 17);
+        assertRange(cache, 300, 400, 0, 27, 37);
+
+        // Before both.
+        cache.onRemoved(5, 8, 0);
+        assertRange(cache, 100, 200, 0, 7, 14);
+        assertRange(cache, 300, 400, 0, 24, 34);
+
+        // Straddling the start of the first range.
+        cache.onRemoved(6, 9, 0);
+        assertRange(cache, 100, 200, 0, 6, 11);
+        assertRange(cache, 300, 400, 0, 21, 31);
+
+        // Covering all of the second range.
+        cache.onRemoved(20, 35, 0);
+        assertRange(cache, 100, 200, 0, 6, 11);
+        assertRange(cache, 300, 400, 0, 20, 20);
+    }
+
+    private static void assertRange(P_HistoricalDataIndexCache_Lru cache, long fromDate, long toDate, long firstIndex, long fromIndex, long toIndex) {
+        int slot = cache.find(fromDate, toDate);
+        assertTrue(slot >= 0);
+        assertEquals(fromIndex, cache.getFromIndex(slot, firstIndex));
+        assertEquals(toIndex, cache.getToIndex(slot, firstIndex));
+    }
+}
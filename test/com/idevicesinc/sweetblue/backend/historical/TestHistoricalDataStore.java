@@ -0,0 +1,123 @@
+package com.idevicesinc.sweetblue.backend.historical;
+
+
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.Random;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+
+/**
+ * Checks {@link P_HistoricalDataStore} against a plain list of samples. Lives in the same package because the class is package-private.
+ */
+public class TestHistoricalDataStore {
+
+    private final P_HistoricalDataStore store = new P_HistoricalDataStore();
+    private final ArrayList<Long> times = new ArrayList<Long>();
+    private final ArrayList<byte[]> blobs = new ArrayList<byte[]>();
+    private final Random r = new Random(1);
+    private long time = 1000000;
+
+
+    @Test
+    public void compactionAfterFrontEvictionTest() {
+        append(2000);
+
+        // Dropping from the front only advances the start, so everything added next has to go through a compaction.
+        remove(0, 1500);
+        assertEquals(1500, store.getEvictedCount());
+        verify();
+
+        append(5000);
+        verify();
+
+        store.trimToSize();
+        verify();
+    }
+
+    @Test
+    public void compactionAfterMiddleDeleteTest() {
+        append(2000);
+
+        remove(500, 1500);
+        remove(100, 200);
+        assertEquals(0, store.getEvictedCount());
+        verify();
+
+        append(5000);
+        verify();
+
+        remove(1, store.getSize() - 1);
+        store.trimToSize();
+        verify();
+
+        append(100);
+        verify();
+    }
+
+    @Test
+    public void compactionAfterOutOfOrderInsertTest() {
+        append(1000);
+
+        // Payloads for older samples land at the end of the arena, so it's no longer in index order when compacted.
+        for (int i = 0; i < 1000; i++) {
+            add(1000000 + r.nextInt((int) (time - 1000000)));
+        }
+        verify();
+
+        remove(0, 300);
+        remove(200, 900);
+        append(5000);
+        verify();
+
+        store.trimToSize();
+        verify();
+    }
+
+    @Test
+    public void removeAllTest() {
+        append(100);
+        remove(0, 100);
+        assertEquals(0, store.getSize());
+        assertEquals(100, store.getEvictedCount());
+
+        append(10);
+        verify();
+    }
+
+    private void append(int count) {
+        for (int i = 0; i < count; i++) {
+            time += r.nextInt(10);
+            add(time);
+        }
+    }
+
+    private void add(long time) {
+        byte[] blob = new byte[r.nextInt(40)];
+        r.nextBytes(blob);
+
+        int index = store.add(time, blob);
+        times.add(index, time);
+        blobs.add(index, blob);
+    }
+
+    private void remove(int from, int to) {
+        store.remove(from, to);
+        times.subList(from, to).clear();
+        blobs.subList(from, to).clear();
+    }
+
+    private void verify() {
+        assertEquals(times.size(), store.getSize());
+
+        for (int i = 0; i < times.size(); i++) {
+            assertEquals((long) times.get(i), store.getTime(i));
+            assertArrayEquals(blobs.get(i), store.getBlob(i));
+        }
+
+        for (int i = 1; i < times.size(); i++) {
+            assertEquals(true, store.getTime(i - 1) <= store.getTime(i));
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.idevicesinc.sweetblue.tests;
+
+
+import com.idevicesinc.sweetblue.utils.HistoricalDataInputStream;
+import com.idevicesinc.sweetblue.utils.HistoricalDataOutputStream;
+import org.junit.Test;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+public class TestHistoricalDataStream {
+
+
+    @Test
+    public void roundTripTest() throws IOException {
+        Random r = new Random(1);
+        long[] times = new long[2000];
+        byte[][] blobs = new byte[times.length][];
+        long time = System.currentTimeMillis();
+        for (int i = 0; i < times.length; i++) {
+            time += r.nextInt(100) - 10;
+            times[i] = i == 5 ? Long.MIN_VALUE : time;
+            blobs[i] = new byte[i == 7 ? 20000 : r.nextInt(10)];
+            r.nextBytes(blobs[i]);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        HistoricalDataOutputStream out = new HistoricalDataOutputStream(bytes);
+        for (int i = 0; i < times.length; i++) {
+            out.write(times[i], blobs[i], 0, blobs[i].length);
+        }
+        out.close();
+        assertEquals(times.length, out.getCount());
+
+        HistoricalDataInputStream in = new HistoricalDataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        for (int i = 0; i < times.length; i++) {
+            assertTrue(in.next());
+            assertEquals(times[i], in.getEpochTime());
+            assertArrayEquals(blobs[i], in.getBlob());
+        }
+        assertFalse(in.next());
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedTest() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        HistoricalDataOutputStream out = new HistoricalDataOutputStream(bytes);
+        out.write(1000, new byte[] { 1, 2, 3 }, 0, 3);
+        out.close();
+
+        byte[] truncated = Arrays.copyOf(bytes.toByteArray(), bytes.size() - 1);
+        HistoricalDataInputStream in = new HistoricalDataInputStream(new ByteArrayInputStream(truncated));
+        in.next();
+    }
+}
@@ -0,0 +1,24 @@
+package com.idevicesinc.sweetblue.tests;
+
+
+import com.idevicesinc.sweetblue.utils.HistoricalDataValueType;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+
+public class TestHistoricalDataValueType {
+
+
+    @Test
+    public void readTest() {
+        byte[] bytes = new byte[] { 0x00, (byte) 0xFE, (byte) 0xFF, 0x01, (byte) 0x80 };
+        assertEquals(-2, HistoricalDataValueType.INT8.read(bytes, 1));
+        assertEquals(254, HistoricalDataValueType.UINT8.read(bytes, 1));
+        assertEquals(-2, HistoricalDataValueType.INT16_LE.read(bytes, 1));
+        assertEquals(0xFFFE, HistoricalDataValueType.UINT16_LE.read(bytes, 1));
+        assertEquals(0xFE, HistoricalDataValueType.INT16_BE.read(bytes, 0));
+        assertEquals(0x8001FFFEL, HistoricalDataValueType.UINT32_LE.read(bytes, 1));
+        assertEquals((int) 0x8001FFFE, HistoricalDataValueType.INT32_LE.read(bytes, 1));
+        assertEquals(0xFEFF0180L, HistoricalDataValueType.UINT32_BE.read(bytes, 1));
+    }
+}
@@ -0,0 +1,88 @@
+package com.idevicesinc.sweetblue.tests;
+
+import com.idevicesinc.sweetblue.utils.ScanRecordView;
+import com.idevicesinc.sweetblue.utils.Utils_ScanRecord;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+
+public class TestScanRecordView {
+
+    private static final UUID HEART_RATE = UUID.fromString("0000180d-0000-1000-8000-00805f9b34fb");
+    private static final UUID HIGH_16 = UUID.fromString("0000fe9f-0000-1000-8000-00805f9b34fb");
+    private static final UUID BITS_32 = UUID.fromString("12345678-0000-1000-8000-00805f9b34fb");
+    private static final UUID CUSTOM = UUID.fromString("f000aa00-0451-4000-b000-000000000000");
+
+    private static final byte[] RECORD = {
+        2, 0x01, 0x06,
+        5, 0x03, 0x0D, 0x18, (byte) 0x9F, (byte) 0xFE,
+        5, 0x05, 0x78, 0x56, 0x34, 0x12,
+        17, 0x07, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, (byte) 0xB0, 0x00, 0x40, 0x51, 0x04, 0x00, (byte) 0xAA, 0x00, (byte) 0xF0,
+        2, 0x0A, (byte) 0xF4,
+        5, 0x09, 'a', 'b', 'c', 'd',
+        3, 0x08, 'a', 'b',
+        5, (byte) 0xFF, 0x4C, 0x00, 0x01, 0x02,
+        4, 0x16, (byte) 0xAA, (byte) 0xFE, 0x10,
+        0, 0, 0
+    };
+
+    @Test
+    public void structureTest() {
+        ScanRecordView view = new ScanRecordView().wrap(RECORD);
+        assertEquals(9, view.getStructureCount());
+        assertEquals(ScanRecordView.TYPE_FLAGS, view.getStructureType(0));
+        assertEquals(0x06, view.getFlags());
+        assertEquals(-12, view.getTxPowerLevel());
+        assertEquals("abcd", view.getName());
+        assertEquals(0x004C, view.getManufacturerId());
+        assertArrayEquals(new byte[]{0x01, 0x02}, view.getManufacturerData());
+    }
+
+    @Test
+    public void serviceUuidTest() {
+        ScanRecordView view = new ScanRecordView().wrap(RECORD);
+        assertEquals(4, view.getServiceUuidCount());
+        assertEquals(HEART_RATE, view.getServiceUuid(0));
+        assertEquals(HIGH_16, view.getServiceUuid(1));
+        assertEquals(BITS_32, view.getServiceUuid(2));
+        assertEquals(CUSTOM, view.getServiceUuid(3));
+        assertSame(view.getServiceUuid(0), view.getServiceUuid(0));
+        assertTrue(view.hasServiceUuid(HIGH_16));
+        assertTrue(view.hasServiceUuid(CUSTOM));
+        assertFalse(view.hasServiceUuid(UUID.fromString("0000180f-0000-1000-8000-00805f9b34fb")));
+
+        List<UUID> uuids = Utils_ScanRecord.parseServiceUuids(RECORD);
+        assertEquals(4, uuids.size());
+        assertEquals(CUSTOM, uuids.get(3));
+    }
+
+    @Test
+    public void serviceDataTest() {
+        ScanRecordView view = new ScanRecordView().wrap(RECORD);
+        assertEquals(1, view.getServiceDataCount());
+        UUID eddystone = UUID.fromString("0000feaa-0000-1000-8000-00805f9b34fb");
+        assertEquals(eddystone, view.getServiceDataUuid(0));
+        assertArrayEquals(new byte[]{0x10}, view.getServiceData(eddystone));
+        assertNull(view.getServiceData(HEART_RATE));
+    }
+
+    @Test
+    public void malformedTest() {
+        ScanRecordView view = new ScanRecordView().wrap(new byte[]{2, 0x01, 0x06, 9, 0x09, 'a'});
+        assertEquals(1, view.getStructureCount());
+        assertNull(view.getName());
+        view.wrap(null);
+        assertEquals(0, view.getStructureCount());
+        assertEquals(ScanRecordView.NOT_PRESENT, view.getFlags());
+        assertEquals(0, view.getServiceUuids().size());
+    }
+}